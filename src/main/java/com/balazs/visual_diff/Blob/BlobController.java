@@ -2,7 +2,7 @@ package com.balazs.visual_diff.Blob;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +33,7 @@ import com.balazs.visual_diff.Exceptions.InvalidTypeException;
 import com.balazs.visual_diff.Exceptions.NotFoundException;
 import com.balazs.visual_diff.Exceptions.UnsupportedMediaTypeException;
 import com.balazs.visual_diff.Utilities.FileUtilities;
+import com.balazs.visual_diff.Utilities.ImageHeader;
 import com.balazs.visual_diff.Utilities.ValidationUtilities;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -55,7 +56,7 @@ public class BlobController {
      * Uploads a file to Azure Blob Storage. Will always overwrite existing files with the same name.
      *
      * @param MultipartFile file to be uploaded
-     * @param String type of the file. 'baseline' or 'comparison'
+     * @param String type of the file. 'baseline', 'comparison' or 'mask'
      * @return ResponseEntity<BlobResponse>
      * @throws IOException
      * @throws InvalidTypeException
@@ -67,21 +68,21 @@ public class BlobController {
     @Operation(summary = "Upload a file to Azure Blob Storage.", description = "Uploads the incoming file to Azure Blob Storage if the 'file', and 'type' are valid. Will always overwrite existing files with the same name.")
     @ApiResponses({
         @ApiResponse(responseCode = "201", description = "The image was uploaded to Azure Blob Storage successfully."),
-        @ApiResponse(responseCode = "400", description = "The RequestParam 'type' is not 'baseline' or 'comparison'."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'type' is not 'baseline', 'comparison' or 'mask'."),
         @ApiResponse(responseCode = "400", description = "The RequestParam 'file' is empty or null."),
         @ApiResponse(responseCode = "400", description = "The RequestParam 'file' is corrupt or unable to be read."),
         @ApiResponse(responseCode = "413", description = "The RequestParam 'file' or 'type' is too large. Max 5MB size for the file, max 10MB size for the request."),
         @ApiResponse(responseCode = "415", description = "The RequestParam 'file' is not PNG or JPEG format.")
     })
     @Parameter(name = "file", description = "The 'file' to be uploaded. Must be PNG, or JPEG format, and must be 5MB or less.")
-    @Parameter(name = "type", description = "The 'type' of the file to be uploaded. Must be 'baseline', or 'comparison'.")
+    @Parameter(name = "type", description = "The 'type' of the file to be uploaded. Must be 'baseline', 'comparison', or 'mask'. Masks are used by /compare to skip the pixels under their white pixels.")
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
 	public ResponseEntity<BlobResponse> uploadFile(@RequestParam("file") MultipartFile file, @RequestParam("type") String type) throws IOException {        
 
         //Log start of request
         logger.info("Received POST /files/upload request for file: {} with type: {}", file.getOriginalFilename(), type);
 
-        //Ensure type is either "baseline" or "comparison"
+        //Ensure type is either "baseline", "comparison" or "mask"
         if (!ValidationUtilities.isTypeValid(type)) { throw new InvalidTypeException(); }
         
         //Ensure file is not empty
@@ -90,14 +91,17 @@ public class BlobController {
         //Ensure file is of PNG or JPEG format
         if (!ValidationUtilities.isContentTypeValid(file)) { throw new UnsupportedMediaTypeException(); }
 
-        //Ensure file can be converted to a BufferedImage successfully
-        if (!ValidationUtilities.isImageContentsValid(file)) { throw new CorruptImageException(); }
+        //Ensure the file's header can be read, without decoding its pixels
+        ImageHeader header = ValidationUtilities.readImageHeader(file);
+        if (header == null) { throw new CorruptImageException(); }
 
-        //Save file to Blob Storage
+        //Stream file to Blob Storage with its header as metadata
         String format = FileUtilities.getFileFormatFromMultipartFile(file);
         String fileName = FileUtilities.generateFileName(format, type);
-        byte[] fileData = file.getBytes();
-        BlobResponse response = blobService.saveFile(fileData, fileName);
+        BlobResponse response = blobService.saveFile(file, fileName, header.toMetadata());
+
+        //Fully decode the file after responding if deferred deep checks are enabled, deleting it if its pixel data is corrupt
+        blobService.deepCheckLater(fileName);
 
         //Log end of request
         logger.info("POST /files/upload successful on: {}", fileName);
@@ -106,7 +110,7 @@ public class BlobController {
         response.add(linkTo(methodOn(BlobController.class).uploadFile(file, type)).withSelfRel().withType("POST"));
         response.add(linkTo(methodOn(BlobController.class).getFile(fileName)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).getFileMetaData(fileName)).withRel("get").withType("GET"));
-        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData()).withRel("get").withType("GET"));
+        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(null, null, null)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).deleteFile(fileName)).withRel("delete").withType("DELETE"));
         response.add(linkTo(methodOn(CompareController.class).compare(new CompareRequest(fileName, "file2.png"))).withRel("compare").withType("POST"));
 
@@ -151,31 +155,43 @@ public class BlobController {
     }
 
     /**
-     * Retrieves all file's metadata from Azure Blob Storage.
+     * Retrieves one page of files' metadata from Azure Blob Storage.
      *
-     * @return ResponseEntity<CollectionModel<BlobResponse>> file metadata of all files
+     * @param String type of the files to be listed. 'baseline', 'comparison', 'mask' or 'diff', or null for all files
+     * @param String continuationToken of the page to be listed, taken from the 'next' link of the previous page
+     * @param Integer pageSize maximum number of files on the page
+     * @return ResponseEntity<CollectionModel<BlobResponse>> file metadata of the files on the page
      * @throws IOException
+     * @throws InvalidTypeException
      */
     @Tag(name = "Blob Controller", description = "Operations related to managing files on Azure Blob Storage. This includes uploading files, deleting files, retrieving files, and metadata.")
-    @Operation(summary = "Retrieves all files' metadata from Azure Blob Storage.", description = "Retrieves all files' metadata from Azure Blob Storage. Metadata in this case is the 'fileName', 'type', 'size' in bytes, and 'creationTime'.")
+    @Operation(summary = "Retrieves a page of files' metadata from Azure Blob Storage.", description = "Retrieves a page of files' metadata from Azure Blob Storage, read in a single listing request. Metadata in this case is the 'fileName', 'type', 'size' in bytes, and 'creationTime'. If more files exist, the response has a 'next' link to the following page.")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "All files' metadata found and returned successfully.")
+        @ApiResponse(responseCode = "200", description = "The page of files' metadata found and returned successfully."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'type' is not 'baseline', 'comparison', 'mask' or 'diff'.")
     })
+    @Parameter(name = "type", description = "The optional 'type' of the files to be listed. Must be 'baseline', 'comparison', 'mask' or 'diff'. Lists all files if not provided.")
+    @Parameter(name = "continuationToken", description = "The optional 'continuationToken' of the page to be listed, as found in the 'next' link of the previous page. Lists the first page if not provided.")
+    @Parameter(name = "pageSize", description = "The optional maximum number of files on the page, up to 5000. Uses app.blob.list-page-size if not provided.")
     @GetMapping("/metadata")
-    public ResponseEntity<CollectionModel<BlobResponse>> getAllFileMetaData() throws IOException {
+    public ResponseEntity<CollectionModel<BlobResponse>> getAllFileMetaData(@RequestParam(value = "type", required = false) String type, @RequestParam(value = "continuationToken", required = false) String continuationToken, @RequestParam(value = "pageSize", required = false) Integer pageSize) throws IOException {
         
         //Log start of request
-        logger.info("Received GET /files/metadata request for all files");
+        logger.info("Received GET /files/metadata request for files with type: {}", type);
+
+        //Ensure type, if provided, is either "baseline", "comparison", "mask" or "diff"
+        if (type != null && !ValidationUtilities.isListTypeValid(type)) { throw new InvalidTypeException(); }
 
-        //Get list of all files from Azure Blob Storage
-        ArrayList<BlobResponse> responses = blobService.getAllFileProperties();
+        //Get one page of files from Azure Blob Storage
+        BlobPage page = blobService.getAllFileProperties(type, continuationToken, pageSize);
+        List<BlobResponse> responses = page.getResponses();
 
         //Log end of request
-        logger.info("GET /files/metadata successful on all files");
+        logger.info("GET /files/metadata successful on {} files", responses.size());
 
         //Create the HATEOAS response with links to related actions
         for(BlobResponse response : responses) {
-            response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData()).withSelfRel().withType("GET"));
+            response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(null, null, null)).withSelfRel().withType("GET"));
             response.add(linkTo(methodOn(BlobController.class).getFileMetaData(response.getFileName())).withRel("get").withType("GET"));
             response.add(linkTo(methodOn(BlobController.class).getFile(response.getFileName())).withRel("get").withType("GET"));
             response.add(linkTo(methodOn(BlobController.class).uploadFile(null, response.getType())).withRel("upload").withType("POST"));
@@ -184,6 +200,8 @@ public class BlobController {
         }
 
         CollectionModel<BlobResponse> collectionModel = CollectionModel.of(responses);
+        collectionModel.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(type, continuationToken, pageSize)).withSelfRel().withType("GET"));
+        if (page.hasNextPage()) { collectionModel.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(type, page.getContinuationToken(), pageSize)).withRel("next").withType("GET")); }
         return ResponseEntity.ok(collectionModel);
     }
 
@@ -222,7 +240,7 @@ public class BlobController {
         //Create the HATEOAS response with links to related actions
         BlobResponse response = blobService.getFileProperties(fileName);
         response.add(linkTo(methodOn(BlobController.class).getFileMetaData(fileName)).withSelfRel().withType("GET"));
-        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData()).withRel("get").withType("GET"));
+        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(null, null, null)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).getFile(fileName)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).uploadFile(null, response.getType())).withRel("upload").withType("POST"));
         response.add(linkTo(methodOn(BlobController.class).deleteFile(fileName)).withRel("delete").withType("DELETE"));
@@ -271,7 +289,7 @@ public class BlobController {
         response.add(linkTo(methodOn(BlobController.class).uploadFile(null, response.getType())).withRel("upload").withType("POST"));
         response.add(linkTo(methodOn(BlobController.class).getFile(fileName)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).getFileMetaData(fileName)).withRel("get").withType("GET"));
-        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData()).withRel("get").withType("GET"));
+        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(null, null, null)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(CompareController.class).compare(new CompareRequest(fileName, "file2.png"))).withRel("compare").withType("POST"));
 
         return ResponseEntity.ok().body(response);
@@ -0,0 +1,37 @@
+package com.balazs.visual_diff.Blob;
+
+import java.util.List;
+
+public final class BlobPage {
+
+    private final List<BlobResponse> responses;
+    private final String continuationToken;
+
+    /**
+     * Holds one page of the files listed on Azure Blob Storage.
+     *
+     * @param List<BlobResponse> responses of the files on this page
+     * @param String continuationToken to request the next page with, or null if this is the last page
+     */
+    public BlobPage(List<BlobResponse> responses, String continuationToken) {
+        this.responses = responses;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<BlobResponse> getResponses() {
+        return responses;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Checks if more files can be listed after this page.
+     *
+     * @return boolean true if there is a next page
+     */
+    public boolean hasNextPage() {
+        return continuationToken != null && !continuationToken.isEmpty();
+    }
+}
@@ -0,0 +1,148 @@
+package com.balazs.visual_diff.Blob;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.azure.storage.blob.models.BlobProperties;
+
+public final class BlobPropertiesCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long revalidations = 0;
+
+    /**
+     * Keeps the properties of blobs, or the fact that a blob does not exist, so checking a file, reading its metadata,
+     * and building its BlobResponse share a single request to Azure. Entries are served for ttlMillis milliseconds.
+     * After that, an existing blob is revalidated with its ETag, which keeps the cached properties if the blob did not
+     * change, and a missing blob is fetched again. Once more than maxEntries blobs are cached, the least recently used
+     * entries are evicted first.
+     *
+     * The cache can be used by any number of threads. Writes through BlobService update it right away, writes by other
+     * instances are seen after at most ttlMillis milliseconds.
+     *
+     * @param long ttlMillis milliseconds an entry is served without asking Azure
+     * @param int maxEntries maximum number of blobs held by the cache. 0 or less disables the cache
+     */
+    public BlobPropertiesCache(long ttlMillis, int maxEntries) {
+        this.ttlNanos = Math.max(0, ttlMillis) * 1_000_000;
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    /**
+     * Gets the properties of a blob, from the cache while its entry is fresh, otherwise from Azure.
+     *
+     * @param String fileName of the blob
+     * @param Function<String, BlobProperties> fetcher requests the properties of a blob, returns null if it does not exist
+     * @param BiFunction<String, BlobProperties, BlobProperties> revalidator requests the properties of a blob only if its
+     * ETag differs from the cached properties, returns the cached properties if it did not change, or null if it was deleted
+     * @return BlobProperties of the blob, or null if it does not exist
+     */
+    public BlobProperties get(String fileName, Function<String, BlobProperties> fetcher, BiFunction<String, BlobProperties, BlobProperties> revalidator) {
+        if (maxEntries == 0) { return fetcher.apply(fileName); }
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(fileName);
+            if (entry != null && System.nanoTime() - entry.cachedAt < ttlNanos) {
+                hits++;
+                return entry.properties;
+            }
+
+            if (entry != null && entry.properties != null) { revalidations++; }
+            else { misses++; }
+        }
+
+        //Request outside the lock, so lookups of other blobs are not blocked
+        BlobProperties properties = entry != null && entry.properties != null ? revalidator.apply(fileName, entry.properties) : fetcher.apply(fileName);
+        put(fileName, properties);
+        return properties;
+    }
+
+    /**
+     * Caches the properties of a blob, such as right after it was written, and evicts the least recently used entry if
+     * the cache is full.
+     *
+     * @param String fileName of the blob
+     * @param BlobProperties properties of the blob, or null to cache that it does not exist
+     */
+    public synchronized void put(String fileName, BlobProperties properties) {
+        if (maxEntries == 0) { return; }
+
+        entries.put(fileName, new Entry(properties, System.nanoTime()));
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes a blob from the cache, so its properties are fetched again on the next lookup.
+     *
+     * @param String fileName of the blob
+     */
+    public synchronized void invalidate(String fileName) {
+        entries.remove(fileName);
+    }
+
+    /**
+     * Gets the number of lookups served from the cache without asking Azure.
+     *
+     * @return long number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that fetched the properties of a blob that was not cached, or cached as missing.
+     *
+     * @return long number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of lookups that revalidated expired properties with their ETag.
+     *
+     * @return long number of revalidations
+     */
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * Gets the number of blobs currently held by the cache, including blobs cached as missing.
+     *
+     * @return int number of cached blobs
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the maximum number of blobs held by the cache.
+     *
+     * @return int maximum number of cached blobs, 0 if the cache is disabled
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    private final static class Entry {
+        private final BlobProperties properties;
+        private final long cachedAt;
+
+        private Entry(BlobProperties properties, long cachedAt) {
+            this.properties = properties;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
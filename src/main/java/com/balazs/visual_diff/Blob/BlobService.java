@@ -1,26 +1,143 @@
 package com.balazs.visual_diff.Blob;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.azure.core.http.rest.PagedResponse;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobDownloadContentResponse;
+import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.BlobItemProperties;
+import com.azure.storage.blob.models.BlobListDetails;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.ListBlobsOptions;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.balazs.visual_diff.Exceptions.GlobalExceptionHandler;
+import com.balazs.visual_diff.Utilities.ContentHash;
 import com.balazs.visual_diff.Utilities.FileUtilities;
+import com.balazs.visual_diff.Utilities.ValidationUtilities;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class BlobService {
 
+    public final static String METADATA_CONTENT_HASH = "contenthash";
+    public final static String METADATA_CONTENT_KEY = "contentkey";
+    public final static String METADATA_CONTENT_SIZE = "contentsize";
+
+    private final static String CONTENT_PREFIX = "content/";   //Virtual directory of the content-addressed files
+    private final static String DIRECTORY_DELIMITER = "/";     //Separates virtual directories from file names when listing
+    private final static int MAX_LIST_PAGE_SIZE = 5000;        //Most blobs Azure returns in one listing page
+    private final static Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
     private final BlobContainerClient containerClient;
+    private final boolean deferredDeepCheck;
+    private final boolean contentAddressed;
+    private final BlobPropertiesCache propertiesCache;
+    private final int listPageSize;
+    private final int downloadBlockSize;
+    private final ParallelTransferOptions transferOptions;
+    private final ExecutorService deepCheckExecutor;
+    private final long contentSweepIntervalMillis;
+    private final long contentSweepGraceMillis;
+    private final ScheduledExecutorService contentSweepExecutor;
 
-    public BlobService(@Value("${spring.cloud.azure.storage.blob.container-name}") String containerName, BlobServiceClient blobServiceClient) {
+    /**
+     * Connects to the blob container, and creates the executors of the deferred deep checks and of the content sweep.
+     *
+     * @param String containerName of the blob container
+     * @param BlobServiceClient blobServiceClient of the storage account
+     * @param BlobStorageProperties properties settings of the blob storage, bound from the app.blob properties
+     */
+    public BlobService(@Value("${spring.cloud.azure.storage.blob.container-name}") String containerName, BlobServiceClient blobServiceClient, BlobStorageProperties properties) {
         this.containerClient = blobServiceClient.getBlobContainerClient(containerName);
+        this.deferredDeepCheck = properties.isDeferredDeepCheck();
+        this.contentAddressed = properties.isContentAddressed();
+        this.propertiesCache = new BlobPropertiesCache(properties.getPropertiesCacheTtlMs(), properties.getPropertiesCacheMaxEntries());
+        this.listPageSize = Math.min(Math.max(1, properties.getListPageSize()), MAX_LIST_PAGE_SIZE);
+        this.downloadBlockSize = Math.max(1, properties.getDownloadBlockSize());
+        this.transferOptions = new ParallelTransferOptions()
+            .setBlockSizeLong(Math.max(1, properties.getUploadBlockSize()))
+            .setMaxConcurrency(Math.max(1, properties.getUploadMaxConcurrency()))
+            .setMaxSingleUploadSizeLong(Math.max(1, properties.getUploadMaxSingleSize()));
+        this.deepCheckExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-deep-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.contentSweepGraceMillis = Math.max(0, properties.getContentSweepGraceMs());
+        this.contentSweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.contentSweepIntervalMillis = properties.getContentSweepIntervalMs();
+    }
+
+    /**
+     * Schedules the content sweep once the service is built, in content-addressed mode, so constructing the service
+     * starts no background requests to Azure.
+     */
+    @PostConstruct
+    public void startContentSweep() {
+        if (!contentAddressed || contentSweepIntervalMillis <= 0) { return; }
+
+        contentSweepExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                int deleted = sweepContent();
+                logger.info("Content sweep deleted {} unreferenced content files", deleted);
+            }
+            catch (RuntimeException e) {
+                logger.warn("Content sweep failed: {}", e.getMessage());
+            }
+        }, contentSweepIntervalMillis, contentSweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the deferred deep checks and the content sweep when the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        deepCheckExecutor.shutdown();
+        contentSweepExecutor.shutdown();
+    }
+
+    /**
+     * Gets the cache the properties and existence of files are read through, to report its hits and misses.
+     *
+     * @return BlobPropertiesCache of this service
+     */
+    public BlobPropertiesCache getPropertiesCache() {
+        return propertiesCache;
     }
 
     /**
@@ -33,12 +150,166 @@ public class BlobService {
      */
     public BlobResponse saveFile(byte[] fileData, String fileName) throws IOException {
         BlobClient blobClient = containerClient.getBlobClient(fileName);
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(fileData);
-        blobClient.upload(inputStream, fileData.length, true);
-        inputStream.close();
+        blobClient.uploadWithResponse(new BlobParallelUploadOptions(BinaryData.fromBytes(fileData)).setParallelTransferOptions(transferOptions), null, Context.NONE);
+        propertiesCache.invalidate(fileName);
         return buildBlobResponse(blobClient);
     }
 
+    /**
+     * Saves the incoming file to Azure Blob Storage with metadata, such as the header of an uploaded image, so it can
+     * be read with the file's properties without downloading the file. The ContentHash of the file is added to the
+     * metadata, so compares of files with the same contents can be recognized, see getContentHash.
+     *
+     * In content-addressed mode, the bytes are stored once as content/[hash].[format], and fileName is saved as an empty
+     * alias file whose metadata points at them. Uploads of content that is already stored skip writing the bytes.
+     *
+     * @param byte[] fileData of the desired file to be saved to blob storage
+     * @param String fileName of the file to be saved
+     * @param Map<String, String> metadata to be stored with the file
+     * @return BlobResponse with the files's information
+     */
+    public BlobResponse saveFile(byte[] fileData, String fileName, Map<String, String> metadata) {
+        return saveFile(BinaryData.fromBytes(fileData), fileData.length, ContentHash.of(fileData), fileName, metadata);
+    }
+
+    /**
+     * Saves an uploaded file to Azure Blob Storage with metadata like saveFile(byte[], String, Map), streaming it from
+     * the MultipartFile instead of reading it into a byte[] array. The file is read twice, once to hash it, since the
+     * ContentHash has to be known before the upload starts, and once to upload it.
+     *
+     * @param MultipartFile file to be saved
+     * @param String fileName of the file to be saved
+     * @param Map<String, String> metadata to be stored with the file
+     * @return BlobResponse with the files's information
+     * @throws IOException if the file cannot be read
+     */
+    public BlobResponse saveFile(MultipartFile file, String fileName, Map<String, String> metadata) throws IOException {
+        String contentHash;
+        try (InputStream inputStream = file.getInputStream()) {
+            contentHash = ContentHash.of(inputStream);
+        }
+
+        try (InputStream inputStream = file.getInputStream()) {
+            return saveFile(BinaryData.fromStream(inputStream, file.getSize()), file.getSize(), contentHash, fileName, metadata);
+        }
+    }
+
+    /**
+     * Saves a file with metadata and its ContentHash, see saveFile(byte[], String, Map).
+     *
+     * @param BinaryData content of the file, either its bytes or a stream of them
+     * @param long size of the file in bytes
+     * @param String contentHash of the file
+     * @param String fileName of the file to be saved
+     * @param Map<String, String> metadata to be stored with the file
+     * @return BlobResponse with the files's information
+     */
+    private BlobResponse saveFile(BinaryData content, long size, String contentHash, String fileName, Map<String, String> metadata) {
+        Map<String, String> contentMetadata = new HashMap<>(metadata);
+        contentMetadata.put(METADATA_CONTENT_HASH, contentHash);
+
+        BlobClient blobClient = containerClient.getBlobClient(fileName);
+        if (!contentAddressed) {
+            blobClient.uploadWithResponse(new BlobParallelUploadOptions(content).setMetadata(contentMetadata).setParallelTransferOptions(transferOptions), null, Context.NONE);
+            propertiesCache.invalidate(fileName);
+            return buildBlobResponse(blobClient);
+        }
+
+        //Store the bytes once under their hash, then save the file name as an alias pointing at them
+        String contentKey = CONTENT_PREFIX + contentHash + fileName.substring(fileName.lastIndexOf('.'));
+        saveContent(content, contentKey);
+        contentMetadata.put(METADATA_CONTENT_KEY, contentKey);
+        contentMetadata.put(METADATA_CONTENT_SIZE, Long.toString(size));
+        blobClient.uploadWithResponse(new BlobParallelUploadOptions(BinaryData.fromBytes(new byte[0])).setMetadata(contentMetadata), null, Context.NONE);
+        propertiesCache.invalidate(fileName);
+        return buildBlobResponse(blobClient);
+    }
+
+    /**
+     * Saves the bytes of a file under its content key, unless they are already stored. Content files are never
+     * overwritten, since the same key always holds the same bytes. Content that is already stored has its metadata
+     * rewritten instead, which moves its last modified time forward so sweepContent does not delete it before the
+     * alias pointing at it is saved.
+     *
+     * @param BinaryData content of the file
+     * @param String contentKey name of the content file
+     */
+    private void saveContent(BinaryData content, String contentKey) {
+        BlobClient contentClient = containerClient.getBlobClient(contentKey);
+        BlobProperties properties = getProperties(contentKey);
+        if (properties != null) {
+            try {
+                contentClient.setMetadata(properties.getMetadata());
+                return;
+            }
+            catch (BlobStorageException e) {
+                //The cached properties were stale, and the content was swept
+                if (e.getStatusCode() != 404) { throw e; }
+            }
+        }
+
+        propertiesCache.invalidate(contentKey);
+        try {
+            BlobRequestConditions ifNotExists = new BlobRequestConditions().setIfNoneMatch("*");
+            contentClient.uploadWithResponse(new BlobParallelUploadOptions(content).setRequestConditions(ifNotExists).setParallelTransferOptions(transferOptions), null, Context.NONE);
+        }
+        catch (BlobStorageException e) {
+            //Another upload stored the same content first
+            if (e.getStatusCode() != 409 && e.getStatusCode() != 412) { throw e; }
+        }
+    }
+
+    /**
+     * Fully decodes a saved file on a background thread, after its upload has already been answered, see deepCheck.
+     * Only the file name is queued, and the file is read back from storage when its check runs, so uploads waiting to
+     * be checked do not hold their bytes in memory. Does nothing unless deferred deep checks are enabled.
+     *
+     * @param String fileName of the saved file
+     */
+    public void deepCheckLater(String fileName) {
+        if (!deferredDeepCheck) { return; }
+        deepCheckExecutor.execute(() -> deepCheck(fileName));
+    }
+
+    /**
+     * Downloads a saved file and fully decodes it. Files whose header was valid but whose pixel data cannot be decoded
+     * are deleted, so they never reach a compare. In content-addressed mode the content file is deleted too, so later
+     * uploads of the same bytes store them again instead of pointing at the corrupt content. Files that cannot be
+     * downloaded are kept, since storage errors say nothing about their pixel data.
+     *
+     * @param String fileName of the saved file
+     */
+    void deepCheck(String fileName) {
+        byte[] fileData;
+        String contentKey;
+        try {
+            BlobProperties properties = getProperties(fileName);
+            if (properties == null) { return; }
+
+            contentKey = properties.getMetadata() == null ? null : properties.getMetadata().get(METADATA_CONTENT_KEY);
+            fileData = containerClient.getBlobClient(contentKey != null ? contentKey : fileName).downloadContent().toBytes();
+        }
+        catch (BlobStorageException e) {
+            logger.warn("Deep check could not download {}: {}", fileName, e.getMessage());
+            return;
+        }
+
+        try {
+            if (ValidationUtilities.isImageContentsValid(new ByteArrayInputStream(fileData))) { return; }
+        }
+        catch (IOException | RuntimeException e) {
+            logger.warn("Deep check could not decode {}: {}", fileName, e.getMessage());
+        }
+
+        logger.error("Deep check failed, deleting corrupt file: {}", fileName);
+        containerClient.getBlobClient(fileName).deleteIfExists();
+        propertiesCache.put(fileName, null);
+        if (contentKey != null) {
+            containerClient.getBlobClient(contentKey).deleteIfExists();
+            propertiesCache.put(contentKey, null);
+        }
+    }
+
     /**
      * Retrieves a file from Azure blob storage if it exists.
      *
@@ -47,10 +318,62 @@ public class BlobService {
      */
     public byte[] getFile(String fileName) {
         BlobClient blobClient = containerClient.getBlobClient(fileName);
-        byte[] fileData = blobClient.downloadContent().toBytes();
+        BlobDownloadContentResponse response = blobClient.downloadContentWithResponse(null, null, null, Context.NONE);
+
+        //Aliases are empty, their bytes are stored under the content key in their metadata
+        String contentKey = response.getDeserializedHeaders().getMetadata().get(METADATA_CONTENT_KEY);
+        if (contentKey != null) { return containerClient.getBlobClient(contentKey).downloadContent().toBytes(); }
+
+        byte[] fileData = response.getValue().toBytes();
         return fileData;
     }
 
+    /**
+     * Opens a file on Azure Blob Storage for reading, downloading downloadBlockSize bytes at a time as the stream is
+     * read, so the file is never held in full. Aliases are followed to their content like getFile.
+     *
+     * @param String fileName of the file to be read
+     * @return InputStream of the file's bytes, which must be closed by the caller
+     */
+    public InputStream openFile(String fileName) {
+        BlobProperties properties = getProperties(fileName);
+        String contentKey = properties == null ? null : properties.getMetadata().get(METADATA_CONTENT_KEY);
+
+        BlobClient blobClient = containerClient.getBlobClient(contentKey != null ? contentKey : fileName);
+        return blobClient.openInputStream(new BlobInputStreamOptions().setBlockSize(downloadBlockSize));
+    }
+
+    /**
+     * Retrieves the ETag of a file, which changes every time the file is overwritten.
+     *
+     * @param String fileName of the file
+     * @return String eTag of the file's current version
+     */
+    public String getFileETag(String fileName) {
+        return getProperties(fileName).getETag();
+    }
+
+    /**
+     * Retrieves the ContentHash stored with a file when it was saved with metadata.
+     *
+     * @param String fileName of the file
+     * @return String contentHash of the file, or null if the file was saved without one
+     */
+    public String getContentHash(String fileName) {
+        return getProperties(fileName).getMetadata().get(METADATA_CONTENT_HASH);
+    }
+
+    /**
+     * Retrieves the metadata a file was saved with, in a single request that also checks if the file exists.
+     *
+     * @param String fileName of the file
+     * @return Map<String, String> metadata of the file, or null if the file does not exist
+     */
+    public Map<String, String> getFileMetadata(String fileName) {
+        BlobProperties properties = getProperties(fileName);
+        return properties == null ? null : properties.getMetadata();
+    }
+
     /**
      * Retrieves the file's metadata: file name, type, size, and creation time
      *
@@ -63,21 +386,43 @@ public class BlobService {
     }
 
     /**
-     * Retrieves a list of files' metadata: file name, type, size, and creation time
+     * Retrieves one page of files' metadata: file name, type, size, and creation time. The metadata is read from the
+     * listing itself, so a page costs a single request to Azure regardless of how many files it holds. Files are listed
+     * by hierarchy, so the content files of content-addressed mode are never listed. Their content/ virtual directory
+     * is returned as a single prefix entry, which takes one slot of the page it falls on.
      *
-     * @return ArrayList<BlobResponse> of all file's present on Azure Blob Storage
+     * @param String type of the files to be listed, matched against the [type]_ prefix of their names. Null lists all files
+     * @param String continuationToken of the page to be listed, as returned by the previous page. Null lists the first page
+     * @param Integer pageSize maximum number of files on the page. Null or less than 1 uses the configured page size
+     * @return BlobPage with the files' information, and the continuation token of the next page
      */
-    public ArrayList<BlobResponse> getAllFileProperties() {
+    public BlobPage getAllFileProperties(String type, String continuationToken, Integer pageSize) {
+        int maxResults = pageSize == null || pageSize < 1 ? listPageSize : Math.min(pageSize, MAX_LIST_PAGE_SIZE);
+        ListBlobsOptions options = new ListBlobsOptions()
+            .setPrefix(type == null ? null : type.toLowerCase() + "_")
+            .setDetails(new BlobListDetails().setRetrieveMetadata(true))
+            .setMaxResultsPerPage(maxResults);
+
         ArrayList<BlobResponse> responses = new ArrayList<BlobResponse>();
-        containerClient.listBlobs().forEach(blobItem -> {
-            responses.add(getFileProperties(blobItem.getName()));
-        });
+        String pageToken = continuationToken;
+        do {
+            PagedResponse<BlobItem> page = containerClient.listBlobsByHierarchy(DIRECTORY_DELIMITER, options, null).iterableByPage(pageToken, maxResults).iterator().next();
+            for (BlobItem blobItem : page.getValue()) {
+                if (Boolean.TRUE.equals(blobItem.isPrefix())) { continue; }
+                BlobItemProperties properties = blobItem.getProperties();
+                responses.add(buildBlobResponse(blobItem.getName(), properties.getContentLength(), properties.getCreationTime(), blobItem.getMetadata()));
+            }
+            pageToken = page.getContinuationToken();
+
+        //A page of one slot can hold only the prefix entry, so the following page is returned instead of an empty one
+        } while (responses.isEmpty() && pageToken != null);
 
-        return responses;
+        return new BlobPage(responses, pageToken);
     }
 
     /**
-     * Deletes a file from Azure blob storage if it exists.
+     * Deletes a file from Azure blob storage if it exists. Deleting an alias keeps its content file, since other
+     * aliases can point at the same content. Content files no alias points at are deleted later by sweepContent.
      *
      * @param String fileName of the file to be deleted
      * @return BlobResponse with the files's information
@@ -86,9 +431,50 @@ public class BlobService {
         BlobClient blobClient = containerClient.getBlobClient(fileName);
         BlobResponse response = buildBlobResponse(blobClient);
         blobClient.delete();
+        propertiesCache.put(fileName, null);
         return response;
     }
 
+    /**
+     * Deletes the content files of content-addressed mode that no alias points at, such as the content of deleted
+     * aliases. Content modified within the grace period is kept, and every delete is conditional on the content not
+     * having been modified since the grace period began. saveContent rewrites the metadata of content it reuses, so
+     * content that an upload started pointing at after the aliases were listed is never deleted.
+     *
+     * @return int number of content files deleted
+     */
+    public int sweepContent() {
+        OffsetDateTime cutoff = OffsetDateTime.now().minus(Duration.ofMillis(contentSweepGraceMillis));
+
+        //Collect the content keys of every alias, listing by hierarchy to skip the content files
+        HashSet<String> referencedKeys = new HashSet<String>();
+        ListBlobsOptions aliasOptions = new ListBlobsOptions().setDetails(new BlobListDetails().setRetrieveMetadata(true));
+        for (BlobItem blobItem : containerClient.listBlobsByHierarchy(DIRECTORY_DELIMITER, aliasOptions, null)) {
+            if (Boolean.TRUE.equals(blobItem.isPrefix()) || blobItem.getMetadata() == null) { continue; }
+
+            String contentKey = blobItem.getMetadata().get(METADATA_CONTENT_KEY);
+            if (contentKey != null) { referencedKeys.add(contentKey); }
+        }
+
+        int deleted = 0;
+        BlobRequestConditions unmodifiedSinceCutoff = new BlobRequestConditions().setIfUnmodifiedSince(cutoff);
+        for (BlobItem blobItem : containerClient.listBlobs(new ListBlobsOptions().setPrefix(CONTENT_PREFIX), null)) {
+            if (referencedKeys.contains(blobItem.getName())) { continue; }
+            if (blobItem.getProperties().getLastModified().isAfter(cutoff)) { continue; }
+
+            try {
+                containerClient.getBlobClient(blobItem.getName()).deleteWithResponse(null, unmodifiedSinceCutoff, null, Context.NONE);
+                propertiesCache.put(blobItem.getName(), null);
+                deleted++;
+            }
+            catch (BlobStorageException e) {
+                //Reused by an upload since it was listed, or deleted by another sweep
+                if (e.getStatusCode() != 412 && e.getStatusCode() != 404) { throw e; }
+            }
+        }
+        return deleted;
+    }
+
     /**
      * Checks if the file exists on Azure Blob Storage
      *
@@ -96,8 +482,7 @@ public class BlobService {
      * @return boolean false if file does not exist, true if file exists
      */
     public boolean doesFileExist(String fileName) {
-        BlobClient blobClient = containerClient.getBlobClient(fileName);
-        if (!blobClient.exists()) { return false;}
+        if (getProperties(fileName) == null) { return false;}
         return true;
     }
 
@@ -115,14 +500,79 @@ public class BlobService {
      * the file's metadata: file name, type, size, and creation time if it exists.
      *
      * @param BlobClient blobClient
-     * @return BlobResponse response will name, type, size, and creation time populated
+     * @return BlobResponse response will name, type, size, and creation time populated. The size of an alias is the
+     * size of its content
      */
     public BlobResponse buildBlobResponse(BlobClient blobClient) {
+        BlobProperties properties = getProperties(blobClient.getBlobName());
+        return buildBlobResponse(blobClient.getBlobName(), properties.getBlobSize(), properties.getCreationTime(), properties.getMetadata());
+    }
+
+    /**
+     * Builds a BlobResponse from properties that were already retrieved, either for a single file or from a listing.
+     *
+     * @param String fileName of the file
+     * @param Long blobSize of the file in bytes
+     * @param OffsetDateTime creationTime of the file
+     * @param Map<String, String> metadata of the file, may be null
+     * @return BlobResponse response will name, type, size, and creation time populated. The size of an alias is the
+     * size of its content
+     */
+    private BlobResponse buildBlobResponse(String fileName, Long blobSize, OffsetDateTime creationTime, Map<String, String> metadata) {
+        String contentSize = metadata == null ? null : metadata.get(METADATA_CONTENT_SIZE);
+
         BlobResponse response = new BlobResponse();
-        response.setFileName(blobClient.getBlobName());
-        response.setType(FileUtilities.getTypeFromFileName(blobClient.getBlobName()));
-        response.setSize(Long.toString(blobClient.getProperties().getBlobSize()));
-        response.setCreationTime(blobClient.getProperties().getCreationTime().atZoneSameInstant(ZoneId.of("America/New_York")).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        response.setFileName(fileName);
+        response.setType(FileUtilities.getTypeFromFileName(fileName));
+        response.setSize(contentSize != null ? contentSize : String.valueOf(blobSize));
+        response.setCreationTime(creationTime.atZoneSameInstant(ZoneId.of("America/New_York")).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         return response;
     }
+
+    /**
+     * Gets the properties of a file through the properties cache, so checking the file, reading its metadata, and
+     * building its BlobResponse share one request to Azure.
+     *
+     * @param String fileName of the file
+     * @return BlobProperties of the file, or null if it does not exist
+     */
+    private BlobProperties getProperties(String fileName) {
+        return propertiesCache.get(fileName, this::fetchProperties, this::revalidateProperties);
+    }
+
+    /**
+     * Requests the properties of a file from Azure.
+     *
+     * @param String fileName of the file
+     * @return BlobProperties of the file, or null if it does not exist
+     */
+    private BlobProperties fetchProperties(String fileName) {
+        try {
+            return containerClient.getBlobClient(fileName).getProperties();
+        }
+        catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) { return null; }
+            throw e;
+        }
+    }
+
+    /**
+     * Requests the properties of a file from Azure only if its ETag changed since the cached properties were fetched.
+     *
+     * @param String fileName of the file
+     * @param BlobProperties cachedProperties of the file
+     * @return BlobProperties cachedProperties if the file did not change, its new properties if it did, or null if it
+     * was deleted
+     */
+    private BlobProperties revalidateProperties(String fileName, BlobProperties cachedProperties) {
+        try {
+            BlobRequestConditions ifChanged = new BlobRequestConditions().setIfNoneMatch(cachedProperties.getETag());
+            return containerClient.getBlobClient(fileName).getPropertiesWithResponse(ifChanged, null, Context.NONE).getValue();
+        }
+        catch (BlobStorageException e) {
+            if (e.getStatusCode() == 304) { return cachedProperties; }
+            if (e.getStatusCode() == 404) { return null; }
+            throw e;
+        }
+    }
 }
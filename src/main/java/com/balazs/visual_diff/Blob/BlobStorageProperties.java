@@ -0,0 +1,111 @@
+package com.balazs.visual_diff.Blob;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the blob storage, bound from the app.blob properties. The defaults match application.properties, and
+ * BlobService clamps values that are out of range.
+ */
+@ConfigurationProperties(prefix = "app.blob")
+public class BlobStorageProperties {
+
+    private boolean deferredDeepCheck = false;        //Fully decode uploads on a background thread after they are answered
+    private boolean contentAddressed = false;         //Store file bytes once under their ContentHash, with the file names as alias files
+    private long propertiesCacheTtlMs = 5000;         //Milliseconds the properties of a file are reused before they are revalidated
+    private int propertiesCacheMaxEntries = 10000;    //Files whose properties are cached. 0 or less disables the cache
+    private int listPageSize = 1000;                  //Files listed per page when the request does not ask for a page size
+    private int downloadBlockSize = 1048576;          //Bytes requested at a time by the streams of openFile
+    private long uploadBlockSize = 4194304;           //Bytes per block of the uploads larger than uploadMaxSingleSize
+    private int uploadMaxConcurrency = 4;             //Blocks of one upload sent at the same time
+    private long uploadMaxSingleSize = 4194304;       //Largest upload sent in a single request instead of in blocks
+    private long contentSweepIntervalMs = 3600000;    //Milliseconds between sweeps of unreferenced content files. 0 or less disables the sweep
+    private long contentSweepGraceMs = 3600000;       //Milliseconds content files are kept after they were last stored or reused
+
+    public boolean isDeferredDeepCheck() {
+        return deferredDeepCheck;
+    }
+
+    public void setDeferredDeepCheck(boolean newDeferredDeepCheck) {
+        deferredDeepCheck = newDeferredDeepCheck;
+    }
+
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    public void setContentAddressed(boolean newContentAddressed) {
+        contentAddressed = newContentAddressed;
+    }
+
+    public long getPropertiesCacheTtlMs() {
+        return propertiesCacheTtlMs;
+    }
+
+    public void setPropertiesCacheTtlMs(long newPropertiesCacheTtlMs) {
+        propertiesCacheTtlMs = newPropertiesCacheTtlMs;
+    }
+
+    public int getPropertiesCacheMaxEntries() {
+        return propertiesCacheMaxEntries;
+    }
+
+    public void setPropertiesCacheMaxEntries(int newPropertiesCacheMaxEntries) {
+        propertiesCacheMaxEntries = newPropertiesCacheMaxEntries;
+    }
+
+    public int getListPageSize() {
+        return listPageSize;
+    }
+
+    public void setListPageSize(int newListPageSize) {
+        listPageSize = newListPageSize;
+    }
+
+    public int getDownloadBlockSize() {
+        return downloadBlockSize;
+    }
+
+    public void setDownloadBlockSize(int newDownloadBlockSize) {
+        downloadBlockSize = newDownloadBlockSize;
+    }
+
+    public long getUploadBlockSize() {
+        return uploadBlockSize;
+    }
+
+    public void setUploadBlockSize(long newUploadBlockSize) {
+        uploadBlockSize = newUploadBlockSize;
+    }
+
+    public int getUploadMaxConcurrency() {
+        return uploadMaxConcurrency;
+    }
+
+    public void setUploadMaxConcurrency(int newUploadMaxConcurrency) {
+        uploadMaxConcurrency = newUploadMaxConcurrency;
+    }
+
+    public long getUploadMaxSingleSize() {
+        return uploadMaxSingleSize;
+    }
+
+    public void setUploadMaxSingleSize(long newUploadMaxSingleSize) {
+        uploadMaxSingleSize = newUploadMaxSingleSize;
+    }
+
+    public long getContentSweepIntervalMs() {
+        return contentSweepIntervalMs;
+    }
+
+    public void setContentSweepIntervalMs(long newContentSweepIntervalMs) {
+        contentSweepIntervalMs = newContentSweepIntervalMs;
+    }
+
+    public long getContentSweepGraceMs() {
+        return contentSweepGraceMs;
+    }
+
+    public void setContentSweepGraceMs(long newContentSweepGraceMs) {
+        contentSweepGraceMs = newContentSweepGraceMs;
+    }
+}
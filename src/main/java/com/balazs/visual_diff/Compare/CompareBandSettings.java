@@ -0,0 +1,55 @@
+package com.balazs.visual_diff.Compare;
+
+public final class CompareBandSettings {
+
+    private final int bandRows;
+    private final boolean fixedPointKernel;
+    private final int[] ignoredSpans;
+    private final int tileSize;
+    private final boolean mismatchScan;
+    private final boolean[] candidateTiles;
+
+    /**
+     * Settings shared by every band of a parallel compare. Each CompareBandTask passes the same settings on to the
+     * halves it splits into, so a compare creates them once.
+     *
+     * @param int bandRows maximum number of rows compared by a single task
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param int tileSize width and height of the tiles checked for changes, or 0 to compare every pixel
+     * @param boolean mismatchScan true to skip runs of identical pixels before comparing
+     * @param boolean[] candidateTiles tiles of tileSize x tileSize pixels from PyramidCompareUtilities.findCandidateTiles, or null
+     */
+    public CompareBandSettings(int bandRows, boolean fixedPointKernel, int[] ignoredSpans, int tileSize, boolean mismatchScan, boolean[] candidateTiles) {
+        this.bandRows = Math.max(1, bandRows);
+        this.fixedPointKernel = fixedPointKernel;
+        this.ignoredSpans = ignoredSpans;
+        this.tileSize = tileSize;
+        this.mismatchScan = mismatchScan;
+        this.candidateTiles = candidateTiles;
+    }
+
+    public int getBandRows() {
+        return bandRows;
+    }
+
+    public boolean isFixedPointKernel() {
+        return fixedPointKernel;
+    }
+
+    public int[] getIgnoredSpans() {
+        return ignoredSpans;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public boolean isMismatchScan() {
+        return mismatchScan;
+    }
+
+    public boolean[] getCandidateTiles() {
+        return candidateTiles;
+    }
+}
@@ -0,0 +1,81 @@
+package com.balazs.visual_diff.Compare;
+
+import java.util.concurrent.RecursiveAction;
+
+import com.balazs.visual_diff.Utilities.CompareUtilities;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
+
+public class CompareBandTask extends RecursiveAction {
+
+    private final byte[] baselineRGBA;
+    private final byte[] compareRGBA;
+    private final byte[] outputRGBA;
+    private final int width;
+    private final int startRow;
+    private final int endRow;
+    private final CompareBandSettings settings;
+    private final DiffStatistics statistics;
+
+    /**
+     * Fork/join task that compares the rows [startRow, endRow) of the baseline and comparison images. The rows are split
+     * in half until a band is settings.getBandRows() or less, then each band is compared with the CompareUtilities method
+     * picked by settings: compareCandidateTiles if there are candidate tiles, compareTiles if the tile size is greater
+     * than 0, compareMismatchedRange if mismatch scan is on, otherwise comparePixelRange. Every pixel is only written by
+     * one band, so the output is byte-identical to comparing the whole image on one thread.
+     *
+     * Each band collects its own statistics while comparing, then merges them into statistics once it is done.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int startRow first row to be compared (inclusive)
+     * @param int endRow last row to be compared (exclusive)
+     * @param CompareBandSettings settings band size, kernel, ignored spans, and tile settings of the compare
+     * @param DiffStatistics statistics statistics of the whole image, or null to skip collecting statistics
+     */
+    public CompareBandTask(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int startRow, int endRow, CompareBandSettings settings, DiffStatistics statistics) {
+        this.baselineRGBA = baselineRGBA;
+        this.compareRGBA = compareRGBA;
+        this.outputRGBA = outputRGBA;
+        this.width = width;
+        this.startRow = startRow;
+        this.endRow = endRow;
+        this.settings = settings;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Compares the band directly if it is small enough, otherwise splits it into two halves and compares them in parallel.
+     */
+    @Override
+    protected void compute() {
+        if (endRow - startRow <= settings.getBandRows()) {
+            DiffStatistics bandStatistics = statistics == null ? null : new DiffStatistics(width, endRow - startRow);
+            boolean fixedPointKernel = settings.isFixedPointKernel();
+            int[] ignoredSpans = settings.getIgnoredSpans();
+            if (settings.getCandidateTiles() != null) {
+                CompareUtilities.compareCandidateTiles(baselineRGBA, compareRGBA, outputRGBA, width, startRow, endRow, settings.getTileSize(), settings.getCandidateTiles(), fixedPointKernel, bandStatistics, ignoredSpans, settings.isMismatchScan());
+            }
+            else if (settings.getTileSize() > 0) {
+                CompareUtilities.compareTiles(baselineRGBA, compareRGBA, outputRGBA, width, startRow, endRow, settings.getTileSize(), fixedPointKernel, bandStatistics, ignoredSpans, settings.isMismatchScan());
+            }
+            else if (settings.isMismatchScan()) {
+                CompareUtilities.compareMismatchedRange(baselineRGBA, compareRGBA, outputRGBA, startRow * width, endRow * width, fixedPointKernel, bandStatistics, ignoredSpans);
+            }
+            else {
+                CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startRow * width, endRow * width, fixedPointKernel, bandStatistics, ignoredSpans);
+            }
+            if (statistics != null) {
+                synchronized (statistics) { statistics.merge(bandStatistics); }
+            }
+            return;
+        }
+
+        int middleRow = (startRow + endRow) >>> 1;
+        invokeAll(
+            new CompareBandTask(baselineRGBA, compareRGBA, outputRGBA, width, startRow, middleRow, settings, statistics),
+            new CompareBandTask(baselineRGBA, compareRGBA, outputRGBA, width, middleRow, endRow, settings, statistics)
+        );
+    }
+}
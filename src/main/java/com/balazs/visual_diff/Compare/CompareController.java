@@ -2,6 +2,8 @@ package com.balazs.visual_diff.Compare;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +28,11 @@ import com.balazs.visual_diff.Exceptions.EmptyFileException;
 import com.balazs.visual_diff.Exceptions.GlobalExceptionHandler;
 import com.balazs.visual_diff.Exceptions.NotFoundException;
 import com.balazs.visual_diff.Exceptions.UnsupportedMediaTypeException;
+import com.balazs.visual_diff.Utilities.DiffResult;
+import com.balazs.visual_diff.Utilities.DiffResultCache;
 import com.balazs.visual_diff.Utilities.FileUtilities;
+import com.balazs.visual_diff.Utilities.ImageHeader;
+import com.balazs.visual_diff.Utilities.ValidatedImage;
 import com.balazs.visual_diff.Utilities.ValidationUtilities;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -37,7 +43,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 
 @RestController
-@CrossOrigin
+@CrossOrigin(exposedHeaders = CompareController.DIFF_STATISTICS_HEADER)
 public class CompareController {
     
     @Autowired
@@ -47,12 +53,15 @@ public class CompareController {
     private BlobService blobService;
 
     private final static Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    public final static String DIFF_STATISTICS_HEADER = "X-Diff-Statistics";
 
     /**
      * Compares two images directly from the request body without using Azure Blob Storage.
      *
      * @param MultipartFile baselineFile file to be compared against
      * @param MultipartFile comparisonFile to compare against baseline file
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param MultipartFile maskFile mask image whose white pixels are not compared, or null
      * @return ResponseEntity<byte[]> diffData of the image as a byte array
      * @throws IOException
      * @throws EmptyFileException
@@ -61,19 +70,22 @@ public class CompareController {
      * @throws DimensionMismatchException
      */
     @Tag(name = "Compare Controller", description = "Operations related to comparing images, and producing diffs. Diffs will be converted to YIQ colour space with a heavier weight placed on the luminance channel (Similar to gray scale, but lighter, but with colour channel information). Incoming baseline image, and comparison image will be compared pixel by pixel. Diffs past a threshold will be highlighted with red.")
-    @Operation(summary = "Compare two images directly and return a diff.", description = "Directly compare two incoming images, 'baseline', and 'comparison' and return a diff. Nothing is saved to Azure, and nothing is accessed from Azure.")
+    @Operation(summary = "Compare two images directly and return a diff.", description = "Directly compare two incoming images, 'baseline', and 'comparison' and return a diff. Pixels inside the 'ignore' rectangles, and under the white pixels of the 'mask' image are not compared. Nothing is saved to Azure, and nothing is accessed from Azure.")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "The incoming images were compared successfully and the diff image was returned."),
+        @ApiResponse(responseCode = "200", description = "The incoming images were compared successfully and the diff image was returned. The X-Diff-Statistics header holds the number and ratio of differing pixels, their bounding box, and a histogram of delta magnitudes."),
         @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', or 'comparison' is empty or null."),
-        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', or 'comparison' is corrupt or unable to be read."),
-        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', and 'comparison' have different dimensions."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', 'comparison', or 'mask' is corrupt or unable to be read."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', 'comparison', and 'mask' have different dimensions."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'ignore' is not in the format [width]x[height]+[x]+[y]."),
         @ApiResponse(responseCode = "413", description = "The RequestParam 'baseline' or 'comparison' is too large. Max 5MB size for each file, max 10MB size for the request."),
-        @ApiResponse(responseCode = "415", description = "The RequestParam 'baseline' or 'comparison' is not PNG or JPEG format.")
+        @ApiResponse(responseCode = "415", description = "The RequestParam 'baseline', 'comparison', or 'mask' is not PNG or JPEG format.")
     })
     @Parameter(name = "baseline", description = "The baseline image to be compared against. Must be PNG, or JPEG format. Must be the same dimensions as the comparison image and must be 5MB or less.")
     @Parameter(name = "comparison", description = "The comparison image to be compare against. Must be PNG, or JPEG format. Must be the same dimensions as the comparison image and must be 5MB or less.")
+    @Parameter(name = "ignore", description = "Optional rectangles that are not compared, in the format [width]x[height]+[x]+[y], e.g. 300x40+10+20. Repeat the param for more than one rectangle.")
+    @Parameter(name = "mask", description = "Optional mask image. White pixels are not compared, black pixels are. Must be PNG, or JPEG format, and the same dimensions as the baseline image.")
     @PostMapping(value = "/compare-direct", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = { MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE })
-	public ResponseEntity<byte[]> compareDirect(@RequestParam("baseline") MultipartFile baselineFile, @RequestParam("comparison") MultipartFile comparisonFile) throws IOException {        
+	public ResponseEntity<byte[]> compareDirect(@RequestParam("baseline") MultipartFile baselineFile, @RequestParam("comparison") MultipartFile comparisonFile, @RequestParam(value = "ignore", required = false) List<IgnoreRegion> ignoreRegions, @RequestParam(value = "mask", required = false) MultipartFile maskFile) throws IOException {        
         
         //Log start of request
         logger.info("Received POST /compare-direct request for files: {}, and {}", baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename());
@@ -86,22 +98,150 @@ public class CompareController {
         if (!ValidationUtilities.isContentTypeValid(baselineFile)) { throw new UnsupportedMediaTypeException(); }
         if (!ValidationUtilities.isContentTypeValid(comparisonFile)) { throw new UnsupportedMediaTypeException(); }
 
-        //Ensure file can be converted to a BufferedImage successfully
-        if (!ValidationUtilities.isImageContentsValid(baselineFile)) { throw new CorruptImageException(); }
-        if (!ValidationUtilities.isImageContentsValid(comparisonFile)) { throw new CorruptImageException(); }
+        //Images too large to be decoded in full are validated from their headers, and streamed or held off-heap by the compare
+        ImageHeader baselineHeader = ValidationUtilities.readImageHeader(baselineFile);
+        if (baselineHeader != null && compareService.isTooLargeToDecode((long) baselineHeader.getWidth() * baselineHeader.getHeight())) {
+            ImageHeader comparisonHeader = ValidationUtilities.readImageHeader(comparisonFile);
+            if (comparisonHeader == null) { throw new CorruptImageException(); }
+            if (baselineHeader.getWidth() != comparisonHeader.getWidth() || baselineHeader.getHeight() != comparisonHeader.getHeight()) { throw new DimensionMismatchException(); }
+
+            //The mask is decoded by the compare, which checks its dimensions
+            byte[] maskData = null;
+            if (maskFile != null && !maskFile.isEmpty()) {
+                if (!ValidationUtilities.isContentTypeValid(maskFile)) { throw new UnsupportedMediaTypeException(); }
+                maskData = maskFile.getBytes();
+            }
+
+            CompareResult result = compareService.compare(baselineFile.getBytes(), comparisonFile.getBytes(), ignoreRegions, maskData);
+
+            //Log end of request
+            logger.info("POST /compare-direct successful on: {}, and {}", baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename());
+
+            return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).header(DIFF_STATISTICS_HEADER, result.getStatistics().toHeaderValue()).body(result.getDiffData());
+        }
+
+        //Ensure file can be converted to a BufferedImage successfully. Each file is decoded once and reused for the compare
+        ValidatedImage baselineImage = ValidationUtilities.readValidatedImage(baselineFile);
+        if (baselineImage == null) { throw new CorruptImageException(); }
+        ValidatedImage comparisonImage = ValidationUtilities.readValidatedImage(comparisonFile);
+        if (comparisonImage == null) { throw new CorruptImageException(); }
 
         //Ensure both baseline and comparison fileshave the same dimensions for comparison
-        if (!ValidationUtilities.areImageDimensionsValid(baselineFile, comparisonFile)) { throw new DimensionMismatchException(); }
+        if (!ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage)) { throw new DimensionMismatchException(); }
+
+        //Ensure the optional mask file is a readable image with the same dimensions
+        ValidatedImage maskImage = null;
+        if (maskFile != null && !maskFile.isEmpty()) {
+            if (!ValidationUtilities.isContentTypeValid(maskFile)) { throw new UnsupportedMediaTypeException(); }
+            maskImage = ValidationUtilities.readValidatedImage(maskFile);
+            if (maskImage == null) { throw new CorruptImageException(); }
+            if (!ValidationUtilities.areImageDimensionsValid(baselineImage, maskImage)) { throw new DimensionMismatchException(); }
+        }
 
-        //Compare baseline and comparison file. Return as byte array
-        byte[] baselineData = baselineFile.getBytes();
-        byte[] comparisonData = comparisonFile.getBytes();
-        byte[] diffData = compareService.compare(baselineData, comparisonData);
+        //Compare the decoded baseline and comparison images. Return as byte array, with the statistics as a header
+        CompareResult result = compareService.compare(baselineImage.getImage(), comparisonImage.getImage(), ignoreRegions, maskImage == null ? null : maskImage.getImage());
 
         //Log end of request
         logger.info("POST /compare-direct successful on: {}, and {}", baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename());
 
-        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(diffData);
+        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).header(DIFF_STATISTICS_HEADER, result.getStatistics().toHeaderValue()).body(result.getDiffData());
+	}
+
+    /**
+     * Compares two images directly from the request body and returns a verdict instead of a diff image.
+     *
+     * @param MultipartFile baselineFile file to be compared against
+     * @param MultipartFile comparisonFile to compare against baseline file
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param MultipartFile maskFile mask image whose white pixels are not compared, or null
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return ResponseEntity<CompareVerdictResponse>
+     * @throws IOException
+     * @throws EmptyFileException
+     * @throws UnsupportedMediaTypeException
+     * @throws CorruptImageException
+     * @throws DimensionMismatchException
+     */
+    @Tag(name = "Compare Controller", description = "Operations related to comparing images, and producing diffs. Diffs will be converted to YIQ colour space with a heavier weight placed on the luminance channel (Similar to gray scale, but lighter, but with colour channel information). Incoming baseline image, and comparison image will be compared pixel by pixel. Diffs past a threshold will be highlighted with red.")
+    @Operation(summary = "Compare two images directly and return a verdict.", description = "Directly compare two incoming images, 'baseline', and 'comparison' and return whether they differ by at most 'maxDiffPixels' pixels. Pixels inside the 'ignore' rectangles, and under the white pixels of the 'mask' image are not counted. Counting stops once the budget is exceeded, and no diff image is produced. Nothing is saved to Azure, and nothing is accessed from Azure.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "The incoming images were compared successfully and the verdict was returned."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', or 'comparison' is empty or null."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', 'comparison', or 'mask' is corrupt or unable to be read."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'baseline', 'comparison', and 'mask' have different dimensions."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'ignore' is not in the format [width]x[height]+[x]+[y]."),
+        @ApiResponse(responseCode = "413", description = "The RequestParam 'baseline' or 'comparison' is too large. Max 5MB size for each file, max 10MB size for the request."),
+        @ApiResponse(responseCode = "415", description = "The RequestParam 'baseline', 'comparison', or 'mask' is not PNG or JPEG format.")
+    })
+    @Parameter(name = "baseline", description = "The baseline image to be compared against. Must be PNG, or JPEG format. Must be the same dimensions as the comparison image and must be 5MB or less.")
+    @Parameter(name = "comparison", description = "The comparison image to be compare against. Must be PNG, or JPEG format. Must be the same dimensions as the comparison image and must be 5MB or less.")
+    @Parameter(name = "ignore", description = "Optional rectangles that are not compared, in the format [width]x[height]+[x]+[y], e.g. 300x40+10+20. Repeat the param for more than one rectangle.")
+    @Parameter(name = "mask", description = "Optional mask image. White pixels are not compared, black pixels are. Must be PNG, or JPEG format, and the same dimensions as the baseline image.")
+    @Parameter(name = "maxDiffPixels", description = "The number of differing pixels allowed. Defaults to 0. Negative values are treated as 0.")
+    @PostMapping(value = "/compare-direct/verdict", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<CompareVerdictResponse> compareDirectVerdict(@RequestParam("baseline") MultipartFile baselineFile, @RequestParam("comparison") MultipartFile comparisonFile, @RequestParam(value = "ignore", required = false) List<IgnoreRegion> ignoreRegions, @RequestParam(value = "mask", required = false) MultipartFile maskFile, @RequestParam(value = "maxDiffPixels", defaultValue = "0") long maxDiffPixels) throws IOException {        
+        
+        //Log start of request
+        logger.info("Received POST /compare-direct/verdict request for files: {}, and {}", baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename());
+
+        //Ensure file is not empty
+        if (!ValidationUtilities.isFileValid(baselineFile)) { throw new EmptyFileException(); }
+        if (!ValidationUtilities.isFileValid(comparisonFile)) { throw new EmptyFileException(); }
+
+        //Ensure file is of PNG or JPEG format
+        if (!ValidationUtilities.isContentTypeValid(baselineFile)) { throw new UnsupportedMediaTypeException(); }
+        if (!ValidationUtilities.isContentTypeValid(comparisonFile)) { throw new UnsupportedMediaTypeException(); }
+
+        //Images too large to be decoded in full are validated from their headers, and counted band by band until the budget is exceeded
+        long budget = Math.max(0, maxDiffPixels);
+        ImageHeader baselineHeader = ValidationUtilities.readImageHeader(baselineFile);
+        if (baselineHeader != null && compareService.isTooLargeToDecode((long) baselineHeader.getWidth() * baselineHeader.getHeight())) {
+            ImageHeader comparisonHeader = ValidationUtilities.readImageHeader(comparisonFile);
+            if (comparisonHeader == null) { throw new CorruptImageException(); }
+            if (baselineHeader.getWidth() != comparisonHeader.getWidth() || baselineHeader.getHeight() != comparisonHeader.getHeight()) { throw new DimensionMismatchException(); }
+
+            //The mask is decoded by the count, which checks its dimensions
+            byte[] maskData = null;
+            if (maskFile != null && !maskFile.isEmpty()) {
+                if (!ValidationUtilities.isContentTypeValid(maskFile)) { throw new UnsupportedMediaTypeException(); }
+                maskData = maskFile.getBytes();
+            }
+
+            long diffPixels = compareService.countDiffPixels(baselineFile.getBytes(), comparisonFile.getBytes(), ignoreRegions, maskData, budget);
+            CompareVerdictResponse response = new CompareVerdictResponse(baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename(), budget, diffPixels);
+
+            //Log end of request
+            logger.info("POST /compare-direct/verdict successful on: {}, and {}, within budget: {}", baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename(), response.isWithinBudget());
+
+            return ResponseEntity.ok().body(response);
+        }
+
+        //Ensure file can be converted to a BufferedImage successfully. Each file is decoded once and reused for the compare
+        ValidatedImage baselineImage = ValidationUtilities.readValidatedImage(baselineFile);
+        if (baselineImage == null) { throw new CorruptImageException(); }
+        ValidatedImage comparisonImage = ValidationUtilities.readValidatedImage(comparisonFile);
+        if (comparisonImage == null) { throw new CorruptImageException(); }
+
+        //Ensure both baseline and comparison fileshave the same dimensions for comparison
+        if (!ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage)) { throw new DimensionMismatchException(); }
+
+        //Ensure the optional mask file is a readable image with the same dimensions
+        ValidatedImage maskImage = null;
+        if (maskFile != null && !maskFile.isEmpty()) {
+            if (!ValidationUtilities.isContentTypeValid(maskFile)) { throw new UnsupportedMediaTypeException(); }
+            maskImage = ValidationUtilities.readValidatedImage(maskFile);
+            if (maskImage == null) { throw new CorruptImageException(); }
+            if (!ValidationUtilities.areImageDimensionsValid(baselineImage, maskImage)) { throw new DimensionMismatchException(); }
+        }
+
+        //Count differing pixels outside the ignore regions and mask up to the budget
+        long diffPixels = compareService.countDiffPixels(baselineImage.getImage(), comparisonImage.getImage(), ignoreRegions, maskImage == null ? null : maskImage.getImage(), budget);
+        CompareVerdictResponse response = new CompareVerdictResponse(baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename(), budget, diffPixels);
+
+        //Log end of request
+        logger.info("POST /compare-direct/verdict successful on: {}, and {}, within budget: {}", baselineFile.getOriginalFilename(), comparisonFile.getOriginalFilename(), response.isWithinBudget());
+
+        return ResponseEntity.ok().body(response);
 	}
 
     /**
@@ -112,13 +252,14 @@ public class CompareController {
      * @throws IOException
      */
     @Tag(name = "Compare Controller", description = "Operations related to comparing images, and producing diffs. Diffs will be converted to YIQ colour space with a heavier weight placed on the luminance channel (Similar to gray scale, but lighter, but with colour channel information). Incoming baseline image, and comparison image will be compared pixel by pixel. Diffs past a threshold will be highlighted with red.")
-    @Operation(summary = "Compare two images on Azure Blob Storage.", description = "Compare two images from incoming 'baselineFileName', and 'comparisonFileName' if they exist on Azure Blob Storage. The diff is saved to Azure Blob Storage.")
+    @Operation(summary = "Compare two images on Azure Blob Storage.", description = "Compare two images from incoming 'baselineFileName', and 'comparisonFileName' if they exist on Azure Blob Storage. Pixels inside the 'ignoreRegions' rectangles, and under the white pixels of the 'maskFileName' image are not compared. The diff is saved to Azure Blob Storage.")
     @ApiResponses({
-        @ApiResponse(responseCode = "201", description = "The incoming 'baselineFileName', and 'comparisonFileName' were retrieved from Azure, compared successfully and the diff image was saved to Azure Blob Storage."),
+        @ApiResponse(responseCode = "201", description = "The incoming 'baselineFileName', and 'comparisonFileName' were retrieved from Azure, compared successfully and the diff image was saved to Azure Blob Storage. The response holds the statistics of the comparison, and the connected regions of differing pixels."),
         @ApiResponse(responseCode = "400", description = "The RequestParam 'baselineFileName', or 'comparisonFileName' is empty or null."),
-        @ApiResponse(responseCode = "404", description = "The RequestParam 'baselineFileName', or 'comparisonFileName' does not exist on Azure Blob Storage.")
+        @ApiResponse(responseCode = "400", description = "The 'maskFileName' file is corrupt, or has different dimensions than the 'baselineFileName' file."),
+        @ApiResponse(responseCode = "404", description = "The RequestParam 'baselineFileName', 'comparisonFileName', or 'maskFileName' does not exist on Azure Blob Storage.")
     })
-    @Parameter(name = "request", description = "Contains 'baselineFileName', and 'comparisonFileName' to be retrieved from Azure, compared, and diff saved back to Azure. Must not be blank, or null.")
+    @Parameter(name = "request", description = "Contains 'baselineFileName', and 'comparisonFileName' to be retrieved from Azure, compared, and diff saved back to Azure. Must not be blank, or null. Optionally contains 'ignoreRegions', and a 'maskFileName' uploaded with type 'mask'.")
     @PostMapping(value = "/compare", consumes = MediaType.APPLICATION_JSON_VALUE)
 	public ResponseEntity<CompareResponse> compare(@Valid @RequestBody CompareRequest request) throws IOException {        
         
@@ -131,25 +272,126 @@ public class CompareController {
         //Ensure files exists on Azure Blob Storage
         if (!blobService.doesFileExist(baselineFileName)) { throw new NotFoundException(); }
         if (!blobService.doesFileExist(comparisonFileName)) { throw new NotFoundException(); }
+        if (request.getMaskFileName() != null && !blobService.doesFileExist(request.getMaskFileName())) { throw new NotFoundException(); }
+
+        //Reuse the diff image of an earlier compare of the same file contents and settings, without comparing again
+        String maskHash = request.getMaskFileName() == null ? "" : blobService.getContentHash(request.getMaskFileName());
+        String resultKey = compareService.getResultKey(blobService.getContentHash(baselineFileName), blobService.getContentHash(comparisonFileName), maskHash, request.getIgnoreRegions());
+        DiffResult diffResult = resultKey == null ? null : findCachedResult(resultKey);
 
         //Compare the baseline and comparison images, upload the diff image to blob storage, and return the diff file name
-        byte[] baselineData = blobService.getFile(baselineFileName);
-        byte[] comparisonData = blobService.getFile(comparisonFileName);
-        byte[] diffData = compareService.compare(baselineData, comparisonData);
-        String fileName = FileUtilities.generateFileName(FileUtilities.FORMAT_PNG, ValidationUtilities.TYPE_DIFF);
-        blobService.saveFile(diffData, fileName);
+        if (diffResult == null) {
+            //The baseline is only downloaded if its current version is not in the decoded image cache
+            String baselineETag = blobService.getFileETag(baselineFileName);
+            byte[] maskData = request.getMaskFileName() == null ? null : blobService.getFile(request.getMaskFileName());
+            CompareResult result = compareService.compare(baselineFileName, baselineETag, () -> blobService.openFile(baselineFileName), () -> blobService.openFile(comparisonFileName), request.getIgnoreRegions(), maskData);
+            diffResult = saveDiffResult(result, resultKey);
+        }
+        String fileName = diffResult.getFileName();
 
         //Log end of request
         logger.info("POST /compare successful on: {}, and {}, produced: {}", baselineFileName, comparisonFileName, fileName);
 
         //Create the HATEOAS response with links to related actions
-        CompareResponse response = new CompareResponse(baselineFileName, comparisonFileName, fileName);
+        CompareResponse response = new CompareResponse(baselineFileName, comparisonFileName, fileName, diffResult.getStatistics(), diffResult.getRegions());
         response.add(linkTo(methodOn(CompareController.class).compare(new CompareRequest(fileName, "file2.png"))).withSelfRel().withType("POST"));
         response.add(linkTo(methodOn(BlobController.class).getFile(fileName)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).getFileMetaData(fileName)).withRel("get").withType("GET"));
-        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData()).withRel("get").withType("GET"));
+        response.add(linkTo(methodOn(BlobController.class).getAllFileMetaData(null, null, null)).withRel("get").withType("GET"));
         response.add(linkTo(methodOn(BlobController.class).deleteFile(fileName)).withRel("delete").withType("DELETE"));
 
         return ResponseEntity.created(URI.create("/files/" + fileName)).body(response);
 	}
+
+    /**
+     * Compares two images from Azure Blob Storage and returns a verdict instead of saving a diff image.
+     *
+     * @param CompareRequest request containing the name of the baseline file and comparison file
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return ResponseEntity<CompareVerdictResponse>
+     * @throws IOException
+     */
+    @Tag(name = "Compare Controller", description = "Operations related to comparing images, and producing diffs. Diffs will be converted to YIQ colour space with a heavier weight placed on the luminance channel (Similar to gray scale, but lighter, but with colour channel information). Incoming baseline image, and comparison image will be compared pixel by pixel. Diffs past a threshold will be highlighted with red.")
+    @Operation(summary = "Compare two images on Azure Blob Storage and return a verdict.", description = "Compare two images from incoming 'baselineFileName', and 'comparisonFileName' if they exist on Azure Blob Storage, and return whether they differ by at most 'maxDiffPixels' pixels. Pixels inside the 'ignoreRegions' rectangles, and under the white pixels of the 'maskFileName' image are not counted. Counting stops once the budget is exceeded, and no diff image is produced or saved.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "The incoming 'baselineFileName', and 'comparisonFileName' were retrieved from Azure, compared successfully and the verdict was returned."),
+        @ApiResponse(responseCode = "400", description = "The RequestParam 'baselineFileName', or 'comparisonFileName' is empty or null."),
+        @ApiResponse(responseCode = "400", description = "The 'maskFileName' file is corrupt, or has different dimensions than the 'baselineFileName' file."),
+        @ApiResponse(responseCode = "404", description = "The RequestParam 'baselineFileName', 'comparisonFileName', or 'maskFileName' does not exist on Azure Blob Storage.")
+    })
+    @Parameter(name = "request", description = "Contains 'baselineFileName', and 'comparisonFileName' to be retrieved from Azure, and compared. Must not be blank, or null. Optionally contains 'ignoreRegions', and a 'maskFileName' uploaded with type 'mask'.")
+    @Parameter(name = "maxDiffPixels", description = "The number of differing pixels allowed. Defaults to 0. Negative values are treated as 0.")
+    @PostMapping(value = "/compare/verdict", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<CompareVerdictResponse> compareVerdict(@Valid @RequestBody CompareRequest request, @RequestParam(value = "maxDiffPixels", defaultValue = "0") long maxDiffPixels) throws IOException {        
+        
+        String baselineFileName = request.getBaseline();
+        String comparisonFileName = request.getComparison();
+
+        //Log start of request
+        logger.info("Received POST /compare/verdict request for files: {}, and {}", baselineFileName, comparisonFileName);
+
+        //Ensure files exists on Azure Blob Storage
+        if (!blobService.doesFileExist(baselineFileName)) { throw new NotFoundException(); }
+        if (!blobService.doesFileExist(comparisonFileName)) { throw new NotFoundException(); }
+        if (request.getMaskFileName() != null && !blobService.doesFileExist(request.getMaskFileName())) { throw new NotFoundException(); }
+
+        //Count differing pixels outside the ignore regions and mask up to the budget
+        long budget = Math.max(0, maxDiffPixels);
+        String baselineETag = blobService.getFileETag(baselineFileName);
+        byte[] maskData = request.getMaskFileName() == null ? null : blobService.getFile(request.getMaskFileName());
+        long diffPixels = compareService.countDiffPixels(baselineFileName, baselineETag, () -> blobService.openFile(baselineFileName), () -> blobService.openFile(comparisonFileName), request.getIgnoreRegions(), maskData, budget);
+        CompareVerdictResponse response = new CompareVerdictResponse(baselineFileName, comparisonFileName, budget, diffPixels);
+
+        //Log end of request
+        logger.info("POST /compare/verdict successful on: {}, and {}, within budget: {}", baselineFileName, comparisonFileName, response.isWithinBudget());
+
+        return ResponseEntity.ok().body(response);
+	}
+
+    /**
+     * Finds the result of an earlier compare, first in the in-memory cache, then in the metadata of its diff image,
+     * whose name is derived from the result key. Results whose diff image was deleted are dropped.
+     *
+     * @param String resultKey from CompareService.getResultKey
+     * @return DiffResult of the earlier compare, or null if the compare has to be done
+     */
+    private DiffResult findCachedResult(String resultKey) {
+        DiffResultCache diffResultCache = compareService.getDiffResultCache();
+        String fileName = FileUtilities.generateFileName(FileUtilities.FORMAT_PNG, ValidationUtilities.TYPE_DIFF, resultKey);
+
+        DiffResult diffResult = diffResultCache.get(resultKey);
+        if (diffResult != null) {
+            if (blobService.doesFileExist(fileName)) { return diffResult; }
+            diffResultCache.remove(resultKey);
+            return null;
+        }
+
+        diffResult = DiffResult.fromMetadata(fileName, resultKey, blobService.getFileMetadata(fileName));
+        if (diffResult != null) { diffResultCache.put(resultKey, diffResult); }
+        return diffResult;
+    }
+
+    /**
+     * Saves the diff image of a compare to Azure Blob Storage. Results with a result key are saved under a name derived
+     * from the key with the result in the diff image's metadata, and cached in memory, so findCachedResult finds them.
+     *
+     * @param CompareResult result of the compare
+     * @param String resultKey from CompareService.getResultKey, or null if the result cannot be cached
+     * @return DiffResult with the name of the saved diff image
+     * @throws IOException
+     */
+    private DiffResult saveDiffResult(CompareResult result, String resultKey) throws IOException {
+        if (resultKey == null) {
+            String fileName = FileUtilities.generateFileName(FileUtilities.FORMAT_PNG, ValidationUtilities.TYPE_DIFF);
+            blobService.saveFile(result.getDiffData(), fileName);
+            return new DiffResult(fileName, result.getStatistics(), result.getRegions());
+        }
+
+        String fileName = FileUtilities.generateFileName(FileUtilities.FORMAT_PNG, ValidationUtilities.TYPE_DIFF, resultKey);
+        DiffResult diffResult = new DiffResult(fileName, result.getStatistics(), result.getRegions());
+        Map<String, String> metadata = diffResult.toMetadata(resultKey);
+        blobService.saveFile(result.getDiffData(), fileName, metadata == null ? Map.of() : metadata);
+        compareService.getDiffResultCache().put(resultKey, diffResult);
+        return diffResult;
+    }
 }
@@ -0,0 +1,183 @@
+package com.balazs.visual_diff.Compare;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the compares, bound from the app.compare properties. The defaults match application.properties, and
+ * CompareService clamps values that are out of range.
+ */
+@ConfigurationProperties(prefix = "app.compare")
+public class CompareProperties {
+
+    private int parallelism = 0;                           //Compare threads. 0 or less uses the number of available processors
+    private int bandRows = 64;                             //Most rows compared by a single task
+    private long parallelMinPixels = 1000000;              //Images with fewer pixels are always compared sequentially
+    private boolean fixedPointKernel = false;              //Compare with the integer-only kernel instead of the float kernels
+    private int regionDilationRadius = 0;                  //Pixels diff pixels are grown by before they are grouped into regions
+    private int maxRegions = 100;                          //Most regions returned per compare, largest first
+    private int tileSize = 64;                             //Width and height of the tiles checked for changes. 0 or less compares every pixel
+    private boolean mismatchScan = false;                  //Skip runs of identical pixels with Arrays.mismatch before comparing
+    private int pyramidLevels = 5;                         //Times the images are halved to find candidate tiles. 0 or less disables the pyramid
+    private long pyramidMinPixels = 20000000;              //Images with fewer pixels are never compared with the pyramid
+    private boolean pyramidConservative = true;            //Find candidate tiles with a bound that never misses a changed pixel
+    private long streamingMinPixels = 4000000;             //PNGs with at least this many pixels are compared in bands. 0 or less disables streaming
+    private int streamingBandRows = 256;                   //Rows decoded and compared at a time when streaming
+    private long offHeapMinPixels = 16000000;              //Images with at least this many pixels that cannot be streamed are held off-heap. 0 or less disables it
+    private boolean offHeapMapped = false;                 //Back off-heap rasters with memory-mapped temporary files instead of native memory
+    private String offHeapDirectory = "";                  //Directory of the temporary files. Empty uses java.io.tmpdir
+    private long bufferPoolMaxBytes = 268435456;           //Bytes of released rasters and buffers kept for the next compares. 0 or less disables the pool
+    private long decodedImageCacheMaxBytes = 268435456;    //Bytes of decoded baseline images kept for the next compares. 0 or less disables the cache
+    private int resultCacheMaxEntries = 1024;              //Compare results kept in memory. 0 or less only restores results from the diff images' metadata
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int newParallelism) {
+        parallelism = newParallelism;
+    }
+
+    public int getBandRows() {
+        return bandRows;
+    }
+
+    public void setBandRows(int newBandRows) {
+        bandRows = newBandRows;
+    }
+
+    public long getParallelMinPixels() {
+        return parallelMinPixels;
+    }
+
+    public void setParallelMinPixels(long newParallelMinPixels) {
+        parallelMinPixels = newParallelMinPixels;
+    }
+
+    public boolean isFixedPointKernel() {
+        return fixedPointKernel;
+    }
+
+    public void setFixedPointKernel(boolean newFixedPointKernel) {
+        fixedPointKernel = newFixedPointKernel;
+    }
+
+    public int getRegionDilationRadius() {
+        return regionDilationRadius;
+    }
+
+    public void setRegionDilationRadius(int newRegionDilationRadius) {
+        regionDilationRadius = newRegionDilationRadius;
+    }
+
+    public int getMaxRegions() {
+        return maxRegions;
+    }
+
+    public void setMaxRegions(int newMaxRegions) {
+        maxRegions = newMaxRegions;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(int newTileSize) {
+        tileSize = newTileSize;
+    }
+
+    public boolean isMismatchScan() {
+        return mismatchScan;
+    }
+
+    public void setMismatchScan(boolean newMismatchScan) {
+        mismatchScan = newMismatchScan;
+    }
+
+    public int getPyramidLevels() {
+        return pyramidLevels;
+    }
+
+    public void setPyramidLevels(int newPyramidLevels) {
+        pyramidLevels = newPyramidLevels;
+    }
+
+    public long getPyramidMinPixels() {
+        return pyramidMinPixels;
+    }
+
+    public void setPyramidMinPixels(long newPyramidMinPixels) {
+        pyramidMinPixels = newPyramidMinPixels;
+    }
+
+    public boolean isPyramidConservative() {
+        return pyramidConservative;
+    }
+
+    public void setPyramidConservative(boolean newPyramidConservative) {
+        pyramidConservative = newPyramidConservative;
+    }
+
+    public long getStreamingMinPixels() {
+        return streamingMinPixels;
+    }
+
+    public void setStreamingMinPixels(long newStreamingMinPixels) {
+        streamingMinPixels = newStreamingMinPixels;
+    }
+
+    public int getStreamingBandRows() {
+        return streamingBandRows;
+    }
+
+    public void setStreamingBandRows(int newStreamingBandRows) {
+        streamingBandRows = newStreamingBandRows;
+    }
+
+    public long getOffHeapMinPixels() {
+        return offHeapMinPixels;
+    }
+
+    public void setOffHeapMinPixels(long newOffHeapMinPixels) {
+        offHeapMinPixels = newOffHeapMinPixels;
+    }
+
+    public boolean isOffHeapMapped() {
+        return offHeapMapped;
+    }
+
+    public void setOffHeapMapped(boolean newOffHeapMapped) {
+        offHeapMapped = newOffHeapMapped;
+    }
+
+    public String getOffHeapDirectory() {
+        return offHeapDirectory;
+    }
+
+    public void setOffHeapDirectory(String newOffHeapDirectory) {
+        offHeapDirectory = newOffHeapDirectory;
+    }
+
+    public long getBufferPoolMaxBytes() {
+        return bufferPoolMaxBytes;
+    }
+
+    public void setBufferPoolMaxBytes(long newBufferPoolMaxBytes) {
+        bufferPoolMaxBytes = newBufferPoolMaxBytes;
+    }
+
+    public long getDecodedImageCacheMaxBytes() {
+        return decodedImageCacheMaxBytes;
+    }
+
+    public void setDecodedImageCacheMaxBytes(long newDecodedImageCacheMaxBytes) {
+        decodedImageCacheMaxBytes = newDecodedImageCacheMaxBytes;
+    }
+
+    public int getResultCacheMaxEntries() {
+        return resultCacheMaxEntries;
+    }
+
+    public void setResultCacheMaxEntries(int newResultCacheMaxEntries) {
+        resultCacheMaxEntries = newResultCacheMaxEntries;
+    }
+}
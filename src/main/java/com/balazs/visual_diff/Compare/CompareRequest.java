@@ -1,9 +1,12 @@
 package com.balazs.visual_diff.Compare;
 
+import java.util.List;
+
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 
-@Schema(name = "CompareRequest", description = "This request object is accepted for the /compare endpoint in the CompareController. It includes a baselineFileName, and comparisonFileName.")
+@Schema(name = "CompareRequest", description = "This request object is accepted for the /compare endpoint in the CompareController. It includes a baselineFileName, and comparisonFileName, and optionally the regions to ignore while comparing.")
 public class CompareRequest {
     
     @NotEmpty(message = "baselineFileName must not be null.")
@@ -14,6 +17,13 @@ public class CompareRequest {
     @Schema(description = "The 'fileName' of the comparison file to compare. This file will be retrieved from Azure if it exists, and used for the comparison. FileName will be in the format [type]\\_[timestamp]\\_[UUID].[format]", example = "comparison_2025-06-05_22-14-10_b67ca23a-28bd-4385-93b8-0068c7794066.png")
     private String comparisonFileName;
 
+    @Valid
+    @Schema(description = "Optional rectangles that are not compared. Pixels inside them are drawn gray in the diff image and never highlighted.")
+    private List<IgnoreRegion> ignoreRegions;
+
+    @Schema(description = "Optional 'fileName' of a mask image uploaded with type 'mask'. White pixels of the mask are not compared, black pixels are. Must have the same dimensions as the baseline and comparison files.", example = "mask_2025-06-14_17-47-16_5b0c4e1a-8d3f-4a55-9a7e-2f6c1d9b3e40.png")
+    private String maskFileName;
+
     public CompareRequest() { }
 
     public CompareRequest(String newBaselineFileName, String newComparisonFileName) {
@@ -36,4 +46,20 @@ public class CompareRequest {
     public void setComparison(String newComparisonFileName) {
         comparisonFileName = newComparisonFileName;
     }
+
+    public List<IgnoreRegion> getIgnoreRegions() {
+        return ignoreRegions;
+    }
+
+    public void setIgnoreRegions(List<IgnoreRegion> newIgnoreRegions) {
+        ignoreRegions = newIgnoreRegions;
+    }
+
+    public String getMaskFileName() {
+        return maskFileName;
+    }
+
+    public void setMaskFileName(String newMaskFileName) {
+        maskFileName = newMaskFileName;
+    }
 }
@@ -1,7 +1,12 @@
 package com.balazs.visual_diff.Compare;
 
+import java.util.List;
+
 import org.springframework.hateoas.RepresentationModel;
 
+import com.balazs.visual_diff.Utilities.DiffRegion;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
+
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(name = "CompareResponse", description = "This response object is returned for all endpoints in the CompareController. It includes a baselineFileName, the comparisonFileName, diffFileName, and related links for discovery.")
@@ -15,6 +20,12 @@ public class CompareResponse extends RepresentationModel<CompareResponse> {
     
     @Schema(description = "The 'fileName' of the diff file produced. FileName will be in the format [type]\\_[UUID].[format]", example = "diff_a46b02ce-49d4-4c7c-b95f-510ad01c9477.png")
     private String diffFileName;
+
+    @Schema(description = "Statistics collected while comparing the baseline and comparison files.")
+    private DiffStatistics statistics;
+
+    @Schema(description = "Connected regions of differing pixels, largest first. Diff pixels within 2 * app.compare.region-dilation-radius + 1 pixels of each other belong to the same region. At most app.compare.max-regions regions are returned.")
+    private List<DiffRegion> regions;
     
     public CompareResponse() { }
 
@@ -24,6 +35,16 @@ public class CompareResponse extends RepresentationModel<CompareResponse> {
         diffFileName = newDiffFileName;
     }
 
+    public CompareResponse(String newBaselineFileName, String newComparisonFileName, String newDiffFileName, DiffStatistics newStatistics) {
+        this(newBaselineFileName, newComparisonFileName, newDiffFileName);
+        statistics = newStatistics;
+    }
+
+    public CompareResponse(String newBaselineFileName, String newComparisonFileName, String newDiffFileName, DiffStatistics newStatistics, List<DiffRegion> newRegions) {
+        this(newBaselineFileName, newComparisonFileName, newDiffFileName, newStatistics);
+        regions = newRegions;
+    }
+
     public String getBaselineFileName() {
         return baselineFileName;
     }
@@ -47,4 +68,20 @@ public class CompareResponse extends RepresentationModel<CompareResponse> {
     public void setDiffFileName(String newDiffFileName) {
         diffFileName = newDiffFileName;
     }
+
+    public DiffStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(DiffStatistics newStatistics) {
+        statistics = newStatistics;
+    }
+
+    public List<DiffRegion> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(List<DiffRegion> newRegions) {
+        regions = newRegions;
+    }
 }
@@ -0,0 +1,49 @@
+package com.balazs.visual_diff.Compare;
+
+import java.util.List;
+
+import com.balazs.visual_diff.Utilities.DiffRegion;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
+
+public class CompareResult {
+
+    private final byte[] diffData;
+    private final DiffStatistics statistics;
+    private final List<DiffRegion> regions;
+
+    /**
+     * Result of CompareService.compare without any regions.
+     *
+     * @param byte[] diffData of the diff image in PNG format
+     * @param DiffStatistics statistics of the comparison
+     */
+    public CompareResult(byte[] diffData, DiffStatistics statistics) {
+        this(diffData, statistics, List.of());
+    }
+
+    /**
+     * Result of CompareService.compare. Holds the encoded diff image, the statistics collected while comparing, and the
+     * connected regions of differing pixels.
+     *
+     * @param byte[] diffData of the diff image in PNG format
+     * @param DiffStatistics statistics of the comparison
+     * @param List<DiffRegion> regions of differing pixels, largest first
+     */
+    public CompareResult(byte[] diffData, DiffStatistics statistics, List<DiffRegion> regions) {
+        this.diffData = diffData;
+        this.statistics = statistics;
+        this.regions = regions;
+    }
+
+    public byte[] getDiffData() {
+        return diffData;
+    }
+
+    public DiffStatistics getStatistics() {
+        return statistics;
+    }
+
+    public List<DiffRegion> getRegions() {
+        return regions;
+    }
+}
@@ -1,43 +1,949 @@
 package com.balazs.visual_diff.Compare;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.springframework.stereotype.Service;
 
+import com.balazs.visual_diff.Exceptions.CorruptImageException;
+import com.balazs.visual_diff.Exceptions.DimensionMismatchException;
+import com.balazs.visual_diff.Utilities.BufferPool;
 import com.balazs.visual_diff.Utilities.CompareUtilities;
+import com.balazs.visual_diff.Utilities.ContentHash;
+import com.balazs.visual_diff.Utilities.DecodedImageCache;
+import com.balazs.visual_diff.Utilities.DiffRegion;
+import com.balazs.visual_diff.Utilities.DiffResultCache;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
 import com.balazs.visual_diff.Utilities.FileUtilities;
+import com.balazs.visual_diff.Utilities.IgnoreMask;
+import com.balazs.visual_diff.Utilities.OffHeapRaster;
+import com.balazs.visual_diff.Utilities.PngBandReader;
+import com.balazs.visual_diff.Utilities.PngBandWriter;
+import com.balazs.visual_diff.Utilities.PooledOutputStream;
+import com.balazs.visual_diff.Utilities.PyramidCompareUtilities;
+import com.balazs.visual_diff.Utilities.RasterNormalizer;
+import com.balazs.visual_diff.Utilities.RegionFinder;
+import com.balazs.visual_diff.Utilities.RegionUtilities;
+import com.balazs.visual_diff.Utilities.WindowedImageInputStream;
+
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class CompareService {
 
+    private final static int MAX_PYRAMID_LEVELS = 10;           //Tiles of 1024 x 1024 pixels
+    private final static String RESULT_KEY_VERSION = "2";      //Changes whenever the diff image or statistics of a compare change
+    private final static int DECODE_WINDOW_BYTES = 1 << 20;     //Bytes of a downloaded file kept behind the decoder
+    private final static int READ_BUFFER_BYTES = 64 * 1024;
+    private final static int OFF_HEAP_DECODE_BAND_BYTES = 16 << 20;    //Bytes of decoded pixels on the heap while filling an off-heap raster
+
+    private final ForkJoinPool comparePool;
+    private final int bandRows;
+    private final long parallelMinPixels;
+    private final boolean fixedPointKernel;
+    private final int regionDilationRadius;
+    private final int maxRegions;
+    private final int tileSize;
+    private final boolean mismatchScan;
+    private final int pyramidLevels;
+    private final long pyramidMinPixels;
+    private final boolean pyramidConservative;
+    private final long streamingMinPixels;
+    private final int streamingBandRows;
+    private final long offHeapMinPixels;
+    private final boolean offHeapMapped;
+    private final Path offHeapDirectory;
+    private final BufferPool bufferPool;
+    private final DecodedImageCache decodedImageCache;
+    private final DiffResultCache diffResultCache;
+
+    /**
+     * Creates the dedicated ForkJoinPool used by the parallel compare mode. The pool is kept separate from the common pool 
+     * so compares do not compete with parallel streams used elsewhere in the application.
+     *
+     * @param CompareProperties properties settings of the compares, bound from the app.compare properties
+     */
+    public CompareService(CompareProperties properties) {
+        int threads = properties.getParallelism() > 0 ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.comparePool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("compare-worker-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.bandRows = Math.max(1, properties.getBandRows());
+        this.parallelMinPixels = properties.getParallelMinPixels();
+        this.fixedPointKernel = properties.isFixedPointKernel();
+        this.regionDilationRadius = Math.max(0, properties.getRegionDilationRadius());
+        this.maxRegions = Math.max(0, properties.getMaxRegions());
+        this.tileSize = Math.max(0, properties.getTileSize());
+        this.mismatchScan = properties.isMismatchScan();
+        this.pyramidLevels = Math.max(0, Math.min(MAX_PYRAMID_LEVELS, properties.getPyramidLevels()));
+        this.pyramidMinPixels = properties.getPyramidMinPixels();
+        this.pyramidConservative = properties.isPyramidConservative();
+        this.streamingMinPixels = properties.getStreamingMinPixels();
+        this.streamingBandRows = Math.max(1, properties.getStreamingBandRows());
+        this.offHeapMinPixels = properties.getOffHeapMinPixels();
+        this.offHeapMapped = properties.isOffHeapMapped();
+        String offHeapDirectory = properties.getOffHeapDirectory();
+        this.offHeapDirectory = Path.of(offHeapDirectory == null || offHeapDirectory.isBlank() ? System.getProperty("java.io.tmpdir") : offHeapDirectory);
+        this.bufferPool = new BufferPool(properties.getBufferPoolMaxBytes());
+        this.decodedImageCache = new DecodedImageCache(properties.getDecodedImageCacheMaxBytes());
+        this.diffResultCache = new DiffResultCache(properties.getResultCacheMaxEntries());
+    }
+
+    /**
+     * Shuts down the compare pool when the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        comparePool.shutdown();
+    }
+
+    /**
+     * Gets the pool the rasters and buffers of the compares are borrowed from, to report its hits and misses.
+     *
+     * @return BufferPool of this service
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Gets the cache of decoded baseline images, to report its hits, misses, and evictions.
+     *
+     * @return DecodedImageCache of this service
+     */
+    public DecodedImageCache getDecodedImageCache() {
+        return decodedImageCache;
+    }
+
+    /**
+     * Gets the in-memory cache of compare results, to look up and store the results of compares by their result key.
+     *
+     * @return DiffResultCache of this service
+     */
+    public DiffResultCache getDiffResultCache() {
+        return diffResultCache;
+    }
+
+    /**
+     * Builds the key a compare's result is cached under from the content hashes of its files, its ignore regions, and
+     * every setting that changes the diff image, statistics, or regions. Compares with the same key produce the same
+     * result, so the diff image of the first can be returned for the others.
+     *
+     * @param String baselineHash ContentHash of the baseline file, or null if unknown
+     * @param String comparisonHash ContentHash of the comparison file, or null if unknown
+     * @param String maskHash ContentHash of the mask file, empty if no mask is used, or null if unknown
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @return String result key, or null if a content hash is unknown and the result cannot be cached
+     */
+    public String getResultKey(String baselineHash, String comparisonHash, String maskHash, List<IgnoreRegion> ignoreRegions) {
+        if (baselineHash == null || comparisonHash == null || maskHash == null) { return null; }
+
+        StringBuilder regions = new StringBuilder();
+        if (ignoreRegions != null) {
+            for (IgnoreRegion region : ignoreRegions) {
+                regions.append(region.getX()).append(',').append(region.getY()).append(',').append(region.getWidth()).append(',').append(region.getHeight()).append(';');
+            }
+        }
+
+        //The fixed-point kernel draws the same diff image, but its delta histogram buckets the fixed-point deltas
+        String settings = fixedPointKernel + "," + pyramidLevels + "," + pyramidMinPixels + "," + pyramidConservative + "," + regionDilationRadius + "," + maxRegions;
+        return ContentHash.of(RESULT_KEY_VERSION, baselineHash, comparisonHash, maskHash, regions.toString(), settings);
+    }
+
     /**
      * Starts the compare process between the baseline image and the comparison image. 
      * Converts incoming byte[] arrays to BufferedImages.
      *
      * @param byte[] baselineData
      * @param byte[] comparisonData
-     * @return byte[] diffData of the diff image
+     * @return CompareResult diffData of the diff image, the statistics collected while comparing, and the regions of
+     * differing pixels
      * @throws IOException
      */
-    public byte[] compare(byte[] baselineData, byte[] comparisonData) throws IOException {
-        //Convert baseline file to BufferedImage
-        ByteArrayInputStream baselineByteArrayInputStream = new ByteArrayInputStream(baselineData);
-        BufferedImage baselineImg = ImageIO.read(baselineByteArrayInputStream);
-        baselineByteArrayInputStream.close();
+    public CompareResult compare(byte[] baselineData, byte[] comparisonData) throws IOException {
+        return compare(baselineData, comparisonData, null, null);
+    }
+
+    /**
+     * Starts the compare process between the baseline image and the comparison image, skipping the pixels inside
+     * ignoreRegions and under the white pixels of the mask image. Large PNG images are compared band by band, see
+     * compareStreaming. Other large images are held in off-heap rasters, see compareOffHeap. Everything else is decoded
+     * in full, see compare(BufferedImage, BufferedImage, List, BufferedImage).
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @return CompareResult diffData of the diff image, the statistics collected while comparing, and the regions of
+     * differing pixels
+     * @throws IOException
+     * @throws CorruptImageException if the mask image cannot be read
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    public CompareResult compare(byte[] baselineData, byte[] comparisonData, List<IgnoreRegion> ignoreRegions, byte[] maskData) throws IOException {
+        CompareResult streamedResult = compareStreaming(baselineData, comparisonData, ignoreRegions, maskData);
+        if (streamedResult != null) { return streamedResult; }
+
+        if (isHeldOffHeap(readPixelCount(baselineData))) {
+            return compareOffHeap(baselineData, comparisonData, ignoreRegions, maskData);
+        }
+
+        //Convert baseline, comparison, and mask files to BufferedImages
+        return compare(readImage(baselineData), readImage(comparisonData), ignoreRegions, readMaskImage(maskData));
+    }
+
+    /**
+     * Starts the compare process like compare(byte[], byte[], List, byte[]), with a baseline blob that is reused from
+     * the decoded image cache while its ETag is unchanged. On a hit, the baseline is neither downloaded nor decoded. On
+     * a miss, the baseline is decoded while it is downloaded from baselineLoader, and cached. The comparison blob is
+     * decoded while it is downloaded from comparisonLoader, so neither file is held in a byte[] array. Images large
+     * enough to be streamed or held off-heap are read into byte[] arrays and compared like before.
+     *
+     * @param String baselineFileName name of the baseline blob
+     * @param String baselineETag ETag of the baseline blob's current version
+     * @param Supplier<InputStream> baselineLoader opens the baseline blob, only called on a miss
+     * @param Supplier<InputStream> comparisonLoader opens the comparison blob
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @return CompareResult diffData of the diff image, the statistics collected while comparing, and the regions of
+     * differing pixels
+     * @throws IOException
+     * @throws CorruptImageException if the mask image cannot be read
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    public CompareResult compare(String baselineFileName, String baselineETag, Supplier<InputStream> baselineLoader, Supplier<InputStream> comparisonLoader, List<IgnoreRegion> ignoreRegions, byte[] maskData) throws IOException {
+        BufferedImage baselineImg = decodedImageCache.get(baselineFileName, baselineETag);
+        if (baselineImg == null) {
+            try (WindowedImageInputStream baselineInput = WindowedImageInputStream.open(baselineLoader.get(), DECODE_WINDOW_BYTES)) {
+                if (!isDecodedInFull(readPixelCount(baselineInput))) {
+                    try (InputStream comparisonStream = comparisonLoader.get()) {
+                        return compare(readAllBytes(baselineInput), comparisonStream.readAllBytes(), ignoreRegions, maskData);
+                    }
+                }
+                baselineImg = readCachedImage(baselineFileName, baselineETag, baselineInput);
+            }
+        }
+
+        return compare(baselineImg, readImage(comparisonLoader), ignoreRegions, readMaskImage(maskData));
+    }
+
+    /**
+     * Compares a baseline image and a comparison image that are already decoded, such as the images decoded once
+     * while validating an upload, skipping the pixels inside ignoreRegions and under the white pixels of the mask image.
+     * The converted rasters, the diff image, and the encoding buffer are borrowed from the buffer pool and returned
+     * once the diff image is encoded.
+     *
+     * @param BufferedImage baselineImg
+     * @param BufferedImage comparisonImg with the same dimensions as baselineImg
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param BufferedImage maskImg mask image with the same dimensions as the baseline and comparison images, or null
+     * @return CompareResult diffData of the diff image, the statistics collected while comparing, and the regions of
+     * differing pixels
+     * @throws IOException
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    public CompareResult compare(BufferedImage baselineImg, BufferedImage comparisonImg, List<IgnoreRegion> ignoreRegions, BufferedImage maskImg) throws IOException {
+        int[] ignoredSpans = createIgnoredSpans(baselineImg.getWidth(), baselineImg.getHeight(), ignoreRegions, maskImg);
+
+        //Get diff image, group its diff pixels into regions, and return diff as byte array
+        DiffStatistics statistics = new DiffStatistics(baselineImg.getWidth(), baselineImg.getHeight());
+        BufferedImage baselineRaster = RasterNormalizer.normalize(baselineImg, bufferPool);
+        BufferedImage comparisonRaster = RasterNormalizer.normalize(comparisonImg, bufferPool);
+        byte[] outputABGR = bufferPool.borrow(baselineImg.getWidth() * baselineImg.getHeight() * 4);
+        try {
+            BufferedImage diffImage = createDiffImage(baselineRaster, comparisonRaster, statistics, ignoredSpans, outputABGR);
+            List<DiffRegion> regions = findRegions(diffImage, statistics);
+            byte[] diffData = FileUtilities.convertBufferedImageToByteArray(diffImage, FileUtilities.FORMAT_PNG, bufferPool);
+            return new CompareResult(diffData, statistics, regions);
+        }
+        finally {
+            bufferPool.release(outputABGR);
+            RasterNormalizer.release(comparisonImg, comparisonRaster, bufferPool);
+            RasterNormalizer.release(baselineImg, baselineRaster, bufferPool);
+        }
+    }
+
+    /**
+     * Compares the baseline and comparison images streamingBandRows rows at a time, see compareBands. Each band of both
+     * images is decoded with a PngBandReader right before it is compared, so only three bands of pixels are held in
+     * memory instead of three full images. Produces the same pixels, statistics, and regions as the full compare.
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @return CompareResult of the comparison, or null if the images are not non-interlaced 8-bit RGBA PNGs of the
+     * same dimensions with at least streamingMinPixels pixels, and have to be decoded in full instead
+     * @throws IOException if the image data is corrupt
+     * @throws CorruptImageException if the mask image cannot be read
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    private CompareResult compareStreaming(byte[] baselineData, byte[] comparisonData, List<IgnoreRegion> ignoreRegions, byte[] maskData) throws IOException {
+        if (streamingMinPixels <= 0) { return null; }
+
+        try (PngBandReader baselineReader = new PngBandReader(baselineData); PngBandReader comparisonReader = new PngBandReader(comparisonData)) {
+            if (!isStreamed(baselineReader, comparisonReader)) { return null; }
+
+            int width = baselineReader.getWidth();
+            int height = baselineReader.getHeight();
+            int[] ignoredSpans = createIgnoredSpans(width, height, ignoreRegions, readMaskImage(maskData));
+
+            int bandLength = width * Math.min(streamingBandRows, height) * 4;
+            byte[] baselineBand = bufferPool.borrow(bandLength);
+            byte[] compareBand = bufferPool.borrow(bandLength);
+            try {
+                return compareBands((startRow, rows, outputBand, bandStatistics, bandSpans) -> {
+                    baselineReader.readRows(baselineBand, rows);
+                    comparisonReader.readRows(compareBand, rows);
+                    comparePixels(baselineBand, compareBand, outputBand, width, rows, bandStatistics, bandSpans, (long) width * height);
+                }, width, height, ignoredSpans);
+            }
+            finally {
+                bufferPool.release(compareBand);
+                bufferPool.release(baselineBand);
+            }
+        }
+    }
+
+    /**
+     * Counts the differing pixels like compareStreaming compares them, decoding one band of each image at a time and
+     * stopping once more than maxDiffPixels pixels differ, so the bands below are never decoded.
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels, greater than maxDiffPixels if the comparison is over budget, or -1 if the
+     * images cannot be streamed, see compareStreaming
+     * @throws IOException if the image data is corrupt
+     * @throws CorruptImageException if the mask image cannot be read
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    private long countDiffPixelsStreaming(byte[] baselineData, byte[] comparisonData, List<IgnoreRegion> ignoreRegions, byte[] maskData, long maxDiffPixels) throws IOException {
+        if (streamingMinPixels <= 0) { return -1; }
+
+        try (PngBandReader baselineReader = new PngBandReader(baselineData); PngBandReader comparisonReader = new PngBandReader(comparisonData)) {
+            if (!isStreamed(baselineReader, comparisonReader)) { return -1; }
+
+            int width = baselineReader.getWidth();
+            int height = baselineReader.getHeight();
+            int[] ignoredSpans = createIgnoredSpans(width, height, ignoreRegions, readMaskImage(maskData));
 
-        //Convert comparison file to BufferedImage
-        ByteArrayInputStream comparisonByteArrayInputStream = new ByteArrayInputStream(comparisonData);
-        BufferedImage comparisonImg = ImageIO.read(comparisonByteArrayInputStream);
-        comparisonByteArrayInputStream.close();
+            int bandLength = width * Math.min(streamingBandRows, height) * 4;
+            byte[] baselineBand = bufferPool.borrow(bandLength);
+            byte[] compareBand = bufferPool.borrow(bandLength);
+            try {
+                return countBands((startRow, rows, bandSpans, maxBandDiffPixels) -> {
+                    baselineReader.readRows(baselineBand, rows);
+                    comparisonReader.readRows(compareBand, rows);
+                    return CompareUtilities.countDiffPixels(baselineBand, compareBand, 0, width * rows, maxBandDiffPixels, fixedPointKernel, bandSpans);
+                }, width, height, ignoredSpans, maxDiffPixels);
+            }
+            finally {
+                bufferPool.release(compareBand);
+                bufferPool.release(baselineBand);
+            }
+        }
+    }
 
-        //Get diff image, and return diff as byte array
-        BufferedImage diffImage = createDiffImage(baselineImg, comparisonImg);
-        return FileUtilities.convertBufferedImageToByteArray(diffImage, FileUtilities.FORMAT_PNG);
+    /**
+     * Checks if two images can be compared band by band with PngBandReaders.
+     *
+     * @param PngBandReader baselineReader of the baseline image
+     * @param PngBandReader comparisonReader of the comparison image
+     * @return boolean true if both images are non-interlaced 8-bit RGBA PNGs of the same dimensions with at least
+     * streamingMinPixels pixels
+     */
+    private boolean isStreamed(PngBandReader baselineReader, PngBandReader comparisonReader) {
+        int width = baselineReader.getWidth();
+        int height = baselineReader.getHeight();
+        if (!baselineReader.isSupported() || !comparisonReader.isSupported()) { return false; }
+        if (comparisonReader.getWidth() != width || comparisonReader.getHeight() != height) { return false; }
+        return (long) width * height >= streamingMinPixels && (long) width * streamingBandRows * 4 <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Compares the baseline and comparison images after decoding each of them into an OffHeapRaster, see
+     * readOffHeapRaster, so large images that cannot be streamed are never decoded into a full-size byte[] array on the
+     * heap. The rasters are compared band by band like compareStreaming, with the kernels reading each band straight
+     * from the rasters. Both rasters belong to a confined Arena that is closed before returning, so their memory is
+     * released as soon as the compare is done.
+     *
+     * The bands are compared by the range kernel on the request thread. The tile, mismatch, pyramid, and parallel modes
+     * work on byte[] arrays, and a confined arena cannot be read by the compare pool. All modes produce the same output.
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @return CompareResult of the comparison
+     * @throws IOException if the images cannot be read, or the temporary files cannot be created
+     * @throws CorruptImageException if an image cannot be read
+     * @throws DimensionMismatchException if the images or the mask image have different dimensions
+     */
+    private CompareResult compareOffHeap(byte[] baselineData, byte[] comparisonData, List<IgnoreRegion> ignoreRegions, byte[] maskData) throws IOException {
+        try (Arena arena = Arena.ofConfined(); OffHeapRaster baselineRaster = readOffHeapRaster(arena, baselineData); OffHeapRaster comparisonRaster = readOffHeapRaster(arena, comparisonData)) {
+            int width = baselineRaster.getWidth();
+            int height = baselineRaster.getHeight();
+            if (comparisonRaster.getWidth() != width || comparisonRaster.getHeight() != height) { throw new DimensionMismatchException(); }
+
+            int[] ignoredSpans = createIgnoredSpans(width, height, ignoreRegions, readMaskImage(maskData));
+            return compareBands((startRow, rows, outputBand, bandStatistics, bandSpans) ->
+                CompareUtilities.comparePixelRange(baselineRaster.rows(startRow, rows), comparisonRaster.rows(startRow, rows), outputBand, 0, width * rows, fixedPointKernel, bandStatistics, bandSpans), width, height, ignoredSpans);
+        }
+    }
+
+    /**
+     * Counts the differing pixels of two images held in OffHeapRasters, see compareOffHeap, band by band until more than
+     * maxDiffPixels pixels differ.
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     * @throws IOException if the images cannot be read, or the temporary files cannot be created
+     * @throws CorruptImageException if an image cannot be read
+     * @throws DimensionMismatchException if the images or the mask image have different dimensions
+     */
+    private long countDiffPixelsOffHeap(byte[] baselineData, byte[] comparisonData, List<IgnoreRegion> ignoreRegions, byte[] maskData, long maxDiffPixels) throws IOException {
+        try (Arena arena = Arena.ofConfined(); OffHeapRaster baselineRaster = readOffHeapRaster(arena, baselineData); OffHeapRaster comparisonRaster = readOffHeapRaster(arena, comparisonData)) {
+            int width = baselineRaster.getWidth();
+            int height = baselineRaster.getHeight();
+            if (comparisonRaster.getWidth() != width || comparisonRaster.getHeight() != height) { throw new DimensionMismatchException(); }
+
+            int[] ignoredSpans = createIgnoredSpans(width, height, ignoreRegions, readMaskImage(maskData));
+            return countBands((startRow, rows, bandSpans, maxBandDiffPixels) ->
+                CompareUtilities.countDiffPixels(baselineRaster.rows(startRow, rows), comparisonRaster.rows(startRow, rows), 0, width * rows, maxBandDiffPixels, fixedPointKernel, bandSpans), width, height, ignoredSpans, maxDiffPixels);
+        }
+    }
+
+    /**
+     * Compares two images streamingBandRows rows at a time. Each band is compared by comparer as if it was a separate
+     * image of rows rows, labelled by a RegionFinder, and encoded by a PngBandWriter before the next band is compared,
+     * so only one band of the diff image is held on the heap. The band and the encoding buffer are borrowed from the
+     * buffer pool.
+     *
+     * @param BandComparer comparer compares a band of the images into the band of the diff image
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @return CompareResult of the comparison
+     * @throws IOException if a band cannot be read
+     */
+    private CompareResult compareBands(BandComparer comparer, int width, int height, int[] ignoredSpans) throws IOException {
+        byte[] outputBand = bufferPool.borrow(width * Math.min(streamingBandRows, height) * 4);
+
+        DiffStatistics statistics = new DiffStatistics(width, height);
+        RegionFinder regionFinder = new RegionFinder(width, regionDilationRadius);
+        try (PooledOutputStream diffOutput = new PooledOutputStream(bufferPool); PngBandWriter diffWriter = new PngBandWriter(diffOutput, width, height)) {
+            for (int startRow = 0; startRow < height; startRow += streamingBandRows) {
+                int rows = Math.min(streamingBandRows, height - startRow);
+
+                DiffStatistics bandStatistics = new DiffStatistics(width, rows);
+                int[] bandSpans = IgnoreMask.bandSpans(ignoredSpans, startRow * width, (startRow + rows) * width);
+                comparer.compareRows(startRow, rows, outputBand, bandStatistics, bandSpans);
+                statistics.merge(bandStatistics, startRow);
+
+                if (bandStatistics.getDiffPixels() > 0) { regionFinder.addRows(outputBand, rows); }
+                else { regionFinder.skipRows(rows); }
+                diffWriter.writeRows(outputBand, rows);
+            }
+            diffWriter.finish();
+            return new CompareResult(diffOutput.toByteArray(), statistics, regionFinder.getRegions(maxRegions));
+        }
+        finally {
+            bufferPool.release(outputBand);
+        }
+    }
+
+    /**
+     * Counts the differing pixels of two images streamingBandRows rows at a time, like compareBands without the diff
+     * image. Stops counting bands as soon as more than maxDiffPixels pixels differ.
+     *
+     * @param BandCounter counter counts the differing pixels of a band of the images
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     * @throws IOException if a band cannot be read
+     */
+    private long countBands(BandCounter counter, int width, int height, int[] ignoredSpans, long maxDiffPixels) throws IOException {
+        long diffPixels = 0;
+        for (int startRow = 0; startRow < height && diffPixels <= maxDiffPixels; startRow += streamingBandRows) {
+            int rows = Math.min(streamingBandRows, height - startRow);
+            int[] bandSpans = IgnoreMask.bandSpans(ignoredSpans, startRow * width, (startRow + rows) * width);
+            diffPixels += counter.countRows(startRow, rows, bandSpans, maxDiffPixels - diffPixels);
+        }
+        return diffPixels;
+    }
+
+    /**
+     * Decodes an image into an OffHeapRaster allocated in arena. PNG images that a PngBandReader can decode are inflated
+     * once from top to bottom, straight into the raster. Every other image is decoded by ImageIO, see
+     * readOffHeapRasterBands.
+     *
+     * @param Arena arena the raster is allocated in
+     * @param byte[] imageData
+     * @return OffHeapRaster holding the pixels of the image
+     * @throws IOException if the image data is corrupt, or the temporary file cannot be created
+     * @throws CorruptImageException if the image cannot be read
+     */
+    private OffHeapRaster readOffHeapRaster(Arena arena, byte[] imageData) throws IOException {
+        try (PngBandReader reader = new PngBandReader(imageData)) {
+            if (!reader.isDecodable()) { return readOffHeapRasterBands(arena, imageData); }
+
+            int width = reader.getWidth();
+            int height = reader.getHeight();
+            OffHeapRaster raster = createOffHeapRaster(arena, width, height);
+            try {
+                reader.readRows(raster.rows(0, height), height);
+                return raster;
+            }
+            catch (IOException | RuntimeException e) {
+                raster.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Decodes an image with ImageIO into an OffHeapRaster about OFF_HEAP_DECODE_BAND_BYTES bytes of pixels at a time.
+     * Each band is decoded with ImageReadParam.setSourceRegion into a reused band image, normalized into a pooled array,
+     * and copied into the raster, so no full-size array of the image is created on the heap. The PNG and JPEG readers
+     * cannot resume where the previous band ended, so each band decodes the file from its start and skips the rows above
+     * the band. Only used for the images a PngBandReader cannot decode, such as JPEG, indexed, 16-bit, and interlaced
+     * images.
+     *
+     * @param Arena arena the raster is allocated in
+     * @param byte[] imageData
+     * @return OffHeapRaster holding the pixels of the image
+     * @throws IOException if the temporary file cannot be created
+     * @throws CorruptImageException if the image cannot be read
+     */
+    private OffHeapRaster readOffHeapRasterBands(Arena arena, byte[] imageData) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) { throw new CorruptImageException(); }
+
+            ImageReader reader = readers.next();
+            try {
+                //Not seek forward only, so every band can go back to the start of the file
+                reader.setInput(input, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int bandRows = Math.max(1, Math.min(height, OFF_HEAP_DECODE_BAND_BYTES / (width * 4)));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setDestination(reader.getImageTypes(0).next().createBufferedImage(width, bandRows));
+                OffHeapRaster raster = createOffHeapRaster(arena, width, height);
+                try {
+                    for (int startRow = 0; startRow < height; startRow += bandRows) {
+                        int rows = Math.min(bandRows, height - startRow);
+                        param.setSourceRegion(new Rectangle(0, startRow, width, rows));
+                        BufferedImage band = reader.read(0, param);
+                        BufferedImage normalized = RasterNormalizer.normalize(band, bufferPool);
+                        try {
+                            raster.writeRows(((DataBufferByte) normalized.getRaster().getDataBuffer()).getData(), startRow, rows);
+                        }
+                        finally {
+                            RasterNormalizer.release(band, normalized, bufferPool);
+                        }
+                    }
+                    return raster;
+                }
+                catch (IOException | RuntimeException e) {
+                    raster.close();
+                    throw e;
+                }
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty OffHeapRaster in arena, mapped from a temporary file in offHeapDirectory if offHeapMapped is true,
+     * otherwise in native memory.
+     *
+     * @param Arena arena the raster is allocated in
+     * @param int width of the image
+     * @param int height of the image
+     * @return OffHeapRaster of width x height pixels
+     * @throws IOException if the temporary file cannot be created
+     */
+    private OffHeapRaster createOffHeapRaster(Arena arena, int width, int height) throws IOException {
+        return offHeapMapped ? OffHeapRaster.map(arena, width, height, offHeapDirectory) : OffHeapRaster.allocate(arena, width, height);
+    }
+
+    /**
+     * Reads the dimensions of an image from its header without decoding its pixels.
+     *
+     * @param byte[] imageData
+     * @return long width * height of the image, or 0 if the image cannot be read
+     */
+    private long readPixelCount(byte[] imageData) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+            return readPixelCount(input);
+        }
+        catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the dimensions of an image from its header without decoding its pixels, and seeks back to where the header
+     * started, so the image can be decoded from the same stream afterwards.
+     *
+     * @param ImageInputStream input positioned at the start of the image file
+     * @return long width * height of the image, or 0 if the image cannot be read
+     * @throws IOException if the stream cannot seek back to the start of the image file
+     */
+    private long readPixelCount(ImageInputStream input) throws IOException {
+        input.mark();
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) { return 0; }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, false, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+        catch (IOException e) {
+            return 0;
+        }
+        finally {
+            input.reset();
+        }
+    }
+
+    /**
+     * Counts the differing pixels between the baseline image and the comparison image without creating a diff image. 
+     * Counting stops as soon as more than maxDiffPixels pixels differ, so a comparison over budget returns early.
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     * @throws IOException
+     */
+    public long countDiffPixels(byte[] baselineData, byte[] comparisonData, long maxDiffPixels) throws IOException {
+        return countDiffPixels(baselineData, comparisonData, null, null, maxDiffPixels);
+    }
+
+    /**
+     * Counts the differing pixels like countDiffPixels(byte[], byte[], long), skipping the pixels inside ignoreRegions
+     * and under the white pixels of the mask image, so the count matches the diff pixels of compare with the same
+     * regions and mask. Images large enough to be streamed or held off-heap by compare are counted band by band
+     * instead of being decoded in full, and no band is decoded once the comparison is over budget.
+     *
+     * @param byte[] baselineData
+     * @param byte[] comparisonData
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     * @throws IOException
+     * @throws CorruptImageException if the mask image cannot be read
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    public long countDiffPixels(byte[] baselineData, byte[] comparisonData, List<IgnoreRegion> ignoreRegions, byte[] maskData, long maxDiffPixels) throws IOException {
+        long streamedDiffPixels = countDiffPixelsStreaming(baselineData, comparisonData, ignoreRegions, maskData, maxDiffPixels);
+        if (streamedDiffPixels >= 0) { return streamedDiffPixels; }
+
+        if (isHeldOffHeap(readPixelCount(baselineData))) {
+            return countDiffPixelsOffHeap(baselineData, comparisonData, ignoreRegions, maskData, maxDiffPixels);
+        }
+
+        //Convert baseline, comparison, and mask files to BufferedImages
+        return countDiffPixels(readImage(baselineData), readImage(comparisonData), ignoreRegions, readMaskImage(maskData), maxDiffPixels);
+    }
+
+    /**
+     * Counts the differing pixels like countDiffPixels(byte[], byte[], List, byte[], long), with a baseline blob that
+     * is reused from the decoded image cache while its ETag is unchanged, and both blobs decoded while they are
+     * downloaded, see compare(String, String, Supplier, Supplier, List, byte[]). Images large enough to be streamed or
+     * held off-heap are read into byte[] arrays and counted band by band like countDiffPixels(byte[], byte[], List,
+     * byte[], long).
+     *
+     * @param String baselineFileName name of the baseline blob
+     * @param String baselineETag ETag of the baseline blob's current version
+     * @param Supplier<InputStream> baselineLoader opens the baseline blob, only called on a miss
+     * @param Supplier<InputStream> comparisonLoader opens the comparison blob
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param byte[] maskData mask image with the same dimensions as the baseline and comparison images, or null
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     * @throws IOException
+     * @throws CorruptImageException if the mask image cannot be read
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    public long countDiffPixels(String baselineFileName, String baselineETag, Supplier<InputStream> baselineLoader, Supplier<InputStream> comparisonLoader, List<IgnoreRegion> ignoreRegions, byte[] maskData, long maxDiffPixels) throws IOException {
+        BufferedImage baselineImg = decodedImageCache.get(baselineFileName, baselineETag);
+        if (baselineImg == null) {
+            try (WindowedImageInputStream baselineInput = WindowedImageInputStream.open(baselineLoader.get(), DECODE_WINDOW_BYTES)) {
+                if (!isDecodedInFull(readPixelCount(baselineInput))) {
+                    try (InputStream comparisonStream = comparisonLoader.get()) {
+                        return countDiffPixels(readAllBytes(baselineInput), comparisonStream.readAllBytes(), ignoreRegions, maskData, maxDiffPixels);
+                    }
+                }
+                baselineImg = readCachedImage(baselineFileName, baselineETag, baselineInput);
+            }
+        }
+
+        return countDiffPixels(baselineImg, readImage(comparisonLoader), ignoreRegions, readMaskImage(maskData), maxDiffPixels);
+    }
+
+    /**
+     * Counts the differing pixels between a baseline image and a comparison image that are already decoded, like
+     * countDiffPixels.
+     *
+     * @param BufferedImage baselineImg
+     * @param BufferedImage comparisonImg with the same dimensions as baselineImg
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     */
+    public long countDiffPixels(BufferedImage baselineImg, BufferedImage comparisonImg, long maxDiffPixels) {
+        return countDiffPixels(baselineImg, comparisonImg, null, null, maxDiffPixels);
+    }
+
+    /**
+     * Counts the differing pixels between a baseline image and a comparison image that are already decoded, skipping
+     * the pixels inside ignoreRegions and under the white pixels of the mask image.
+     *
+     * @param BufferedImage baselineImg
+     * @param BufferedImage comparisonImg with the same dimensions as baselineImg
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param BufferedImage maskImg mask image with the same dimensions as the baseline and comparison images, or null
+     * @param long maxDiffPixels number of differing pixels allowed
+     * @return long number of differing pixels. Greater than maxDiffPixels if the comparison is over budget
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    public long countDiffPixels(BufferedImage baselineImg, BufferedImage comparisonImg, List<IgnoreRegion> ignoreRegions, BufferedImage maskImg, long maxDiffPixels) {
+        int[] ignoredSpans = createIgnoredSpans(baselineImg.getWidth(), baselineImg.getHeight(), ignoreRegions, maskImg);
+
+        //Convert baseline and comparison images to the layout of the kernels
+        BufferedImage baselineRaster = RasterNormalizer.normalize(baselineImg, bufferPool);
+        BufferedImage comparisonRaster = RasterNormalizer.normalize(comparisonImg, bufferPool);
+        try {
+            int numPixels = baselineImg.getWidth() * baselineImg.getHeight();
+            byte[] baselineRGBA = ((DataBufferByte) baselineRaster.getRaster().getDataBuffer()).getData();
+            byte[] compareRGBA = ((DataBufferByte) comparisonRaster.getRaster().getDataBuffer()).getData();
+
+            return CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, maxDiffPixels, fixedPointKernel, ignoredSpans);
+        }
+        finally {
+            RasterNormalizer.release(comparisonImg, comparisonRaster, bufferPool);
+            RasterNormalizer.release(baselineImg, baselineRaster, bufferPool);
+        }
+    }
+
+    /**
+     * Builds the run-length spans of the pixels that are not compared from the ignore regions and mask image.
+     *
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @param List<IgnoreRegion> ignoreRegions rectangles that are not compared, or null
+     * @param BufferedImage maskImg mask image with the same dimensions as the baseline and comparison images, or null
+     * @return int[] spans from IgnoreMask.getSpans, or null if nothing is ignored
+     * @throws DimensionMismatchException if the mask image has different dimensions
+     */
+    private int[] createIgnoredSpans(int width, int height, List<IgnoreRegion> ignoreRegions, BufferedImage maskImg) {
+        if ((ignoreRegions == null || ignoreRegions.isEmpty()) && maskImg == null) { return null; }
+
+        IgnoreMask ignoreMask = new IgnoreMask(width, height);
+        if (ignoreRegions != null) {
+            for (IgnoreRegion region : ignoreRegions) {
+                ignoreMask.addRectangle(region.getX(), region.getY(), region.getWidth(), region.getHeight());
+            }
+        }
+
+        if (maskImg != null) {
+            if (maskImg.getWidth() != width || maskImg.getHeight() != height) { throw new DimensionMismatchException(); }
+            ignoreMask.addMask(maskImg);
+        }
+
+        return ignoreMask.getSpans();
+    }
+
+    /**
+     * Groups the diff pixels of a diff image into connected regions. Skips the scan entirely when no pixels differ.
+     *
+     * @param BufferedImage diffImage produced by createDiffImage
+     * @param DiffStatistics statistics collected while creating diffImage
+     * @return List<DiffRegion> up to maxRegions regions, largest first
+     */
+    private List<DiffRegion> findRegions(BufferedImage diffImage, DiffStatistics statistics) {
+        if (statistics.getDiffPixels() == 0) { return List.of(); }
+
+        byte[] outputRGBA = ((DataBufferByte) diffImage.getRaster().getDataBuffer()).getData();
+        return RegionUtilities.findRegions(outputRGBA, diffImage.getWidth(), diffImage.getHeight(), regionDilationRadius, maxRegions);
+    }
+
+    /**
+     * Checks if an image is too large to be decoded in full, so callers holding the encoded file should pass it to
+     * compare(byte[], byte[], List, byte[]), which streams it or holds it off-heap, instead of decoding it themselves.
+     *
+     * @param long pixels width * height of the image
+     * @return boolean true if the image is streamed or held in off-heap rasters by compare(byte[], byte[], List, byte[])
+     */
+    public boolean isTooLargeToDecode(long pixels) {
+        return !isDecodedInFull(pixels);
+    }
+
+    /**
+     * Checks if an image is small enough to be decoded in full, and cached. Images that would be streamed or held in
+     * off-heap rasters keep their bounded memory use instead.
+     *
+     * @param long pixels width * height of the image
+     * @return boolean true if the image is compared in full by compare(byte[], byte[], List, byte[])
+     */
+    private boolean isDecodedInFull(long pixels) {
+        if (streamingMinPixels > 0 && pixels >= streamingMinPixels) { return false; }
+        if (isHeldOffHeap(pixels)) { return false; }
+        return true;
+    }
+
+    /**
+     * Checks if an image that cannot be streamed is compared in off-heap rasters, see compareOffHeap.
+     *
+     * @param long pixels width * height of the image
+     * @return boolean true if off-heap rasters are enabled and the image is large enough, and small enough to fit one
+     */
+    private boolean isHeldOffHeap(long pixels) {
+        return offHeapMinPixels > 0 && pixels >= offHeapMinPixels && pixels <= OffHeapRaster.MAX_PIXELS;
+    }
+
+    /**
+     * Decodes an image file, converts it into the layout of the kernels, and caches it. The cached image is never
+     * borrowed from the buffer pool, so the compares that share it never release it.
+     *
+     * @param String fileName name of the blob
+     * @param String eTag ETag of the blob's version the image file was downloaded from
+     * @param ImageInputStream input of the image file
+     * @return BufferedImage normalized image, the decoded image if the cache is disabled, or null if the image file
+     * cannot be read
+     * @throws IOException
+     */
+    private BufferedImage readCachedImage(String fileName, String eTag, ImageInputStream input) throws IOException {
+        BufferedImage image = readImage(input);
+        if (image == null || decodedImageCache.getMaxBytes() == 0) { return image; }
+
+        BufferedImage normalized = RasterNormalizer.normalize(image);
+        decodedImageCache.put(fileName, eTag, normalized);
+        return normalized;
+    }
+
+    /**
+     * Converts an incoming mask image file to a BufferedImage.
+     *
+     * @param byte[] maskData mask image, or null
+     * @return BufferedImage of the mask image, or null if maskData is null
+     * @throws IOException
+     * @throws CorruptImageException if the mask image cannot be read
+     */
+    private BufferedImage readMaskImage(byte[] maskData) throws IOException {
+        if (maskData == null) { return null; }
+
+        BufferedImage maskImg = readImage(maskData);
+        if (maskImg == null) { throw new CorruptImageException(); }
+        return maskImg;
+    }
+
+    /**
+     * Converts an incoming image file to a BufferedImage.
+     *
+     * @param byte[] imageData
+     * @return BufferedImage of the image file
+     * @throws IOException
+     */
+    private BufferedImage readImage(byte[] imageData) throws IOException {
+        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(imageData);
+        BufferedImage image = ImageIO.read(byteArrayInputStream);
+        byteArrayInputStream.close();
+        return image;
+    }
+
+    /**
+     * Converts an image file to a BufferedImage while it is read from a stream, keeping DECODE_WINDOW_BYTES bytes of
+     * the file at a time instead of all of it.
+     *
+     * @param Supplier<InputStream> loader opens the image file
+     * @return BufferedImage of the image file
+     * @throws IOException
+     */
+    private BufferedImage readImage(Supplier<InputStream> loader) throws IOException {
+        try (WindowedImageInputStream input = WindowedImageInputStream.open(loader.get(), DECODE_WINDOW_BYTES)) {
+            return readImage(input);
+        }
+    }
+
+    /**
+     * Converts an image file to a BufferedImage from an ImageInputStream with the same reader settings as ImageIO.read,
+     * which closes the stream, so the stream is left open for its owner.
+     *
+     * @param ImageInputStream input of the image file
+     * @return BufferedImage of the image file, or null if no reader can decode it
+     * @throws IOException
+     */
+    private BufferedImage readImage(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) { return null; }
+
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true);
+            return reader.read(0, reader.getDefaultReadParam());
+        }
+        finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Reads the rest of an image file from an ImageInputStream into a byte[] array, for the images that are compared
+     * from their bytes.
+     *
+     * @param ImageInputStream input of the image file
+     * @return byte[] rest of the image file
+     * @throws IOException
+     */
+    private byte[] readAllBytes(ImageInputStream input) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_BUFFER_BYTES];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            byteArrayOutputStream.write(buffer, 0, read);
+        }
+        return byteArrayOutputStream.toByteArray();
     }
 
     /**
@@ -45,28 +951,167 @@ public class CompareService {
      *
      * @param BufferedImage baselineImg
      * @param BufferedImage compareImg
+     * @param DiffStatistics statistics receives the statistics of the comparison, or null to skip collecting statistics
+     * @return BufferedImage diffImage of the baseline and comparison images
+     */
+    public BufferedImage createDiffImage(BufferedImage baselineImg, BufferedImage compareImg, DiffStatistics statistics) {
+        return createDiffImage(baselineImg, compareImg, statistics, null);
+    }
+
+    /**
+     * Creates a diffImage from the baseline and comparison images without comparing the pixels in ignoredSpans. Images
+     * of any type are converted to the layout of the kernels by RasterNormalizer first.
+     *
+     * @param BufferedImage baselineImg
+     * @param BufferedImage compareImg
+     * @param DiffStatistics statistics receives the statistics of the comparison, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
      * @return BufferedImage diffImage of the baseline and comparison images
      */
-    public BufferedImage createDiffImage(BufferedImage baselineImg, BufferedImage compareImg) {
+    public BufferedImage createDiffImage(BufferedImage baselineImg, BufferedImage compareImg, DiffStatistics statistics, int[] ignoredSpans) {
+        return createDiffImage(baselineImg, compareImg, statistics, ignoredSpans, new byte[baselineImg.getWidth() * baselineImg.getHeight() * 4]);
+    }
+
+    /**
+     * Creates a diffImage from the baseline and comparison images without comparing the pixels in ignoredSpans, with
+     * the kernels writing straight into outputABGR. The diffImage is wrapped around outputABGR instead of copying it, so
+     * no other full-size array is allocated for the output.
+     *
+     * @param BufferedImage baselineImg
+     * @param BufferedImage compareImg
+     * @param DiffStatistics statistics receives the statistics of the comparison, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param byte[] outputABGR byte[] array of width * height * 4 bytes receiving the diff pixels. Every byte is overwritten
+     * @return BufferedImage diffImage of the baseline and comparison images, backed by outputABGR
+     */
+    public BufferedImage createDiffImage(BufferedImage baselineImg, BufferedImage compareImg, DiffStatistics statistics, int[] ignoredSpans, byte[] outputABGR) {
         //Convert images to RGBA byte[]. Output will be W * H * 4 since each pixel will be 4 indices long 
         //[r, g, b, a, r, g, b, a], etc. getRater() holds the pixel data, getDataBuffer() return generic buffer, which 
         //is casted to DataBufferByte which stores values as byte[], getData() is the actual byte[]
         int width = baselineImg.getWidth();
         int height = baselineImg.getHeight();
-        byte[] baselineRGBA = ((DataBufferByte) baselineImg.getRaster().getDataBuffer()).getData();
-        byte[] compareRGBA = ((DataBufferByte) compareImg.getRaster().getDataBuffer()).getData();
-        byte[] outputRGBA = new byte[baselineRGBA.length];
-
-        //Compare Images. Check byte[] lengths, check matching widths/heights
-        CompareUtilities.comparePixels(baselineRGBA, compareRGBA, outputRGBA, width, height);
+        byte[] baselineRGBA = ((DataBufferByte) RasterNormalizer.normalize(baselineImg).getRaster().getDataBuffer()).getData();
+        byte[] compareRGBA = ((DataBufferByte) RasterNormalizer.normalize(compareImg).getRaster().getDataBuffer()).getData();
 
-        //Create diff image. Create a new BufferedImage witht eh same dimensiosn as original, create a byte array from 
-        //the exmpty image, then copy the output data from the PixelMatch process into the new empty array and create a
-        //new iamge file "diff.png"
-        BufferedImage diffImage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-        byte[] diffData = ((DataBufferByte) diffImage.getRaster().getDataBuffer()).getData();
-        System.arraycopy(outputRGBA, 0, diffData, 0, outputRGBA.length);
+        //Compare Images straight into the backing array of the diff image
+        BufferedImage diffImage = RasterNormalizer.wrap(outputABGR, width, height);
+        comparePixels(baselineRGBA, compareRGBA, outputABGR, width, height, statistics, ignoredSpans);
 
         return diffImage;
     }
+
+    /**
+     * Compares the pixels of the baseline and comparison images. Images with at least parallelMinPixels pixels, and more
+     * than one band of rows are split into bands of bandRows rows and compared on the compare pool. Smaller images are 
+     * compared sequentially on the request thread. Both modes produce byte-identical output and the same statistics.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @param DiffStatistics statistics receives the statistics of the comparison, or null to skip collecting statistics
+     */
+    public void comparePixels(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int height, DiffStatistics statistics) {
+        comparePixels(baselineRGBA, compareRGBA, outputRGBA, width, height, statistics, null);
+    }
+
+    /**
+     * Compares the pixels of the baseline and comparison images like comparePixels, without comparing the pixels in
+     * ignoredSpans. When tileSize is greater than 0, tiles that are identical in both images are drawn gray without
+     * calculating their deltas. When mismatchScan is true, runs of identical pixels are skipped with Arrays.mismatch, and
+     * only the pixels around each mismatch are compared. Images of at least pyramidMinPixels pixels are first checked on 
+     * a downsampled pyramid, and only the candidate tiles it finds are compared at full resolution.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @param DiffStatistics statistics receives the statistics of the comparison, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     */
+    public void comparePixels(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int height, DiffStatistics statistics, int[] ignoredSpans) {
+        comparePixels(baselineRGBA, compareRGBA, outputRGBA, width, height, statistics, ignoredSpans, (long) width * height);
+    }
+
+    /**
+     * Compares the pixels of the baseline and comparison images like comparePixels, choosing the pyramid and parallel
+     * modes by imagePixels instead of the number of pixels compared, so a band of a streamed image is compared the same
+     * way as the full image would be.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int height number of rows to be compared
+     * @param DiffStatistics statistics receives the statistics of the comparison, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param long imagePixels number of pixels of the whole image
+     */
+    private void comparePixels(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int height, DiffStatistics statistics, int[] ignoredSpans, long imagePixels) {
+        boolean[] candidateTiles = null;
+        int compareTileSize = tileSize;
+        if (pyramidLevels > 0 && imagePixels >= pyramidMinPixels) {
+            candidateTiles = PyramidCompareUtilities.findCandidateTiles(baselineRGBA, compareRGBA, width, height, pyramidLevels, pyramidConservative);
+            compareTileSize = 1 << pyramidLevels;
+        }
+
+        if (imagePixels < parallelMinPixels || height <= bandRows || comparePool.getParallelism() == 1) {
+            if (candidateTiles != null) {
+                CompareUtilities.compareCandidateTiles(baselineRGBA, compareRGBA, outputRGBA, width, 0, height, compareTileSize, candidateTiles, fixedPointKernel, statistics, ignoredSpans, mismatchScan);
+            }
+            else if (tileSize > 0) {
+                CompareUtilities.compareTiles(baselineRGBA, compareRGBA, outputRGBA, width, 0, height, tileSize, fixedPointKernel, statistics, ignoredSpans, mismatchScan);
+            }
+            else if (mismatchScan) {
+                CompareUtilities.compareMismatchedRange(baselineRGBA, compareRGBA, outputRGBA, 0, width * height, fixedPointKernel, statistics, ignoredSpans);
+            }
+            else {
+                CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, width * height, fixedPointKernel, statistics, ignoredSpans);
+            }
+            return;
+        }
+
+        CompareBandSettings settings = new CompareBandSettings(bandRows, fixedPointKernel, ignoredSpans, compareTileSize, mismatchScan, candidateTiles);
+        comparePool.invoke(new CompareBandTask(baselineRGBA, compareRGBA, outputRGBA, width, 0, height, settings, statistics));
+    }
+
+    /**
+     * Compares consecutive bands of rows of two images, for CompareService.compareBands.
+     */
+    @FunctionalInterface
+    private interface BandComparer {
+
+        /**
+         * Compares the rows [startRow, startRow + rows) of the images.
+         *
+         * @param int startRow first row to be compared
+         * @param int rows number of rows to be compared
+         * @param byte[] outputABGR byte[] array receiving the width * rows diff pixels of the band
+         * @param DiffStatistics statistics receives the statistics of the band
+         * @param int[] ignoredSpans spans of pixels of the band to skip, or null to compare every pixel
+         * @throws IOException if the rows cannot be read
+         */
+        void compareRows(int startRow, int rows, byte[] outputABGR, DiffStatistics statistics, int[] ignoredSpans) throws IOException;
+    }
+
+    /**
+     * Counts the differing pixels of consecutive bands of rows of two images, for CompareService.countBands.
+     */
+    @FunctionalInterface
+    private interface BandCounter {
+
+        /**
+         * Counts the differing pixels of the rows [startRow, startRow + rows) of the images.
+         *
+         * @param int startRow first row to be compared
+         * @param int rows number of rows to be compared
+         * @param int[] ignoredSpans spans of pixels of the band to skip, or null to count every pixel
+         * @param long maxDiffPixels number of differing pixels after which counting stops
+         * @return long number of differing pixels of the band. Greater than maxDiffPixels if counting stopped early
+         * @throws IOException if the rows cannot be read
+         */
+        long countRows(int startRow, int rows, int[] ignoredSpans, long maxDiffPixels) throws IOException;
+    }
 }
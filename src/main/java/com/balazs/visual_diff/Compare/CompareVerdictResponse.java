@@ -0,0 +1,72 @@
+package com.balazs.visual_diff.Compare;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "CompareVerdictResponse", description = "This response object is returned for the verdict endpoints in the CompareController. It includes the baselineFileName, the comparisonFileName, the pixel budget, the number of differing pixels counted, and whether the comparison is within the budget. No diff image is produced.")
+public class CompareVerdictResponse {
+
+    @Schema(description = "The 'fileName' of the baseline file compared.", example = "baseline_0a862592-3fc2-46a7-b74a-65261c5dec6e.png")
+    private String baselineFileName;
+
+    @Schema(description = "The 'fileName' of the comparison file compared.", example = "comparison_b67ca23a-28bd-4385-93b8-0068c7794066.png")
+    private String comparisonFileName;
+
+    @Schema(description = "The maximum number of differing pixels allowed.", example = "100")
+    private long maxDiffPixels;
+
+    @Schema(description = "The number of differing pixels counted. Counting stops once the budget is exceeded, so this is a lower bound when 'withinBudget' is false.", example = "12")
+    private long diffPixels;
+
+    @Schema(description = "True if 'diffPixels' is less than or equal to 'maxDiffPixels'.", example = "true")
+    private boolean withinBudget;
+
+    public CompareVerdictResponse() { }
+
+    public CompareVerdictResponse(String newBaselineFileName, String newComparisonFileName, long newMaxDiffPixels, long newDiffPixels) {
+        baselineFileName = newBaselineFileName;
+        comparisonFileName = newComparisonFileName;
+        maxDiffPixels = newMaxDiffPixels;
+        diffPixels = newDiffPixels;
+        withinBudget = newDiffPixels <= newMaxDiffPixels;
+    }
+
+    public String getBaselineFileName() {
+        return baselineFileName;
+    }
+
+    public void setBaselineFileName(String newBaselineFileName) {
+        baselineFileName = newBaselineFileName;
+    }
+
+    public String getComparisonFileName() {
+        return comparisonFileName;
+    }
+
+    public void setComparisonFileName(String newComparisonFileName) {
+        comparisonFileName = newComparisonFileName;
+    }
+
+    public long getMaxDiffPixels() {
+        return maxDiffPixels;
+    }
+
+    public void setMaxDiffPixels(long newMaxDiffPixels) {
+        maxDiffPixels = newMaxDiffPixels;
+    }
+
+    public long getDiffPixels() {
+        return diffPixels;
+    }
+
+    public void setDiffPixels(long newDiffPixels) {
+        diffPixels = newDiffPixels;
+    }
+
+    public boolean isWithinBudget() {
+        return withinBudget;
+    }
+
+    public void setWithinBudget(boolean newWithinBudget) {
+        withinBudget = newWithinBudget;
+    }
+}
@@ -0,0 +1,89 @@
+package com.balazs.visual_diff.Compare;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+
+@Schema(name = "IgnoreRegion", description = "A rectangle of the images that is not compared, such as a timestamp or a carousel. Pixels inside the rectangle are drawn gray in the diff image and never highlighted.")
+public class IgnoreRegion {
+
+    private final static Pattern GEOMETRY_PATTERN = Pattern.compile("(\\d{1,9})x(\\d{1,9})\\+(\\d{1,9})\\+(\\d{1,9})");
+
+    @Min(value = 0, message = "x must not be negative.")
+    @Schema(description = "Left edge of the rectangle.", example = "10")
+    private int x;
+
+    @Min(value = 0, message = "y must not be negative.")
+    @Schema(description = "Top edge of the rectangle.", example = "20")
+    private int y;
+
+    @Min(value = 1, message = "width must be at least 1.")
+    @Schema(description = "Width of the rectangle in pixels.", example = "300")
+    private int width;
+
+    @Min(value = 1, message = "height must be at least 1.")
+    @Schema(description = "Height of the rectangle in pixels.", example = "40")
+    private int height;
+
+    public IgnoreRegion() { }
+
+    public IgnoreRegion(int newX, int newY, int newWidth, int newHeight) {
+        x = newX;
+        y = newY;
+        width = newWidth;
+        height = newHeight;
+    }
+
+    /**
+     * Parses a rectangle in the geometry format [width]x[height]+[x]+[y], e.g. 300x40+10+20. Used by Spring to bind the
+     * 'ignore' request params of /compare-direct. Commas are not used since Spring splits a single request param on 
+     * commas when binding a List.
+     *
+     * @param String value in the format [width]x[height]+[x]+[y]
+     * @return IgnoreRegion parsed from value
+     * @throws IllegalArgumentException if value is not in the geometry format, or describes an invalid rectangle
+     */
+    public static IgnoreRegion valueOf(String value) {
+        Matcher matcher = GEOMETRY_PATTERN.matcher(value.trim());
+        if (!matcher.matches()) { throw new IllegalArgumentException("Ignore region must be in the format [width]x[height]+[x]+[y]: " + value); }
+
+        IgnoreRegion region = new IgnoreRegion(Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)), Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        if (region.width < 1 || region.height < 1) { throw new IllegalArgumentException("Ignore region must have a positive width, and height: " + value); }
+
+        return region;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public void setX(int newX) {
+        x = newX;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public void setY(int newY) {
+        y = newY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int newWidth) {
+        width = newWidth;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int newHeight) {
+        height = newHeight;
+    }
+}
@@ -70,7 +70,7 @@ public class GlobalExceptionHandler {
 
     /**
      * Global exception handler for InvalidTypeException. Used to catch, log, and return response of the error including: timestamp, status, error, 
-     * message, path. This happens when the incomign type does not match 'baseline' or 'comparison'.
+     * message, path. This happens when the incomign type does not match 'baseline', 'comparison' or 'mask'.
      *
      * @param Exception e
      * @param HttpServletRequest request used to getRequestURI
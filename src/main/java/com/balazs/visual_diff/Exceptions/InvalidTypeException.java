@@ -2,7 +2,7 @@ package com.balazs.visual_diff.Exceptions;
 
 public class InvalidTypeException extends RuntimeException {
     
-    private static final String DEFAULT_MESSAGE = "Invalid 'type' value in body. Must be 'baseline' or 'comparison'.";
+    private static final String DEFAULT_MESSAGE = "Invalid 'type' value in body. Must be 'baseline', 'comparison' or 'mask'.";
 
     public InvalidTypeException() 
     { 
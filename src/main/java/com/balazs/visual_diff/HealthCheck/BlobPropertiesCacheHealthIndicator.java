@@ -0,0 +1,33 @@
+package com.balazs.visual_diff.HealthCheck;
+
+import com.balazs.visual_diff.Blob.BlobPropertiesCache;
+import com.balazs.visual_diff.Blob.BlobService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BlobPropertiesCacheHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private BlobService blobService;
+
+    /**
+     * Extension to spring actuator's default health check to report how often blob properties are served without asking Azure.
+     * The cache never makes the application unhealthy, it is only reported for its hits and misses.
+     *
+     * @return Health object with the hits, misses, revalidations, and size of the blob properties cache
+     */
+    public Health health() {
+        BlobPropertiesCache propertiesCache = blobService.getPropertiesCache();
+        return Health.up()
+            .withDetail("hits", propertiesCache.getHits())
+            .withDetail("misses", propertiesCache.getMisses())
+            .withDetail("revalidations", propertiesCache.getRevalidations())
+            .withDetail("entries", propertiesCache.getSize())
+            .withDetail("maxEntries", propertiesCache.getMaxEntries())
+            .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.balazs.visual_diff.HealthCheck;
+
+import com.balazs.visual_diff.Compare.CompareService;
+import com.balazs.visual_diff.Utilities.BufferPool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BufferPoolHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private CompareService compareService;
+
+    /**
+     * Extension to spring actuator's default health check to report how often compares reuse pooled buffers. The pool
+     * never makes the application unhealthy, it is only reported for its hits and misses.
+     *
+     * @return Health object with the hits, misses, discards, and retained bytes of the compare buffer pool
+     */
+    public Health health() {
+        BufferPool bufferPool = compareService.getBufferPool();
+        return Health.up()
+            .withDetail("hits", bufferPool.getHits())
+            .withDetail("misses", bufferPool.getMisses())
+            .withDetail("discards", bufferPool.getDiscards())
+            .withDetail("retainedBytes", bufferPool.getRetainedBytes())
+            .withDetail("maxRetainedBytes", bufferPool.getMaxRetainedBytes())
+            .build();
+    }
+}
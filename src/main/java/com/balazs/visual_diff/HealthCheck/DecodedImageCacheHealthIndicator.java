@@ -0,0 +1,34 @@
+package com.balazs.visual_diff.HealthCheck;
+
+import com.balazs.visual_diff.Compare.CompareService;
+import com.balazs.visual_diff.Utilities.DecodedImageCache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DecodedImageCacheHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private CompareService compareService;
+
+    /**
+     * Extension to spring actuator's default health check to report how often compares reuse decoded baseline images.
+     * The cache never makes the application unhealthy, it is only reported for its hits and misses.
+     *
+     * @return Health object with the hits, misses, evictions, and size of the decoded image cache
+     */
+    public Health health() {
+        DecodedImageCache decodedImageCache = compareService.getDecodedImageCache();
+        return Health.up()
+            .withDetail("hits", decodedImageCache.getHits())
+            .withDetail("misses", decodedImageCache.getMisses())
+            .withDetail("evictions", decodedImageCache.getEvictions())
+            .withDetail("images", decodedImageCache.getSize())
+            .withDetail("cachedBytes", decodedImageCache.getCachedBytes())
+            .withDetail("maxBytes", decodedImageCache.getMaxBytes())
+            .build();
+    }
+}
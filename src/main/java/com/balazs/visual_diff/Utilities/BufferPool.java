@@ -0,0 +1,135 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class BufferPool {
+
+    private final static int MIN_CAPACITY = 4096;
+    private final static int MAX_CAPACITY = 1 << 30;            //Largest capacity that still fits an int
+    private final static int CLASSES_PER_DOUBLING = 4;          //At most 25% of a buffer is unused
+
+    private final long maxRetainedBytes;
+    private final ConcurrentHashMap<Integer, ConcurrentLinkedDeque<byte[]>> freeBuffers = new ConcurrentHashMap<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    /**
+     * Keeps released byte[] arrays so the next compare can reuse them instead of allocating new ones. Arrays are sorted
+     * into size classes of four steps per power of two, so a borrowed array is at most 25% longer than requested, and
+     * arrays of slightly different images still share a class.
+     *
+     * The pool can be used by any number of threads. Released arrays are only kept while the pool holds at most
+     * maxRetainedBytes bytes in total, anything beyond that is left to the garbage collector.
+     *
+     * @param long maxRetainedBytes maximum number of bytes held by the pool. 0 or less disables pooling
+     */
+    public BufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = Math.max(0, maxRetainedBytes);
+    }
+
+    /**
+     * Borrows a byte[] array of at least length bytes. The array is not cleared, so it can hold the data of a previous
+     * borrower, and must be fully overwritten before it is read.
+     *
+     * @param int length minimum number of bytes
+     * @return byte[] array of capacityFor(length) bytes, or exactly length bytes if it is too large to be pooled
+     */
+    public byte[] borrow(int length) {
+        if (length > MAX_CAPACITY || maxRetainedBytes == 0) {
+            misses.increment();
+            return new byte[length];
+        }
+
+        int capacity = capacityFor(length);
+        ConcurrentLinkedDeque<byte[]> buffers = freeBuffers.get(capacity);
+        byte[] buffer = buffers != null ? buffers.pollFirst() : null;
+        if (buffer == null) {
+            misses.increment();
+            return new byte[capacity];
+        }
+
+        retainedBytes.addAndGet(-capacity);
+        hits.increment();
+        return buffer;
+    }
+
+    /**
+     * Returns a borrowed byte[] array to the pool. The caller must not use the array afterwards. Arrays that were not
+     * borrowed from a pool are ignored unless their length matches a size class.
+     *
+     * @param byte[] buffer array from borrow, or null
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length > MAX_CAPACITY || capacityFor(buffer.length) != buffer.length) { return; }
+
+        //Reserve the bytes before the array becomes visible to other threads, so the limit is never exceeded
+        long retained;
+        do {
+            retained = retainedBytes.get();
+            if (retained + buffer.length > maxRetainedBytes) {
+                discards.increment();
+                return;
+            }
+        } while (!retainedBytes.compareAndSet(retained, retained + buffer.length));
+
+        freeBuffers.computeIfAbsent(buffer.length, capacity -> new ConcurrentLinkedDeque<>()).offerFirst(buffer);
+    }
+
+    /**
+     * Gets the size class of a length, the length of the arrays borrow returns for it.
+     *
+     * @param int length minimum number of bytes, at most 2^30
+     * @return int length rounded up to the next of 4096 bytes or a quarter step between two powers of two
+     */
+    public static int capacityFor(int length) {
+        if (length <= MIN_CAPACITY) { return MIN_CAPACITY; }
+
+        int step = Integer.highestOneBit(length - 1) / CLASSES_PER_DOUBLING;
+        return ((length - 1) / step + 1) * step;
+    }
+
+    /**
+     * Gets the number of borrows served by a released array.
+     *
+     * @return long number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of borrows that had to allocate a new array.
+     *
+     * @return long number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of released arrays that were not kept because the pool was full.
+     *
+     * @return long number of discarded arrays
+     */
+    public long getDiscards() {
+        return discards.sum();
+    }
+
+    /**
+     * Gets the number of bytes currently held by the pool.
+     *
+     * @return long bytes of the released arrays waiting to be borrowed
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+}
@@ -1,12 +1,18 @@
 package com.balazs.visual_diff.Utilities;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
 public final class CompareUtilities {
     
-    private final static int COLOUR_MAX_VALUE = 255;
-    private final static float ALPHA = 0.1f;                    //Used for drawing gray pixels to lighten the intensity of the final value
+    final static int COLOUR_MAX_VALUE = 255;
+    final static float ALPHA = 0.1f;                            //Used for drawing gray pixels to lighten the intensity of the final value
     private final static byte[] DIFF_COLOUR = {(byte)255, 0, 0};
-    private final static int MAX_DELTA = 352;                   //Maximum delta in YIQ colour space where anything less, colours would appear too similar
-    private final static int GRAY = 48;                         //Applied to transparent pixels to make it light gray and visible in the diff mask
+    final static int MAX_DELTA = 352;                           //Maximum delta in YIQ colour space where anything less, colours would appear too similar
+    final static int GRAY = 48;                                 //Applied to transparent pixels to make it light gray and visible in the diff mask
+    private final static boolean VECTOR_KERNEL_AVAILABLE = detectVectorKernel();
+    private final static int MISMATCH_WINDOW = 64;              //Pixels compared after each mismatch before scanning for the next one
 
     private CompareUtilities() { }
 
@@ -22,18 +28,425 @@ public final class CompareUtilities {
      * @param int height of the baseline and comaprison images
      */
     public static void comparePixels(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int height) {
-        int numPixels = width * height;
+        comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, width * height);
+    }
 
+    /**
+     * Compares the pixels in [startPixel, endPixel) with the kernel chosen at startup. The vectorized kernel from 
+     * VectorCompareUtilities is used when the jdk.incubator.vector module is present, otherwise the scalar kernel is used.
+     * Both kernels produce the same output.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        if (VECTOR_KERNEL_AVAILABLE) {
+            VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel);
+        }
+        else {
+            scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel);
+        }
+    }
+
+    /**
+     * Compares the pixels in [startPixel, endPixel) with the fixed-point kernel from FixedPointCompareUtilities if 
+     * fixedPointKernel is true, otherwise with the kernel chosen at startup. All kernels produce the same output.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel) {
+        comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, fixedPointKernel, null);
+    }
+
+    /**
+     * Compares the pixels in [startPixel, endPixel) like comparePixelRange, and records the delta of every pixel into
+     * statistics in the same pass.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel, DiffStatistics statistics) {
+        if (fixedPointKernel) {
+            FixedPointCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, statistics);
+        }
+        else if (VECTOR_KERNEL_AVAILABLE) {
+            VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, statistics);
+        }
+        else {
+            scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, statistics);
+        }
+    }
+
+    /**
+     * Compares the pixels in [startPixel, endPixel) like comparePixelRange, except for the pixels covered by 
+     * ignoredSpans. Ignored pixels are drawn gray without calculating their delta, and are counted as ignored in 
+     * statistics instead of being added to the histogram, so they can never be drawn DIFF_COLOUR.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans) {
+        int pixel = startPixel;
+        if (ignoredSpans != null) {
+            for (int span = IgnoreMask.firstSpanEndingAfter(ignoredSpans, startPixel); span < ignoredSpans.length && ignoredSpans[span] < endPixel; span += 2) {
+                int ignoreStart = Math.max(pixel, ignoredSpans[span]);
+                int ignoreEnd = Math.min(endPixel, ignoredSpans[span + 1]);
+
+                //Compare up to the span, then skip over it
+                comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, pixel, ignoreStart, fixedPointKernel, statistics);
+                drawGrayRange(baselineRGBA, outputRGBA, ignoreStart, ignoreEnd);
+                if (statistics != null) { statistics.addIgnoredPixels(ignoreEnd - ignoreStart); }
+                pixel = ignoreEnd;
+            }
+        }
+
+        comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, pixel, endPixel, fixedPointKernel, statistics);
+    }
+
+    /**
+     * Compares the pixels in [startPixel, endPixel) like comparePixelRange, reading the baseline and comparison pixels
+     * straight from off-heap memory, such as a band of an OffHeapRaster, instead of byte[] arrays.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void comparePixelRange(MemorySegment baselineRGBA, MemorySegment compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel, DiffStatistics statistics) {
+        if (fixedPointKernel) {
+            FixedPointCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, statistics);
+        }
+        else if (VECTOR_KERNEL_AVAILABLE) {
+            VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, statistics);
+        }
+        else {
+            scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, statistics);
+        }
+    }
+
+    /**
+     * Compares the pixels in [startPixel, endPixel) of two segments like comparePixelRange, except for the pixels
+     * covered by ignoredSpans.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     */
+    public static void comparePixelRange(MemorySegment baselineRGBA, MemorySegment compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans) {
+        int pixel = startPixel;
+        if (ignoredSpans != null) {
+            for (int span = IgnoreMask.firstSpanEndingAfter(ignoredSpans, startPixel); span < ignoredSpans.length && ignoredSpans[span] < endPixel; span += 2) {
+                int ignoreStart = Math.max(pixel, ignoredSpans[span]);
+                int ignoreEnd = Math.min(endPixel, ignoredSpans[span + 1]);
+
+                //Compare up to the span, then skip over it
+                comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, pixel, ignoreStart, fixedPointKernel, statistics);
+                drawGrayRange(baselineRGBA, outputRGBA, ignoreStart, ignoreEnd);
+                if (statistics != null) { statistics.addIgnoredPixels(ignoreEnd - ignoreStart); }
+                pixel = ignoreEnd;
+            }
+        }
+
+        comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, pixel, endPixel, fixedPointKernel, statistics);
+    }
+
+    /**
+     * Compares the rows [startRow, endRow) tile by tile. The rows are split into tiles of tileSize x tileSize pixels, and 
+     * each tile of the baseline is checked against the same tile of the comparison with Arrays.equals, which stops at the
+     * first differing byte. Identical tiles can only produce delta 0, so they are drawn gray without calculating any 
+     * deltas, and only the tiles that differ go to comparePixelRange. The output and statistics are the same as comparing
+     * every pixel.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int startRow first row to be compared (inclusive)
+     * @param int endRow last row to be compared (exclusive)
+     * @param int tileSize width and height of a tile in pixels
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     */
+    public static void compareTiles(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int startRow, int endRow, int tileSize, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans) {
+        compareTiles(baselineRGBA, compareRGBA, outputRGBA, width, startRow, endRow, tileSize, fixedPointKernel, statistics, ignoredSpans, false);
+    }
+
+    /**
+     * Compares the rows [startRow, endRow) tile by tile, and compares the differing tiles with compareMismatchedRange if
+     * mismatchScan is true, so only the changed pixels inside a differing tile are compared.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int startRow first row to be compared (inclusive)
+     * @param int endRow last row to be compared (exclusive)
+     * @param int tileSize width and height of a tile in pixels
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param boolean mismatchScan true to skip equal runs inside differing tiles with compareMismatchedRange
+     */
+    public static void compareTiles(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int startRow, int endRow, int tileSize, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans, boolean mismatchScan) {
+        int tileColumns = (width + tileSize - 1) / tileSize;
+        boolean[] tileDiffers = new boolean[tileColumns];
+
+        for (int tileRow = startRow; tileRow < endRow; tileRow += tileSize) {
+            int tileEndRow = Math.min(endRow, tileRow + tileSize);
+
+            //Find the tiles of this row of tiles that differ
+            for (int tile = 0; tile < tileColumns; tile++) {
+                tileDiffers[tile] = !isTileEqual(baselineRGBA, compareRGBA, width, tileRow, tileEndRow, tile * tileSize, Math.min(width, (tile + 1) * tileSize));
+            }
+
+            compareTileRow(baselineRGBA, compareRGBA, outputRGBA, width, tileRow, tileEndRow, tileSize, tileDiffers, 0, tileColumns, fixedPointKernel, statistics, ignoredSpans, mismatchScan);
+        }
+    }
+
+    /**
+     * Compares the rows [startRow, endRow) with the candidate tiles found by PyramidCompareUtilities.findCandidateTiles.
+     * Candidate tiles are compared, and every other tile is drawn gray and counted as delta 0 without calculating any 
+     * deltas. Tiles are aligned to the top left corner of the image, so startRow and endRow can be anywhere in a tile.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int startRow first row to be compared (inclusive)
+     * @param int endRow last row to be compared (exclusive)
+     * @param int tileSize width and height of a tile in pixels
+     * @param boolean[] candidateTiles true for each tile that has to be compared, row by row
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param boolean mismatchScan true to skip equal runs inside candidate tiles with compareMismatchedRange
+     */
+    public static void compareCandidateTiles(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int startRow, int endRow, int tileSize, boolean[] candidateTiles, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans, boolean mismatchScan) {
+        int tileColumns = (width + tileSize - 1) / tileSize;
+
+        int row = startRow;
+        while (row < endRow) {
+            int tileRow = row / tileSize;
+            int tileEndRow = Math.min(endRow, (tileRow + 1) * tileSize);
+            compareTileRow(baselineRGBA, compareRGBA, outputRGBA, width, row, tileEndRow, tileSize, candidateTiles, tileRow * tileColumns, tileColumns, fixedPointKernel, statistics, ignoredSpans, mismatchScan);
+            row = tileEndRow;
+        }
+    }
+
+    /**
+     * Compares the rows [startRow, endRow) of a single row of tiles. Tiles that differ are compared, and every other tile
+     * is drawn gray and counted as delta 0.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int startRow first row to be compared (inclusive)
+     * @param int endRow last row to be compared (exclusive), at most tileSize rows after startRow
+     * @param int tileSize width and height of a tile in pixels
+     * @param boolean[] tileDiffers true for each tile that has to be compared
+     * @param int firstTile index into tileDiffers of the first tile of the row
+     * @param int tileColumns number of tiles in the row
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param boolean mismatchScan true to skip equal runs inside differing tiles with compareMismatchedRange
+     */
+    private static void compareTileRow(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int width, int startRow, int endRow, int tileSize, boolean[] tileDiffers, int firstTile, int tileColumns, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans, boolean mismatchScan) {
+        int differingTiles = 0;
+        for (int tile = 0; tile < tileColumns; tile++) {
+            if (tileDiffers[firstTile + tile]) { differingTiles++; }
+        }
+
+        //Whole row of tiles is identical or different, handle it as a single range
+        if (differingTiles == 0) {
+            drawUnchangedRange(baselineRGBA, outputRGBA, startRow * width, endRow * width, statistics, ignoredSpans);
+            return;
+        }
+        if (differingTiles == tileColumns) {
+            compareChangedRange(baselineRGBA, compareRGBA, outputRGBA, startRow * width, endRow * width, fixedPointKernel, statistics, ignoredSpans, mismatchScan);
+            return;
+        }
+
+        //Otherwise go row by row, joining neighbouring tiles that are both identical or both different into one range
+        for (int row = startRow; row < endRow; row++) {
+            int tile = 0;
+            while (tile < tileColumns) {
+                boolean differs = tileDiffers[firstTile + tile];
+                int runEnd = tile + 1;
+                while (runEnd < tileColumns && tileDiffers[firstTile + runEnd] == differs) { runEnd++; }
+
+                int startPixel = row * width + tile * tileSize;
+                int endPixel = row * width + Math.min(width, runEnd * tileSize);
+                if (differs) { compareChangedRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, fixedPointKernel, statistics, ignoredSpans, mismatchScan); }
+                else { drawUnchangedRange(baselineRGBA, outputRGBA, startPixel, endPixel, statistics, ignoredSpans); }
+                tile = runEnd;
+            }
+        }
+    }
+
+    /**
+     * Compares the pixels in [startPixel, endPixel) after skipping the runs of pixels that are byte-identical in both
+     * images. Arrays.mismatch, which the JIT compiles to a vectorized intrinsic, finds the next differing byte, the equal
+     * run before it is drawn gray with drawUnchangedRange, and only the next MISMATCH_WINDOW pixels from the mismatch go
+     * through comparePixelRange before scanning again. The output and statistics are the same as comparePixelRange, and 
+     * a range with a single change, such as one button in an otherwise identical screenshot, only calculates the deltas 
+     * around that change.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     */
+    public static void compareMismatchedRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans) {
+        int pixel = startPixel;
+        while (pixel < endPixel) {
+            int mismatch = Arrays.mismatch(baselineRGBA, pixel * 4, endPixel * 4, compareRGBA, pixel * 4, endPixel * 4);
+            int mismatchPixel = mismatch < 0 ? endPixel : pixel + mismatch / 4;
+
+            drawUnchangedRange(baselineRGBA, outputRGBA, pixel, mismatchPixel, statistics, ignoredSpans);
+            if (mismatchPixel == endPixel) { return; }
+
+            int windowEnd = Math.min(endPixel, mismatchPixel + MISMATCH_WINDOW);
+            comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, mismatchPixel, windowEnd, fixedPointKernel, statistics, ignoredSpans);
+            pixel = windowEnd;
+        }
+    }
+
+    /**
+     * Compares a range that is known to contain changes, with compareMismatchedRange if mismatchScan is true, otherwise 
+     * with comparePixelRange.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param DiffStatistics statistics receives the delta of every compared pixel, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to compare every pixel
+     * @param boolean mismatchScan true to skip equal runs with compareMismatchedRange
+     */
+    private static void compareChangedRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, boolean fixedPointKernel, DiffStatistics statistics, int[] ignoredSpans, boolean mismatchScan) {
+        if (mismatchScan) { compareMismatchedRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, fixedPointKernel, statistics, ignoredSpans); }
+        else { comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, fixedPointKernel, statistics, ignoredSpans); }
+    }
+
+    /**
+     * Checks if a tile is byte-identical in the baseline and comparison images.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int startRow first row of the tile (inclusive)
+     * @param int endRow last row of the tile (exclusive)
+     * @param int startX first column of the tile (inclusive)
+     * @param int endX last column of the tile (exclusive)
+     * @return boolean true if every pixel of the tile is identical
+     */
+    private static boolean isTileEqual(byte[] baselineRGBA, byte[] compareRGBA, int width, int startRow, int endRow, int startX, int endX) {
+        for (int row = startRow; row < endRow; row++) {
+            int fromIndex = (row * width + startX) * 4;
+            int toIndex = (row * width + endX) * 4;
+            if (!Arrays.equals(baselineRGBA, fromIndex, toIndex, compareRGBA, fromIndex, toIndex)) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Draws the pixels in [startPixel, endPixel) gray for a range known to be identical in both images. Every pixel is 
+     * recorded as delta 0 in statistics, except for the pixels covered by ignoredSpans which are recorded as ignored, so
+     * the statistics match comparing the range.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     * @param DiffStatistics statistics receives the pixels of the range, or null to skip collecting statistics
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null
+     */
+    public static void drawUnchangedRange(byte[] baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics, int[] ignoredSpans) {
+        drawGrayRange(baselineRGBA, outputRGBA, startPixel, endPixel);
+        if (statistics == null) { return; }
+
+        long ignoredPixels = 0;
+        if (ignoredSpans != null) {
+            for (int span = IgnoreMask.firstSpanEndingAfter(ignoredSpans, startPixel); span < ignoredSpans.length && ignoredSpans[span] < endPixel; span += 2) {
+                ignoredPixels += Math.min(endPixel, ignoredSpans[span + 1]) - Math.max(startPixel, ignoredSpans[span]);
+            }
+        }
+        statistics.addIgnoredPixels(ignoredPixels);
+        statistics.addUnchangedPixels(endPixel - startPixel - ignoredPixels);
+    }
+
+    /**
+     * Scalar kernel. Compares the pixels in [startPixel, endPixel) one by one. Used as the fallback when the Vector API 
+     * is unavailable, and for the tail of a range that does not fill a full vector.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     */
+    public static void scalarComparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, null);
+    }
+
+    /**
+     * Scalar kernel that also records the delta of every pixel into statistics.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void scalarComparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
         //Compare pixels one by one. If delta is greater than the threshold
         //then change it to the diff colour (red), otherwise, change it to be gray
         //index*4 since byte[] is 4 values per pixel, r, g, b, a
-        for (int i = 0; i < numPixels; i++) {
+        for (int i = startPixel; i < endPixel; i++) {
             int index = i * 4;
-            int delta = calculateDelta(baselineRGBA, compareRGBA, index);
+            int delta = Math.abs(calculateDelta(baselineRGBA, compareRGBA, index));
+            if (statistics != null) { statistics.addDelta(i, delta, delta > MAX_DELTA); }
 
             //Make pixel DIFF_COLOUR (Red) if the delta is greater than the threshold
-            if (Math.abs(delta) > MAX_DELTA) {
-                drawPixel(outputRGBA, DIFF_COLOUR, index);
+            if (delta > MAX_DELTA) {
+                drawPixel(outputRGBA, DIFF_COLOUR[0], DIFF_COLOUR[1], DIFF_COLOUR[2], index);
             }
             //Make pixel gray if the delta is less than the threshold
             else {
@@ -42,6 +455,200 @@ public final class CompareUtilities {
         }
     }
 
+    /**
+     * Scalar kernel for pixels held in segments, see comparePixelRange(MemorySegment, MemorySegment, byte[], int, int,
+     * boolean, DiffStatistics).
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void scalarComparePixelRange(MemorySegment baselineRGBA, MemorySegment compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        for (int i = startPixel; i < endPixel; i++) {
+            int index = i * 4;
+            int delta = Math.abs(calculateDelta(baselineRGBA, compareRGBA, index));
+            if (statistics != null) { statistics.addDelta(i, delta, delta > MAX_DELTA); }
+
+            if (delta > MAX_DELTA) {
+                drawPixel(outputRGBA, DIFF_COLOUR[0], DIFF_COLOUR[1], DIFF_COLOUR[2], index);
+            }
+            else {
+                drawGrayPixel(baselineRGBA, outputRGBA, index);
+            }
+        }
+    }
+
+    /**
+     * Counts the pixels in [startPixel, endPixel) where the delta is greater than MAX_DELTA, without drawing an output
+     * image. Counting stops as soon as the count is greater than maxDiffPixels, so a caller that only needs to know if 
+     * the images differ by more than maxDiffPixels pixels does not pay for the rest of the image. Uses the same kernel 
+     * as comparePixelRange, so the count matches the number of DIFF_COLOUR pixels in the diff image.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @return long number of differing pixels. Greater than maxDiffPixels if counting stopped early
+     */
+    public static long countDiffPixels(byte[] baselineRGBA, byte[] compareRGBA, int startPixel, int endPixel, long maxDiffPixels, boolean fixedPointKernel) {
+        if (fixedPointKernel) {
+            return FixedPointCompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, startPixel, endPixel, maxDiffPixels);
+        }
+        if (VECTOR_KERNEL_AVAILABLE) {
+            return VectorCompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, startPixel, endPixel, maxDiffPixels);
+        }
+        return scalarCountDiffPixels(baselineRGBA, compareRGBA, startPixel, endPixel, maxDiffPixels);
+    }
+
+    /**
+     * Counts the differing pixels in [startPixel, endPixel) like countDiffPixels, except for the pixels covered by
+     * ignoredSpans, so the count matches the number of DIFF_COLOUR pixels comparePixelRange draws with the same spans.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to count every pixel
+     * @return long number of differing pixels. Greater than maxDiffPixels if counting stopped early
+     */
+    public static long countDiffPixels(byte[] baselineRGBA, byte[] compareRGBA, int startPixel, int endPixel, long maxDiffPixels, boolean fixedPointKernel, int[] ignoredSpans) {
+        long diffPixels = 0;
+        int pixel = startPixel;
+        if (ignoredSpans != null) {
+            for (int span = IgnoreMask.firstSpanEndingAfter(ignoredSpans, startPixel); span < ignoredSpans.length && ignoredSpans[span] < endPixel; span += 2) {
+                int ignoreStart = Math.max(pixel, ignoredSpans[span]);
+
+                //Count up to the span, then skip over it
+                diffPixels += countDiffPixels(baselineRGBA, compareRGBA, pixel, ignoreStart, maxDiffPixels - diffPixels, fixedPointKernel);
+                if (diffPixels > maxDiffPixels) { return diffPixels; }
+                pixel = Math.min(endPixel, ignoredSpans[span + 1]);
+            }
+        }
+
+        return diffPixels + countDiffPixels(baselineRGBA, compareRGBA, pixel, endPixel, maxDiffPixels - diffPixels, fixedPointKernel);
+    }
+
+    /**
+     * Scalar version of countDiffPixels. Used as the fallback when the Vector API is unavailable, and for the tail of a 
+     * range that does not fill a full vector.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @return long number of differing pixels, at most maxDiffPixels + 1
+     */
+    public static long scalarCountDiffPixels(byte[] baselineRGBA, byte[] compareRGBA, int startPixel, int endPixel, long maxDiffPixels) {
+        long diffPixels = 0;
+        for (int i = startPixel; i < endPixel && diffPixels <= maxDiffPixels; i++) {
+            if (Math.abs(calculateDelta(baselineRGBA, compareRGBA, i * 4)) > MAX_DELTA) { diffPixels++; }
+        }
+        return diffPixels;
+    }
+
+    /**
+     * Counts the differing pixels in [startPixel, endPixel) of two segments like countDiffPixels, except for the pixels
+     * covered by ignoredSpans.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @param int[] ignoredSpans spans of pixels to skip from IgnoreMask.getSpans, or null to count every pixel
+     * @return long number of differing pixels. Greater than maxDiffPixels if counting stopped early
+     */
+    public static long countDiffPixels(MemorySegment baselineRGBA, MemorySegment compareRGBA, int startPixel, int endPixel, long maxDiffPixels, boolean fixedPointKernel, int[] ignoredSpans) {
+        long diffPixels = 0;
+        int pixel = startPixel;
+        if (ignoredSpans != null) {
+            for (int span = IgnoreMask.firstSpanEndingAfter(ignoredSpans, startPixel); span < ignoredSpans.length && ignoredSpans[span] < endPixel; span += 2) {
+                int ignoreStart = Math.max(pixel, ignoredSpans[span]);
+
+                //Count up to the span, then skip over it
+                diffPixels += countDiffPixels(baselineRGBA, compareRGBA, pixel, ignoreStart, maxDiffPixels - diffPixels, fixedPointKernel);
+                if (diffPixels > maxDiffPixels) { return diffPixels; }
+                pixel = Math.min(endPixel, ignoredSpans[span + 1]);
+            }
+        }
+
+        return diffPixels + countDiffPixels(baselineRGBA, compareRGBA, pixel, endPixel, maxDiffPixels - diffPixels, fixedPointKernel);
+    }
+
+    /**
+     * Counts the differing pixels in [startPixel, endPixel) of two segments with the kernel chosen like countDiffPixels.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @param boolean fixedPointKernel true to use the integer-only kernel
+     * @return long number of differing pixels. Greater than maxDiffPixels if counting stopped early
+     */
+    public static long countDiffPixels(MemorySegment baselineRGBA, MemorySegment compareRGBA, int startPixel, int endPixel, long maxDiffPixels, boolean fixedPointKernel) {
+        if (fixedPointKernel) {
+            return FixedPointCompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, startPixel, endPixel, maxDiffPixels);
+        }
+        if (VECTOR_KERNEL_AVAILABLE) {
+            return VectorCompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, startPixel, endPixel, maxDiffPixels);
+        }
+        return scalarCountDiffPixels(baselineRGBA, compareRGBA, startPixel, endPixel, maxDiffPixels);
+    }
+
+    /**
+     * Scalar version of countDiffPixels for pixels held in segments.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @return long number of differing pixels, at most maxDiffPixels + 1
+     */
+    public static long scalarCountDiffPixels(MemorySegment baselineRGBA, MemorySegment compareRGBA, int startPixel, int endPixel, long maxDiffPixels) {
+        long diffPixels = 0;
+        for (int i = startPixel; i < endPixel && diffPixels <= maxDiffPixels; i++) {
+            if (Math.abs(calculateDelta(baselineRGBA, compareRGBA, i * 4)) > MAX_DELTA) { diffPixels++; }
+        }
+        return diffPixels;
+    }
+
+    /**
+     * Checks if the vectorized kernel was selected at startup.
+     *
+     * @return boolean true if the jdk.incubator.vector module is present and the vectorized kernel is used, false otherwise
+     */
+    public static boolean isVectorKernelAvailable() {
+        return VECTOR_KERNEL_AVAILABLE;
+    }
+
+    /**
+     * Checks once at class load if the jdk.incubator.vector module was added to the JVM (--add-modules jdk.incubator.vector). 
+     * VectorCompareUtilities is only loaded if the module is present so the scalar kernel still works without it.
+     *
+     * @return boolean true if the vectorized kernel can be used, false otherwise
+     */
+    private static boolean detectVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) { return false; }
+
+        try {
+            return VectorCompareUtilities.getPixelsPerStep() > 1;
+        }
+        catch (LinkageError e) {
+            return false;
+        }
+    }
+
     /**
      * Fill outputRGBA byte[] array at index with the incoming rgba values from incomingRGBA.
      *
@@ -56,6 +663,62 @@ public final class CompareUtilities {
         outputRGBA[index + 3] = (byte)COLOUR_MAX_VALUE;
     }
 
+    /**
+     * Fill outputRGBA byte[] array at index with the incoming r, g, b values. Used by the render path instead of 
+     * drawPixel(byte[], byte[], int) so no byte[] array is allocated per pixel.
+     *
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param byte r value of the pixel
+     * @param byte g value of the pixel
+     * @param byte b value of the pixel
+     * @param int index of the pixel to be copied
+     */
+    public static void drawPixel(byte[] outputRGBA, byte r, byte g, byte b, int index) {
+        outputRGBA[index] = r;
+        outputRGBA[index + 1] = g;
+        outputRGBA[index + 2] = b;
+        outputRGBA[index + 3] = (byte)COLOUR_MAX_VALUE;
+    }
+
+    /**
+     * Draws every pixel in [startPixel, endPixel) gray without comparing it. Uses the Vector API when available.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     */
+    public static void drawGrayRange(byte[] baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        if (VECTOR_KERNEL_AVAILABLE) {
+            VectorCompareUtilities.drawUnchangedRange(baselineRGBA, outputRGBA, startPixel, endPixel);
+            return;
+        }
+
+        for (int i = startPixel; i < endPixel; i++) {
+            drawGrayPixel(baselineRGBA, outputRGBA, i * 4);
+        }
+    }
+
+    /**
+     * Draws every pixel in [startPixel, endPixel) of a segment gray without comparing it. Uses the Vector API when
+     * available.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     */
+    public static void drawGrayRange(MemorySegment baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        if (VECTOR_KERNEL_AVAILABLE) {
+            VectorCompareUtilities.drawUnchangedRange(baselineRGBA, outputRGBA, startPixel, endPixel);
+            return;
+        }
+
+        for (int i = startPixel; i < endPixel; i++) {
+            drawGrayPixel(baselineRGBA, outputRGBA, i * 4);
+        }
+    }
+
     /**
      * Calculates RGB values of gray pixel
      *
@@ -64,13 +727,38 @@ public final class CompareUtilities {
      * @param int index of the pixel to be copied
      */
     public static void drawGrayPixel(byte[] baselineRGBA, byte[] outputRGBA, int index) {
+        drawGrayPixel(baselineRGBA[index], baselineRGBA[index + 1], baselineRGBA[index + 2], baselineRGBA[index + 3], outputRGBA, index);
+    }
+
+    /**
+     * Calculates RGB values of gray pixel from a baseline pixel held in a segment.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int index of the pixel to be copied
+     */
+    public static void drawGrayPixel(MemorySegment baselineRGBA, byte[] outputRGBA, int index) {
+        drawGrayPixel(baselineRGBA.get(ValueLayout.JAVA_BYTE, index), baselineRGBA.get(ValueLayout.JAVA_BYTE, index + 1), baselineRGBA.get(ValueLayout.JAVA_BYTE, index + 2), baselineRGBA.get(ValueLayout.JAVA_BYTE, index + 3), outputRGBA, index);
+    }
+
+    /**
+     * Calculates RGB values of gray pixel from the channels of the baseline pixel, which are used as signed values.
+     *
+     * @param byte baselineR R value of the baseline pixel
+     * @param byte baselineG G value of the baseline pixel
+     * @param byte baselineB B value of the baseline pixel
+     * @param byte baselineA A value of the baseline pixel
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int index of the pixel to be drawn
+     */
+    private static void drawGrayPixel(byte baselineR, byte baselineG, byte baselineB, byte baselineA, byte[] outputRGBA, int index) {
         final float LUMINANCE_COEFFICIENT_1 = 0.29889531f;
         final float LUMINANCE_COEFFICIENT_2 = 0.58662247f;
         final float LUMINANCE_COEFFICIENT_3 = 0.11448223f;
 
-        float value = 255 + (baselineRGBA[index] * LUMINANCE_COEFFICIENT_1 + baselineRGBA[index + 1] * LUMINANCE_COEFFICIENT_2 + baselineRGBA[index + 2] * LUMINANCE_COEFFICIENT_3 - 255) * ALPHA * baselineRGBA[index + 3] / 255.0f;
+        float value = 255 + (baselineR * LUMINANCE_COEFFICIENT_1 + baselineG * LUMINANCE_COEFFICIENT_2 + baselineB * LUMINANCE_COEFFICIENT_3 - 255) * ALPHA * baselineA / 255.0f;
         byte gray = (byte)Math.max(0, Math.min(255, value)); //Takes either 255 or the brightness otherwise it may end up black
-        drawPixel(outputRGBA, new byte[] {gray, gray, gray}, index);
+        drawPixel(outputRGBA, gray, gray, gray, index);
     }
 
     /**
@@ -85,18 +773,49 @@ public final class CompareUtilities {
      * @return int delta of the pixel
      */
     public static int calculateDelta(byte[] baselineRGBA, byte[] compareRGBA, int index) {
+        return calculateDelta(baselineRGBA[index], baselineRGBA[index+1], baselineRGBA[index+2], baselineRGBA[index+3], compareRGBA[index], compareRGBA[index+1], compareRGBA[index+2], compareRGBA[index+3]);
+    }
+
+    /**
+     * Calculates delta like calculateDelta(byte[], byte[], int) for a pixel of the baseline and comparison images held
+     * in segments.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int index of the pixel to be evaluated
+     * @return int delta of the pixel
+     */
+    public static int calculateDelta(MemorySegment baselineRGBA, MemorySegment compareRGBA, int index) {
+        return calculateDelta(baselineRGBA.get(ValueLayout.JAVA_BYTE, index), baselineRGBA.get(ValueLayout.JAVA_BYTE, index+1), baselineRGBA.get(ValueLayout.JAVA_BYTE, index+2), baselineRGBA.get(ValueLayout.JAVA_BYTE, index+3),
+            compareRGBA.get(ValueLayout.JAVA_BYTE, index), compareRGBA.get(ValueLayout.JAVA_BYTE, index+1), compareRGBA.get(ValueLayout.JAVA_BYTE, index+2), compareRGBA.get(ValueLayout.JAVA_BYTE, index+3));
+    }
+
+    /**
+     * Calculates delta like calculateDelta(byte[], byte[], int) from the channels of the baseline and comparison pixels.
+     *
+     * @param byte baselineR R value of the baseline pixel
+     * @param byte baselineG G value of the baseline pixel
+     * @param byte baselineB B value of the baseline pixel
+     * @param byte baselineA A value of the baseline pixel
+     * @param byte compareR R value of the comparison pixel
+     * @param byte compareG G value of the comparison pixel
+     * @param byte compareB B value of the comparison pixel
+     * @param byte compareA A value of the comparison pixel
+     * @return int delta of the pixel
+     */
+    static int calculateDelta(byte baselineR, byte baselineG, byte baselineB, byte baselineA, byte compareR, byte compareG, byte compareB, byte compareA) {
         //Calculate delta from baseline RGBA and compare RGBA values
-        float deltaR = calculateColourDelta(baselineRGBA[index], compareRGBA[index]);
-        float deltaG = calculateColourDelta(baselineRGBA[index+1], compareRGBA[index+1]);
-        float deltaB = calculateColourDelta(baselineRGBA[index+2], compareRGBA[index+2]);
-        float deltaA = calculateColourDelta(baselineRGBA[index+3], compareRGBA[index+3]);
+        float deltaR = calculateColourDelta(baselineR, compareR);
+        float deltaG = calculateColourDelta(baselineG, compareG);
+        float deltaB = calculateColourDelta(baselineB, compareB);
+        float deltaA = calculateColourDelta(baselineA, compareA);
 
         //Used for transparency. If pixel's Alpha in baselineRGBA or compareRGBA aren't COLOUR_MAX_VALUE (255), 
         //Then add gray onto the pixel to make it whiteish for the diff mask
-        if (baselineRGBA[index+3] < 255 || compareRGBA[index+3] < 255) {
-            deltaR = applyTransparency(baselineRGBA[index], baselineRGBA[index+3], compareRGBA[index], compareRGBA[index+3], deltaA);
-            deltaG = applyTransparency(baselineRGBA[index+1], baselineRGBA[index+3], compareRGBA[index+1], compareRGBA[index+3], deltaA);
-            deltaB = applyTransparency(baselineRGBA[index+2], baselineRGBA[index+3], compareRGBA[index+2], compareRGBA[index+3], deltaA);
+        if (baselineA < 255 || compareA < 255) {
+            deltaR = applyTransparency(baselineR, baselineA, compareR, compareA, deltaA);
+            deltaG = applyTransparency(baselineG, baselineA, compareG, compareA, deltaA);
+            deltaB = applyTransparency(baselineB, baselineA, compareB, compareA, deltaA);
         }
 
         //Y = Luminance
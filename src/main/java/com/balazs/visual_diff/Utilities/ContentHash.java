@@ -0,0 +1,76 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class ContentHash {
+
+    private final static String ALGORITHM = "SHA-256";          //Hardware accelerated on current CPUs, and never collides in practice
+    private final static int READ_BUFFER_BYTES = 64 * 1024;
+
+    private ContentHash() { }
+
+    /**
+     * Hashes the contents of a file, so files with the same bytes can be recognized without comparing them.
+     *
+     * @param byte[] data of the file
+     * @return String lower case hex digest of the data
+     */
+    public static String of(byte[] data) {
+        MessageDigest digest = newDigest();
+        digest.update(data);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes the contents of a file while reading it from a stream, so the file is never held in a byte[] array.
+     * Produces the same hash as of(byte[]) for the same bytes.
+     *
+     * @param InputStream inputStream of the file, read to its end but not closed
+     * @return String lower case hex digest of the data
+     * @throws IOException if the stream cannot be read
+     */
+    public static String of(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[READ_BUFFER_BYTES];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a list of values, such as the content hashes and settings of a compare, into a single key. Each value is
+     * terminated with a separator, so different lists never produce the same input.
+     *
+     * @param String[] parts values to be hashed, null values are hashed as empty values
+     * @return String lower case hex digest of the values
+     */
+    public static String of(String... parts) {
+        MessageDigest digest = newDigest();
+        for (String part : parts) {
+            if (part != null) { digest.update(part.getBytes(StandardCharsets.UTF_8)); }
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Creates a new MessageDigest. Every JDK provides SHA-256, so the algorithm is never missing.
+     *
+     * @return MessageDigest of ALGORITHM
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class DecodedImageCache {
+
+    private final static int BYTES_PER_PIXEL = 4;               //Cached images are normalized to TYPE_4BYTE_ABGR
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Keeps decoded images of blobs so repeated compares against the same baseline skip downloading and decoding it.
+     * Entries are keyed by blob name and only served while the blob's ETag is unchanged, so overwriting a blob never
+     * returns its old pixels. Once the cached images hold more than maxBytes bytes, the least recently used images are
+     * evicted first.
+     *
+     * The cache can be used by any number of threads. The images it returns are shared and must not be modified.
+     *
+     * @param long maxBytes maximum number of bytes of pixel data held by the cache. 0 or less disables the cache
+     */
+    public DecodedImageCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Gets the decoded image of a blob if the cached version has the same ETag.
+     *
+     * @param String name of the blob
+     * @param String eTag of the blob's current version
+     * @return BufferedImage cached image, or null if the blob is not cached or has changed since
+     */
+    public synchronized BufferedImage get(String name, String eTag) {
+        Entry entry = entries.get(name);
+        if (entry == null || !entry.eTag.equals(eTag)) {
+            if (entry != null) { remove(name, entry); }
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.image;
+    }
+
+    /**
+     * Caches the decoded image of a blob, replacing any older version, and evicts the least recently used images until
+     * the cache fits maxBytes again. Images larger than maxBytes are not cached.
+     *
+     * @param String name of the blob
+     * @param String eTag of the blob's version the image was decoded from
+     * @param BufferedImage image normalized by RasterNormalizer, which must not be modified afterwards
+     */
+    public synchronized void put(String name, String eTag, BufferedImage image) {
+        long bytes = (long) image.getWidth() * image.getHeight() * BYTES_PER_PIXEL;
+        if (name == null || eTag == null || bytes > maxBytes) { return; }
+
+        Entry previous = entries.put(name, new Entry(eTag, image, bytes));
+        if (previous != null) { cachedBytes -= previous.bytes; }
+        cachedBytes += bytes;
+
+        //Evict from the least recently used end, the newest entry always fits
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            cachedBytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes a stale entry without counting it as an eviction.
+     *
+     * @param String name of the blob
+     * @param Entry entry cached for the blob
+     */
+    private void remove(String name, Entry entry) {
+        entries.remove(name);
+        cachedBytes -= entry.bytes;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return long number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to download and decode the blob.
+     *
+     * @return long number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of images evicted to make room for newer ones.
+     *
+     * @return long number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of images currently cached.
+     *
+     * @return int number of images
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of bytes of pixel data currently cached.
+     *
+     * @return long bytes of the cached images
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private final static class Entry {
+        private final String eTag;
+        private final BufferedImage image;
+        private final long bytes;
+
+        private Entry(String eTag, BufferedImage image, long bytes) {
+            this.eTag = eTag;
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.balazs.visual_diff.Utilities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "DiffRegion", description = "A connected region of differing pixels in the diff image. Includes the bounding box of the region, and the number of differing pixels in it.")
+public final class DiffRegion {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final int pixelCount;
+
+    /**
+     * Creates a region from its inclusive bounding box.
+     *
+     * @param int minX left edge of the region
+     * @param int minY top edge of the region
+     * @param int maxX right edge of the region (inclusive)
+     * @param int maxY bottom edge of the region (inclusive)
+     * @param int pixelCount number of differing pixels in the region
+     */
+    public DiffRegion(int minX, int minY, int maxX, int maxY, int pixelCount) {
+        this.x = minX;
+        this.y = minY;
+        this.width = maxX - minX + 1;
+        this.height = maxY - minY + 1;
+        this.pixelCount = pixelCount;
+    }
+
+    @Schema(description = "Left edge of the region.", example = "10")
+    public int getX() {
+        return x;
+    }
+
+    @Schema(description = "Top edge of the region.", example = "20")
+    public int getY() {
+        return y;
+    }
+
+    @Schema(description = "Width of the region in pixels.", example = "300")
+    public int getWidth() {
+        return width;
+    }
+
+    @Schema(description = "Height of the region in pixels.", example = "40")
+    public int getHeight() {
+        return height;
+    }
+
+    @Schema(description = "The number of pixels drawn red in the region.", example = "1250")
+    public int getPixelCount() {
+        return pixelCount;
+    }
+}
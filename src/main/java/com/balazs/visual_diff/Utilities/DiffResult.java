@@ -0,0 +1,104 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class DiffResult {
+
+    public final static String METADATA_RESULT_KEY = "resultkey";
+    public final static String METADATA_STATISTICS = "statistics";
+    public final static String METADATA_REGIONS = "regions";
+
+    private final static int MAX_METADATA_LENGTH = 7000;        //Azure allows 8KB of metadata per blob
+
+    private final String fileName;
+    private final DiffStatistics statistics;
+    private final List<DiffRegion> regions;
+
+    /**
+     * Holds the outcome of a compare whose diff image was saved to blob storage, so a repeated compare of the same files
+     * can answer with the saved diff image instead of comparing again.
+     *
+     * @param String fileName of the saved diff image
+     * @param DiffStatistics statistics collected while comparing
+     * @param List<DiffRegion> regions of differing pixels
+     */
+    public DiffResult(String fileName, DiffStatistics statistics, List<DiffRegion> regions) {
+        this.fileName = fileName;
+        this.statistics = statistics;
+        this.regions = regions;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public DiffStatistics getStatistics() {
+        return statistics;
+    }
+
+    public List<DiffRegion> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Converts the result to blob metadata of the diff image, so it can be restored with fromMetadata after the in-memory
+     * cache has been cleared.
+     *
+     * @param String resultKey the result is cached under
+     * @return Map<String, String> metadata of the diff image, or null if the regions do not fit into blob metadata
+     */
+    public Map<String, String> toMetadata(String resultKey) {
+        StringBuilder encodedRegions = new StringBuilder();
+        for (DiffRegion region : regions) {
+            if (encodedRegions.length() > 0) { encodedRegions.append(';'); }
+            encodedRegions.append(region.getX()).append(',').append(region.getY()).append(',').append(region.getWidth()).append(',').append(region.getHeight()).append(',').append(region.getPixelCount());
+        }
+
+        String encodedStatistics = statistics.toHeaderValue();
+        if (encodedRegions.length() + encodedStatistics.length() > MAX_METADATA_LENGTH) { return null; }
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(METADATA_RESULT_KEY, resultKey);
+        metadata.put(METADATA_STATISTICS, encodedStatistics);
+        metadata.put(METADATA_REGIONS, encodedRegions.toString());
+        return metadata;
+    }
+
+    /**
+     * Restores a result from the blob metadata written by toMetadata.
+     *
+     * @param String fileName of the diff image
+     * @param String resultKey the diff image is expected to be saved under
+     * @param Map<String, String> metadata of the diff image, or null if it does not exist
+     * @return DiffResult of the diff image, or null if the metadata is missing, malformed, or saved under another key
+     */
+    public static DiffResult fromMetadata(String fileName, String resultKey, Map<String, String> metadata) {
+        if (metadata == null || !resultKey.equals(metadata.get(METADATA_RESULT_KEY))) { return null; }
+
+        String encodedStatistics = metadata.get(METADATA_STATISTICS);
+        String encodedRegions = metadata.get(METADATA_REGIONS);
+        if (encodedStatistics == null || encodedRegions == null) { return null; }
+
+        try {
+            DiffStatistics statistics = DiffStatistics.fromHeaderValue(encodedStatistics);
+
+            List<DiffRegion> regions = new ArrayList<>();
+            if (!encodedRegions.isEmpty()) {
+                for (String encodedRegion : encodedRegions.split(";")) {
+                    String[] values = encodedRegion.split(",");
+                    int x = Integer.parseInt(values[0]);
+                    int y = Integer.parseInt(values[1]);
+                    regions.add(new DiffRegion(x, y, x + Integer.parseInt(values[2]) - 1, y + Integer.parseInt(values[3]) - 1, Integer.parseInt(values[4])));
+                }
+            }
+
+            return new DiffResult(fileName, statistics, regions);
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+}
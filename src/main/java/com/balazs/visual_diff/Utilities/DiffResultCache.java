@@ -0,0 +1,108 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.LinkedHashMap;
+
+public final class DiffResultCache {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, DiffResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Keeps the results of recent compares in memory, keyed by a ContentHash of the compared files and the compare
+     * settings, so a repeated compare can answer with the saved diff image without downloading or decoding anything.
+     * Once more than maxEntries results are cached, the least recently used results are evicted first. Evicted results
+     * can still be restored from the metadata of their diff image, see DiffResult.fromMetadata.
+     *
+     * The cache can be used by any number of threads.
+     *
+     * @param int maxEntries maximum number of results held by the cache. 0 or less disables the cache
+     */
+    public DiffResultCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    /**
+     * Gets the cached result of a compare.
+     *
+     * @param String resultKey of the compare
+     * @return DiffResult cached result, or null if it is not cached
+     */
+    public synchronized DiffResult get(String resultKey) {
+        DiffResult result = results.get(resultKey);
+        if (result == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return result;
+    }
+
+    /**
+     * Caches the result of a compare, and evicts the least recently used result if the cache is full.
+     *
+     * @param String resultKey of the compare
+     * @param DiffResult result of the compare
+     */
+    public synchronized void put(String resultKey, DiffResult result) {
+        if (maxEntries == 0) { return; }
+
+        results.put(resultKey, result);
+        if (results.size() > maxEntries) {
+            results.remove(results.keySet().iterator().next());
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes a cached result, such as one whose diff image was deleted.
+     *
+     * @param String resultKey of the compare
+     */
+    public synchronized void remove(String resultKey) {
+        results.remove(resultKey);
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return long number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that were not cached in memory.
+     *
+     * @return long number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of results evicted to make room for newer ones.
+     *
+     * @return long number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of results currently cached.
+     *
+     * @return int number of results
+     */
+    public synchronized int getSize() {
+        return results.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+}
@@ -0,0 +1,251 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "DiffStatistics", description = "Statistics collected while comparing the baseline and comparison images. Includes the number and ratio of differing pixels, the bounding box of the differing pixels, and a histogram of delta magnitudes.")
+public final class DiffStatistics {
+
+    public final static int HISTOGRAM_BUCKETS = 17;             //Bucket 0 holds delta 0, bucket k holds deltas in [2^(k-1), 2^k). The largest YIQ delta is below 2^16
+
+    private final int width;
+    private final long totalPixels;
+    private long diffPixels = 0;
+    private long ignoredPixels = 0;
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = -1;
+    private int maxY = -1;
+    private final long[] deltaHistogram = new long[HISTOGRAM_BUCKETS];
+
+    /**
+     * Creates empty statistics for an image of width x height pixels.
+     *
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     */
+    public DiffStatistics(int width, int height) {
+        this(width, (long) width * height);
+    }
+
+    /**
+     * Creates empty statistics for an image of totalPixels pixels.
+     *
+     * @param int width of the baseline and comparison images, 0 for statistics that are only read
+     * @param long totalPixels number of pixels in the image
+     */
+    private DiffStatistics(int width, long totalPixels) {
+        this.width = width;
+        this.totalPixels = totalPixels;
+    }
+
+    /**
+     * Records the delta of a single pixel. Called from the compare kernels for every pixel, so it only does a division
+     * for pixels that are drawn DIFF_COLOUR.
+     *
+     * @param int pixel index of the pixel in the image (y * width + x)
+     * @param int delta absolute delta of the pixel, as compared against CompareUtilities.MAX_DELTA
+     * @param boolean isDiffPixel true if the pixel is drawn DIFF_COLOUR
+     */
+    public void addDelta(int pixel, int delta, boolean isDiffPixel) {
+        deltaHistogram[histogramBucket(delta)]++;
+        if (!isDiffPixel) { return; }
+
+        diffPixels++;
+        int y = pixel / width;
+        int x = pixel - y * width;
+        if (x < minX) { minX = x; }
+        if (x > maxX) { maxX = x; }
+        if (y < minY) { minY = y; }
+        if (y > maxY) { maxY = y; }
+    }
+
+    /**
+     * Records the deltas of count consecutive pixels starting at startPixel. Used by the vectorized kernel which
+     * produces one delta per lane.
+     *
+     * @param int startPixel index of the first pixel in the image
+     * @param int[] deltas absolute deltas of the pixels
+     * @param int count number of deltas to record
+     */
+    public void addDeltas(int startPixel, int[] deltas, int count) {
+        for (int i = 0; i < count; i++) {
+            addDelta(startPixel + i, deltas[i], deltas[i] > CompareUtilities.MAX_DELTA);
+        }
+    }
+
+    /**
+     * Records pixels that are identical in both images as delta 0 without recording them one by one.
+     *
+     * @param long count number of identical pixels
+     */
+    public void addUnchangedPixels(long count) {
+        deltaHistogram[0] += count;
+    }
+
+    /**
+     * Records pixels that were skipped by an ignore mask instead of being compared.
+     *
+     * @param long count number of ignored pixels
+     */
+    public void addIgnoredPixels(long count) {
+        ignoredPixels += count;
+    }
+
+    /**
+     * Adds the statistics of another part of the same image, such as another band of rows, onto these statistics.
+     *
+     * @param DiffStatistics other statistics of another part of the image
+     */
+    public void merge(DiffStatistics other) {
+        merge(other, 0);
+    }
+
+    /**
+     * Adds the statistics of a band of rows that was compared on its own, as if it was a separate image, onto these
+     * statistics. The bounding box of other is moved down by rowOffset rows.
+     *
+     * @param DiffStatistics other statistics of the band
+     * @param int rowOffset row of this image that is row 0 of the band
+     */
+    public void merge(DiffStatistics other, int rowOffset) {
+        diffPixels += other.diffPixels;
+        ignoredPixels += other.ignoredPixels;
+        if (other.diffPixels > 0) {
+            minX = Math.min(minX, other.minX);
+            minY = Math.min(minY, other.minY + rowOffset);
+            maxX = Math.max(maxX, other.maxX);
+            maxY = Math.max(maxY, other.maxY + rowOffset);
+        }
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            deltaHistogram[i] += other.deltaHistogram[i];
+        }
+    }
+
+    /**
+     * Gets the histogram bucket of a delta.
+     *
+     * @param int delta absolute delta of a pixel
+     * @return int bucket 0 for delta 0, otherwise k where delta is in [2^(k-1), 2^k)
+     */
+    public static int histogramBucket(int delta) {
+        return Math.min(HISTOGRAM_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(delta));
+    }
+
+    /**
+     * Formats the statistics as a single line for the X-Diff-Statistics response header.
+     *
+     * @return String in the format diffPixels=12; totalPixels=100; ignoredPixels=0; diffRatio=0.12; boundingBox=1,2,3,4; deltaHistogram=88,0,...
+     */
+    public String toHeaderValue() {
+        StringBuilder histogram = new StringBuilder();
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            if (i > 0) { histogram.append(','); }
+            histogram.append(deltaHistogram[i]);
+        }
+
+        String boundingBox = diffPixels == 0 ? "none" : minX + "," + minY + "," + maxX + "," + maxY;
+        return "diffPixels=" + diffPixels + "; totalPixels=" + totalPixels + "; ignoredPixels=" + ignoredPixels + "; diffRatio=" + getDiffRatio() + "; boundingBox=" + boundingBox + "; deltaHistogram=" + histogram;
+    }
+
+    /**
+     * Restores statistics formatted by toHeaderValue, such as the statistics stored with a cached diff image. The
+     * restored statistics only hold the formatted values, and cannot record deltas or be merged.
+     *
+     * @param String headerValue produced by toHeaderValue
+     * @return DiffStatistics with the same values as the formatted statistics
+     * @throws IllegalArgumentException if headerValue is not formatted by toHeaderValue
+     */
+    public static DiffStatistics fromHeaderValue(String headerValue) {
+        Map<String, String> fields = new HashMap<>();
+        for (String field : headerValue.split("; ")) {
+            String[] pair = field.split("=", 2);
+            if (pair.length != 2) { throw new IllegalArgumentException("Malformed statistics field: " + field); }
+            fields.put(pair[0], pair[1]);
+        }
+
+        String[] buckets = requireField(fields, "deltaHistogram").split(",");
+        if (buckets.length != HISTOGRAM_BUCKETS) { throw new IllegalArgumentException("Malformed histogram: " + fields.get("deltaHistogram")); }
+
+        DiffStatistics statistics = new DiffStatistics(0, Long.parseLong(requireField(fields, "totalPixels")));
+        statistics.diffPixels = Long.parseLong(requireField(fields, "diffPixels"));
+        statistics.ignoredPixels = Long.parseLong(requireField(fields, "ignoredPixels"));
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            statistics.deltaHistogram[i] = Long.parseLong(buckets[i]);
+        }
+
+        String boundingBox = requireField(fields, "boundingBox");
+        if (!boundingBox.equals("none")) {
+            String[] edges = boundingBox.split(",");
+            if (edges.length != 4) { throw new IllegalArgumentException("Malformed bounding box: " + boundingBox); }
+            statistics.minX = Integer.parseInt(edges[0]);
+            statistics.minY = Integer.parseInt(edges[1]);
+            statistics.maxX = Integer.parseInt(edges[2]);
+            statistics.maxY = Integer.parseInt(edges[3]);
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Gets a field parsed by fromHeaderValue.
+     *
+     * @param Map<String, String> fields parsed from the header value
+     * @param String name of the field
+     * @return String value of the field
+     * @throws IllegalArgumentException if the field is missing
+     */
+    private static String requireField(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) { throw new IllegalArgumentException("Missing statistics field: " + name); }
+        return value;
+    }
+
+    @Schema(description = "The number of pixels drawn red in the diff image.", example = "12")
+    public long getDiffPixels() {
+        return diffPixels;
+    }
+
+    @Schema(description = "The number of pixels in the image.", example = "100")
+    public long getTotalPixels() {
+        return totalPixels;
+    }
+
+    @Schema(description = "The number of pixels skipped by the ignore regions and mask. Ignored pixels are not in the histogram.", example = "0")
+    public long getIgnoredPixels() {
+        return ignoredPixels;
+    }
+
+    @Schema(description = "diffPixels / totalPixels.", example = "0.12")
+    public double getDiffRatio() {
+        return totalPixels == 0 ? 0 : (double) diffPixels / totalPixels;
+    }
+
+    @Schema(description = "Left edge of the bounding box of the differing pixels. -1 if no pixels differ.", example = "1")
+    public int getMinX() {
+        return diffPixels == 0 ? -1 : minX;
+    }
+
+    @Schema(description = "Top edge of the bounding box of the differing pixels. -1 if no pixels differ.", example = "2")
+    public int getMinY() {
+        return diffPixels == 0 ? -1 : minY;
+    }
+
+    @Schema(description = "Right edge (inclusive) of the bounding box of the differing pixels. -1 if no pixels differ.", example = "3")
+    public int getMaxX() {
+        return maxX;
+    }
+
+    @Schema(description = "Bottom edge (inclusive) of the bounding box of the differing pixels. -1 if no pixels differ.", example = "4")
+    public int getMaxY() {
+        return maxY;
+    }
+
+    @Schema(description = "Number of pixels per delta magnitude. Bucket 0 holds delta 0, bucket k holds deltas in [2^(k-1), 2^k). Deltas above 352 are drawn red.")
+    public long[] getDeltaHistogram() {
+        return Arrays.copyOf(deltaHistogram, HISTOGRAM_BUCKETS);
+    }
+}
@@ -31,6 +31,23 @@ public final class FileUtilities {
         return byteArrayOutputStream.toByteArray();
     }
 
+    /**
+     * Converts incoming BufferedImage to byte[] array, encoding into buffers borrowed from bufferPool instead of
+     * growing a new ByteArrayOutputStream.
+     *
+     * @param BufferedImage image to be converted
+     * @param String format either FORMAT_PNG or FORMAT_JPEG
+     * @param BufferPool bufferPool the encoding buffers are borrowed from
+     * @return byte[] byte array of the BufferedImage
+     * @throws IOException
+     */
+    public static byte[] convertBufferedImageToByteArray(BufferedImage image, String format, BufferPool bufferPool) throws IOException {
+        try (PooledOutputStream pooledOutputStream = new PooledOutputStream(bufferPool)) {
+            ImageIO.write(image, format, pooledOutputStream);
+            return pooledOutputStream.toByteArray();
+        }
+    }
+
     /**
      * Gets the file format from the MultipartFile's content type.
      *
@@ -63,14 +80,28 @@ public final class FileUtilities {
     }
 
     /**
-     * Gets the type of the file uploaded, either 'baseline', 'comparison', or 'diff'
+     * Generates a file name in the format of [type]_[id].[format]. The same id always produces the same name, such as
+     * the diff image of a cached compare result.
+     *
+     * @param String format either FORMAT_PNG or FORMAT_JPEG
+     * @param String type either "baseline", "comparison" or 'diff'
+     * @param String id unique to the file's contents
+     * @return String file name in the format of [type]_[id].[format].
+     */
+    public static String generateFileName(String format, String type, String id) {
+        return type + "_" + id + "." + format;
+    }
+
+    /**
+     * Gets the type of the file uploaded, either 'baseline', 'comparison', 'mask', or 'diff'
      *
      * @param String fileName of the incoming file
-     * @return String type of the file either 'baseline', 'comparison', or 'diff'
+     * @return String type of the file either 'baseline', 'comparison', 'mask', or 'diff'
      */
     public static String getTypeFromFileName(String fileName) {
         if (fileName.toLowerCase().startsWith(ValidationUtilities.TYPE_BASELINE)) { return ValidationUtilities.TYPE_BASELINE; }
         if (fileName.toLowerCase().startsWith(ValidationUtilities.TYPE_COMPARISON)) { return ValidationUtilities.TYPE_COMPARISON; }
+        if (fileName.toLowerCase().startsWith(ValidationUtilities.TYPE_MASK)) { return ValidationUtilities.TYPE_MASK; }
         
         return ValidationUtilities.TYPE_DIFF;
     }
@@ -0,0 +1,260 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+public final class FixedPointCompareUtilities {
+
+    private final static int COEFFICIENT_SHIFT = 15;            //YIQ coefficients are scaled by 2^15
+    private final static int PRODUCT_SHIFT = 7;                 //Y, I, Q are shifted down by 2^7 before squaring so the squares fit in a long
+    private final static int WEIGHT_SHIFT = 14;                 //Delta weights are scaled by 2^14
+
+    private final static int LUMINANCE_COEFFICIENT_1 = toFixedPoint(0.29889531f, COEFFICIENT_SHIFT);
+    private final static int LUMINANCE_COEFFICIENT_2 = toFixedPoint(0.58662247f, COEFFICIENT_SHIFT);
+    private final static int LUMINANCE_COEFFICIENT_3 = toFixedPoint(0.11448223f, COEFFICIENT_SHIFT);
+
+    private final static int CHROMINANCE_I_COEFFICIENT_1 = toFixedPoint(0.59597799f, COEFFICIENT_SHIFT);
+    private final static int CHROMINANCE_I_COEFFICIENT_2 = toFixedPoint(0.27417610f, COEFFICIENT_SHIFT);
+    private final static int CHROMINANCE_I_COEFFICIENT_3 = toFixedPoint(0.32180189f, COEFFICIENT_SHIFT);
+
+    private final static int CHROMINANCE_Q_COEFFICIENT_1 = toFixedPoint(0.21147017f, COEFFICIENT_SHIFT);
+    private final static int CHROMINANCE_Q_COEFFICIENT_2 = toFixedPoint(0.52261711f, COEFFICIENT_SHIFT);
+    private final static int CHROMINANCE_Q_COEFFICIENT_3 = toFixedPoint(0.31114694f, COEFFICIENT_SHIFT);
+
+    private final static long DELTA_WEIGHT_Y = toFixedPoint(0.5053f, WEIGHT_SHIFT);
+    private final static long DELTA_WEIGHT_I = toFixedPoint(0.299f, WEIGHT_SHIFT);
+    private final static long DELTA_WEIGHT_Q = toFixedPoint(0.1957f, WEIGHT_SHIFT);
+
+    //One unit of the float delta in fixed point. The colour deltas are not divided by 255 like in applyTransparency,
+    //so the squares carry an extra 255^2
+    private final static long DELTA_SCALE = 255L * 255L << (2 * (COEFFICIENT_SHIFT - PRODUCT_SHIFT) + WEIGHT_SHIFT);
+    private final static double DELTA_SCALE_INVERSE = 1.0 / DELTA_SCALE;
+
+    //(int)delta > MAX_DELTA in the float kernel is the same as delta >= MAX_DELTA + 1. Rounding in both kernels moves
+    //the delta by far less than GUARD_BAND, so only pixels within GUARD_BAND of the threshold need the float kernel
+    private final static long GUARD_BAND = 2 * DELTA_SCALE;
+    private final static long DIFF_THRESHOLD_LOW = (CompareUtilities.MAX_DELTA + 1) * DELTA_SCALE - GUARD_BAND;
+    private final static long DIFF_THRESHOLD_HIGH = (CompareUtilities.MAX_DELTA + 1) * DELTA_SCALE + GUARD_BAND;
+
+    private FixedPointCompareUtilities() { }
+
+    /**
+     * Fixed-point kernel. Compares the pixels in [startPixel, endPixel) one by one with integer math only. Any pixel that
+     * is DIFF_COLOUR in CompareUtilities.scalarComparePixelRange is DIFF_COLOUR here, and every other pixel is drawn with
+     * the same gray, so the output is byte-identical to the float kernels.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, null);
+    }
+
+    /**
+     * Fixed-point kernel that also records the delta of every pixel into statistics. The delta recorded in the histogram 
+     * is the fixed-point delta, which can differ from the float delta by less than one.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        for (int i = startPixel; i < endPixel; i++) {
+            int index = i * 4;
+            long delta = calculateDelta(baselineRGBA, compareRGBA, index);
+            boolean isDiffPixel = isDiffPixel(delta, baselineRGBA, compareRGBA, index);
+            if (statistics != null) { statistics.addDelta(i, (int) (delta * DELTA_SCALE_INVERSE), isDiffPixel); }
+
+            //Make pixel DIFF_COLOUR (Red) if the delta is greater than the threshold
+            if (isDiffPixel) {
+                CompareUtilities.drawPixel(outputRGBA, (byte)255, (byte)0, (byte)0, index);
+            }
+            //Make pixel gray if the delta is less than the threshold
+            else {
+                CompareUtilities.drawGrayPixel(baselineRGBA, outputRGBA, index);
+            }
+        }
+    }
+
+    /**
+     * Fixed-point kernel for pixels held in segments, such as a band of an OffHeapRaster.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void comparePixelRange(MemorySegment baselineRGBA, MemorySegment compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        for (int i = startPixel; i < endPixel; i++) {
+            int index = i * 4;
+            long delta = calculateDelta(baselineRGBA, compareRGBA, index);
+            boolean isDiffPixel = isDiffPixel(delta, baselineRGBA, compareRGBA, index);
+            if (statistics != null) { statistics.addDelta(i, (int) (delta * DELTA_SCALE_INVERSE), isDiffPixel); }
+
+            if (isDiffPixel) {
+                CompareUtilities.drawPixel(outputRGBA, (byte)255, (byte)0, (byte)0, index);
+            }
+            else {
+                CompareUtilities.drawGrayPixel(baselineRGBA, outputRGBA, index);
+            }
+        }
+    }
+
+    /**
+     * Fixed-point version of CompareUtilities.countDiffPixels.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @return long number of differing pixels, at most maxDiffPixels + 1
+     */
+    public static long countDiffPixels(byte[] baselineRGBA, byte[] compareRGBA, int startPixel, int endPixel, long maxDiffPixels) {
+        long diffPixels = 0;
+        for (int i = startPixel; i < endPixel && diffPixels <= maxDiffPixels; i++) {
+            if (isDiffPixel(baselineRGBA, compareRGBA, i * 4)) { diffPixels++; }
+        }
+        return diffPixels;
+    }
+
+    /**
+     * Fixed-point version of CompareUtilities.countDiffPixels for pixels held in segments.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @return long number of differing pixels, at most maxDiffPixels + 1
+     */
+    public static long countDiffPixels(MemorySegment baselineRGBA, MemorySegment compareRGBA, int startPixel, int endPixel, long maxDiffPixels) {
+        long diffPixels = 0;
+        for (int i = startPixel; i < endPixel && diffPixels <= maxDiffPixels; i++) {
+            int index = i * 4;
+            if (isDiffPixel(calculateDelta(baselineRGBA, compareRGBA, index), baselineRGBA, compareRGBA, index)) { diffPixels++; }
+        }
+        return diffPixels;
+    }
+
+    /**
+     * Checks if the delta of a pixel is greater than MAX_DELTA. Follows CompareUtilities.calculateDelta step by step,
+     * including transparency being applied with the signed channel values, but keeps every value as a scaled integer.
+     * Pixels that land within GUARD_BAND of the threshold are decided by CompareUtilities.calculateDelta, so the
+     * decision always matches the float kernel.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int index of the pixel to be evaluated
+     * @return boolean true if the pixel is drawn DIFF_COLOUR, false if it is drawn gray
+     */
+    public static boolean isDiffPixel(byte[] baselineRGBA, byte[] compareRGBA, int index) {
+        return isDiffPixel(calculateDelta(baselineRGBA, compareRGBA, index), baselineRGBA, compareRGBA, index);
+    }
+
+    /**
+     * Checks if a fixed-point delta from calculateDelta is greater than MAX_DELTA, falling back to the float kernel
+     * within GUARD_BAND of the threshold.
+     *
+     * @param long delta fixed-point delta of the pixel
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int index of the pixel to be evaluated
+     * @return boolean true if the pixel is drawn DIFF_COLOUR, false if it is drawn gray
+     */
+    private static boolean isDiffPixel(long delta, byte[] baselineRGBA, byte[] compareRGBA, int index) {
+        if (delta >= DIFF_THRESHOLD_HIGH) { return true; }
+        if (delta < DIFF_THRESHOLD_LOW) { return false; }
+        return Math.abs(CompareUtilities.calculateDelta(baselineRGBA, compareRGBA, index)) > CompareUtilities.MAX_DELTA;
+    }
+
+    /**
+     * Checks if a fixed-point delta is greater than MAX_DELTA like isDiffPixel(long, byte[], byte[], int), for a pixel
+     * held in segments.
+     *
+     * @param long delta fixed-point delta of the pixel
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int index of the pixel to be evaluated
+     * @return boolean true if the pixel is drawn DIFF_COLOUR, false if it is drawn gray
+     */
+    private static boolean isDiffPixel(long delta, MemorySegment baselineRGBA, MemorySegment compareRGBA, int index) {
+        if (delta >= DIFF_THRESHOLD_HIGH) { return true; }
+        if (delta < DIFF_THRESHOLD_LOW) { return false; }
+        return Math.abs(CompareUtilities.calculateDelta(baselineRGBA, compareRGBA, index)) > CompareUtilities.MAX_DELTA;
+    }
+
+    /**
+     * Calculates the delta of a pixel in fixed point. Divide by DELTA_SCALE to get the value of
+     * CompareUtilities.calculateDelta before it is truncated to an int.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int index of the pixel to be evaluated
+     * @return long delta of the pixel in fixed point
+     */
+    public static long calculateDelta(byte[] baselineRGBA, byte[] compareRGBA, int index) {
+        return calculateDelta(baselineRGBA[index], baselineRGBA[index + 1], baselineRGBA[index + 2], baselineRGBA[index + 3], compareRGBA[index], compareRGBA[index + 1], compareRGBA[index + 2], compareRGBA[index + 3]);
+    }
+
+    /**
+     * Calculates the delta of a pixel held in segments in fixed point, like calculateDelta(byte[], byte[], int).
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int index of the pixel to be evaluated
+     * @return long delta of the pixel in fixed point
+     */
+    public static long calculateDelta(MemorySegment baselineRGBA, MemorySegment compareRGBA, int index) {
+        return calculateDelta(baselineRGBA.get(ValueLayout.JAVA_BYTE, index), baselineRGBA.get(ValueLayout.JAVA_BYTE, index + 1), baselineRGBA.get(ValueLayout.JAVA_BYTE, index + 2), baselineRGBA.get(ValueLayout.JAVA_BYTE, index + 3),
+            compareRGBA.get(ValueLayout.JAVA_BYTE, index), compareRGBA.get(ValueLayout.JAVA_BYTE, index + 1), compareRGBA.get(ValueLayout.JAVA_BYTE, index + 2), compareRGBA.get(ValueLayout.JAVA_BYTE, index + 3));
+    }
+
+    /**
+     * Calculates the delta of a pixel in fixed point from the channels of the baseline and comparison pixels.
+     *
+     * @param byte baselineR R value of the baseline pixel
+     * @param byte baselineG G value of the baseline pixel
+     * @param byte baselineB B value of the baseline pixel
+     * @param byte baselineA A value of the baseline pixel
+     * @param byte compareR R value of the comparison pixel
+     * @param byte compareG G value of the comparison pixel
+     * @param byte compareB B value of the comparison pixel
+     * @param byte compareA A value of the comparison pixel
+     * @return long delta of the pixel in fixed point
+     */
+    private static long calculateDelta(byte baselineR, byte baselineG, byte baselineB, byte baselineA, byte compareR, byte compareG, byte compareB, byte compareA) {
+        int grayA = CompareUtilities.GRAY * (Byte.toUnsignedInt(baselineA) - Byte.toUnsignedInt(compareA));
+
+        //applyTransparency without the division by 255. Each delta is within +-44880
+        int deltaR = baselineR * baselineA - compareR * compareA - grayA;
+        int deltaG = baselineG * baselineA - compareG * compareA - grayA;
+        int deltaB = baselineB * baselineA - compareB * compareA - grayA;
+
+        //Y = Luminance, I = Chrominance for Orange/Blue, Q = Chrominance for Purple/Green. Each sum is within +-1.8 * 10^9
+        long y = (LUMINANCE_COEFFICIENT_1 * deltaR + LUMINANCE_COEFFICIENT_2 * deltaG + LUMINANCE_COEFFICIENT_3 * deltaB) >> PRODUCT_SHIFT;
+        long i = (CHROMINANCE_I_COEFFICIENT_1 * deltaR - CHROMINANCE_I_COEFFICIENT_2 * deltaG - CHROMINANCE_I_COEFFICIENT_3 * deltaB) >> PRODUCT_SHIFT;
+        long q = (CHROMINANCE_Q_COEFFICIENT_1 * deltaR - CHROMINANCE_Q_COEFFICIENT_2 * deltaG + CHROMINANCE_Q_COEFFICIENT_3 * deltaB) >> PRODUCT_SHIFT;
+
+        return DELTA_WEIGHT_Y * y * y + DELTA_WEIGHT_I * i * i + DELTA_WEIGHT_Q * q * q;
+    }
+
+    /**
+     * Scales a coefficient by 2^shift and rounds it to the nearest integer.
+     *
+     * @param float coefficient
+     * @param int shift
+     * @return int scaled coefficient
+     */
+    private static int toFixedPoint(float coefficient, int shift) {
+        return Math.round(coefficient * (1 << shift));
+    }
+}
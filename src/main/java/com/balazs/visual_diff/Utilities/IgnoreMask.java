@@ -0,0 +1,149 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+
+public final class IgnoreMask {
+
+    private final static int MASK_THRESHOLD = 128;              //Mask pixels at least this bright and this opaque are ignored
+
+    private final int width;
+    private final int height;
+    private final BitSet ignoredPixels;
+    private int[] spans;
+
+    /**
+     * Creates an empty mask for an image of width x height pixels. Ignored pixels are collected in a bitset of one bit
+     * per pixel, then handed to the compare kernels as run-length spans by getSpans.
+     *
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     */
+    public IgnoreMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.ignoredPixels = new BitSet(width * height);
+    }
+
+    /**
+     * Ignores every pixel inside a rectangle. Parts of the rectangle outside of the image are dropped.
+     *
+     * @param int x left edge of the rectangle
+     * @param int y top edge of the rectangle
+     * @param int rectangleWidth width of the rectangle in pixels
+     * @param int rectangleHeight height of the rectangle in pixels
+     */
+    public void addRectangle(int x, int y, int rectangleWidth, int rectangleHeight) {
+        int startX = Math.max(0, x);
+        int startY = Math.max(0, y);
+        int endX = (int) Math.min(width, (long) x + rectangleWidth);
+        int endY = (int) Math.min(height, (long) y + rectangleHeight);
+        if (startX >= endX) { return; }
+
+        for (int row = startY; row < endY; row++) {
+            ignoredPixels.set(row * width + startX, row * width + endX);
+        }
+        spans = null;
+    }
+
+    /**
+     * Ignores every white pixel of a mask image, such as a 1-bit PNG. A pixel is white if the average of its r, g, b
+     * values, and its alpha are at least MASK_THRESHOLD. Black and transparent pixels are compared as usual.
+     *
+     * @param BufferedImage mask image with the same dimensions as the baseline and comparison images
+     * @throws IllegalArgumentException if the mask has different dimensions
+     */
+    public void addMask(BufferedImage mask) {
+        if (mask.getWidth() != width || mask.getHeight() != height) {
+            throw new IllegalArgumentException("Mask is " + mask.getWidth() + "x" + mask.getHeight() + ", expected " + width + "x" + height);
+        }
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            mask.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                int brightness = (((argb >> 16) & 0xFF) + ((argb >> 8) & 0xFF) + (argb & 0xFF)) / 3;
+                if (brightness >= MASK_THRESHOLD && (argb >>> 24) >= MASK_THRESHOLD) { ignoredPixels.set(y * width + x); }
+            }
+        }
+        spans = null;
+    }
+
+    /**
+     * Gets the ignored pixels as run-length spans {start, end, start, end, ...} of pixel indices (y * width + x), sorted
+     * and non-overlapping, with each end exclusive. A span continues across rows, so a full-width band of any height is
+     * a single span.
+     *
+     * @return int[] spans of ignored pixels. Empty if no pixels are ignored
+     */
+    public int[] getSpans() {
+        if (spans != null) { return spans; }
+
+        int spanCount = 0;
+        for (int start = ignoredPixels.nextSetBit(0); start >= 0; start = ignoredPixels.nextSetBit(ignoredPixels.nextClearBit(start))) {
+            spanCount++;
+        }
+
+        spans = new int[spanCount * 2];
+        int span = 0;
+        for (int start = ignoredPixels.nextSetBit(0); start >= 0; start = ignoredPixels.nextSetBit(spans[span - 1])) {
+            spans[span++] = start;
+            spans[span++] = ignoredPixels.nextClearBit(start);
+        }
+        return spans;
+    }
+
+    /**
+     * Gets the number of ignored pixels.
+     *
+     * @return long number of pixels that are not compared
+     */
+    public long getIgnoredPixels() {
+        return ignoredPixels.cardinality();
+    }
+
+    /**
+     * Finds the first span that ends after a pixel with a binary search, so a band of the image can skip straight to
+     * the spans that cover it.
+     *
+     * @param int[] spans from getSpans
+     * @param int pixel index of the pixel (y * width + x)
+     * @return int index into spans of the start of the first span with end > pixel, or spans.length if there is none
+     */
+    public static int firstSpanEndingAfter(int[] spans, int pixel) {
+        int low = 0;
+        int high = spans.length / 2;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (spans[middle * 2 + 1] <= pixel) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low * 2;
+    }
+
+    /**
+     * Gets the spans that cover the pixels startPixel to endPixel, clipped to them and moved so that startPixel is pixel
+     * 0, for comparing a band of rows as if it was a separate image.
+     *
+     * @param int[] spans from getSpans, or null
+     * @param int startPixel index of the first pixel of the band (inclusive)
+     * @param int endPixel index of the last pixel of the band (exclusive)
+     * @return int[] spans of the band, or null if no pixel of the band is ignored
+     */
+    public static int[] bandSpans(int[] spans, int startPixel, int endPixel) {
+        if (spans == null) { return null; }
+
+        int first = firstSpanEndingAfter(spans, startPixel);
+        int last = first;
+        while (last < spans.length && spans[last] < endPixel) { last += 2; }
+        if (first == last) { return null; }
+
+        int[] band = new int[last - first];
+        for (int span = first; span < last; span += 2) {
+            band[span - first] = Math.max(spans[span], startPixel) - startPixel;
+            band[span - first + 1] = Math.min(spans[span + 1], endPixel) - startPixel;
+        }
+        return band;
+    }
+}
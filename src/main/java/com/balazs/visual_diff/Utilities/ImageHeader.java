@@ -0,0 +1,56 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.Map;
+
+public final class ImageHeader {
+
+    public final static String METADATA_FORMAT = "format";
+    public final static String METADATA_WIDTH = "width";
+    public final static String METADATA_HEIGHT = "height";
+    public final static String METADATA_BIT_DEPTH = "bitdepth";
+
+    private final String format;
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+
+    /**
+     * Holds what the header of an image file says about the image, read without decoding its pixels.
+     *
+     * @param String format either FORMAT_PNG or FORMAT_JPEG, detected from the magic bytes of the file
+     * @param int width of the image
+     * @param int height of the image
+     * @param int bitDepth number of bits per sample
+     */
+    public ImageHeader(String format, int width, int height, int bitDepth) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.bitDepth = bitDepth;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    /**
+     * Converts the header to blob metadata, so the dimensions of an uploaded file can be read without downloading it.
+     *
+     * @return Map<String, String> format, width, height, and bit depth of the image
+     */
+    public Map<String, String> toMetadata() {
+        return Map.of(METADATA_FORMAT, format, METADATA_WIDTH, Integer.toString(width), METADATA_HEIGHT, Integer.toString(height), METADATA_BIT_DEPTH, Integer.toString(bitDepth));
+    }
+}
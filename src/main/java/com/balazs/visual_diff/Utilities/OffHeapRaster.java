@@ -0,0 +1,147 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class OffHeapRaster implements AutoCloseable {
+
+    private final static int BYTES_PER_PIXEL = 4;
+    public final static long MAX_PIXELS = Integer.MAX_VALUE / BYTES_PER_PIXEL;  //Keeps the pixel indexes of the kernels and ignored spans within an int
+
+    private final MemorySegment pixels;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+
+    /**
+     * Holds the pixels of a width x height image outside of the Java heap in a MemorySegment, in the same byte order as
+     * the raster of a TYPE_4BYTE_ABGR BufferedImage. The compare kernels read bands of rows straight from slices of the
+     * segment, see rows, so no band is copied onto the heap.
+     *
+     * The memory belongs to the Arena the raster was created in, and is freed or unmapped as soon as the arena is
+     * closed, without waiting for the garbage collector. A raster of a confined arena can only be used by the thread
+     * that opened the arena, and throws IllegalStateException once the arena is closed.
+     *
+     * @param MemorySegment pixels of the image
+     * @param FileChannel channel of the file pixels is mapped from, or null
+     * @param int width of the image
+     * @param int height of the image
+     */
+    private OffHeapRaster(MemorySegment pixels, FileChannel channel, int width, int height) {
+        this.pixels = pixels;
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Allocates a raster in native memory owned by arena.
+     *
+     * @param Arena arena the memory is allocated in, and freed with
+     * @param int width of the image
+     * @param int height of the image
+     * @return OffHeapRaster filled with zeros
+     * @throws IllegalArgumentException if the image has more than MAX_PIXELS pixels
+     */
+    public static OffHeapRaster allocate(Arena arena, int width, int height) {
+        return new OffHeapRaster(arena.allocate(byteLength(width, height), 1), null, width, height);
+    }
+
+    /**
+     * Creates a raster backed by a memory-mapped temporary file, so the operating system can page it out instead of
+     * it counting against the memory of the process. The file is unmapped when arena is closed, and deleted when the
+     * raster is closed.
+     *
+     * @param Arena arena the mapping belongs to
+     * @param int width of the image
+     * @param int height of the image
+     * @param Path directory the temporary file is created in
+     * @return OffHeapRaster filled with zeros
+     * @throws IOException if the file cannot be created or mapped
+     * @throws IllegalArgumentException if the image has more than MAX_PIXELS pixels
+     */
+    public static OffHeapRaster map(Arena arena, int width, int height, Path directory) throws IOException {
+        long length = byteLength(width, height);
+        Path file = Files.createTempFile(directory, "visual-diff-", ".raster");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            return new OffHeapRaster(channel.map(FileChannel.MapMode.READ_WRITE, 0, length, arena), channel, width, height);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets a slice of the raster holding rows [startRow, startRow + rows), for the compare kernels and PngBandReader to
+     * read and write in place.
+     *
+     * @param int startRow first row of the slice
+     * @param int rows number of rows of the slice
+     * @return MemorySegment of width * rows * 4 bytes
+     */
+    public MemorySegment rows(int startRow, int rows) {
+        return pixels.asSlice(rowOffset(startRow), rowOffset(rows));
+    }
+
+    /**
+     * Copies rows from a byte[] array on the heap into the raster, for the images that are decoded by ImageIO.
+     *
+     * @param byte[] sourceABGR byte[] array of at least width * rows * 4 bytes
+     * @param int startRow first row of the raster to be written
+     * @param int rows number of rows to be copied
+     * @throws IllegalStateException if the arena of the raster is closed
+     */
+    public void writeRows(byte[] sourceABGR, int startRow, int rows) {
+        MemorySegment.copy(sourceABGR, 0, pixels, ValueLayout.JAVA_BYTE, rowOffset(startRow), width * rows * BYTES_PER_PIXEL);
+    }
+
+    /**
+     * Deletes the temporary file of a mapped raster. The memory itself is released by closing the arena of the raster.
+     *
+     * @throws IOException if the temporary file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) { channel.close(); }
+    }
+
+    /**
+     * Gets the offset of the first byte of a row.
+     *
+     * @param int row of the image
+     * @return long offset into the segment
+     */
+    private long rowOffset(int row) {
+        return (long) row * width * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Gets the number of bytes of a width x height raster.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @return long width * height * 4
+     * @throws IllegalArgumentException if the image has more than MAX_PIXELS pixels
+     */
+    private static long byteLength(int width, int height) {
+        long pixelCount = (long) width * height;
+        if (pixelCount > MAX_PIXELS) { throw new IllegalArgumentException("Image of " + pixelCount + " pixels is too large for an off-heap raster"); }
+        return pixelCount * BYTES_PER_PIXEL;
+    }
+}
@@ -0,0 +1,379 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public final class PngBandReader implements AutoCloseable {
+
+    private final static byte[] SIGNATURE = {(byte)137, 80, 78, 71, 13, 10, 26, 10};
+    private final static int IHDR_LENGTH = 13;
+    private final static int BIT_DEPTH = 8;
+    private final static int COLOUR_TYPE_GRAY = 0;
+    private final static int COLOUR_TYPE_RGB = 2;
+    private final static int COLOUR_TYPE_GRAY_ALPHA = 4;
+    private final static int COLOUR_TYPE_RGBA = 6;
+    private final static int BYTES_PER_PIXEL = 4;               //Bytes of a pixel in the TYPE_4BYTE_ABGR layout the rows are read into
+    private final static byte OPAQUE = (byte)255;
+
+    private final byte[] pngData;
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final boolean decodable;
+    private final boolean supported;
+    private final Inflater inflater = new Inflater();
+    private int nextChunk;
+    private int rowsRead = 0;
+    private byte[] scanline;
+    private byte[] previousRow;
+    private byte[] rowABGR;
+
+    /**
+     * Reads a PNG image row by row, so only two rows of the image are held in memory at any time. Unlike
+     * ImageReader.read with a source region, which inflates every row above the region again for each band, the image
+     * data is inflated once from top to bottom.
+     *
+     * Non-interlaced 8-bit gray, gray + alpha, RGB, and RGBA images without a tRNS chunk can be decoded, into the same
+     * pixels RasterNormalizer converts the ImageIO decode of the image into. Use isDecodable to check before reading, and
+     * fall back to ImageIO otherwise. isSupported only accepts RGBA images, which is what the diff images and most
+     * screenshots are, and what CompareService streams.
+     *
+     * @param byte[] pngData contents of the image file
+     */
+    public PngBandReader(byte[] pngData) {
+        this.pngData = pngData;
+
+        boolean isPng = pngData.length >= SIGNATURE.length + 8 + IHDR_LENGTH + 4;
+        for (int i = 0; isPng && i < SIGNATURE.length; i++) {
+            isPng = pngData[i] == SIGNATURE[i];
+        }
+        isPng = isPng && readInt(SIGNATURE.length) == IHDR_LENGTH && readInt(SIGNATURE.length + 4) == chunkType("IHDR");
+
+        int ihdr = SIGNATURE.length + 8;
+        this.width = isPng ? readInt(ihdr) : 0;
+        this.height = isPng ? readInt(ihdr + 4) : 0;
+        this.channels = isPng ? channelCount(pngData[ihdr + 9]) : 0;
+        this.nextChunk = ihdr + IHDR_LENGTH + 4;
+        this.decodable = isPng && width > 0 && height > 0 && channels > 0 && (long) width * BYTES_PER_PIXEL + 1 <= Integer.MAX_VALUE
+            && pngData[ihdr + 8] == BIT_DEPTH && pngData[ihdr + 12] == 0 && !hasTransparencyChunk();
+        this.supported = decodable && pngData[ihdr + 9] == COLOUR_TYPE_RGBA;
+    }
+
+    /**
+     * Checks if the image can be streamed by CompareService.
+     *
+     * @return boolean true if the image is a non-interlaced 8-bit RGBA PNG
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Checks if the image can be read by this reader.
+     *
+     * @return boolean true if the image is a non-interlaced 8-bit gray, gray + alpha, RGB, or RGBA PNG without a tRNS
+     * chunk
+     */
+    public boolean isDecodable() {
+        return decodable;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Reads the next rows of the image into destinationABGR, in the same byte order as the raster of a
+     * TYPE_4BYTE_ABGR BufferedImage decoded by ImageIO.
+     *
+     * @param byte[] destinationABGR byte[] array of at least width * rows * 4 bytes
+     * @param int rows number of rows to be read
+     * @throws IOException if the image data is corrupt or ends early
+     */
+    public void readRows(byte[] destinationABGR, int rows) throws IOException {
+        startRows(rows);
+        for (int row = 0; row < rows; row++) {
+            readScanline();
+            convertScanline(destinationABGR, row * width * BYTES_PER_PIXEL);
+            nextScanline();
+        }
+        rowsRead += rows;
+    }
+
+    /**
+     * Reads the next rows of the image into off-heap memory, such as the rows of an OffHeapRaster, like
+     * readRows(byte[], int). Each row is converted into a reused row on the heap and copied into destinationABGR, so
+     * no band of the image is held on the heap.
+     *
+     * @param MemorySegment destinationABGR segment of at least width * rows * 4 bytes
+     * @param int rows number of rows to be read
+     * @throws IOException if the image data is corrupt or ends early
+     */
+    public void readRows(MemorySegment destinationABGR, int rows) throws IOException {
+        startRows(rows);
+        int rowBytes = width * BYTES_PER_PIXEL;
+        if (rowABGR == null) { rowABGR = new byte[rowBytes]; }
+
+        for (int row = 0; row < rows; row++) {
+            readScanline();
+            convertScanline(rowABGR, 0);
+            MemorySegment.copy(rowABGR, 0, destinationABGR, ValueLayout.JAVA_BYTE, (long) row * rowBytes, rowBytes);
+            nextScanline();
+        }
+        rowsRead += rows;
+    }
+
+    /**
+     * Releases the native memory of the inflater.
+     */
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    /**
+     * Checks that rows more rows are left to be read, and allocates the scanlines on the first read.
+     *
+     * @param int rows number of rows to be read
+     * @throws IOException if the image cannot be read, or has fewer rows left
+     */
+    private void startRows(int rows) throws IOException {
+        if (!decodable) { throw new IOException("Unsupported PNG image"); }
+        if (rowsRead + rows > height) { throw new IOException("Only " + (height - rowsRead) + " rows are left to be read"); }
+
+        if (scanline == null) {
+            scanline = new byte[width * channels + 1];
+            previousRow = new byte[width * channels + 1];
+        }
+    }
+
+    /**
+     * Inflates and unfilters the next row of the image into scanline.
+     *
+     * @throws IOException if the image data is corrupt or ends early
+     */
+    private void readScanline() throws IOException {
+        inflateScanline();
+        unfilterScanline(width * channels);
+    }
+
+    /**
+     * Keeps the row in scanline as the row above the next one.
+     */
+    private void nextScanline() {
+        byte[] unfilteredRow = previousRow;
+        previousRow = scanline;
+        scanline = unfilteredRow;
+    }
+
+    /**
+     * Converts the unfiltered row in scanline into the byte order of the raster of a TYPE_4BYTE_ABGR BufferedImage. Gray
+     * samples are copied into r, g, and b, and images without alpha are opaque, like RasterNormalizer converts them.
+     *
+     * @param byte[] destinationABGR byte[] array receiving width * 4 bytes
+     * @param int offset of the first byte to be written
+     */
+    private void convertScanline(byte[] destinationABGR, int offset) {
+        int rowBytes = width * channels;
+        switch (channels) {
+            case 1:
+                for (int i = 1; i <= rowBytes; i++) {
+                    destinationABGR[offset++] = OPAQUE;
+                    destinationABGR[offset++] = scanline[i];
+                    destinationABGR[offset++] = scanline[i];
+                    destinationABGR[offset++] = scanline[i];
+                }
+                break;
+            case 2:
+                for (int i = 1; i <= rowBytes; i += 2) {
+                    destinationABGR[offset++] = scanline[i + 1];
+                    destinationABGR[offset++] = scanline[i];
+                    destinationABGR[offset++] = scanline[i];
+                    destinationABGR[offset++] = scanline[i];
+                }
+                break;
+            case 3:
+                for (int i = 1; i <= rowBytes; i += 3) {
+                    destinationABGR[offset++] = OPAQUE;
+                    destinationABGR[offset++] = scanline[i + 2];
+                    destinationABGR[offset++] = scanline[i + 1];
+                    destinationABGR[offset++] = scanline[i];
+                }
+                break;
+            default:
+                //PNG stores r, g, b, a. The raster of TYPE_4BYTE_ABGR stores a, b, g, r
+                for (int i = 1; i <= rowBytes; i += 4) {
+                    destinationABGR[offset++] = scanline[i + 3];
+                    destinationABGR[offset++] = scanline[i + 2];
+                    destinationABGR[offset++] = scanline[i + 1];
+                    destinationABGR[offset++] = scanline[i];
+                }
+        }
+    }
+
+    /**
+     * Inflates the next filter byte and row of the image into scanline, feeding the inflater the next IDAT chunk
+     * whenever it runs out of input.
+     *
+     * @throws IOException if the image data is corrupt or ends early
+     */
+    private void inflateScanline() throws IOException {
+        int filled = 0;
+        try {
+            while (filled < scanline.length) {
+                if (inflater.needsInput()) { feedNextDataChunk(); }
+                int inflated = inflater.inflate(scanline, filled, scanline.length - filled);
+                if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) { throw new IOException("PNG image data ended early"); }
+                filled += inflated;
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Corrupt PNG image data", e);
+        }
+    }
+
+    /**
+     * Finds the next IDAT chunk and hands its data to the inflater.
+     *
+     * @throws IOException if there are no IDAT chunks left
+     */
+    private void feedNextDataChunk() throws IOException {
+        while (nextChunk + 8 <= pngData.length) {
+            int length = readInt(nextChunk);
+            int type = readInt(nextChunk + 4);
+            int data = nextChunk + 8;
+            if (length < 0 || data + (long) length + 4 > pngData.length) { break; }
+
+            nextChunk = data + length + 4;
+            if (type == chunkType("IDAT")) {
+                inflater.setInput(pngData, data, length);
+                return;
+            }
+            if (type == chunkType("IEND")) { break; }
+        }
+        throw new IOException("PNG image data ended early");
+    }
+
+    /**
+     * Reverses the filter of scanline in place, using previousRow as the row above. Byte 0 of both holds the filter type.
+     *
+     * @param int rowBytes number of bytes of a row without the filter byte
+     * @throws IOException if the filter type is unknown
+     */
+    private void unfilterScanline(int rowBytes) throws IOException {
+        int filter = scanline[0];
+        switch (filter) {
+            case 0:
+                break;
+            case 1:
+                for (int i = 1 + channels; i <= rowBytes; i++) {
+                    scanline[i] += scanline[i - channels];
+                }
+                break;
+            case 2:
+                for (int i = 1; i <= rowBytes; i++) {
+                    scanline[i] += previousRow[i];
+                }
+                break;
+            case 3:
+                for (int i = 1; i <= rowBytes; i++) {
+                    int left = i > channels ? scanline[i - channels] & 0xFF : 0;
+                    scanline[i] += (byte)((left + (previousRow[i] & 0xFF)) >> 1);
+                }
+                break;
+            case 4:
+                for (int i = 1; i <= rowBytes; i++) {
+                    int left = i > channels ? scanline[i - channels] & 0xFF : 0;
+                    int upperLeft = i > channels ? previousRow[i - channels] & 0xFF : 0;
+                    scanline[i] += (byte)paethPredictor(left, previousRow[i] & 0xFF, upperLeft);
+                }
+                break;
+            default:
+                throw new IOException("Unknown PNG filter type " + filter);
+        }
+    }
+
+    /**
+     * Predicts a byte from its left, upper, and upper left neighbours as defined by the PNG specification.
+     *
+     * @param int left neighbour
+     * @param int up neighbour
+     * @param int upperLeft neighbour
+     * @return int the neighbour closest to left + up - upperLeft
+     */
+    static int paethPredictor(int left, int up, int upperLeft) {
+        int estimate = left + up - upperLeft;
+        int leftDistance = Math.abs(estimate - left);
+        int upDistance = Math.abs(estimate - up);
+        int upperLeftDistance = Math.abs(estimate - upperLeft);
+        if (leftDistance <= upDistance && leftDistance <= upperLeftDistance) { return left; }
+        if (upDistance <= upperLeftDistance) { return up; }
+        return upperLeft;
+    }
+
+    /**
+     * Checks if a tRNS chunk comes before the image data. ImageIO decodes gray and RGB images with one into images with
+     * alpha, which this reader does not.
+     *
+     * @return boolean true if the image has a tRNS chunk
+     */
+    private boolean hasTransparencyChunk() {
+        int chunk = nextChunk;
+        while (chunk + 8 <= pngData.length) {
+            int length = readInt(chunk);
+            int type = readInt(chunk + 4);
+            if (type == chunkType("tRNS")) { return true; }
+            if (length < 0 || type == chunkType("IDAT") || type == chunkType("IEND")) { return false; }
+            chunk += length + 12;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of samples per pixel of a PNG colour type.
+     *
+     * @param int colourType from the IHDR chunk
+     * @return int samples per pixel, or 0 if the colour type cannot be read by this reader
+     */
+    private static int channelCount(int colourType) {
+        switch (colourType) {
+            case COLOUR_TYPE_GRAY:
+                return 1;
+            case COLOUR_TYPE_GRAY_ALPHA:
+                return 2;
+            case COLOUR_TYPE_RGB:
+                return 3;
+            case COLOUR_TYPE_RGBA:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Converts a four letter chunk type to the int it is stored as.
+     *
+     * @param String type of the chunk, e.g. IDAT
+     * @return int big-endian value of the type
+     */
+    static int chunkType(String type) {
+        return type.charAt(0) << 24 | type.charAt(1) << 16 | type.charAt(2) << 8 | type.charAt(3);
+    }
+
+    /**
+     * Reads a big-endian int from pngData.
+     *
+     * @param int offset of the first byte
+     * @return int value at offset
+     */
+    private int readInt(int offset) {
+        return (pngData[offset] & 0xFF) << 24 | (pngData[offset + 1] & 0xFF) << 16 | (pngData[offset + 2] & 0xFF) << 8 | (pngData[offset + 3] & 0xFF);
+    }
+}
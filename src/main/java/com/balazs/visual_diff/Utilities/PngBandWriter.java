@@ -0,0 +1,198 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public final class PngBandWriter implements AutoCloseable {
+
+    private final static byte[] SIGNATURE = {(byte)137, 80, 78, 71, 13, 10, 26, 10};
+    private final static int BIT_DEPTH = 8;
+    private final static int COLOUR_TYPE_RGBA = 6;
+    private final static int BYTES_PER_PIXEL = 4;
+    private final static int COMPRESSION_LEVEL = 4;             //Same as the default of the ImageIO PNG writer
+    private final static int CHUNK_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream output;
+    private final int width;
+    private final int height;
+    private final Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunkBuffer = new byte[CHUNK_BUFFER_SIZE];
+    private byte[] currentRow;
+    private byte[] previousRow;
+    private byte[] filteredRow;
+    private int rowsWritten = 0;
+
+    /**
+     * Writes a non-interlaced 8-bit RGBA PNG image row by row, so the image never has to be held in memory. Each row is
+     * filtered with whichever of the None, Sub, and Up filters gives the smallest sum of absolute values, and the rows
+     * are compressed into IDAT chunks as they are written.
+     *
+     * @param OutputStream output receives the PNG file
+     * @param int width of the image
+     * @param int height of the image
+     * @throws IOException if output cannot be written to
+     */
+    public PngBandWriter(OutputStream output, int width, int height) throws IOException {
+        this.output = output;
+        this.width = width;
+        this.height = height;
+
+        output.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = BIT_DEPTH;
+        header[9] = COLOUR_TYPE_RGBA;
+        writeChunk(PngBandReader.chunkType("IHDR"), header, header.length);
+    }
+
+    /**
+     * Writes the next rows of the image from sourceABGR, in the same byte order as the raster of a TYPE_4BYTE_ABGR
+     * BufferedImage.
+     *
+     * @param byte[] sourceABGR byte[] array of at least width * rows * 4 bytes
+     * @param int rows number of rows to be written
+     * @throws IOException if output cannot be written to, or more rows than the height are written
+     */
+    public void writeRows(byte[] sourceABGR, int rows) throws IOException {
+        if (rowsWritten + rows > height) { throw new IOException("Only " + (height - rowsWritten) + " rows are left to be written"); }
+
+        int rowBytes = width * BYTES_PER_PIXEL;
+        if (currentRow == null) {
+            currentRow = new byte[rowBytes];
+            previousRow = new byte[rowBytes];
+            filteredRow = new byte[rowBytes + 1];
+        }
+
+        for (int row = 0; row < rows; row++) {
+            //The raster of TYPE_4BYTE_ABGR stores a, b, g, r. PNG stores r, g, b, a
+            int offset = row * rowBytes;
+            for (int i = 0; i < rowBytes; i += BYTES_PER_PIXEL) {
+                currentRow[i] = sourceABGR[offset + i + 3];
+                currentRow[i + 1] = sourceABGR[offset + i + 2];
+                currentRow[i + 2] = sourceABGR[offset + i + 1];
+                currentRow[i + 3] = sourceABGR[offset + i];
+            }
+
+            filterRow(rowBytes);
+            deflater.setInput(filteredRow, 0, rowBytes + 1);
+            while (!deflater.needsInput()) {
+                writeCompressedData();
+            }
+
+            byte[] unusedRow = previousRow;
+            previousRow = currentRow;
+            currentRow = unusedRow;
+        }
+        rowsWritten += rows;
+    }
+
+    /**
+     * Flushes the remaining compressed data and writes the end of the image. Every row must have been written.
+     *
+     * @throws IOException if output cannot be written to, or rows are missing
+     */
+    public void finish() throws IOException {
+        if (rowsWritten != height) { throw new IOException((height - rowsWritten) + " rows have not been written"); }
+
+        deflater.finish();
+        while (!deflater.finished()) {
+            writeCompressedData();
+        }
+        writeChunk(PngBandReader.chunkType("IEND"), chunkBuffer, 0);
+        output.flush();
+    }
+
+    /**
+     * Releases the native memory of the deflater. Does not close output.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    /**
+     * Filters currentRow into filteredRow. Byte 0 of filteredRow holds the filter type.
+     *
+     * @param int rowBytes number of bytes of a row
+     */
+    private void filterRow(int rowBytes) {
+        long noneSum = 0;
+        long subSum = 0;
+        long upSum = 0;
+        for (int i = 0; i < rowBytes; i++) {
+            byte left = i >= BYTES_PER_PIXEL ? currentRow[i - BYTES_PER_PIXEL] : 0;
+            noneSum += Math.abs(currentRow[i]);
+            subSum += Math.abs((byte)(currentRow[i] - left));
+            upSum += Math.abs((byte)(currentRow[i] - previousRow[i]));
+        }
+
+        if (noneSum <= subSum && noneSum <= upSum) {
+            filteredRow[0] = 0;
+            System.arraycopy(currentRow, 0, filteredRow, 1, rowBytes);
+        }
+        else if (subSum <= upSum) {
+            filteredRow[0] = 1;
+            for (int i = 0; i < rowBytes; i++) {
+                filteredRow[i + 1] = (byte)(currentRow[i] - (i >= BYTES_PER_PIXEL ? currentRow[i - BYTES_PER_PIXEL] : 0));
+            }
+        }
+        else {
+            filteredRow[0] = 2;
+            for (int i = 0; i < rowBytes; i++) {
+                filteredRow[i + 1] = (byte)(currentRow[i] - previousRow[i]);
+            }
+        }
+    }
+
+    /**
+     * Writes the compressed data the deflater has ready as an IDAT chunk.
+     *
+     * @throws IOException if output cannot be written to
+     */
+    private void writeCompressedData() throws IOException {
+        int length = deflater.deflate(chunkBuffer);
+        if (length > 0) { writeChunk(PngBandReader.chunkType("IDAT"), chunkBuffer, length); }
+    }
+
+    /**
+     * Writes a chunk with its length, type, data, and CRC.
+     *
+     * @param int type of the chunk from PngBandReader.chunkType
+     * @param byte[] data of the chunk
+     * @param int length number of bytes of data
+     * @throws IOException if output cannot be written to
+     */
+    private void writeChunk(int type, byte[] data, int length) throws IOException {
+        byte[] prefix = new byte[8];
+        writeInt(prefix, 0, length);
+        writeInt(prefix, 4, type);
+
+        crc.reset();
+        crc.update(prefix, 4, 4);
+        crc.update(data, 0, length);
+        byte[] suffix = new byte[4];
+        writeInt(suffix, 0, (int) crc.getValue());
+
+        output.write(prefix);
+        output.write(data, 0, length);
+        output.write(suffix);
+    }
+
+    /**
+     * Writes a big-endian int into a byte[] array.
+     *
+     * @param byte[] bytes to be written to
+     * @param int offset of the first byte
+     * @param int value to be written
+     */
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte)(value >>> 24);
+        bytes[offset + 1] = (byte)(value >>> 16);
+        bytes[offset + 2] = (byte)(value >>> 8);
+        bytes[offset + 3] = (byte)value;
+    }
+}
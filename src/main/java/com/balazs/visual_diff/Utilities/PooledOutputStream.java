@@ -0,0 +1,82 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public final class PooledOutputStream extends OutputStream {
+
+    private final static int INITIAL_CAPACITY = 64 * 1024;
+
+    private final BufferPool bufferPool;
+    private byte[] buffer;
+    private int count = 0;
+
+    /**
+     * Collects written bytes like a ByteArrayOutputStream, but borrows its buffer from a BufferPool. When the buffer is
+     * full, a larger one is borrowed and the full one is released, so growing to the size of an encoded image does not
+     * allocate a new array for every doubling. The buffer is returned to the pool when the stream is closed.
+     *
+     * Unlike ByteArrayOutputStream, the stream must only be used by one thread at a time.
+     *
+     * @param BufferPool bufferPool the buffers are borrowed from
+     */
+    public PooledOutputStream(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.buffer = bufferPool.borrow(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureCapacity(count + length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Gets the number of bytes written so far.
+     *
+     * @return int number of bytes
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Copies the written bytes into a new byte[] array that is not part of the pool.
+     *
+     * @return byte[] array of exactly size() bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Returns the buffer to the pool. The stream must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        bufferPool.release(buffer);
+        buffer = null;
+    }
+
+    /**
+     * Swaps the buffer for one of at least twice its length if minCapacity bytes do not fit.
+     *
+     * @param int minCapacity number of bytes the buffer has to hold
+     */
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= buffer.length) { return; }
+        if (minCapacity < 0) { throw new OutOfMemoryError("Output is too large for a byte[] array"); }
+
+        byte[] grownBuffer = bufferPool.borrow(Math.max(minCapacity, (int) Math.min(Integer.MAX_VALUE - 8, 2L * buffer.length)));
+        System.arraycopy(buffer, 0, grownBuffer, 0, count);
+        bufferPool.release(buffer);
+        buffer = grownBuffer;
+    }
+}
@@ -0,0 +1,182 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.Arrays;
+
+public final class PyramidCompareUtilities {
+
+    //Largest channel difference that can never give a delta over MAX_DELTA. Each colour delta of calculateDelta is at
+    //most (128 + 128 + GRAY) / 255 times the largest channel difference, and the weighted YIQ delta of colour deltas of
+    //at most d is at most 0.5416 * d * d, so a channel difference of 21 gives a delta of at most 340
+    final static int MAX_HIDDEN_DIFFERENCE = 21;
+    private final static int DIFFERENCE_WINDOW = 16;            //Pixels looked at one by one after each mismatch before scanning for the next one
+
+    private PyramidCompareUtilities() { }
+
+    /**
+     * Finds the tiles of tileSize x tileSize pixels, with tileSize = 2^levels, that have to be compared at full
+     * resolution. Tiles are aligned to the top left corner of the image and ordered row by row.
+     *
+     * Without conservative, both images are downsampled levels times by averaging 2x2 pixels, and a tile is a candidate
+     * if its pixel in the coarsest level has a delta greater than 0. This is cheap, but a small change can average out,
+     * so a tile where only a few pixels changed can be missed.
+     *
+     * With conservative, a max pyramid of the largest channel difference between both images is built instead, and a
+     * tile is a candidate if its largest channel difference is greater than MAX_HIDDEN_DIFFERENCE. No pixel of the other
+     * tiles can have a delta greater than MAX_DELTA, so no changed pixel is ever missed.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @param int levels number of times the images are halved, at least 1
+     * @param boolean conservative true to guarantee no changed pixel is missed
+     * @return boolean[] true for each tile that has to be compared
+     */
+    public static boolean[] findCandidateTiles(byte[] baselineRGBA, byte[] compareRGBA, int width, int height, int levels, boolean conservative) {
+        int levelWidth = half(width);
+        int levelHeight = half(height);
+
+        if (conservative) {
+            byte[] differenceLevel = maxDifference(baselineRGBA, compareRGBA, width, height);
+            for (int level = 1; level < levels; level++) {
+                differenceLevel = downsampleMax(differenceLevel, levelWidth, levelHeight);
+                levelWidth = half(levelWidth);
+                levelHeight = half(levelHeight);
+            }
+
+            boolean[] candidateTiles = new boolean[levelWidth * levelHeight];
+            for (int tile = 0; tile < candidateTiles.length; tile++) {
+                candidateTiles[tile] = Byte.toUnsignedInt(differenceLevel[tile]) > MAX_HIDDEN_DIFFERENCE;
+            }
+            return candidateTiles;
+        }
+
+        byte[] baselineLevel = downsample(baselineRGBA, width, height);
+        byte[] compareLevel = downsample(compareRGBA, width, height);
+        for (int level = 1; level < levels; level++) {
+            baselineLevel = downsample(baselineLevel, levelWidth, levelHeight);
+            compareLevel = downsample(compareLevel, levelWidth, levelHeight);
+            levelWidth = half(levelWidth);
+            levelHeight = half(levelHeight);
+        }
+
+        boolean[] candidateTiles = new boolean[levelWidth * levelHeight];
+        for (int tile = 0; tile < candidateTiles.length; tile++) {
+            candidateTiles[tile] = Math.abs(CompareUtilities.calculateDelta(baselineLevel, compareLevel, tile * 4)) > 0;
+        }
+        return candidateTiles;
+    }
+
+    /**
+     * Halves an image by averaging each block of 2x2 pixels, channel by channel. An odd last row or column is averaged
+     * with itself.
+     *
+     * @param byte[] rgba byte[] array of the image in RGBA format
+     * @param int width of the image
+     * @param int height of the image
+     * @return byte[] image of (width + 1) / 2 x (height + 1) / 2 pixels in RGBA format
+     */
+    public static byte[] downsample(byte[] rgba, int width, int height) {
+        int levelWidth = half(width);
+        int levelHeight = half(height);
+        byte[] level = new byte[levelWidth * levelHeight * 4];
+
+        for (int y = 0; y < levelHeight; y++) {
+            int top = 2 * y * width * 4;
+            int bottom = Math.min(height - 1, 2 * y + 1) * width * 4;
+            int index = y * levelWidth * 4;
+            for (int x = 0; x < levelWidth; x++) {
+                int left = 8 * x;
+                int right = Math.min(width - 1, 2 * x + 1) * 4;
+                for (int channel = 0; channel < 4; channel++) {
+                    int sum = (rgba[top + left + channel] & 0xFF) + (rgba[top + right + channel] & 0xFF) + (rgba[bottom + left + channel] & 0xFF) + (rgba[bottom + right + channel] & 0xFF);
+                    level[index++] = (byte)((sum + 2) >> 2);
+                }
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Builds the first level of the difference pyramid. Each value is the largest channel difference of the 2x2 pixels
+     * it covers, see channelDifference. Runs of identical pixels have a difference of 0, so each row is scanned with 
+     * Arrays.mismatch and only the DIFFERENCE_WINDOW pixels after each mismatch are looked at one by one.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int width of the baseline and comparison images
+     * @param int height of the baseline and comparison images
+     * @return byte[] (width + 1) / 2 x (height + 1) / 2 unsigned differences
+     */
+    public static byte[] maxDifference(byte[] baselineRGBA, byte[] compareRGBA, int width, int height) {
+        int levelWidth = half(width);
+        byte[] level = new byte[levelWidth * half(height)];
+
+        for (int y = 0; y < height; y++) {
+            int levelRow = (y >> 1) * levelWidth;
+            int rowStart = y * width;
+            int rowEnd = rowStart + width;
+
+            int pixel = rowStart;
+            while (pixel < rowEnd) {
+                int mismatch = Arrays.mismatch(baselineRGBA, pixel * 4, rowEnd * 4, compareRGBA, pixel * 4, rowEnd * 4);
+                if (mismatch < 0) { break; }
+
+                int windowEnd = Math.min(rowEnd, pixel + mismatch / 4 + DIFFERENCE_WINDOW);
+                for (pixel += mismatch / 4; pixel < windowEnd; pixel++) {
+                    int index = pixel * 4;
+                    int difference = Math.max(Math.max(channelDifference(baselineRGBA[index], compareRGBA[index]), channelDifference(baselineRGBA[index + 1], compareRGBA[index + 1])),
+                        Math.max(channelDifference(baselineRGBA[index + 2], compareRGBA[index + 2]), channelDifference(baselineRGBA[index + 3], compareRGBA[index + 3])));
+
+                    int levelIndex = levelRow + ((pixel - rowStart) >> 1);
+                    if (difference > Byte.toUnsignedInt(level[levelIndex])) { level[levelIndex] = (byte)difference; }
+                }
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Halves a level of the difference pyramid by keeping the largest value of each block of 2x2 values.
+     *
+     * @param byte[] level unsigned differences of the previous level
+     * @param int width of the previous level
+     * @param int height of the previous level
+     * @return byte[] (width + 1) / 2 x (height + 1) / 2 unsigned differences
+     */
+    public static byte[] downsampleMax(byte[] level, int width, int height) {
+        int nextWidth = half(width);
+        byte[] next = new byte[nextWidth * half(height)];
+
+        for (int y = 0; y < height; y++) {
+            int nextRow = (y >> 1) * nextWidth;
+            for (int x = 0; x < width; x++) {
+                int nextIndex = nextRow + (x >> 1);
+                if (Byte.toUnsignedInt(level[y * width + x]) > Byte.toUnsignedInt(next[nextIndex])) { next[nextIndex] = level[y * width + x]; }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Calculates the difference of a channel as the larger of its signed and unsigned differences, since the compare
+     * kernels use both.
+     *
+     * @param byte baselineChannel channel of the baseline pixel
+     * @param byte compareChannel channel of the comparison pixel
+     * @return int difference between 0 and 255
+     */
+    private static int channelDifference(byte baselineChannel, byte compareChannel) {
+        return Math.max(Math.abs(baselineChannel - compareChannel), Math.abs(Byte.toUnsignedInt(baselineChannel) - Byte.toUnsignedInt(compareChannel)));
+    }
+
+    /**
+     * Gets the size of the next level of the pyramid.
+     *
+     * @param int size width or height of the current level
+     * @return int size rounded up to a whole pixel
+     */
+    private static int half(int size) {
+        return (size + 1) >> 1;
+    }
+}
@@ -0,0 +1,372 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+public final class RasterNormalizer {
+
+    private final static byte OPAQUE = (byte)255;
+    private final static int[] ABGR_BAND_OFFSETS = {3, 2, 1, 0};    //r, g, b, a are stored at these offsets of each pixel
+    private final static ColorModel ABGR_COLOR_MODEL = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), true, false, Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+
+    private RasterNormalizer() { }
+
+    /**
+     * Converts an image into the layout the compare kernels expect: a TYPE_4BYTE_ABGR image whose raster is a single
+     * byte[] array of {a, b, g, r} per pixel. Images that already have this layout are returned as they are, without
+     * copying.
+     *
+     * The common types decoded by ImageIO are converted by reading their data buffer directly: TYPE_INT_ARGB,
+     * TYPE_INT_RGB, TYPE_INT_BGR, TYPE_3BYTE_BGR, TYPE_BYTE_GRAY, TYPE_USHORT_GRAY, indexed images, and 8-bit or 16-bit
+     * grayscale, gray + alpha, RGB, and RGBA PNGs. 16-bit samples keep their high byte. Everything else, such as
+     * premultiplied images or images with an embedded colour profile, goes through getRGB.
+     *
+     * Gray samples are copied into r, g, and b as they are stored in the file. getRGB treats gray images as linear and
+     * brightens them, so grayscale images are not compared the same way as with getRGB.
+     *
+     * @param BufferedImage image decoded by ImageIO
+     * @return BufferedImage of TYPE_4BYTE_ABGR with the same pixels
+     */
+    public static BufferedImage normalize(BufferedImage image) {
+        if (isNormalized(image)) { return image; }
+        return normalize(image, new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_4BYTE_ABGR));
+    }
+
+    /**
+     * Converts an image into the layout the compare kernels expect like normalize, with the converted pixels written
+     * into an array borrowed from bufferPool. Release it with release once the image is no longer used.
+     *
+     * @param BufferedImage image decoded by ImageIO
+     * @param BufferPool bufferPool the array of the converted image is borrowed from
+     * @return BufferedImage of TYPE_4BYTE_ABGR with the same pixels, image itself if it already has the layout
+     */
+    public static BufferedImage normalize(BufferedImage image, BufferPool bufferPool) {
+        if (isNormalized(image)) { return image; }
+        return normalize(image, wrap(bufferPool.borrow(image.getWidth() * image.getHeight() * 4), image.getWidth(), image.getHeight()));
+    }
+
+    /**
+     * Returns the array of an image converted by normalize(image, bufferPool) to the pool. Does nothing if normalize
+     * returned the decoded image itself.
+     *
+     * @param BufferedImage image passed to normalize
+     * @param BufferedImage normalized image returned by normalize
+     * @param BufferPool bufferPool passed to normalize
+     */
+    public static void release(BufferedImage image, BufferedImage normalized, BufferPool bufferPool) {
+        if (normalized != image) { bufferPool.release(((DataBufferByte) normalized.getRaster().getDataBuffer()).getData()); }
+    }
+
+    /**
+     * Converts an image that is not normalized into an empty normalized image of the same dimensions.
+     *
+     * @param BufferedImage image decoded by ImageIO
+     * @param BufferedImage normalized TYPE_4BYTE_ABGR image with a plain data buffer. Every pixel is overwritten
+     * @return BufferedImage normalized
+     */
+    private static BufferedImage normalize(BufferedImage image, BufferedImage normalized) {
+        byte[] abgr = ((DataBufferByte) normalized.getRaster().getDataBuffer()).getData();
+
+        if (hasPlainDataBuffer(image) && convertDataBuffer(image, abgr)) { return normalized; }
+
+        ColorModel colorModel = image.getColorModel();
+        if (colorModel instanceof IndexColorModel indexColorModel) {
+            convertIndexed(image.getRaster(), indexColorModel, abgr);
+        }
+        else if (colorModel instanceof ComponentColorModel && hasPlainComponents(image)) {
+            convertComponents(image.getRaster(), abgr);
+        }
+        else {
+            convertWithGetRGB(image, abgr);
+        }
+        return normalized;
+    }
+
+    /**
+     * Creates a TYPE_4BYTE_ABGR image backed by an existing byte[] array instead of allocating a new one, so the
+     * compare kernels can write the diff image in place.
+     *
+     * @param byte[] abgr byte[] array of at least width * height * 4 bytes in the layout of normalize
+     * @param int width of the image
+     * @param int height of the image
+     * @return BufferedImage of TYPE_4BYTE_ABGR whose raster writes through to abgr
+     */
+    public static BufferedImage wrap(byte[] abgr, int width, int height) {
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(abgr, width * height * 4), width, height, width * 4, 4, ABGR_BAND_OFFSETS, null);
+        return new BufferedImage(ABGR_COLOR_MODEL, raster, false, null);
+    }
+
+    /**
+     * Converts the image types whose data buffer can be read directly.
+     *
+     * @param BufferedImage image with a plain data buffer, see hasPlainDataBuffer
+     * @param byte[] abgr receives the pixels
+     * @return boolean true if the image was converted, false if its type has no direct converter
+     */
+    private static boolean convertDataBuffer(BufferedImage image, byte[] abgr) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+                convertIntARGB(((DataBufferInt) dataBuffer).getData(), abgr, true);
+                return true;
+            case BufferedImage.TYPE_INT_RGB:
+                convertIntARGB(((DataBufferInt) dataBuffer).getData(), abgr, false);
+                return true;
+            case BufferedImage.TYPE_INT_BGR:
+                convertIntBGR(((DataBufferInt) dataBuffer).getData(), abgr);
+                return true;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                convert3ByteBGR(((DataBufferByte) dataBuffer).getData(), abgr);
+                return true;
+            case BufferedImage.TYPE_BYTE_GRAY:
+                convertByteGray(((DataBufferByte) dataBuffer).getData(), abgr);
+                return true;
+            case BufferedImage.TYPE_USHORT_GRAY:
+                convertUShortGray(((DataBufferUShort) dataBuffer).getData(), abgr);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Converts an image with getRGB one row at a time. This is the slow generic path that works for every image type,
+     * and what normalize falls back to.
+     *
+     * @param BufferedImage image to be converted
+     * @param byte[] abgr byte[] array of width * height * 4 bytes receiving the pixels
+     */
+    public static void convertWithGetRGB(BufferedImage image, byte[] abgr) {
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            writeARGB(row, abgr, y * width, width);
+        }
+    }
+
+    /**
+     * Checks if an image already has the layout of normalize. Sub-images share the data buffer of their parent, so
+     * they are never normalized.
+     *
+     * @param BufferedImage image to be checked
+     * @return boolean true if the raster data can be handed to the kernels as it is
+     */
+    public static boolean isNormalized(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_4BYTE_ABGR && hasPlainDataBuffer(image);
+    }
+
+    /**
+     * Checks if the data buffer of an image holds exactly the pixels of the image from its first element, one row after
+     * another, so it can be read without the raster.
+     *
+     * @param BufferedImage image to be checked
+     * @return boolean true if the data buffer holds only the pixels of the image
+     */
+    private static boolean hasPlainDataBuffer(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        int elementsPerPixel = image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_BGR ? 1 : raster.getNumDataElements();
+        return raster.getParent() == null && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+            && dataBuffer.getNumBanks() == 1 && dataBuffer.getOffset() == 0
+            && dataBuffer.getSize() == (long) image.getWidth() * image.getHeight() * elementsPerPixel;
+    }
+
+    /**
+     * Checks if the samples of an image with a ComponentColorModel can be copied without a colour conversion: 8 or 16
+     * bits per sample, not premultiplied, and in the sRGB or a gray colour space.
+     *
+     * @param BufferedImage image with a ComponentColorModel
+     * @return boolean true if convertComponents can convert the image
+     */
+    private static boolean hasPlainComponents(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        ColorSpace colorSpace = colorModel.getColorSpace();
+        int transferType = colorModel.getTransferType();
+        int[] sampleSizes = image.getSampleModel().getSampleSize();
+        boolean equalSampleSizes = sampleSizes.length > 0 && sampleSizes.length <= 4;
+        for (int sampleSize : sampleSizes) {
+            equalSampleSizes = equalSampleSizes && sampleSize == sampleSizes[0];
+        }
+
+        return !colorModel.isAlphaPremultiplied() && equalSampleSizes
+            && (transferType == DataBuffer.TYPE_BYTE && sampleSizes[0] == 8 || transferType == DataBuffer.TYPE_USHORT && sampleSizes[0] == 16)
+            && (colorSpace.isCS_sRGB() || colorSpace.getType() == ColorSpace.TYPE_GRAY);
+    }
+
+    /**
+     * Converts packed 0xAARRGGBB pixels.
+     *
+     * @param int[] argb pixels of TYPE_INT_ARGB or TYPE_INT_RGB
+     * @param byte[] abgr receives the pixels
+     * @param boolean hasAlpha false to make every pixel opaque
+     */
+    private static void convertIntARGB(int[] argb, byte[] abgr, boolean hasAlpha) {
+        if (hasAlpha) {
+            writeARGB(argb, abgr, 0, argb.length);
+            return;
+        }
+
+        for (int pixel = 0, index = 0; pixel < argb.length; pixel++, index += 4) {
+            int value = argb[pixel];
+            abgr[index] = OPAQUE;
+            abgr[index + 1] = (byte)value;
+            abgr[index + 2] = (byte)(value >> 8);
+            abgr[index + 3] = (byte)(value >> 16);
+        }
+    }
+
+    /**
+     * Converts packed 0x00BBGGRR pixels.
+     *
+     * @param int[] bgr pixels of TYPE_INT_BGR
+     * @param byte[] abgr receives the pixels
+     */
+    private static void convertIntBGR(int[] bgr, byte[] abgr) {
+        for (int pixel = 0, index = 0; pixel < bgr.length; pixel++, index += 4) {
+            int value = bgr[pixel];
+            abgr[index] = OPAQUE;
+            abgr[index + 1] = (byte)(value >> 16);
+            abgr[index + 2] = (byte)(value >> 8);
+            abgr[index + 3] = (byte)value;
+        }
+    }
+
+    /**
+     * Converts {b, g, r} pixels.
+     *
+     * @param byte[] bgr pixels of TYPE_3BYTE_BGR
+     * @param byte[] abgr receives the pixels
+     */
+    private static void convert3ByteBGR(byte[] bgr, byte[] abgr) {
+        for (int source = 0, index = 0; source < bgr.length; source += 3, index += 4) {
+            abgr[index] = OPAQUE;
+            abgr[index + 1] = bgr[source];
+            abgr[index + 2] = bgr[source + 1];
+            abgr[index + 3] = bgr[source + 2];
+        }
+    }
+
+    /**
+     * Converts 8-bit gray pixels.
+     *
+     * @param byte[] gray pixels of TYPE_BYTE_GRAY
+     * @param byte[] abgr receives the pixels
+     */
+    private static void convertByteGray(byte[] gray, byte[] abgr) {
+        for (int pixel = 0, index = 0; pixel < gray.length; pixel++, index += 4) {
+            byte value = gray[pixel];
+            abgr[index] = OPAQUE;
+            abgr[index + 1] = value;
+            abgr[index + 2] = value;
+            abgr[index + 3] = value;
+        }
+    }
+
+    /**
+     * Converts 16-bit gray pixels, keeping the high byte.
+     *
+     * @param short[] gray pixels of TYPE_USHORT_GRAY
+     * @param byte[] abgr receives the pixels
+     */
+    private static void convertUShortGray(short[] gray, byte[] abgr) {
+        for (int pixel = 0, index = 0; pixel < gray.length; pixel++, index += 4) {
+            byte value = (byte)(gray[pixel] >> 8);
+            abgr[index] = OPAQUE;
+            abgr[index + 1] = value;
+            abgr[index + 2] = value;
+            abgr[index + 3] = value;
+        }
+    }
+
+    /**
+     * Converts indexed pixels of any bit depth through a lookup table of the palette.
+     *
+     * @param WritableRaster raster of the image
+     * @param IndexColorModel colorModel palette of the image
+     * @param byte[] abgr receives the pixels
+     */
+    private static void convertIndexed(WritableRaster raster, IndexColorModel colorModel, byte[] abgr) {
+        //One entry per possible sample, so samples past the end of a short palette look the same as with getRGB
+        int[] palette = new int[1 << raster.getSampleModel().getSampleSize(0)];
+        for (int sample = 0; sample < palette.length; sample++) {
+            palette[sample] = colorModel.getRGB(sample);
+        }
+
+        int width = raster.getWidth();
+        int[] samples = new int[width];
+        int[] row = new int[width];
+        for (int y = 0; y < raster.getHeight(); y++) {
+            raster.getSamples(0, y, width, 1, 0, samples);
+            for (int x = 0; x < width; x++) {
+                row[x] = palette[samples[x]];
+            }
+            writeARGB(row, abgr, y * width, width);
+        }
+    }
+
+    /**
+     * Converts the samples of a gray, gray + alpha, RGB, or RGBA image with 8 or 16 bits per sample, such as the
+     * TYPE_CUSTOM images ImageIO decodes 16-bit and gray + alpha PNGs into.
+     *
+     * @param WritableRaster raster of the image
+     * @param byte[] abgr receives the pixels
+     */
+    private static void convertComponents(WritableRaster raster, byte[] abgr) {
+        int width = raster.getWidth();
+        int bands = raster.getNumBands();
+        int shift = raster.getSampleModel().getSampleSize(0) - 8;
+        int[] samples = new int[width * bands];
+
+        for (int y = 0; y < raster.getHeight(); y++) {
+            raster.getPixels(0, y, width, 1, samples);
+            int index = y * width * 4;
+            for (int sample = 0; sample < samples.length; sample += bands, index += 4) {
+                int first = samples[sample] >> shift;
+                switch (bands) {
+                    case 1:
+                        abgr[index] = OPAQUE;
+                        abgr[index + 1] = abgr[index + 2] = abgr[index + 3] = (byte)first;
+                        break;
+                    case 2:
+                        abgr[index] = (byte)(samples[sample + 1] >> shift);
+                        abgr[index + 1] = abgr[index + 2] = abgr[index + 3] = (byte)first;
+                        break;
+                    default:
+                        abgr[index] = bands == 4 ? (byte)(samples[sample + 3] >> shift) : OPAQUE;
+                        abgr[index + 1] = (byte)(samples[sample + 2] >> shift);
+                        abgr[index + 2] = (byte)(samples[sample + 1] >> shift);
+                        abgr[index + 3] = (byte)first;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes packed 0xAARRGGBB pixels as {a, b, g, r}.
+     *
+     * @param int[] argb packed pixels, starting at index 0
+     * @param byte[] abgr receives the pixels
+     * @param int pixel first pixel of abgr to be written
+     * @param int count number of pixels to be written
+     */
+    private static void writeARGB(int[] argb, byte[] abgr, int pixel, int count) {
+        for (int i = 0, index = pixel * 4; i < count; i++, index += 4) {
+            int value = argb[i];
+            abgr[index] = (byte)(value >>> 24);
+            abgr[index + 1] = (byte)value;
+            abgr[index + 2] = (byte)(value >> 8);
+            abgr[index + 3] = (byte)(value >> 16);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public final class RegionFinder {
+
+    private final static int INITIAL_RUNS = 1024;
+    private final static int INITIAL_ROWS = 1024;
+
+    private final static Comparator<DiffRegion> BY_PIXEL_COUNT = Comparator.comparingInt(DiffRegion::getPixelCount);
+
+    private final int width;
+    private final int distance;
+
+    //Runs are stored in row order. rowFirstRun[y] is the first run of row y, rowFirstRun[y + 1] is one past its last
+    private int[] runStart = new int[INITIAL_RUNS];
+    private int[] runEnd = new int[INITIAL_RUNS];
+    private int[] runRow = new int[INITIAL_RUNS];
+    private int[] parent = new int[INITIAL_RUNS];
+    private int[] rowFirstRun = new int[INITIAL_ROWS];
+    private int runs = 0;
+    private int rows = 0;
+
+    /**
+     * Finds the connected regions of DIFF_COLOUR pixels in a diff image that is handed over a band of rows at a time,
+     * so the diff image never has to be held in memory. Only the runs of diff pixels are kept between bands.
+     *
+     * The mask is labelled one row at a time as runs of consecutive diff pixels, so the union-find works on runs instead
+     * of pixels and only needs a few int[] arrays the size of the number of runs. Each run is unioned with the runs of
+     * the previous rows it touches, then every run adds its pixels to the bounding box of its root in a single pass.
+     *
+     * With a dilationRadius of r, the mask is treated as if every diff pixel was grown by r pixels in each direction
+     * before labelling, so pixels at most 2r + 1 pixels apart horizontally and vertically end up in the same region. The
+     * bounding boxes and pixel counts are of the original diff pixels, not of the grown ones.
+     *
+     * @param int width of the output image
+     * @param int dilationRadius number of pixels to grow each diff pixel by. 0 joins 8-connected pixels only
+     */
+    public RegionFinder(int width, int dilationRadius) {
+        this.width = width;
+        this.distance = 2 * Math.max(0, dilationRadius) + 1;
+    }
+
+    /**
+     * Labels the next rows of the output image.
+     *
+     * @param byte[] outputRGBA byte[] array of at least width * bandRows * 4 bytes, holding the next rows in RGBA format
+     * @param int bandRows number of rows to be labelled
+     */
+    public void addRows(byte[] outputRGBA, int bandRows) {
+        for (int row = 0; row < bandRows; row++) {
+            int y = startRow();
+            int rowIndex = row * width;
+
+            //Find the runs of diff pixels in this row, and union runs within distance of each other on the same row
+            int x = 0;
+            while (x < width) {
+                if (!RegionUtilities.isDiffPixel(outputRGBA, (rowIndex + x) * 4)) { x++; continue; }
+
+                int start = x;
+                while (x < width && RegionUtilities.isDiffPixel(outputRGBA, (rowIndex + x) * 4)) { x++; }
+
+                if (runs == runStart.length) {
+                    int capacity = runs * 2;
+                    runStart = Arrays.copyOf(runStart, capacity);
+                    runEnd = Arrays.copyOf(runEnd, capacity);
+                    runRow = Arrays.copyOf(runRow, capacity);
+                    parent = Arrays.copyOf(parent, capacity);
+                }
+                runStart[runs] = start;
+                runEnd[runs] = x - 1;
+                runRow[runs] = y;
+                parent[runs] = runs;
+                if (runs > rowFirstRun[y] && start - runEnd[runs - 1] <= distance) { union(runs - 1, runs); }
+                runs++;
+            }
+
+            //Union with the runs of the previous rows within distance
+            for (int previousRow = Math.max(0, y - distance); previousRow < y; previousRow++) {
+                unionRows(rowFirstRun[previousRow], rowFirstRun[previousRow + 1], rowFirstRun[y], runs);
+            }
+            rows++;
+        }
+    }
+
+    /**
+     * Skips the next rows of the output image, such as a band without any diff pixels, without looking at them.
+     *
+     * @param int bandRows number of rows without diff pixels
+     */
+    public void skipRows(int bandRows) {
+        for (int row = 0; row < bandRows; row++) {
+            startRow();
+            rows++;
+        }
+    }
+
+    /**
+     * Gets the regions of the rows labelled so far.
+     *
+     * @param int maxRegions maximum number of regions returned
+     * @return List<DiffRegion> up to maxRegions regions, largest pixelCount first
+     */
+    public List<DiffRegion> getRegions(int maxRegions) {
+        //Add each run to its root. Roots are always the lowest run of their region, so the root's row is the top edge,
+        //and every root is reached before the other runs of its region
+        int[] minX = new int[runs];
+        int[] maxX = new int[runs];
+        int[] maxY = new int[runs];
+        int[] pixelCount = new int[runs];
+        for (int run = 0; run < runs; run++) {
+            int root = find(run);
+            if (root == run) {
+                minX[root] = runStart[run];
+                maxX[root] = runEnd[run];
+            }
+            else {
+                minX[root] = Math.min(minX[root], runStart[run]);
+                maxX[root] = Math.max(maxX[root], runEnd[run]);
+            }
+            maxY[root] = runRow[run];
+            pixelCount[root] += runEnd[run] - runStart[run] + 1;
+        }
+
+        //Keep the largest maxRegions regions. Regions are only created once they make it into the queue
+        PriorityQueue<DiffRegion> largest = new PriorityQueue<>(BY_PIXEL_COUNT);
+        for (int run = 0; run < runs && maxRegions > 0; run++) {
+            if (parent[run] != run) { continue; }
+            if (largest.size() == maxRegions) {
+                if (pixelCount[run] <= largest.peek().getPixelCount()) { continue; }
+                largest.poll();
+            }
+            largest.add(new DiffRegion(minX[run], runRow[run], maxX[run], maxY[run], pixelCount[run]));
+        }
+
+        List<DiffRegion> regions = new ArrayList<>(largest);
+        regions.sort(BY_PIXEL_COUNT.reversed());
+        return regions;
+    }
+
+    /**
+     * Starts the next row, growing rowFirstRun if needed.
+     *
+     * @return int y of the row
+     */
+    private int startRow() {
+        if (rows == rowFirstRun.length) { rowFirstRun = Arrays.copyOf(rowFirstRun, rows * 2); }
+        rowFirstRun[rows] = runs;
+        return rows;
+    }
+
+    /**
+     * Unions every run of the current row with the runs of a previous row it touches. Both rows are sorted by x, so
+     * a single sweep over both finds every pair whose runs are at most distance pixels apart.
+     *
+     * @param int previousFirst first run of the previous row (inclusive)
+     * @param int previousEnd last run of the previous row (exclusive)
+     * @param int currentFirst first run of the current row (inclusive)
+     * @param int currentEnd last run of the current row (exclusive)
+     */
+    private void unionRows(int previousFirst, int previousEnd, int currentFirst, int currentEnd) {
+        int previous = previousFirst;
+        int current = currentFirst;
+        while (previous < previousEnd && current < currentEnd) {
+            if (runEnd[previous] + distance < runStart[current]) { previous++; continue; }
+            if (runEnd[current] + distance < runStart[previous]) { current++; continue; }
+
+            union(previous, current);
+            if (runEnd[previous] < runEnd[current]) { previous++; }
+            else { current++; }
+        }
+    }
+
+    /**
+     * Finds the root of a run, halving the path on the way up.
+     *
+     * @param int run to find the root of
+     * @return int root of the run
+     */
+    private int find(int run) {
+        while (parent[run] != run) {
+            parent[run] = parent[parent[run]];
+            run = parent[run];
+        }
+        return run;
+    }
+
+    /**
+     * Joins the regions of two runs. The lower root is kept, so a root is always the first run of its region.
+     *
+     * @param int first run
+     * @param int second run
+     */
+    private void union(int first, int second) {
+        int firstRoot = find(first);
+        int secondRoot = find(second);
+        if (firstRoot < secondRoot) { parent[secondRoot] = firstRoot; }
+        else if (secondRoot < firstRoot) { parent[firstRoot] = secondRoot; }
+    }
+}
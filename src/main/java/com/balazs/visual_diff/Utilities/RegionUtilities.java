@@ -0,0 +1,41 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.util.List;
+
+public final class RegionUtilities {
+
+    private RegionUtilities() { }
+
+    /**
+     * Finds the connected regions of DIFF_COLOUR pixels in a diff image produced by CompareUtilities.comparePixels.
+     *
+     * The whole image is handed to a RegionFinder in one go, see RegionFinder for how the regions are labelled.
+     *
+     * With a dilationRadius of r, the mask is treated as if every diff pixel was grown by r pixels in each direction
+     * before labelling, so pixels at most 2r + 1 pixels apart horizontally and vertically end up in the same region. The
+     * bounding boxes and pixel counts are of the original diff pixels, not of the grown ones.
+     *
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int width of the output image
+     * @param int height of the output image
+     * @param int dilationRadius number of pixels to grow each diff pixel by. 0 joins 8-connected pixels only
+     * @param int maxRegions maximum number of regions returned
+     * @return List<DiffRegion> up to maxRegions regions, largest pixelCount first
+     */
+    public static List<DiffRegion> findRegions(byte[] outputRGBA, int width, int height, int dilationRadius, int maxRegions) {
+        RegionFinder regionFinder = new RegionFinder(width, dilationRadius);
+        regionFinder.addRows(outputRGBA, height);
+        return regionFinder.getRegions(maxRegions);
+    }
+
+    /**
+     * Checks if a pixel of the output image is DIFF_COLOUR. Gray pixels always have r = g = b, so they never match.
+     *
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int index of the pixel to be checked
+     * @return boolean true if the pixel is DIFF_COLOUR (Red)
+     */
+    public static boolean isDiffPixel(byte[] outputRGBA, int index) {
+        return outputRGBA[index] == (byte)255 && outputRGBA[index + 1] == 0 && outputRGBA[index + 2] == 0;
+    }
+}
@@ -0,0 +1,51 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.awt.image.BufferedImage;
+
+public final class ValidatedImage {
+
+    private final BufferedImage image;
+    private final String format;
+    private final int width;
+    private final int height;
+
+    /**
+     * Holds an uploaded image that was decoded once during validation, so the same BufferedImage can be checked for
+     * its dimensions and handed to the compare without decoding the file again.
+     *
+     * @param BufferedImage image decoded from the uploaded file
+     * @param String format either FORMAT_PNG or FORMAT_JPEG
+     */
+    public ValidatedImage(BufferedImage image, String format) {
+        this.image = image;
+        this.format = format;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Checks if another image has the same dimensions as this image.
+     *
+     * @param ValidatedImage other image to be checked
+     * @return boolean true if both images have the same width and height
+     */
+    public boolean hasSameDimensions(ValidatedImage other) {
+        return other != null && width == other.width && height == other.height;
+    }
+}
@@ -3,8 +3,13 @@ package com.balazs.visual_diff.Utilities;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 import org.springframework.http.MediaType;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,11 +19,15 @@ public final class ValidationUtilities {
     public final static String TYPE_BASELINE = "baseline";
     public final static String TYPE_COMPARISON = "comparison";
     public final static String TYPE_DIFF = "diff";
+    public final static String TYPE_MASK = "mask";
+
+    private final static byte[] PNG_SIGNATURE = {(byte)137, 80, 78, 71, 13, 10, 26, 10};
+    private final static byte[] JPEG_SIGNATURE = {(byte)0xFF, (byte)0xD8, (byte)0xFF};
 
     private ValidationUtilities() { }
 
     /**
-     * Checks if the incoming type is equalsIgnoreCase to the accepted types 'baseline' or 'comparison' or null
+     * Checks if the incoming type is equalsIgnoreCase to the accepted types 'baseline', 'comparison' or 'mask'
      *
      * @param String type from the controller request
      * @return boolean false if type is invalid, true if type is valid
@@ -26,11 +35,24 @@ public final class ValidationUtilities {
     public static boolean isTypeValid(String type) {
         if (type == null) { return false; }
         else if (type.isBlank()) { return false; }
-        else if (!type.equalsIgnoreCase(TYPE_BASELINE) && !type.equalsIgnoreCase(TYPE_COMPARISON)) { return false; }
+        else if (!type.equalsIgnoreCase(TYPE_BASELINE) && !type.equalsIgnoreCase(TYPE_COMPARISON) && !type.equalsIgnoreCase(TYPE_MASK)) { return false; }
 
         return true;
     }
 
+    /**
+     * Checks if the incoming type can be used to filter the listed files, which also includes 'diff'
+     *
+     * @param String type to be checked
+     * @return boolean false if type is not 'baseline', 'comparison', 'mask' or 'diff', true if it is
+     */
+    public static boolean isListTypeValid(String type) {
+        if (isTypeValid(type)) { return true; }
+        else if (type == null) { return false; }
+
+        return type.equalsIgnoreCase(TYPE_DIFF);
+    }
+
     /**
      * Checks if the incoming file is isEmpty or null
      *
@@ -72,12 +94,144 @@ public final class ValidationUtilities {
     public static boolean isImageContentsValid(MultipartFile file) throws IOException {
         if (file == null) { return false; }
 
+        try (InputStream inputStream = file.getInputStream()) {
+            return isImageContentsValid(inputStream);
+        }
+    }
+
+    /**
+     * Checks if an image file can be fully decoded, such as a saved file read back from blob storage by the deferred
+     * deep check. The stream is not closed.
+     *
+     * @param InputStream inputStream of the image file
+     * @return boolean false if the stream is null or cannot be converted to a BufferedImage, true if it can
+     * @throws IOException if the decoder fails on the file's data
+     */
+    public static boolean isImageContentsValid(InputStream inputStream) throws IOException {
+        if (inputStream == null) { return false; }
+
+        BufferedImage image = ImageIO.read(inputStream);
+        if (image == null) { return false; }
+        return true;
+    }
+
+    /**
+     * Checks if the incoming file is a readable image by reading only its magic bytes and header, without decoding
+     * its pixels, so the time it takes does not grow with the size of the image. A file whose header is valid can still
+     * have corrupt pixel data, which only a full decode such as isImageContentsValid finds.
+     *
+     * @param MultipartFile file from the controller request
+     * @return ImageHeader with the format detected from the magic bytes, the dimensions, and the bit depth of the image,
+     * or null if the file is not a PNG or JPEG image or its header cannot be read
+     * @throws IOException
+     */
+    public static ImageHeader readImageHeader(MultipartFile file) throws IOException {
+        if (file == null) { return null; }
+
+        try (InputStream inputStream = file.getInputStream(); ImageInputStream imageInputStream = new MemoryCacheImageInputStream(inputStream)) {
+            //Detect the format from the magic bytes instead of trusting the content type
+            byte[] magicBytes = new byte[PNG_SIGNATURE.length];
+            imageInputStream.mark();
+            int length = 0;
+            int read = 0;
+            while (read >= 0 && length < magicBytes.length) {
+                read = imageInputStream.read(magicBytes, length, magicBytes.length - length);
+                length += Math.max(0, read);
+            }
+            imageInputStream.reset();
+
+            String format = getFormatFromMagicBytes(magicBytes, length);
+            if (format == null) { return null; }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(format);
+            if (!readers.hasNext()) { return null; }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                ImageTypeSpecifier imageType = reader.getRawImageType(0);
+                if (imageType == null) {
+                    Iterator<ImageTypeSpecifier> imageTypes = reader.getImageTypes(0);
+                    imageType = imageTypes.hasNext() ? imageTypes.next() : null;
+                }
+
+                if (width <= 0 || height <= 0 || imageType == null) { return null; }
+                return new ImageHeader(format, width, height, imageType.getSampleModel().getSampleSize(0));
+            }
+            catch (IOException e) {
+                return null;
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Gets the format of an image file from its first bytes.
+     *
+     * @param byte[] magicBytes first bytes of the file
+     * @param int length number of bytes read into magicBytes
+     * @return String either FORMAT_PNG or FORMAT_JPEG, or null if the bytes match neither
+     */
+    private static String getFormatFromMagicBytes(byte[] magicBytes, int length) {
+        if (startsWith(magicBytes, length, PNG_SIGNATURE)) { return FileUtilities.FORMAT_PNG; }
+        if (startsWith(magicBytes, length, JPEG_SIGNATURE)) { return FileUtilities.FORMAT_JPEG; }
+
+        return null;
+    }
+
+    /**
+     * Checks if the first length bytes start with a signature.
+     *
+     * @param byte[] bytes to be checked
+     * @param int length number of valid bytes in bytes
+     * @param byte[] signature expected at the start of bytes
+     * @return boolean true if bytes start with signature
+     */
+    private static boolean startsWith(byte[] bytes, int length, byte[] signature) {
+        if (length < signature.length) { return false; }
+
+        for (int i = 0; i < signature.length; i++) {
+            if (bytes[i] != signature[i]) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the incoming file once, so the decoded image can be validated and compared without reading the file
+     * again.
+     *
+     * @param MultipartFile file from the controller request, with a content type checked by isContentTypeValid
+     * @return ValidatedImage holding the decoded image and its format, or null if the file cannot be converted to a
+     * BufferedImage
+     * @throws IOException
+     */
+    public static ValidatedImage readValidatedImage(MultipartFile file) throws IOException {
+        if (file == null) { return null; }
+
         InputStream inputStream = file.getInputStream();
         BufferedImage image = ImageIO.read(inputStream);
         inputStream.close();
 
-        if (image == null) { return false; }
-        return true;
+        if (image == null) { return null; }
+        return new ValidatedImage(image, FileUtilities.getFileFormatFromMultipartFile(file));
+    }
+
+    /**
+     * Checks if two images decoded by readValidatedImage have the same dimensions.
+     *
+     * @param ValidatedImage baselineImage from readValidatedImage
+     * @param ValidatedImage comparisonImage from readValidatedImage
+     * @return boolean false if images are null or have different dimensions, true if they have the same dimensions
+     */
+    public static boolean areImageDimensionsValid(ValidatedImage baselineImage, ValidatedImage comparisonImage) {
+        if (baselineImage == null) { return false; }
+
+        return baselineImage.hasSameDimensions(comparisonImage);
     }
 
     /**
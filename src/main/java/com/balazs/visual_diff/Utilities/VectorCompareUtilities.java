@@ -0,0 +1,478 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public final class VectorCompareUtilities {
+
+    //One int lane holds one RGBA pixel. SPECIES_PREFERRED is 8 lanes on AVX2 and 16 lanes on AVX-512
+    private final static VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    private final static VectorSpecies<Float> FLOAT_SPECIES = VectorSpecies.of(float.class, INT_SPECIES.vectorShape());
+    private final static VectorSpecies<Byte> BYTE_SPECIES = VectorSpecies.of(byte.class, INT_SPECIES.vectorShape());
+
+    private final static float LUMINANCE_COEFFICIENT_1 = 0.29889531f;
+    private final static float LUMINANCE_COEFFICIENT_2 = 0.58662247f;
+    private final static float LUMINANCE_COEFFICIENT_3 = 0.11448223f;
+    private final static float CHROMINANCE_I_COEFFICIENT_1 = 0.59597799f;
+    private final static float CHROMINANCE_I_COEFFICIENT_2 = 0.27417610f;
+    private final static float CHROMINANCE_I_COEFFICIENT_3 = 0.32180189f;
+    private final static float CHROMINANCE_Q_COEFFICIENT_1 = 0.21147017f;
+    private final static float CHROMINANCE_Q_COEFFICIENT_2 = 0.52261711f;
+    private final static float CHROMINANCE_Q_COEFFICIENT_3 = 0.31114694f;
+    private final static float DELTA_WEIGHT_Y = 0.5053f;
+    private final static float DELTA_WEIGHT_I = 0.299f;
+    private final static float DELTA_WEIGHT_Q = 0.1957f;
+
+    //DIFF_COLOUR {255, 0, 0, 255} packed as a little-endian int {r, g, b, a}
+    private final static int DIFF_PIXEL = 0xFF0000FF;
+    private final static int OPAQUE_ALPHA = 0xFF000000;
+
+    //Scratch arrays of each compare thread, so a call does not allocate new ones
+    private final static ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private VectorCompareUtilities() { }
+
+    /**
+     * Gets the number of pixels compared per vector step on this machine.
+     *
+     * @return int number of int lanes in the preferred species
+     */
+    public static int getPixelsPerStep() {
+        return INT_SPECIES.length();
+    }
+
+    /**
+     * Vectorized kernel. Compares the pixels in [startPixel, endPixel) getPixelsPerStep() pixels at a time. Each RGBA pixel
+     * is loaded into a single int lane, the YIQ delta is computed with the same float operations in the same order as
+     * CompareUtilities.calculateDelta, and the red/gray output is written with a masked blend. Pixels left over at the end
+     * of the range go through the scalar kernel, so the output is byte-identical to CompareUtilities.scalarComparePixelRange.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, endPixel, null);
+    }
+
+    /**
+     * Vectorized kernel that also records the delta of every pixel into statistics.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void comparePixelRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        int vectorEndPixel = startPixel + INT_SPECIES.loopBound(endPixel - startPixel);
+
+        drawGrayRange(baselineRGBA, outputRGBA, startPixel, vectorEndPixel);
+        drawDiffRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, vectorEndPixel, statistics);
+
+        //Remaining pixels that do not fill a full vector
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, vectorEndPixel, endPixel, statistics);
+    }
+
+    /**
+     * Vectorized kernel for pixels held in segments, such as a band of an OffHeapRaster. The pixels are loaded straight
+     * from the segments, and the output is byte-identical to comparePixelRange on byte[] arrays.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    public static void comparePixelRange(MemorySegment baselineRGBA, MemorySegment compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        int vectorEndPixel = startPixel + INT_SPECIES.loopBound(endPixel - startPixel);
+
+        drawGrayRange(baselineRGBA, outputRGBA, startPixel, vectorEndPixel);
+        drawDiffRange(baselineRGBA, compareRGBA, outputRGBA, startPixel, vectorEndPixel, statistics);
+
+        //Remaining pixels that do not fill a full vector
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, vectorEndPixel, endPixel, statistics);
+    }
+
+    /**
+     * Vectorized CompareUtilities.countDiffPixels. Counts the pixels in [startPixel, endPixel) where the delta is greater
+     * than the threshold without drawing anything, and stops as soon as the count is greater than maxDiffPixels.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @return long number of differing pixels, at most maxDiffPixels + getPixelsPerStep()
+     */
+    public static long countDiffPixels(byte[] baselineRGBA, byte[] compareRGBA, int startPixel, int endPixel, long maxDiffPixels) {
+        int lanes = INT_SPECIES.length();
+        int vectorEndPixel = startPixel + INT_SPECIES.loopBound(endPixel - startPixel);
+        long diffPixels = 0;
+
+        //Hold the deltas of the current step between the step methods
+        Scratch scratch = SCRATCH.get();
+        float[] colourDeltas = scratch.colourDeltas;
+        int[] deltas = scratch.deltas;
+
+        for (int pixel = startPixel; pixel < vectorEndPixel; pixel += lanes) {
+            calculateColourDeltaStep(baselineRGBA, compareRGBA, colourDeltas, pixel * 4);
+            calculateDeltaStep(colourDeltas, deltas);
+            diffPixels += countDiffStep(deltas);
+            if (diffPixels > maxDiffPixels) { return diffPixels; }
+        }
+
+        //Remaining pixels that do not fill a full vector
+        return diffPixels + CompareUtilities.scalarCountDiffPixels(baselineRGBA, compareRGBA, vectorEndPixel, endPixel, maxDiffPixels - diffPixels);
+    }
+
+    /**
+     * Vectorized CompareUtilities.countDiffPixels for pixels held in segments.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param long maxDiffPixels number of differing pixels after which counting stops
+     * @return long number of differing pixels, at most maxDiffPixels + getPixelsPerStep()
+     */
+    public static long countDiffPixels(MemorySegment baselineRGBA, MemorySegment compareRGBA, int startPixel, int endPixel, long maxDiffPixels) {
+        int lanes = INT_SPECIES.length();
+        int vectorEndPixel = startPixel + INT_SPECIES.loopBound(endPixel - startPixel);
+        long diffPixels = 0;
+
+        //Hold the deltas of the current step between the step methods
+        Scratch scratch = SCRATCH.get();
+        float[] colourDeltas = scratch.colourDeltas;
+        int[] deltas = scratch.deltas;
+
+        for (int pixel = startPixel; pixel < vectorEndPixel; pixel += lanes) {
+            calculateColourDeltaStep(baselineRGBA, compareRGBA, colourDeltas, pixel * 4);
+            calculateDeltaStep(colourDeltas, deltas);
+            diffPixels += countDiffStep(deltas);
+            if (diffPixels > maxDiffPixels) { return diffPixels; }
+        }
+
+        //Remaining pixels that do not fill a full vector
+        return diffPixels + CompareUtilities.scalarCountDiffPixels(baselineRGBA, compareRGBA, vectorEndPixel, endPixel, maxDiffPixels - diffPixels);
+    }
+
+    /**
+     * Vectorized CompareUtilities.drawGrayRange. Draws every pixel in [startPixel, endPixel) gray without comparing it.
+     * Pixels left over at the end of the range are drawn by CompareUtilities.drawGrayPixel.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     */
+    public static void drawUnchangedRange(byte[] baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        int vectorEndPixel = startPixel + INT_SPECIES.loopBound(endPixel - startPixel);
+
+        drawGrayRange(baselineRGBA, outputRGBA, startPixel, vectorEndPixel);
+
+        //Remaining pixels that do not fill a full vector
+        for (int pixel = vectorEndPixel; pixel < endPixel; pixel++) {
+            CompareUtilities.drawGrayPixel(baselineRGBA, outputRGBA, pixel * 4);
+        }
+    }
+
+    /**
+     * Vectorized CompareUtilities.drawGrayRange for a baseline held in a segment.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     */
+    public static void drawUnchangedRange(MemorySegment baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        int vectorEndPixel = startPixel + INT_SPECIES.loopBound(endPixel - startPixel);
+
+        drawGrayRange(baselineRGBA, outputRGBA, startPixel, vectorEndPixel);
+
+        //Remaining pixels that do not fill a full vector
+        for (int pixel = vectorEndPixel; pixel < endPixel; pixel++) {
+            CompareUtilities.drawGrayPixel(baselineRGBA, outputRGBA, pixel * 4);
+        }
+    }
+
+    /**
+     * Draws the gray pixels of the range [startPixel, endPixel), which must be a multiple of getPixelsPerStep() long.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     */
+    private static void drawGrayRange(byte[] baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        for (int pixel = startPixel; pixel < endPixel; pixel += INT_SPECIES.length()) {
+            drawGrayStep(baselineRGBA, outputRGBA, pixel * 4);
+        }
+    }
+
+    /**
+     * Draws the gray pixels of the range [startPixel, endPixel) of a segment, which must be a multiple of
+     * getPixelsPerStep() long.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be drawn (inclusive)
+     * @param int endPixel last pixel to be drawn (exclusive)
+     */
+    private static void drawGrayRange(MemorySegment baselineRGBA, byte[] outputRGBA, int startPixel, int endPixel) {
+        for (int pixel = startPixel; pixel < endPixel; pixel += INT_SPECIES.length()) {
+            drawGrayStep(baselineRGBA, outputRGBA, pixel * 4);
+        }
+    }
+
+    /**
+     * Draws DIFF_COLOUR (Red) over the gray pixels of the range [startPixel, endPixel) where the delta is greater than 
+     * the threshold. The range must be a multiple of getPixelsPerStep() long.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    private static void drawDiffRange(byte[] baselineRGBA, byte[] compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        int lanes = INT_SPECIES.length();
+
+        //Hold the deltas of the current step between the step methods
+        Scratch scratch = SCRATCH.get();
+        float[] colourDeltas = scratch.colourDeltas;
+        int[] deltas = scratch.deltas;
+
+        for (int pixel = startPixel; pixel < endPixel; pixel += lanes) {
+            int index = pixel * 4;
+            calculateColourDeltaStep(baselineRGBA, compareRGBA, colourDeltas, index);
+            calculateDeltaStep(colourDeltas, deltas);
+            drawDiffStep(deltas, outputRGBA, index);
+            if (statistics != null) { statistics.addDeltas(pixel, deltas, lanes); }
+        }
+    }
+
+    /**
+     * Draws DIFF_COLOUR (Red) over the gray pixels of the range [startPixel, endPixel) of two segments where the delta
+     * is greater than the threshold. The range must be a multiple of getPixelsPerStep() long.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int startPixel first pixel to be compared (inclusive)
+     * @param int endPixel last pixel to be compared (exclusive)
+     * @param DiffStatistics statistics receives the delta of every pixel, or null to skip collecting statistics
+     */
+    private static void drawDiffRange(MemorySegment baselineRGBA, MemorySegment compareRGBA, byte[] outputRGBA, int startPixel, int endPixel, DiffStatistics statistics) {
+        int lanes = INT_SPECIES.length();
+
+        //Hold the deltas of the current step between the step methods
+        Scratch scratch = SCRATCH.get();
+        float[] colourDeltas = scratch.colourDeltas;
+        int[] deltas = scratch.deltas;
+
+        for (int pixel = startPixel; pixel < endPixel; pixel += lanes) {
+            int index = pixel * 4;
+            calculateColourDeltaStep(baselineRGBA, compareRGBA, colourDeltas, index);
+            calculateDeltaStep(colourDeltas, deltas);
+            drawDiffStep(deltas, outputRGBA, index);
+            if (statistics != null) { statistics.addDeltas(pixel, deltas, lanes); }
+        }
+    }
+
+    /**
+     * Draws getPixelsPerStep() gray pixels starting at index. Each step of the kernel is its own method that only takes
+     * arrays or segments, so no vector crosses a call boundary. Vector API code expands to a large graph in C2, and when all three steps
+     * are inlined into one loop the intrinsics give up and every vector is boxed on the heap. Keeping the gray pass and the
+     * diff pass in separate loops keeps the kernel allocation-free.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int index of the first pixel to be drawn
+     */
+    private static void drawGrayStep(byte[] baselineRGBA, byte[] outputRGBA, int index) {
+        IntVector baseline = ByteVector.fromArray(BYTE_SPECIES, baselineRGBA, index).reinterpretAsInts();
+        calculateGrayPixel(baseline).reinterpretAsBytes().intoArray(outputRGBA, index);
+    }
+
+    /**
+     * Draws getPixelsPerStep() gray pixels starting at index like drawGrayStep, loading the baseline pixels from a
+     * segment.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int index of the first pixel to be drawn
+     */
+    private static void drawGrayStep(MemorySegment baselineRGBA, byte[] outputRGBA, int index) {
+        IntVector baseline = ByteVector.fromMemorySegment(BYTE_SPECIES, baselineRGBA, index, ByteOrder.nativeOrder()).reinterpretAsInts();
+        calculateGrayPixel(baseline).reinterpretAsBytes().intoArray(outputRGBA, index);
+    }
+
+    /**
+     * Vectorized CompareUtilities.calculateColourDelta, and applyTransparency for getPixelsPerStep() pixels starting at 
+     * index. The scalar kernel checks transparency on the signed byte alpha values, which are always below COLOUR_MAX_VALUE, 
+     * so it always applies transparency to the signed channel values. The same is done here for every lane.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param byte[] compareRGBA byte[] array of the comparison image in RGBA format
+     * @param float[] colourDeltas receives deltaR, deltaG, and deltaB, getPixelsPerStep() values each
+     * @param int index of the first pixel to be compared
+     */
+    private static void calculateColourDeltaStep(byte[] baselineRGBA, byte[] compareRGBA, float[] colourDeltas, int index) {
+        IntVector baseline = ByteVector.fromArray(BYTE_SPECIES, baselineRGBA, index).reinterpretAsInts();
+        IntVector compare = ByteVector.fromArray(BYTE_SPECIES, compareRGBA, index).reinterpretAsInts();
+        calculateColourDeltas(baseline, compare, colourDeltas);
+    }
+
+    /**
+     * Calculates the colour deltas of getPixelsPerStep() pixels starting at index like calculateColourDeltaStep, loading
+     * the pixels from segments.
+     *
+     * @param MemorySegment baselineRGBA segment of the baseline image in RGBA format
+     * @param MemorySegment compareRGBA segment of the comparison image in RGBA format
+     * @param float[] colourDeltas receives deltaR, deltaG, and deltaB, getPixelsPerStep() values each
+     * @param int index of the first pixel to be compared
+     */
+    private static void calculateColourDeltaStep(MemorySegment baselineRGBA, MemorySegment compareRGBA, float[] colourDeltas, int index) {
+        IntVector baseline = ByteVector.fromMemorySegment(BYTE_SPECIES, baselineRGBA, index, ByteOrder.nativeOrder()).reinterpretAsInts();
+        IntVector compare = ByteVector.fromMemorySegment(BYTE_SPECIES, compareRGBA, index, ByteOrder.nativeOrder()).reinterpretAsInts();
+        calculateColourDeltas(baseline, compare, colourDeltas);
+    }
+
+    /**
+     * Calculates deltaR, deltaG, and deltaB of the packed pixels loaded by calculateColourDeltaStep.
+     *
+     * @param IntVector baseline packed RGBA baseline pixels
+     * @param IntVector compare packed RGBA comparison pixels
+     * @param float[] colourDeltas receives deltaR, deltaG, and deltaB, getPixelsPerStep() values each
+     */
+    private static void calculateColourDeltas(IntVector baseline, IntVector compare, float[] colourDeltas) {
+        IntVector baselineA = signedChannel(baseline, 24);
+        IntVector compareA = signedChannel(compare, 24);
+        FloatVector grayA = toFloat(baseline.lanewise(VectorOperators.LSHR, 24).sub(compare.lanewise(VectorOperators.LSHR, 24))).mul(CompareUtilities.GRAY);
+
+        int lanes = INT_SPECIES.length();
+        applyTransparency(signedChannel(baseline, 0), baselineA, signedChannel(compare, 0), compareA, grayA).intoArray(colourDeltas, 0);
+        applyTransparency(signedChannel(baseline, 8), baselineA, signedChannel(compare, 8), compareA, grayA).intoArray(colourDeltas, lanes);
+        applyTransparency(signedChannel(baseline, 16), baselineA, signedChannel(compare, 16), compareA, grayA).intoArray(colourDeltas, lanes * 2);
+    }
+
+    /**
+     * Vectorized CompareUtilities.calculateY, calculateI, calculateQ, and calculateCombinedDelta for getPixelsPerStep() 
+     * pixels. Stores the absolute delta of each pixel, truncated to an int like CompareUtilities.calculateDelta.
+     *
+     * @param float[] colourDeltas deltaR, deltaG, and deltaB from calculateColourDeltaStep
+     * @param int[] deltas receives getPixelsPerStep() absolute deltas
+     */
+    private static void calculateDeltaStep(float[] colourDeltas, int[] deltas) {
+        int lanes = INT_SPECIES.length();
+        FloatVector deltaR = FloatVector.fromArray(FLOAT_SPECIES, colourDeltas, 0);
+        FloatVector deltaG = FloatVector.fromArray(FLOAT_SPECIES, colourDeltas, lanes);
+        FloatVector deltaB = FloatVector.fromArray(FLOAT_SPECIES, colourDeltas, lanes * 2);
+
+        //Y = Luminance, I = Chrominance for Orange/Blue, Q = Chrominance for Purple/Green
+        FloatVector y = deltaR.mul(LUMINANCE_COEFFICIENT_1).add(deltaG.mul(LUMINANCE_COEFFICIENT_2)).add(deltaB.mul(LUMINANCE_COEFFICIENT_3));
+        FloatVector i = deltaR.mul(CHROMINANCE_I_COEFFICIENT_1).sub(deltaG.mul(CHROMINANCE_I_COEFFICIENT_2)).sub(deltaB.mul(CHROMINANCE_I_COEFFICIENT_3));
+        FloatVector q = deltaR.mul(CHROMINANCE_Q_COEFFICIENT_1).sub(deltaG.mul(CHROMINANCE_Q_COEFFICIENT_2)).add(deltaB.mul(CHROMINANCE_Q_COEFFICIENT_3));
+        FloatVector delta = y.mul(DELTA_WEIGHT_Y).mul(y).add(i.mul(DELTA_WEIGHT_I).mul(i)).add(q.mul(DELTA_WEIGHT_Q).mul(q));
+
+        IntVector truncatedDelta = (IntVector) delta.convertShape(VectorOperators.F2I, INT_SPECIES, 0);
+        truncatedDelta.abs().intoArray(deltas, 0);
+    }
+
+    /**
+     * Overwrites the gray pixels from drawGrayStep with DIFF_COLOUR (Red) for getPixelsPerStep() pixels starting at index
+     * where the delta is greater than the threshold.
+     *
+     * @param int[] deltas absolute deltas from calculateDeltaStep
+     * @param byte[] outputRGBA byte[] array of the output image in RGBA format
+     * @param int index of the first pixel to be drawn
+     */
+    private static void drawDiffStep(int[] deltas, byte[] outputRGBA, int index) {
+        VectorMask<Integer> diffMask = IntVector.fromArray(INT_SPECIES, deltas, 0).compare(VectorOperators.GT, CompareUtilities.MAX_DELTA);
+        IntVector output = ByteVector.fromArray(BYTE_SPECIES, outputRGBA, index).reinterpretAsInts();
+        output.blend(DIFF_PIXEL, diffMask).reinterpretAsBytes().intoArray(outputRGBA, index);
+    }
+
+    /**
+     * Counts the pixels of the current step where the delta is greater than the threshold.
+     *
+     * @param int[] deltas absolute deltas from calculateDeltaStep
+     * @return int number of differing pixels in the step
+     */
+    private static int countDiffStep(int[] deltas) {
+        return IntVector.fromArray(INT_SPECIES, deltas, 0).compare(VectorOperators.GT, CompareUtilities.MAX_DELTA).trueCount();
+    }
+
+    /**
+     * Vectorized CompareUtilities.applyTransparency.
+     *
+     * @param IntVector baselineChannel signed baseline R, G, or B values
+     * @param IntVector baselineA signed baseline alpha values
+     * @param IntVector compareChannel signed comparison R, G, or B values
+     * @param IntVector compareA signed comparison alpha values
+     * @param FloatVector grayA GRAY * deltaA
+     * @return FloatVector newDelta
+     */
+    private static FloatVector applyTransparency(IntVector baselineChannel, IntVector baselineA, IntVector compareChannel, IntVector compareA, FloatVector grayA) {
+        IntVector blended = baselineChannel.mul(baselineA).sub(compareChannel.mul(compareA));
+        return toFloat(blended).sub(grayA).div(255f);
+    }
+
+    /**
+     * Vectorized CompareUtilities.drawGrayPixel. Returns the packed gray RGBA pixels instead of writing them.
+     *
+     * @param IntVector baseline packed RGBA baseline pixels
+     * @return IntVector packed {gray, gray, gray, 255} pixels
+     */
+    private static IntVector calculateGrayPixel(IntVector baseline) {
+        IntVector baselineR = signedChannel(baseline, 0);
+        IntVector baselineG = signedChannel(baseline, 8);
+        IntVector baselineB = signedChannel(baseline, 16);
+        IntVector baselineA = signedChannel(baseline, 24);
+
+        FloatVector luminance = toFloat(baselineR).mul(LUMINANCE_COEFFICIENT_1).add(toFloat(baselineG).mul(LUMINANCE_COEFFICIENT_2)).add(toFloat(baselineB).mul(LUMINANCE_COEFFICIENT_3));
+        FloatVector value = luminance.sub(255f).mul(CompareUtilities.ALPHA).mul(toFloat(baselineA)).div(255.0f).add(255f);
+        IntVector gray = (IntVector) value.min(255f).max(0f).convertShape(VectorOperators.F2I, INT_SPECIES, 0);
+
+        return gray.or(gray.lanewise(VectorOperators.LSHL, 8)).or(gray.lanewise(VectorOperators.LSHL, 16)).or(OPAQUE_ALPHA);
+    }
+
+    /**
+     * Extracts a channel from packed RGBA pixels as a signed byte value -128-127.
+     *
+     * @param IntVector pixels packed RGBA pixels
+     * @param int shift 0 for R, 8 for G, 16 for B, 24 for A
+     * @return IntVector signed channel values
+     */
+    private static IntVector signedChannel(IntVector pixels, int shift) {
+        return pixels.lanewise(VectorOperators.LSHL, 24 - shift).lanewise(VectorOperators.ASHR, 24);
+    }
+
+    /**
+     * Converts int lanes to float lanes of the same shape.
+     *
+     * @param IntVector values
+     * @return FloatVector values as floats
+     */
+    private static FloatVector toFloat(IntVector values) {
+        return (FloatVector) values.convertShape(VectorOperators.I2F, FLOAT_SPECIES, 0);
+    }
+
+    private final static class Scratch {
+        private final float[] colourDeltas = new float[INT_SPECIES.length() * 3];
+        private final int[] deltas = new int[INT_SPECIES.length()];
+    }
+}
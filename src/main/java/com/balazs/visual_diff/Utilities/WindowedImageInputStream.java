@@ -0,0 +1,124 @@
+package com.balazs.visual_diff.Utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+public final class WindowedImageInputStream extends MemoryCacheImageInputStream {
+
+    private final static byte[] PNG_SIGNATURE = {(byte)137, 80, 78, 71, 13, 10, 26, 10};
+    private final static int PNG_COLOR_TYPE_OFFSET = 25;        //Signature, IHDR length and type, width, height, bit depth
+    private final static int PNG_COLOR_PALETTE = 3;
+
+    private final InputStream stream;
+    private final long windowBytes;
+    private final ArrayDeque<Long> markedPositions = new ArrayDeque<>();
+
+    /**
+     * Reads an image file from a stream, such as a blob being downloaded, while only keeping the last windowBytes bytes
+     * that were read. A MemoryCacheImageInputStream keeps every byte it read, because the PNG and JPEG readers never
+     * flush it, so decoding from it holds the whole encoded file just like a byte[] array would. This stream flushes
+     * everything older than windowBytes behind the current position after each read, which leaves room for the short
+     * backward seeks of the readers, such as returning to the image data after reading the header. Bytes after a
+     * position saved with mark are kept until the matching reset, however far they are behind. Use open, which
+     * keeps the whole file of the images the readers seek far back in.
+     *
+     * @param InputStream stream of the image file, closed when this stream is closed
+     * @param long windowBytes number of bytes kept behind the current position
+     */
+    private WindowedImageInputStream(InputStream stream, long windowBytes) {
+        super(stream);
+        this.windowBytes = Math.max(0, windowBytes);
+        this.stream = stream;
+    }
+
+    /**
+     * Opens an image file for reading with a window of windowBytes bytes. Indexed PNG files are read without a window,
+     * since the PNG reader reads all of their chunks before seeking back to the first image data chunk.
+     *
+     * @param InputStream stream of the image file, closed when the returned stream is closed
+     * @param long windowBytes number of bytes kept behind the current position
+     * @return WindowedImageInputStream of the image file
+     * @throws IOException if the stream cannot be read
+     */
+    public static WindowedImageInputStream open(InputStream stream, long windowBytes) throws IOException {
+        PushbackInputStream pushbackStream = new PushbackInputStream(stream, PNG_COLOR_TYPE_OFFSET + 1);
+        byte[] header = pushbackStream.readNBytes(PNG_COLOR_TYPE_OFFSET + 1);
+        pushbackStream.unread(header);
+
+        boolean indexedPng = header.length > PNG_COLOR_TYPE_OFFSET && Arrays.equals(header, 0, PNG_SIGNATURE.length, PNG_SIGNATURE, 0, PNG_SIGNATURE.length) && header[PNG_COLOR_TYPE_OFFSET] == PNG_COLOR_PALETTE;
+        return new WindowedImageInputStream(pushbackStream, indexedPng ? Long.MAX_VALUE : windowBytes);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        slideWindow();
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        slideWindow();
+        return read;
+    }
+
+    @Override
+    public void mark() {
+        super.mark();
+        markedPositions.push(streamPos);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        try {
+            super.reset();
+        }
+        finally {
+            markedPositions.poll();
+        }
+    }
+
+    /**
+     * Discards the cached bytes before pos, but never the bytes after the oldest marked position, since readers such
+     * as the PNG reader flush the stream while reading a header that is read again after reset.
+     *
+     * @param long pos position before which the bytes can be discarded
+     * @throws IOException
+     */
+    @Override
+    public void flushBefore(long pos) throws IOException {
+        long flushPosition = markedPositions.isEmpty() ? pos : Math.min(pos, markedPositions.peekLast());
+        if (flushPosition > getFlushedPosition()) { super.flushBefore(flushPosition); }
+    }
+
+    /**
+     * Closes this stream and the stream of the image file, which MemoryCacheImageInputStream leaves open.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Discards the cached bytes that are more than windowBytes behind the current position.
+     *
+     * @throws IOException
+     */
+    private void slideWindow() throws IOException {
+        long windowStart = streamPos - windowBytes;
+        if (windowStart > getFlushedPosition()) { flushBefore(windowStart); }
+    }
+}
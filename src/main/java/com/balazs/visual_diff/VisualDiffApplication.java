@@ -2,9 +2,11 @@ package com.balazs.visual_diff;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Configuration;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @Configuration
 public class VisualDiffApplication {
 
@@ -25,6 +25,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 
 import com.balazs.visual_diff.Utilities.FileUtilities;
+import com.balazs.visual_diff.Utilities.ImageHeader;
 import com.balazs.visual_diff.Utilities.ValidationUtilities;
 
 @WithMockUser
@@ -48,18 +49,19 @@ public class BlobControllerTests {
         String expectedTime = "2025-06-15T14:36:00Z";
         MockMultipartFile baselineFile = new MockMultipartFile("file", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[]{(byte)255, (byte)0, (byte)0, (byte)255});
         BlobResponse expectedResponse = new BlobResponse(expectedFileName, expectedType, expectedSize, expectedTime);
+        ImageHeader expectedHeader = new ImageHeader("png", 1, 1, 8);
 
         //Static mock for validation utilities similar to ValidationUtiltiiesTests
         try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
             validationUtilities.when(() -> ValidationUtilities.isTypeValid(expectedType)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(baselineFile)).thenReturn(expectedHeader);
 
             try (MockedStatic<FileUtilities> fileUtilities = mockStatic(FileUtilities.class)) {
                 fileUtilities.when(() -> FileUtilities.generateFileName("png", "baseline")).thenReturn(expectedFileName);
                 fileUtilities.when(() -> FileUtilities.getFileFormatFromMultipartFile(baselineFile)).thenReturn("png");
-                when(blobService.saveFile(baselineFile.getBytes(), expectedFileName)).thenReturn(expectedResponse);
+                when(blobService.saveFile(baselineFile, expectedFileName, expectedHeader.toMetadata())).thenReturn(expectedResponse);
 
                 //Act & Assert
                 mockMvc.perform(multipart("/files/upload").file(baselineFile).param("type", expectedType).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
@@ -144,7 +146,7 @@ public class BlobControllerTests {
             validationUtilities.when(() -> ValidationUtilities.isTypeValid(expectedType)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(baselineFile)).thenReturn(false);
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(baselineFile)).thenReturn(null);
 
             //Act & Assert
             mockMvc.perform(multipart("/files/upload").file(baselineFile).param("type", expectedType).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
@@ -202,7 +204,7 @@ public class BlobControllerTests {
         ArrayList<BlobResponse> expectedResponses = new ArrayList<BlobResponse>();
         expectedResponses.add(new BlobResponse(expectedFileName, expectedType, expectedSize, expectedTime));
 
-        when(blobService.getAllFileProperties()).thenReturn(expectedResponses);
+        when(blobService.getAllFileProperties(null, null, null)).thenReturn(new BlobPage(expectedResponses, null));
 
         try (MockedStatic<FileUtilities> fileUtilities = mockStatic(FileUtilities.class)) {
             fileUtilities.when(() -> FileUtilities.getTypeFromFileName(expectedResponses.getFirst().getFileName())).thenReturn(expectedType);
@@ -223,6 +225,34 @@ public class BlobControllerTests {
         } 
 	}
 
+    @Test
+    @DisplayName("GET /metadata with a type and more files to list, returns 200 ok with a link to the next page")
+	public void getAllFileMetaData_typeWithNextPage_shouldReturn200OkWithNextLink() throws Exception {
+        //Arrange
+        String expectedFileName = "diff_0a862592.png";
+        String expectedType = "diff";
+        String expectedToken = "page2";
+        ArrayList<BlobResponse> expectedResponses = new ArrayList<BlobResponse>();
+        expectedResponses.add(new BlobResponse(expectedFileName, expectedType, "724171", "2025-06-15T14:36:00Z"));
+
+        when(blobService.getAllFileProperties(expectedType, null, 1)).thenReturn(new BlobPage(expectedResponses, expectedToken));
+
+        //Act & Assert
+        mockMvc.perform(get("/files/metadata").param("type", expectedType).param("pageSize", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.blobResponseList[0].fileName").value(expectedFileName))
+            .andExpect(jsonPath("$._links.self.href").value(PREFIX + "/files/metadata?type=" + expectedType + "&pageSize=1"))
+            .andExpect(jsonPath("$._links.next.href").value(PREFIX + "/files/metadata?type=" + expectedType + "&continuationToken=" + expectedToken + "&pageSize=1"));
+	}
+
+    @Test
+    @DisplayName("GET /metadata invalid type is provided, returns 400 bad request")
+	public void getAllFileMetaData_invalidType_shouldReturn400BadRequest() throws Exception {
+        //Act & Assert
+        mockMvc.perform(get("/files/metadata").param("type", "invalid"))
+            .andExpect(status().isBadRequest());
+	}
+
     @Test
     @DisplayName("GET /metadata/{fileName} valid input is provided, returns 200 ok")
 	public void getFileMetaData_validInput_shouldReturn200Ok() throws Exception {
@@ -0,0 +1,123 @@
+package com.balazs.visual_diff.Blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.azure.storage.blob.models.BlobProperties;
+
+public class BlobPropertiesCacheTests {
+
+    @Test
+    @DisplayName("Get within the TTL, returns the cached properties without fetching them again")
+    public void get_freshEntry_shouldReturnCachedProperties() {
+        //Arrange
+        BlobPropertiesCache cache = new BlobPropertiesCache(60_000, 10);
+        BlobProperties properties = mock(BlobProperties.class);
+        AtomicInteger fetches = new AtomicInteger();
+        cache.get("baseline.png", name -> { fetches.incrementAndGet(); return properties; }, (name, cached) -> null);
+
+        //Act
+        BlobProperties cachedProperties = cache.get("baseline.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> null);
+
+        //Assert
+        assertSame(properties, cachedProperties);
+        assertEquals(1, fetches.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Get after the TTL of an existing blob, revalidates the cached properties instead of fetching them")
+    public void get_expiredEntry_shouldRevalidate() {
+        //Arrange
+        BlobPropertiesCache cache = new BlobPropertiesCache(0, 10);
+        BlobProperties properties = mock(BlobProperties.class);
+        AtomicInteger fetches = new AtomicInteger();
+        cache.put("baseline.png", properties);
+
+        //Act
+        BlobProperties revalidatedProperties = cache.get("baseline.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+
+        //Assert
+        assertSame(properties, revalidatedProperties);
+        assertEquals(0, fetches.get());
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    @Test
+    @DisplayName("Get of a blob cached as missing, returns null without fetching it again")
+    public void get_negativeEntry_shouldReturnNull() {
+        //Arrange
+        BlobPropertiesCache cache = new BlobPropertiesCache(60_000, 10);
+        AtomicInteger fetches = new AtomicInteger();
+        cache.get("missing.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+
+        //Act
+        BlobProperties properties = cache.get("missing.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+
+        //Assert
+        assertNull(properties);
+        assertEquals(1, fetches.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Get after invalidate, fetches the properties again")
+    public void get_afterInvalidate_shouldFetch() {
+        //Arrange
+        BlobPropertiesCache cache = new BlobPropertiesCache(60_000, 10);
+        BlobProperties newProperties = mock(BlobProperties.class);
+        cache.put("baseline.png", null);
+        cache.invalidate("baseline.png");
+
+        //Act
+        BlobProperties properties = cache.get("baseline.png", name -> newProperties, (name, cached) -> cached);
+
+        //Assert
+        assertSame(newProperties, properties);
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Put beyond the maximum number of entries, evicts the least recently used blob first")
+    public void put_overCapacity_shouldEvictLeastRecentlyUsed() {
+        //Arrange
+        BlobPropertiesCache cache = new BlobPropertiesCache(60_000, 2);
+        BlobProperties properties = mock(BlobProperties.class);
+        AtomicInteger fetches = new AtomicInteger();
+        cache.put("first.png", properties);
+        cache.put("second.png", properties);
+        cache.get("first.png", name -> null, (name, cached) -> cached);
+
+        //Act
+        cache.put("third.png", properties);
+
+        //Assert
+        cache.get("first.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+        cache.get("second.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    @DisplayName("Get with a maximum of 0 entries, always fetches the properties")
+    public void get_disabledCache_shouldAlwaysFetch() {
+        //Arrange
+        BlobPropertiesCache cache = new BlobPropertiesCache(60_000, 0);
+        AtomicInteger fetches = new AtomicInteger();
+
+        //Act
+        cache.get("baseline.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+        cache.get("baseline.png", name -> { fetches.incrementAndGet(); return null; }, (name, cached) -> cached);
+
+        //Assert
+        assertEquals(2, fetches.get());
+        assertEquals(0, cache.getHits());
+    }
+}
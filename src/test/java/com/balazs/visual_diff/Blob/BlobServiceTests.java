@@ -0,0 +1,515 @@
+package com.balazs.visual_diff.Blob;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.azure.core.http.rest.PagedIterable;
+import com.azure.core.http.rest.PagedResponse;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobDownloadContentResponse;
+import com.azure.storage.blob.models.BlobDownloadHeaders;
+import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.BlobItemProperties;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.ListBlobsOptions;
+import com.azure.storage.blob.options.BlobInputStreamOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.azure.storage.blob.specialized.BlobInputStream;
+import com.balazs.visual_diff.Utilities.ContentHash;
+
+public class BlobServiceTests {
+
+    private BlobContainerClient containerClient;
+    private Map<String, BlobClient> blobClients;
+    private BlobService blobService;
+
+    @BeforeEach
+    public void setUp() {
+        containerClient = mock(BlobContainerClient.class);
+        blobClients = new HashMap<>();
+        when(containerClient.getBlobClient(anyString())).thenAnswer(invocation -> getBlobClient(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (blobService != null) { blobService.shutdown(); }
+    }
+
+    @Test
+    @DisplayName("Deep check later of a corrupt file, deletes the file in the background")
+    public void deepCheckLater_corruptFile_shouldDeleteFile() {
+        //Arrange
+        createBlobService(false, true, 3600000);
+        BlobClient blobClient = mockBlob("baseline.png", new byte[] { 1, 2, 3, 4 }, Map.of());
+
+        //Act
+        blobService.deepCheckLater("baseline.png");
+
+        //Assert
+        verify(blobClient, timeout(5000)).deleteIfExists();
+    }
+
+    @Test
+    @DisplayName("Deep check later with deferred deep checks disabled, does not read the file")
+    public void deepCheckLater_disabled_shouldNotReadFile() {
+        //Arrange
+        createBlobService(false);
+        BlobClient blobClient = mockBlob("baseline.png", new byte[] { 1, 2, 3, 4 }, Map.of());
+
+        //Act
+        blobService.deepCheckLater("baseline.png");
+
+        //Assert
+        verify(blobClient, after(200).never()).downloadContent();
+        verify(blobClient, never()).deleteIfExists();
+    }
+
+    @Test
+    @DisplayName("Deep check of a valid file, keeps the file")
+    public void deepCheck_validFile_shouldKeepFile() throws IOException {
+        //Arrange
+        createBlobService(false);
+        BlobClient blobClient = mockBlob("baseline.png", createPng(), Map.of());
+
+        //Act
+        blobService.deepCheck("baseline.png");
+
+        //Assert
+        verify(blobClient, never()).deleteIfExists();
+    }
+
+    @Test
+    @DisplayName("Deep check of a corrupt content-addressed file, deletes the alias and its content")
+    public void deepCheck_corruptContentAddressedFile_shouldDeleteAliasAndContent() {
+        //Arrange
+        createBlobService(true);
+        BlobClient aliasClient = mockBlob("baseline.png", new byte[0], Map.of(BlobService.METADATA_CONTENT_KEY, "content/abc.png"));
+        BlobClient contentClient = mockBlob("content/abc.png", new byte[] { 1, 2, 3, 4 }, Map.of());
+
+        //Act
+        blobService.deepCheck("baseline.png");
+
+        //Assert
+        verify(aliasClient).deleteIfExists();
+        verify(contentClient).deleteIfExists();
+    }
+
+    @Test
+    @DisplayName("Deep check of a file that cannot be downloaded, keeps the file")
+    public void deepCheck_downloadFails_shouldKeepFile() {
+        //Arrange
+        createBlobService(false);
+        BlobClient blobClient = mockBlob("baseline.png", null, Map.of());
+        when(blobClient.downloadContent()).thenThrow(mock(BlobStorageException.class));
+
+        //Act
+        blobService.deepCheck("baseline.png");
+
+        //Assert
+        verify(blobClient, never()).deleteIfExists();
+    }
+
+    @Test
+    @DisplayName("Save file in content-addressed mode, stores the bytes under their hash and the file name as an alias")
+    public void saveFile_contentAddressed_shouldSaveContentAndAlias() {
+        //Arrange
+        createBlobService(true);
+        byte[] fileData = new byte[] { 1, 2, 3, 4 };
+        String contentKey = "content/" + ContentHash.of(fileData) + ".png";
+        BlobClient contentClient = mockMissingBlob(contentKey);
+        BlobClient aliasClient = mockBlob("baseline.png", null, Map.of(BlobService.METADATA_CONTENT_KEY, contentKey, BlobService.METADATA_CONTENT_SIZE, "4"));
+
+        //Act
+        BlobResponse response = blobService.saveFile(fileData, "baseline.png", Map.of("format", "png"));
+
+        //Assert
+        verify(contentClient).uploadWithResponse(any(BlobParallelUploadOptions.class), isNull(), any(Context.class));
+        verify(aliasClient).uploadWithResponse(argThat((BlobParallelUploadOptions options) -> contentKey.equals(options.getMetadata().get(BlobService.METADATA_CONTENT_KEY)) && "4".equals(options.getMetadata().get(BlobService.METADATA_CONTENT_SIZE))), isNull(), any(Context.class));
+        assertEquals("baseline.png", response.getFileName());
+    }
+
+    @Test
+    @DisplayName("Save file in content-addressed mode with content already stored, skips the upload and touches the content")
+    public void saveFile_contentAlreadyStored_shouldSkipContentUpload() {
+        //Arrange
+        createBlobService(true);
+        byte[] fileData = new byte[] { 1, 2, 3, 4 };
+        String contentKey = "content/" + ContentHash.of(fileData) + ".png";
+        BlobClient contentClient = mockBlob(contentKey, null, Map.of());
+        mockBlob("baseline.png", null, Map.of(BlobService.METADATA_CONTENT_KEY, contentKey));
+
+        //Act
+        blobService.saveFile(fileData, "baseline.png", Map.of());
+
+        //Assert
+        verify(contentClient, never()).uploadWithResponse(any(BlobParallelUploadOptions.class), any(), any(Context.class));
+        verify(contentClient).setMetadata(Map.of());
+    }
+
+    @Test
+    @DisplayName("Save file in content-addressed mode while another upload stores the same content (409), saves the alias")
+    public void saveFile_contentStoredConcurrently409_shouldSaveAlias() {
+        //Arrange
+        createBlobService(true);
+        BlobClient aliasClient = mockConcurrentContentUpload(409);
+
+        //Act
+        blobService.saveFile(new byte[] { 1, 2, 3, 4 }, "baseline.png", Map.of());
+
+        //Assert
+        verify(aliasClient).uploadWithResponse(any(BlobParallelUploadOptions.class), isNull(), any(Context.class));
+    }
+
+    @Test
+    @DisplayName("Save file in content-addressed mode while another upload stores the same content (412), saves the alias")
+    public void saveFile_contentStoredConcurrently412_shouldSaveAlias() {
+        //Arrange
+        createBlobService(true);
+        BlobClient aliasClient = mockConcurrentContentUpload(412);
+
+        //Act
+        blobService.saveFile(new byte[] { 1, 2, 3, 4 }, "baseline.png", Map.of());
+
+        //Assert
+        verify(aliasClient).uploadWithResponse(any(BlobParallelUploadOptions.class), isNull(), any(Context.class));
+    }
+
+    @Test
+    @DisplayName("Save file in content-addressed mode when the content upload fails, throws without saving the alias")
+    public void saveFile_contentUploadFails_shouldThrow() {
+        //Arrange
+        createBlobService(true);
+        BlobClient aliasClient = mockConcurrentContentUpload(500);
+
+        //Act & Assert
+        assertThrows(BlobStorageException.class, () -> blobService.saveFile(new byte[] { 1, 2, 3, 4 }, "baseline.png", Map.of()));
+        verify(aliasClient, never()).uploadWithResponse(any(BlobParallelUploadOptions.class), any(), any(Context.class));
+    }
+
+    @Test
+    @DisplayName("Get file of an alias, returns the bytes of its content")
+    public void getFile_alias_shouldReturnContentBytes() {
+        //Arrange
+        createBlobService(true);
+        BlobClient aliasClient = getBlobClient("baseline.png");
+        BlobDownloadContentResponse response = mock(BlobDownloadContentResponse.class);
+        BlobDownloadHeaders headers = mock(BlobDownloadHeaders.class);
+        when(headers.getMetadata()).thenReturn(Map.of(BlobService.METADATA_CONTENT_KEY, "content/abc.png"));
+        when(response.getDeserializedHeaders()).thenReturn(headers);
+        when(aliasClient.downloadContentWithResponse(isNull(), isNull(), isNull(), any(Context.class))).thenReturn(response);
+        mockBlob("content/abc.png", new byte[] { 1, 2, 3, 4 }, Map.of());
+
+        //Act
+        byte[] fileData = blobService.getFile("baseline.png");
+
+        //Assert
+        assertArrayEquals(new byte[] { 1, 2, 3, 4 }, fileData);
+    }
+
+    @Test
+    @DisplayName("Open file of an alias, opens the stream of its content")
+    public void openFile_alias_shouldOpenContent() {
+        //Arrange
+        createBlobService(true);
+        mockBlob("baseline.png", null, Map.of(BlobService.METADATA_CONTENT_KEY, "content/abc.png"));
+        BlobClient contentClient = getBlobClient("content/abc.png");
+        BlobInputStream inputStream = mock(BlobInputStream.class);
+        when(contentClient.openInputStream(any(BlobInputStreamOptions.class))).thenReturn(inputStream);
+
+        //Act & Assert
+        assertSame(inputStream, blobService.openFile("baseline.png"));
+    }
+
+    @Test
+    @DisplayName("Get file properties of an alias, reports the size of its content")
+    public void getFileProperties_alias_shouldReportContentSize() {
+        //Arrange
+        createBlobService(true);
+        mockBlob("baseline.png", null, Map.of(BlobService.METADATA_CONTENT_KEY, "content/abc.png", BlobService.METADATA_CONTENT_SIZE, "1234"));
+
+        //Act
+        BlobResponse response = blobService.getFileProperties("baseline.png");
+
+        //Assert
+        assertEquals("1234", response.getSize());
+    }
+
+    @Test
+    @DisplayName("Sweep content, deletes old content no alias points at and keeps referenced or recent content")
+    public void sweepContent_unreferencedContent_shouldDeleteIt() {
+        //Arrange
+        createBlobService(true);
+        OffsetDateTime old = OffsetDateTime.now().minusDays(1);
+        mockListing(List.of(
+            createBlobItem("baseline.png", old, Map.of(BlobService.METADATA_CONTENT_KEY, "content/used.png")),
+            createBlobItem("content/used.png", old, null),
+            createBlobItem("content/unused.png", old, null),
+            createBlobItem("content/recent.png", OffsetDateTime.now(), null)));
+
+        //Act
+        int deleted = blobService.sweepContent();
+
+        //Assert
+        assertEquals(1, deleted);
+        verify(getBlobClient("content/unused.png")).deleteWithResponse(isNull(), argThat(conditions -> conditions.getIfUnmodifiedSince() != null), isNull(), any(Context.class));
+        verify(getBlobClient("content/used.png"), never()).deleteWithResponse(any(), any(), any(), any());
+        verify(getBlobClient("content/recent.png"), never()).deleteWithResponse(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Create the service in content-addressed mode, starts the content sweep only once startContentSweep is called")
+    public void startContentSweep_contentAddressed_shouldScheduleSweepAfterConstruction() throws InterruptedException {
+        //Arrange
+        mockListing(List.of());
+
+        //Act
+        createBlobService(true, false, 10);
+        Thread.sleep(100);
+
+        //Assert
+        verify(containerClient, never()).listBlobsByHierarchy(anyString(), any(ListBlobsOptions.class), any());
+        blobService.startContentSweep();
+        verify(containerClient, timeout(5000).atLeastOnce()).listBlobsByHierarchy(eq("/"), any(ListBlobsOptions.class), isNull());
+    }
+
+    @Test
+    @DisplayName("Sweep content reused by an upload since it was listed (412), keeps it")
+    public void sweepContent_contentReused_shouldKeepIt() {
+        //Arrange
+        createBlobService(true);
+        mockListing(List.of(createBlobItem("content/unused.png", OffsetDateTime.now().minusDays(1), null)));
+        BlobStorageException exception = mock(BlobStorageException.class);
+        when(exception.getStatusCode()).thenReturn(412);
+        when(getBlobClient("content/unused.png").deleteWithResponse(any(), any(), any(), any())).thenThrow(exception);
+
+        //Act
+        int deleted = blobService.sweepContent();
+
+        //Assert
+        assertEquals(0, deleted);
+        verify(getBlobClient("content/unused.png"), times(1)).deleteWithResponse(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Get all file properties, lists by hierarchy and skips the content/ prefix entry")
+    public void getAllFileProperties_contentFiles_shouldListOnlyFiles() {
+        //Arrange
+        createBlobService(true);
+        OffsetDateTime now = OffsetDateTime.now();
+        mockPages(3, List.of(List.of(createBlobItem("baseline.png", now, Map.of()), new BlobItem().setName("content/").setIsPrefix(true), createBlobItem("diff.png", now, Map.of()))));
+
+        //Act
+        BlobPage page = blobService.getAllFileProperties(null, null, 3);
+
+        //Assert
+        assertEquals(List.of("baseline.png", "diff.png"), page.getResponses().stream().map(BlobResponse::getFileName).toList());
+        assertNull(page.getContinuationToken());
+        verify(containerClient, never()).listBlobs(any(ListBlobsOptions.class), any());
+    }
+
+    @Test
+    @DisplayName("Get all file properties of a page holding only the content/ prefix entry, returns the following page")
+    public void getAllFileProperties_prefixOnlyPage_shouldReturnFollowingPage() {
+        //Arrange
+        createBlobService(true);
+        mockPages(1, List.of(List.of(new BlobItem().setName("content/").setIsPrefix(true)), List.of(createBlobItem("diff.png", OffsetDateTime.now(), Map.of()))));
+
+        //Act
+        BlobPage page = blobService.getAllFileProperties(null, null, 1);
+
+        //Assert
+        assertEquals(List.of("diff.png"), page.getResponses().stream().map(BlobResponse::getFileName).toList());
+        assertNull(page.getContinuationToken());
+    }
+
+    /**
+     * Creates the service under test on top of the mocked container client, with the default content sweep interval.
+     *
+     * @param boolean contentAddressed true to store files once under their ContentHash
+     */
+    private void createBlobService(boolean contentAddressed) {
+        createBlobService(contentAddressed, false, 3600000);
+    }
+
+    /**
+     * Creates the service under test on top of the mocked container client.
+     *
+     * @param boolean contentAddressed true to store files once under their ContentHash
+     * @param boolean deferredDeepCheck true to fully decode files queued with deepCheckLater
+     * @param long contentSweepIntervalMs milliseconds between sweeps of unreferenced content files
+     */
+    private void createBlobService(boolean contentAddressed, boolean deferredDeepCheck, long contentSweepIntervalMs) {
+        BlobServiceClient blobServiceClient = mock(BlobServiceClient.class);
+        when(blobServiceClient.getBlobContainerClient("container")).thenReturn(containerClient);
+
+        BlobStorageProperties properties = new BlobStorageProperties();
+        properties.setDeferredDeepCheck(deferredDeepCheck);
+        properties.setContentAddressed(contentAddressed);
+        properties.setContentSweepIntervalMs(contentSweepIntervalMs);
+        blobService = new BlobService("container", blobServiceClient, properties);
+    }
+
+    /**
+     * Gets the mocked client of a blob, creating it on first use.
+     *
+     * @param String blobName of the blob
+     * @return BlobClient mock of the blob
+     */
+    private BlobClient getBlobClient(String blobName) {
+        return blobClients.computeIfAbsent(blobName, name -> {
+            BlobClient blobClient = mock(BlobClient.class);
+            when(blobClient.getBlobName()).thenReturn(name);
+            return blobClient;
+        });
+    }
+
+    /**
+     * Mocks an existing blob with its bytes and metadata.
+     *
+     * @param String blobName of the blob
+     * @param byte[] fileData of the blob, or null to leave the download unmocked
+     * @param Map<String, String> metadata of the blob
+     * @return BlobClient mock of the blob
+     */
+    private BlobClient mockBlob(String blobName, byte[] fileData, Map<String, String> metadata) {
+        BlobClient blobClient = getBlobClient(blobName);
+        BlobProperties properties = mock(BlobProperties.class);
+        when(properties.getMetadata()).thenReturn(metadata);
+        when(properties.getBlobSize()).thenReturn(0L);
+        when(properties.getCreationTime()).thenReturn(OffsetDateTime.now());
+        when(blobClient.getProperties()).thenReturn(properties);
+        if (fileData != null) { when(blobClient.downloadContent()).thenReturn(BinaryData.fromBytes(fileData)); }
+        return blobClient;
+    }
+
+    /**
+     * Mocks a blob that does not exist.
+     *
+     * @param String blobName of the blob
+     * @return BlobClient mock of the blob
+     */
+    private BlobClient mockMissingBlob(String blobName) {
+        BlobClient blobClient = getBlobClient(blobName);
+        BlobStorageException exception = mock(BlobStorageException.class);
+        when(exception.getStatusCode()).thenReturn(404);
+        when(blobClient.getProperties()).thenThrow(exception);
+        return blobClient;
+    }
+
+    /**
+     * Mocks the content upload of baseline.png failing with a status code, as when another upload stored it first.
+     *
+     * @param int statusCode of the failed content upload
+     * @return BlobClient mock of the alias
+     */
+    private BlobClient mockConcurrentContentUpload(int statusCode) {
+        String contentKey = "content/" + ContentHash.of(new byte[] { 1, 2, 3, 4 }) + ".png";
+        BlobClient contentClient = mockMissingBlob(contentKey);
+        BlobStorageException exception = mock(BlobStorageException.class);
+        when(exception.getStatusCode()).thenReturn(statusCode);
+        when(contentClient.uploadWithResponse(any(BlobParallelUploadOptions.class), any(), any(Context.class))).thenThrow(exception);
+        return mockBlob("baseline.png", null, Map.of(BlobService.METADATA_CONTENT_KEY, contentKey));
+    }
+
+    /**
+     * Mocks the listings of the container. Flat listings return the blobs matching their prefix, and listings by
+     * hierarchy return the top-level blobs followed by a prefix entry for the content/ virtual directory.
+     *
+     * @param List<BlobItem> blobItems every blob of the container
+     */
+    @SuppressWarnings("unchecked")
+    private void mockListing(List<BlobItem> blobItems) {
+        when(containerClient.listBlobs(any(ListBlobsOptions.class), isNull())).thenAnswer(invocation -> {
+            ListBlobsOptions options = invocation.getArgument(0);
+            List<BlobItem> listed = blobItems.stream().filter(blobItem -> options.getPrefix() == null || blobItem.getName().startsWith(options.getPrefix())).toList();
+            PagedIterable<BlobItem> pagedIterable = mock(PagedIterable.class);
+            when(pagedIterable.iterator()).thenReturn(listed.iterator());
+            return pagedIterable;
+        });
+        when(containerClient.listBlobsByHierarchy(eq("/"), any(ListBlobsOptions.class), isNull())).thenAnswer(invocation -> {
+            ArrayList<BlobItem> listed = new ArrayList<>(blobItems.stream().filter(blobItem -> !blobItem.getName().contains("/")).toList());
+            listed.add(new BlobItem().setName("content/").setIsPrefix(true));
+            PagedIterable<BlobItem> pagedIterable = mock(PagedIterable.class);
+            when(pagedIterable.iterator()).thenReturn(listed.iterator());
+            return pagedIterable;
+        });
+    }
+
+    /**
+     * Mocks the pages of a listing by hierarchy, each page continuing from the token of the page before it.
+     *
+     * @param int pageSize requested per page
+     * @param List<List<BlobItem>> pages blobs of each page
+     */
+    @SuppressWarnings("unchecked")
+    private void mockPages(int pageSize, List<List<BlobItem>> pages) {
+        PagedIterable<BlobItem> pagedIterable = mock(PagedIterable.class);
+        for (int i = 0; i < pages.size(); i++) {
+            PagedResponse<BlobItem> page = mock(PagedResponse.class);
+            when(page.getValue()).thenReturn(pages.get(i));
+            when(page.getContinuationToken()).thenReturn(i + 1 < pages.size() ? "page" + (i + 1) : null);
+            when(pagedIterable.iterableByPage(i == 0 ? null : "page" + i, pageSize)).thenReturn(List.of(page));
+        }
+        when(containerClient.listBlobsByHierarchy(eq("/"), any(ListBlobsOptions.class), isNull())).thenReturn(pagedIterable);
+    }
+
+    /**
+     * Creates a listed blob.
+     *
+     * @param String blobName of the blob
+     * @param OffsetDateTime lastModified time of the blob
+     * @param Map<String, String> metadata of the blob, or null
+     * @return BlobItem as returned by a listing
+     */
+    private static BlobItem createBlobItem(String blobName, OffsetDateTime lastModified, Map<String, String> metadata) {
+        return new BlobItem().setName(blobName).setMetadata(metadata).setProperties(new BlobItemProperties().setLastModified(lastModified).setCreationTime(lastModified).setContentLength(4L));
+    }
+
+    /**
+     * Encodes a small image as a PNG.
+     *
+     * @return byte[] of the PNG file
+     * @throws IOException
+     */
+    private static byte[] createPng() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_4BYTE_ABGR), "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
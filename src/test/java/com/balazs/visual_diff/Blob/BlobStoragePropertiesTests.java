@@ -0,0 +1,68 @@
+package com.balazs.visual_diff.Blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+public class BlobStoragePropertiesTests {
+    @Test
+    @DisplayName("Default constructor, initializes the defaults of application.properties")
+    public void BlobStorageProperties_default_shouldInitializeDefaults() {
+        //Act
+        BlobStorageProperties actualProperties = new BlobStorageProperties();
+
+        //Assert
+        assertFalse(actualProperties.isDeferredDeepCheck());
+        assertFalse(actualProperties.isContentAddressed());
+        assertEquals(5000L, actualProperties.getPropertiesCacheTtlMs());
+        assertEquals(10000, actualProperties.getPropertiesCacheMaxEntries());
+        assertEquals(1000, actualProperties.getListPageSize());
+        assertEquals(1048576, actualProperties.getDownloadBlockSize());
+        assertEquals(4194304L, actualProperties.getUploadBlockSize());
+        assertEquals(4, actualProperties.getUploadMaxConcurrency());
+        assertEquals(4194304L, actualProperties.getUploadMaxSingleSize());
+        assertEquals(3600000L, actualProperties.getContentSweepIntervalMs());
+        assertEquals(3600000L, actualProperties.getContentSweepGraceMs());
+    }
+
+    @Test
+    @DisplayName("Bind app.blob properties, sets the matching fields")
+    public void bind_appBlobProperties_shouldSetFields() {
+        //Arrange
+        MapConfigurationPropertySource source = new MapConfigurationPropertySource(Map.ofEntries(
+            Map.entry("app.blob.deferred-deep-check", "true"),
+            Map.entry("app.blob.content-addressed", "true"),
+            Map.entry("app.blob.properties-cache-ttl-ms", "250"),
+            Map.entry("app.blob.properties-cache-max-entries", "0"),
+            Map.entry("app.blob.list-page-size", "50"),
+            Map.entry("app.blob.download-block-size", "4096"),
+            Map.entry("app.blob.upload-block-size", "1024"),
+            Map.entry("app.blob.upload-max-concurrency", "8"),
+            Map.entry("app.blob.upload-max-single-size", "2048"),
+            Map.entry("app.blob.content-sweep-interval-ms", "60000"),
+            Map.entry("app.blob.content-sweep-grace-ms", "120000")));
+
+        //Act
+        BlobStorageProperties actualProperties = new Binder(source).bind("app.blob", BlobStorageProperties.class).get();
+
+        //Assert
+        assertTrue(actualProperties.isDeferredDeepCheck());
+        assertTrue(actualProperties.isContentAddressed());
+        assertEquals(250L, actualProperties.getPropertiesCacheTtlMs());
+        assertEquals(0, actualProperties.getPropertiesCacheMaxEntries());
+        assertEquals(50, actualProperties.getListPageSize());
+        assertEquals(4096, actualProperties.getDownloadBlockSize());
+        assertEquals(1024L, actualProperties.getUploadBlockSize());
+        assertEquals(8, actualProperties.getUploadMaxConcurrency());
+        assertEquals(2048L, actualProperties.getUploadMaxSingleSize());
+        assertEquals(60000L, actualProperties.getContentSweepIntervalMs());
+        assertEquals(120000L, actualProperties.getContentSweepGraceMs());
+    }
+}
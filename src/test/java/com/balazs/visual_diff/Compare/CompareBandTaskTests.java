@@ -0,0 +1,175 @@
+package com.balazs.visual_diff.Compare;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.balazs.visual_diff.Utilities.CompareUtilities;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
+import com.balazs.visual_diff.Utilities.IgnoreMask;
+import com.balazs.visual_diff.Utilities.PyramidCompareUtilities;
+
+public class CompareBandTaskTests {
+
+    @Test
+    @DisplayName("Compare bands in parallel, output matches sequential compare")
+    public void compute_multipleBands_shouldMatchSequentialCompare() {
+        //Arrange
+        int width = 97;
+        int height = 211;
+        Random random = new Random(3);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        byte[] compareRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        //Act
+        CompareUtilities.comparePixels(baselineRGBA, compareRGBA, expectedRGBA, width, height);
+        pool.invoke(new CompareBandTask(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, new CompareBandSettings(7, false, null, 0, false, null), null));
+        pool.shutdown();
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+    }
+
+    @Test
+    @DisplayName("Compare with band size larger than the image, output matches sequential compare")
+    public void compute_singleBand_shouldMatchSequentialCompare() {
+        //Arrange
+        int width = 13;
+        int height = 5;
+        Random random = new Random(5);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        byte[] compareRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+
+        //Act
+        CompareUtilities.comparePixels(baselineRGBA, compareRGBA, expectedRGBA, width, height);
+        ForkJoinPool.commonPool().invoke(new CompareBandTask(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, new CompareBandSettings(64, false, null, 0, false, null), null));
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+    }
+
+    @Test
+    @DisplayName("Compare bands in parallel with statistics, statistics match sequential compare")
+    public void compute_multipleBandsWithStatistics_shouldMatchSequentialStatistics() {
+        //Arrange
+        int width = 61;
+        int height = 149;
+        Random random = new Random(9);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        byte[] compareRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, new byte[width * height * 4], 0, width * height, false, expectedStatistics);
+        pool.invoke(new CompareBandTask(baselineRGBA, compareRGBA, new byte[width * height * 4], width, 0, height, new CompareBandSettings(5, false, null, 0, false, null), actualStatistics));
+        pool.shutdown();
+
+        //Assert
+        assertEquals(expectedStatistics.toHeaderValue(), actualStatistics.toHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Compare bands in parallel with ignored spans, output and statistics match sequential compare")
+    public void compute_multipleBandsWithIgnoredSpans_shouldMatchSequentialCompare() {
+        //Arrange
+        int width = 61;
+        int height = 149;
+        Random random = new Random(11);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        byte[] compareRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        IgnoreMask ignoreMask = new IgnoreMask(width, height);
+        ignoreMask.addRectangle(10, 3, 20, 40);
+        ignoreMask.addRectangle(0, 90, width, 12);
+        int[] ignoredSpans = ignoreMask.getSpans();
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, false, expectedStatistics, ignoredSpans);
+        pool.invoke(new CompareBandTask(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, new CompareBandSettings(5, false, ignoredSpans, 0, false, null), actualStatistics));
+        pool.shutdown();
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.toHeaderValue(), actualStatistics.toHeaderValue());
+        assertEquals(ignoreMask.getIgnoredPixels(), actualStatistics.getIgnoredPixels());
+    }
+
+    @Test
+    @DisplayName("Compare bands in parallel with tiles, output and statistics match sequential compare")
+    public void compute_multipleBandsWithTiles_shouldMatchSequentialCompare() {
+        //Arrange
+        int width = 130;
+        int height = 149;
+        Random random = new Random(13);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < 25; i++) { compareRGBA[random.nextInt(compareRGBA.length)] ^= (byte) 0x7F; }
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, false, expectedStatistics);
+        pool.invoke(new CompareBandTask(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, new CompareBandSettings(20, false, null, 32, false, null), actualStatistics));
+        pool.shutdown();
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.toHeaderValue(), actualStatistics.toHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Compare bands in parallel with candidate tiles, output matches sequential compare")
+    public void compute_multipleBandsWithCandidateTiles_shouldMatchSequentialCompare() {
+        //Arrange
+        int width = 120;
+        int height = 133;
+        Random random = new Random(17);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < 25; i++) { compareRGBA[random.nextInt(compareRGBA.length)] ^= (byte) 0x7F; }
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+        boolean[] candidateTiles = PyramidCompareUtilities.findCandidateTiles(baselineRGBA, compareRGBA, width, height, 3, true);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, false, expectedStatistics);
+        pool.invoke(new CompareBandTask(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, new CompareBandSettings(13, false, null, 8, false, candidateTiles), actualStatistics));
+        pool.shutdown();
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.getDiffPixels(), actualStatistics.getDiffPixels());
+    }
+}
@@ -1,14 +1,24 @@
 package com.balazs.visual_diff.Compare;
 
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
+import java.awt.image.BufferedImage;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
@@ -23,7 +33,13 @@ import org.springframework.security.test.context.support.WithMockUser;
 
 import com.balazs.visual_diff.Blob.BlobResponse;
 import com.balazs.visual_diff.Blob.BlobService;
+import com.balazs.visual_diff.Utilities.DiffRegion;
+import com.balazs.visual_diff.Utilities.DiffResult;
+import com.balazs.visual_diff.Utilities.DiffResultCache;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
 import com.balazs.visual_diff.Utilities.FileUtilities;
+import com.balazs.visual_diff.Utilities.ImageHeader;
+import com.balazs.visual_diff.Utilities.ValidatedImage;
 import com.balazs.visual_diff.Utilities.ValidationUtilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -59,9 +75,8 @@ public class CompareControllerTests {
         //Mock behaviour to isolate controller method
         when(blobService.doesFileExist(expectedBaselineFileName)).thenReturn(true);
         when(blobService.doesFileExist(expectedComparisonFileName)).thenReturn(true);
-        when(blobService.getFile(expectedBaselineFileName)).thenReturn(new byte[4]);
-        when(blobService.getFile(expectedComparisonFileName)).thenReturn(new byte[4]);
-		when(compareService.compare(new byte[4], new byte[4])).thenReturn(new byte[2]);
+        when(blobService.getFileETag(expectedBaselineFileName)).thenReturn("0x1");
+		when(compareService.compare(eq(expectedBaselineFileName), eq("0x1"), any(), any(), isNull(), isNull())).thenReturn(new CompareResult(new byte[2], new DiffStatistics(2, 2), List.of(new DiffRegion(0, 1, 1, 1, 2))));
         when(blobService.saveFile(new byte[4], expectedBaselineFileName)).thenReturn(new BlobResponse());
 
         //Static mock for file utilities similar to ValidationUtiltiiesTests
@@ -74,6 +89,10 @@ public class CompareControllerTests {
                 .andExpect(jsonPath("$.baselineFileName").value(expectedBaselineFileName))
                 .andExpect(jsonPath("$.comparisonFileName").value(expectedComparisonFileName))
                 .andExpect(jsonPath("$.diffFileName").value(expectedDiffFileName))
+                .andExpect(jsonPath("$.statistics.diffPixels").value(0))
+                .andExpect(jsonPath("$.statistics.totalPixels").value(4))
+                .andExpect(jsonPath("$.regions[0].width").value(2))
+                .andExpect(jsonPath("$.regions[0].pixelCount").value(2))
                 .andExpect(jsonPath("$._links.self.href").value(PREFIX + "/compare"))
                 .andExpect(jsonPath("$._links.get[0].href").value(PREFIX + "/files/" + expectedDiffFileName))
                 .andExpect(jsonPath("$._links.get[1].href").value(PREFIX + "/files/metadata/" + expectedDiffFileName))
@@ -82,6 +101,40 @@ public class CompareControllerTests {
         }
 	}
 
+    @Test
+    @DisplayName("POST /compare files compared before are provided, returns 201 created with the cached diff without comparing")
+	public void compare_cachedResult_shouldReturn201CreatedWithoutComparing() throws Exception {
+        //Arrange
+        String expectedBaselineFileName = "baseline.png";
+        String expectedComparisonFileName = "comparison.png";
+        String expectedResultKey = "abc123";
+        String expectedDiffFileName = "diff_" + expectedResultKey + ".png";
+        CompareRequest compareRequest = new CompareRequest(expectedBaselineFileName, expectedComparisonFileName);
+        String requestBody = objectMapper.writeValueAsString(compareRequest);
+        DiffResultCache diffResultCache = new DiffResultCache(10);
+        diffResultCache.put(expectedResultKey, new DiffResult(expectedDiffFileName, new DiffStatistics(2, 2), List.of(new DiffRegion(0, 1, 1, 1, 2))));
+
+        //Mock behaviour to isolate controller method
+        when(blobService.doesFileExist(expectedBaselineFileName)).thenReturn(true);
+        when(blobService.doesFileExist(expectedComparisonFileName)).thenReturn(true);
+        when(blobService.doesFileExist(expectedDiffFileName)).thenReturn(true);
+        when(blobService.getContentHash(expectedBaselineFileName)).thenReturn("baselineHash");
+        when(blobService.getContentHash(expectedComparisonFileName)).thenReturn("comparisonHash");
+        when(compareService.getResultKey("baselineHash", "comparisonHash", "", null)).thenReturn(expectedResultKey);
+        when(compareService.getDiffResultCache()).thenReturn(diffResultCache);
+
+        //Act & Assert
+        mockMvc.perform(post("/compare").contentType(MediaType.APPLICATION_JSON_VALUE).content(requestBody).with(csrf()))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.diffFileName").value(expectedDiffFileName))
+            .andExpect(jsonPath("$.statistics.totalPixels").value(4))
+            .andExpect(jsonPath("$.regions[0].pixelCount").value(2))
+            .andExpect(jsonPath("$._links.get[0].href").value(PREFIX + "/files/" + expectedDiffFileName));
+        verify(compareService, never()).compare(any(), any(), any(), any(), any(), any());
+        verify(blobService, never()).getFile(expectedBaselineFileName);
+        verify(blobService, never()).openFile(expectedBaselineFileName);
+	}
+
     @Test
     @DisplayName("POST /compare null input is provided, returns 400 bad request")
 	public void compare_nullInput_shouldReturn400BadRequest() throws Exception {
@@ -141,12 +194,33 @@ public class CompareControllerTests {
             .andExpect(status().isNotFound());
 	}
 
+    @Test
+    @DisplayName("POST non-existent maskFileName is provided, returns 404 not found")
+	public void compare_fakeMaskFileName_shouldReturn404NotFound() throws Exception {
+        //Arrange
+        //Create new request body since this method is the only one that accepts a RequestBody
+        CompareRequest compareRequest = new CompareRequest("baseline.png", "comparison.png");
+        compareRequest.setMaskFileName("doesntExist.png");
+        String requestBody = objectMapper.writeValueAsString(compareRequest);
+
+        //Mock behaviour to isolate controller method
+        when(blobService.doesFileExist("baseline.png")).thenReturn(true);
+        when(blobService.doesFileExist("comparison.png")).thenReturn(true);
+        when(blobService.doesFileExist("doesntExist.png")).thenReturn(false);
+
+        //Act & Assert
+        mockMvc.perform(post("/compare").contentType(MediaType.APPLICATION_JSON_VALUE).content(requestBody).with(csrf()))
+            .andExpect(status().isNotFound());
+	}
+
     @Test
     @DisplayName("POST /compare-direct valid input is provided, returns 200 ok")
 	public void compareDirect_validInput_shouldReturn200Ok() throws Exception {
         //Arrange
         MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
         MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage comparisonImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
 
         //Static mock for validation utilities similar to ValidationUtiltiiesTests
         try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
@@ -156,19 +230,66 @@ public class CompareControllerTests {
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
 
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(baselineFile)).thenReturn(true);
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(comparisonFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(baselineFile)).thenReturn(baselineImage);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(comparisonFile)).thenReturn(comparisonImage);
             
-            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineFile, comparisonFile)).thenReturn(true);
-            when(compareService.compare(baselineFile.getBytes(), comparisonFile.getBytes())).thenReturn(new byte[4]);
+            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage)).thenReturn(true);
+            DiffStatistics statistics = new DiffStatistics(2, 2);
+            when(compareService.compare(baselineImage.getImage(), comparisonImage.getImage(), null, null)).thenReturn(new CompareResult(new byte[4], statistics));
 
             //Act & Assert
             mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.IMAGE_PNG_VALUE));
+                .andExpect(content().contentType(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(header().string(CompareController.DIFF_STATISTICS_HEADER, statistics.toHeaderValue()));
         }
 	}
 
+    @Test
+    @DisplayName("POST /compare-direct mask with different dimensions is provided, returns 400 bad request")
+	public void compareDirect_maskDimensionMismatch_shouldReturn400BadRequest() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        MockMultipartFile maskFile = new MockMultipartFile("mask", "mask.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage comparisonImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage maskImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+
+        //Static mock for validation utilities similar to ValidationUtiltiiesTests
+        try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(maskFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(baselineFile)).thenReturn(baselineImage);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(comparisonFile)).thenReturn(comparisonImage);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(maskFile)).thenReturn(maskImage);
+            
+            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineImage, maskImage)).thenReturn(false);
+
+            //Act & Assert
+            mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).file(maskFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+                .andExpect(status().isBadRequest());
+        }
+	}
+
+    @Test
+    @DisplayName("POST /compare-direct invalid ignore region is provided, returns 400 bad request")
+	public void compareDirect_invalidIgnoreRegion_shouldReturn400BadRequest() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+
+        //Act & Assert
+        mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).param("ignore", "300x40+10").contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+            .andExpect(status().isBadRequest());
+	}
+
     @Test
     @DisplayName("POST /compare-direct invalid baselineFile input is provided, returns 400 bad request")
 	public void compareDirect_invalidBaselineFile_shouldReturn400BadRequest() throws Exception {
@@ -260,7 +381,7 @@ public class CompareControllerTests {
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
 
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(baselineFile)).thenReturn(false);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(baselineFile)).thenReturn(null);
 
             //Act & Assert
             mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
@@ -274,6 +395,7 @@ public class CompareControllerTests {
         //Arrange
         MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
         MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
 
         //Static mock for validation utilities similar to ValidationUtiltiiesTests
         try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
@@ -283,8 +405,8 @@ public class CompareControllerTests {
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
 
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(baselineFile)).thenReturn(true);
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(comparisonFile)).thenReturn(false);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(baselineFile)).thenReturn(baselineImage);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(comparisonFile)).thenReturn(null);
 
             //Act & Assert
             mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
@@ -298,6 +420,66 @@ public class CompareControllerTests {
         //Arrange
         MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
         MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage comparisonImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+
+        //Static mock for validation utilities similar to ValidationUtiltiiesTests
+        try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(baselineFile)).thenReturn(baselineImage);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(comparisonFile)).thenReturn(comparisonImage);
+
+            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage)).thenReturn(false);
+
+            //Act & Assert
+            mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+                .andExpect(status().isBadRequest());
+        }
+	}
+
+    @Test
+    @DisplayName("POST /compare-direct images too large to decode are provided, returns 200 ok without decoding them")
+	public void compareDirect_largeImages_shouldCompareEncodedFiles() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[] { 1, 2, 3, 4 });
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[] { 5, 6, 7, 8 });
+        ImageHeader header = new ImageHeader(FileUtilities.FORMAT_PNG, 8000, 8000, 8);
+
+        //Static mock for validation utilities similar to ValidationUtiltiiesTests
+        try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(baselineFile)).thenReturn(header);
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(comparisonFile)).thenReturn(header);
+
+            when(compareService.isTooLargeToDecode(64000000L)).thenReturn(true);
+            DiffStatistics statistics = new DiffStatistics(8000, 8000);
+            when(compareService.compare(aryEq(new byte[] { 1, 2, 3, 4 }), aryEq(new byte[] { 5, 6, 7, 8 }), isNull(), isNull())).thenReturn(new CompareResult(new byte[4], statistics));
+
+            //Act & Assert
+            mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CompareController.DIFF_STATISTICS_HEADER, statistics.toHeaderValue()));
+
+            validationUtilities.verify(() -> ValidationUtilities.readValidatedImage(any()), never());
+        }
+	}
+
+    @Test
+    @DisplayName("POST /compare-direct images too large to decode with different dimensions are provided, returns 400 bad request")
+	public void compareDirect_largeImagesInvalidDimensions_shouldReturn400BadRequest() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
 
         //Static mock for validation utilities similar to ValidationUtiltiiesTests
         try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
@@ -307,14 +489,178 @@ public class CompareControllerTests {
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
             validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
 
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(baselineFile)).thenReturn(true);
-            validationUtilities.when(() -> ValidationUtilities.isImageContentsValid(comparisonFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(baselineFile)).thenReturn(new ImageHeader(FileUtilities.FORMAT_PNG, 8000, 8000, 8));
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(comparisonFile)).thenReturn(new ImageHeader(FileUtilities.FORMAT_PNG, 8000, 7999, 8));
 
-            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineFile, comparisonFile)).thenReturn(false);
+            when(compareService.isTooLargeToDecode(64000000L)).thenReturn(true);
 
             //Act & Assert
             mockMvc.perform(multipart("/compare-direct").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
                 .andExpect(status().isBadRequest());
         }
 	}
+
+    @Test
+    @DisplayName("POST /compare/verdict valid input is provided, returns 200 ok with verdict")
+	public void compareVerdict_validInput_shouldReturn200Ok() throws Exception {
+        //Arrange
+        String expectedBaselineFileName = "baseline.png";
+        String expectedComparisonFileName = "comparison.png";
+        CompareRequest compareRequest = new CompareRequest(expectedBaselineFileName, expectedComparisonFileName);
+        String requestBody = objectMapper.writeValueAsString(compareRequest);
+
+        //Mock behaviour to isolate controller method
+        when(blobService.doesFileExist(expectedBaselineFileName)).thenReturn(true);
+        when(blobService.doesFileExist(expectedComparisonFileName)).thenReturn(true);
+        when(blobService.getFileETag(expectedBaselineFileName)).thenReturn("0x1");
+        when(compareService.countDiffPixels(eq(expectedBaselineFileName), eq("0x1"), any(), any(), isNull(), isNull(), eq(100L))).thenReturn(12L);
+
+        //Act & Assert
+        mockMvc.perform(post("/compare/verdict").param("maxDiffPixels", "100").contentType(MediaType.APPLICATION_JSON_VALUE).content(requestBody).with(csrf()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.baselineFileName").value(expectedBaselineFileName))
+            .andExpect(jsonPath("$.comparisonFileName").value(expectedComparisonFileName))
+            .andExpect(jsonPath("$.maxDiffPixels").value(100))
+            .andExpect(jsonPath("$.diffPixels").value(12))
+            .andExpect(jsonPath("$.withinBudget").value(true));
+	}
+
+    @Test
+    @DisplayName("POST /compare/verdict with ignore regions and mask, counts without the ignored pixels")
+	public void compareVerdict_ignoreRegionsAndMask_shouldPassThemToCount() throws Exception {
+        //Arrange
+        byte[] maskData = new byte[] { 1, 2, 3 };
+        CompareRequest compareRequest = new CompareRequest("baseline.png", "comparison.png");
+        compareRequest.setIgnoreRegions(List.of(new IgnoreRegion(10, 20, 300, 40)));
+        compareRequest.setMaskFileName("mask.png");
+        String requestBody = objectMapper.writeValueAsString(compareRequest);
+
+        //Mock behaviour to isolate controller method
+        when(blobService.doesFileExist("baseline.png")).thenReturn(true);
+        when(blobService.doesFileExist("comparison.png")).thenReturn(true);
+        when(blobService.doesFileExist("mask.png")).thenReturn(true);
+        when(blobService.getFileETag("baseline.png")).thenReturn("0x1");
+        when(blobService.getFile("mask.png")).thenReturn(maskData);
+        when(compareService.countDiffPixels(eq("baseline.png"), eq("0x1"), any(), any(), argThat((List<IgnoreRegion> regions) -> regions.size() == 1 && regions.get(0).getWidth() == 300), aryEq(maskData), eq(0L))).thenReturn(0L);
+
+        //Act & Assert
+        mockMvc.perform(post("/compare/verdict").contentType(MediaType.APPLICATION_JSON_VALUE).content(requestBody).with(csrf()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.diffPixels").value(0))
+            .andExpect(jsonPath("$.withinBudget").value(true));
+	}
+
+    @Test
+    @DisplayName("POST /compare/verdict non-existent maskFileName is provided, returns 404 not found")
+	public void compareVerdict_fakeMaskFileName_shouldReturn404NotFound() throws Exception {
+        //Arrange
+        CompareRequest compareRequest = new CompareRequest("baseline.png", "comparison.png");
+        compareRequest.setMaskFileName("doesntExist.png");
+        String requestBody = objectMapper.writeValueAsString(compareRequest);
+
+        //Mock behaviour to isolate controller method
+        when(blobService.doesFileExist("baseline.png")).thenReturn(true);
+        when(blobService.doesFileExist("comparison.png")).thenReturn(true);
+        when(blobService.doesFileExist("doesntExist.png")).thenReturn(false);
+
+        //Act & Assert
+        mockMvc.perform(post("/compare/verdict").contentType(MediaType.APPLICATION_JSON_VALUE).content(requestBody).with(csrf()))
+            .andExpect(status().isNotFound());
+	}
+
+    @Test
+    @DisplayName("POST /compare/verdict non-existent baselineFileName is provided, returns 404 not found")
+	public void compareVerdict_fakeBaselineFileName_shouldReturn404NotFound() throws Exception {
+        //Arrange
+        CompareRequest compareRequest = new CompareRequest("doesntExist.png", "compare.png");
+        String requestBody = objectMapper.writeValueAsString(compareRequest);
+
+        //Mock behaviour to isolate controller method
+        when(blobService.doesFileExist("doesntExist.png")).thenReturn(false);
+
+        //Act & Assert
+        mockMvc.perform(post("/compare/verdict").contentType(MediaType.APPLICATION_JSON_VALUE).content(requestBody).with(csrf()))
+            .andExpect(status().isNotFound());
+	}
+
+    @Test
+    @DisplayName("POST /compare-direct/verdict over budget, returns 200 ok with failing verdict")
+	public void compareDirectVerdict_overBudget_shouldReturn200OkNotWithinBudget() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage comparisonImage = new ValidatedImage(new BufferedImage(2, 2, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+
+        //Static mock for validation utilities similar to ValidationUtiltiiesTests
+        try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(baselineFile)).thenReturn(baselineImage);
+            validationUtilities.when(() -> ValidationUtilities.readValidatedImage(comparisonFile)).thenReturn(comparisonImage);
+            
+            validationUtilities.when(() -> ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage)).thenReturn(true);
+            when(compareService.countDiffPixels(baselineImage.getImage(), comparisonImage.getImage(), null, null, 5)).thenReturn(6L);
+
+            //Act & Assert
+            mockMvc.perform(multipart("/compare-direct/verdict").file(baselineFile).file(comparisonFile).param("maxDiffPixels", "5").contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.diffPixels").value(6))
+                .andExpect(jsonPath("$.withinBudget").value(false));
+        }
+	}
+
+    @Test
+    @DisplayName("POST /compare-direct/verdict images too large to decode are provided, returns 200 ok without decoding them")
+	public void compareDirectVerdict_largeImages_shouldCountEncodedFiles() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[] { 1, 2, 3, 4 });
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[] { 5, 6, 7, 8 });
+        ImageHeader header = new ImageHeader(FileUtilities.FORMAT_PNG, 8000, 8000, 8);
+
+        //Static mock for validation utilities similar to ValidationUtiltiiesTests
+        try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(baselineFile)).thenReturn(true);
+            validationUtilities.when(() -> ValidationUtilities.isContentTypeValid(comparisonFile)).thenReturn(true);
+
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(baselineFile)).thenReturn(header);
+            validationUtilities.when(() -> ValidationUtilities.readImageHeader(comparisonFile)).thenReturn(header);
+
+            when(compareService.isTooLargeToDecode(64000000L)).thenReturn(true);
+            when(compareService.countDiffPixels(aryEq(new byte[] { 1, 2, 3, 4 }), aryEq(new byte[] { 5, 6, 7, 8 }), isNull(), isNull(), eq(5L))).thenReturn(6L);
+
+            //Act & Assert
+            mockMvc.perform(multipart("/compare-direct/verdict").file(baselineFile).file(comparisonFile).param("maxDiffPixels", "5").contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.diffPixels").value(6))
+                .andExpect(jsonPath("$.withinBudget").value(false));
+
+            validationUtilities.verify(() -> ValidationUtilities.readValidatedImage(any()), never());
+        }
+	}
+
+    @Test
+    @DisplayName("POST /compare-direct/verdict invalid baselineFile input is provided, returns 400 bad request")
+	public void compareDirectVerdict_invalidBaselineFile_shouldReturn400BadRequest() throws Exception {
+        //Arrange
+        MockMultipartFile baselineFile = new MockMultipartFile("baseline", "baseline.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+        MockMultipartFile comparisonFile = new MockMultipartFile("comparison", "comparison.png", MediaType.IMAGE_PNG_VALUE, new byte[4]);
+
+        //Static mock for validation utilities similar to ValidationUtiltiiesTests
+        try (MockedStatic<ValidationUtilities> validationUtilities = mockStatic(ValidationUtilities.class)) {
+            validationUtilities.when(() -> ValidationUtilities.isFileValid(baselineFile)).thenReturn(false);
+
+            //Act & Assert
+            mockMvc.perform(multipart("/compare-direct/verdict").file(baselineFile).file(comparisonFile).contentType(MediaType.MULTIPART_FORM_DATA_VALUE).with(csrf()))
+                .andExpect(status().isBadRequest());
+        }
+	}
 }
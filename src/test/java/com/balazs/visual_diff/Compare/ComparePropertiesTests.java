@@ -0,0 +1,92 @@
+package com.balazs.visual_diff.Compare;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+public class ComparePropertiesTests {
+    @Test
+    @DisplayName("Default constructor, initializes the defaults of application.properties")
+    public void CompareProperties_default_shouldInitializeDefaults() {
+        //Act
+        CompareProperties actualProperties = new CompareProperties();
+
+        //Assert
+        assertEquals(0, actualProperties.getParallelism());
+        assertEquals(64, actualProperties.getBandRows());
+        assertEquals(1000000L, actualProperties.getParallelMinPixels());
+        assertFalse(actualProperties.isFixedPointKernel());
+        assertEquals(0, actualProperties.getRegionDilationRadius());
+        assertEquals(100, actualProperties.getMaxRegions());
+        assertEquals(64, actualProperties.getTileSize());
+        assertFalse(actualProperties.isMismatchScan());
+        assertEquals(5, actualProperties.getPyramidLevels());
+        assertEquals(20000000L, actualProperties.getPyramidMinPixels());
+        assertTrue(actualProperties.isPyramidConservative());
+        assertEquals(4000000L, actualProperties.getStreamingMinPixels());
+        assertEquals(256, actualProperties.getStreamingBandRows());
+        assertEquals(16000000L, actualProperties.getOffHeapMinPixels());
+        assertFalse(actualProperties.isOffHeapMapped());
+        assertEquals("", actualProperties.getOffHeapDirectory());
+        assertEquals(268435456L, actualProperties.getBufferPoolMaxBytes());
+        assertEquals(268435456L, actualProperties.getDecodedImageCacheMaxBytes());
+        assertEquals(1024, actualProperties.getResultCacheMaxEntries());
+    }
+
+    @Test
+    @DisplayName("Bind app.compare properties, sets the matching fields")
+    public void bind_appCompareProperties_shouldSetFields() {
+        //Arrange
+        MapConfigurationPropertySource source = new MapConfigurationPropertySource(Map.ofEntries(
+            Map.entry("app.compare.parallelism", "3"),
+            Map.entry("app.compare.band-rows", "16"),
+            Map.entry("app.compare.parallel-min-pixels", "500"),
+            Map.entry("app.compare.fixed-point-kernel", "true"),
+            Map.entry("app.compare.region-dilation-radius", "2"),
+            Map.entry("app.compare.max-regions", "10"),
+            Map.entry("app.compare.tile-size", "32"),
+            Map.entry("app.compare.mismatch-scan", "true"),
+            Map.entry("app.compare.pyramid-levels", "3"),
+            Map.entry("app.compare.pyramid-min-pixels", "1000"),
+            Map.entry("app.compare.pyramid-conservative", "false"),
+            Map.entry("app.compare.streaming-min-pixels", "0"),
+            Map.entry("app.compare.streaming-band-rows", "32"),
+            Map.entry("app.compare.off-heap-min-pixels", "0"),
+            Map.entry("app.compare.off-heap-mapped", "true"),
+            Map.entry("app.compare.off-heap-directory", "/tmp/rasters"),
+            Map.entry("app.compare.buffer-pool-max-bytes", "0"),
+            Map.entry("app.compare.decoded-image-cache-max-bytes", "1024"),
+            Map.entry("app.compare.result-cache-max-entries", "16")));
+
+        //Act
+        CompareProperties actualProperties = new Binder(source).bind("app.compare", CompareProperties.class).get();
+
+        //Assert
+        assertEquals(3, actualProperties.getParallelism());
+        assertEquals(16, actualProperties.getBandRows());
+        assertEquals(500L, actualProperties.getParallelMinPixels());
+        assertTrue(actualProperties.isFixedPointKernel());
+        assertEquals(2, actualProperties.getRegionDilationRadius());
+        assertEquals(10, actualProperties.getMaxRegions());
+        assertEquals(32, actualProperties.getTileSize());
+        assertTrue(actualProperties.isMismatchScan());
+        assertEquals(3, actualProperties.getPyramidLevels());
+        assertEquals(1000L, actualProperties.getPyramidMinPixels());
+        assertFalse(actualProperties.isPyramidConservative());
+        assertEquals(0L, actualProperties.getStreamingMinPixels());
+        assertEquals(32, actualProperties.getStreamingBandRows());
+        assertEquals(0L, actualProperties.getOffHeapMinPixels());
+        assertTrue(actualProperties.isOffHeapMapped());
+        assertEquals("/tmp/rasters", actualProperties.getOffHeapDirectory());
+        assertEquals(0L, actualProperties.getBufferPoolMaxBytes());
+        assertEquals(1024L, actualProperties.getDecodedImageCacheMaxBytes());
+        assertEquals(16, actualProperties.getResultCacheMaxEntries());
+    }
+}
@@ -2,6 +2,9 @@ package com.balazs.visual_diff.Compare;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,6 +19,8 @@ public class CompareRequestTests {
         //Assert
         assertNull(actualRequest.getBaseline());
         assertNull(actualRequest.getComparison());
+        assertNull(actualRequest.getIgnoreRegions());
+        assertNull(actualRequest.getMaskFileName());
     }
 
     @Test
@@ -62,4 +67,34 @@ public class CompareRequestTests {
         //Assert
         assertEquals(expectedComparisonFileName, actualComparisonFileName);
     }
+
+    @Test
+    @DisplayName("Get and set ignore regions")
+    public void changeIgnoreRegions_withValue_changesIgnoreRegions() {
+        //Arrange
+        CompareRequest actualRequest = new CompareRequest();
+        List<IgnoreRegion> expectedIgnoreRegions = List.of(new IgnoreRegion(10, 20, 300, 40));
+
+        //Act
+        actualRequest.setIgnoreRegions(expectedIgnoreRegions);
+        List<IgnoreRegion> actualIgnoreRegions = actualRequest.getIgnoreRegions();
+
+        //Assert
+        assertSame(expectedIgnoreRegions, actualIgnoreRegions);
+    }
+
+    @Test
+    @DisplayName("Get and set mask file name")
+    public void changeMaskFileName_withValue_changesMaskFileName() {
+        //Arrange
+        CompareRequest actualRequest = new CompareRequest();
+        String expectedMaskFileName = "mask.png";
+
+        //Act
+        actualRequest.setMaskFileName(expectedMaskFileName);
+        String actualMaskFileName = actualRequest.getMaskFileName();
+
+        //Assert
+        assertEquals(expectedMaskFileName, actualMaskFileName);
+    }
 }
@@ -2,10 +2,16 @@ package com.balazs.visual_diff.Compare;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import com.balazs.visual_diff.Utilities.DiffRegion;
+import com.balazs.visual_diff.Utilities.DiffStatistics;
+
 public class CompareResponseTests {
     @Test
     @DisplayName("Default constructor, initializes empty object")
@@ -17,6 +23,8 @@ public class CompareResponseTests {
         assertNull(actualResponse.getBaselineFileName());
         assertNull(actualResponse.getComparisonFileName());
         assertNull(actualResponse.getDiffFileName());
+        assertNull(actualResponse.getStatistics());
+        assertNull(actualResponse.getRegions());
     }
 
     @Test
@@ -80,4 +88,61 @@ public class CompareResponseTests {
         //Assert
         assertEquals(expectedDiffFileName, actualDiffFileName);
     }
+
+    @Test
+    @DisplayName("Parameterized constructor with statistics, initializes object correctly")
+    public void CompareResponse_parametersWithStatistics_shouldInitializeObject() {
+        //Arrange
+        DiffStatistics expectedStatistics = new DiffStatistics(10, 10);
+
+        //Act
+        CompareResponse actualResponse = new CompareResponse("baseline.png", "comparison.png", "diff.png", expectedStatistics);
+
+        //Assert
+        assertEquals("diff.png", actualResponse.getDiffFileName());
+        assertSame(expectedStatistics, actualResponse.getStatistics());
+    }
+
+    @Test
+    @DisplayName("Get and set statistics")
+    public void changeStatistics_withValue_changesStatistics() {
+        //Arrange
+        CompareResponse actualResponse = new CompareResponse();
+        DiffStatistics expectedStatistics = new DiffStatistics(10, 10);
+
+        //Act
+        actualResponse.setStatistics(expectedStatistics);
+        DiffStatistics actualStatistics = actualResponse.getStatistics();
+
+        //Assert
+        assertSame(expectedStatistics, actualStatistics);
+    }
+
+    @Test
+    @DisplayName("Parameterized constructor with regions, initializes object correctly")
+    public void CompareResponse_parametersWithRegions_shouldInitializeObject() {
+        //Arrange
+        List<DiffRegion> expectedRegions = List.of(new DiffRegion(1, 2, 3, 4, 5));
+
+        //Act
+        CompareResponse actualResponse = new CompareResponse("baseline.png", "comparison.png", "diff.png", new DiffStatistics(10, 10), expectedRegions);
+
+        //Assert
+        assertSame(expectedRegions, actualResponse.getRegions());
+    }
+
+    @Test
+    @DisplayName("Get and set regions")
+    public void changeRegions_withValue_changesRegions() {
+        //Arrange
+        CompareResponse actualResponse = new CompareResponse();
+        List<DiffRegion> expectedRegions = List.of(new DiffRegion(1, 2, 3, 4, 5));
+
+        //Act
+        actualResponse.setRegions(expectedRegions);
+        List<DiffRegion> actualRegions = actualResponse.getRegions();
+
+        //Assert
+        assertSame(expectedRegions, actualRegions);
+    }
 }
@@ -0,0 +1,190 @@
+package com.balazs.visual_diff.Compare;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CompareServiceTests {
+
+    private CompareService compareService;
+    private CompareService fullDecodeService;
+
+    @AfterEach
+    public void tearDown() {
+        if (compareService != null) { compareService.shutdown(); }
+        if (fullDecodeService != null) { fullDecodeService.shutdown(); }
+    }
+
+    /**
+     * Creates an RGBA PNG file of width x height pixels with random pixels, which compresses poorly, so its image data
+     * is written as several IDAT chunks.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @param long seed of the random pixels
+     * @return byte[] contents of the PNG file
+     * @throws IOException
+     */
+    private byte[] createRandomPng(int width, int height, long seed) throws IOException {
+        return createRandomImage(width, height, seed, BufferedImage.TYPE_4BYTE_ABGR, "png");
+    }
+
+    /**
+     * Creates an image file of width x height pixels with random pixels.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @param long seed of the random pixels
+     * @param int type of the BufferedImage that is encoded
+     * @param String format of the image file, e.g. png or jpg
+     * @return byte[] contents of the image file
+     * @throws IOException
+     */
+    private byte[] createRandomImage(int width, int height, long seed, int type, String format) throws IOException {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt() | 0xFF000000);
+            }
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes the pixels of a diff image.
+     *
+     * @param byte[] diffData contents of the diff image file
+     * @return int[] ARGB pixels of the diff image
+     * @throws IOException
+     */
+    private int[] decodePixels(byte[] diffData) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(diffData));
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Creates the service under test with the default settings, except for the given thresholds.
+     *
+     * @param long streamingMinPixels images with at least this many pixels are streamed. 0 disables streaming
+     * @param long offHeapMinPixels images with at least this many pixels are held off-heap. 0 disables off-heap rasters
+     * @return CompareService with streamingBandRows of 8
+     */
+    private CompareService createCompareService(long streamingMinPixels, long offHeapMinPixels) {
+        CompareProperties properties = new CompareProperties();
+        properties.setStreamingMinPixels(streamingMinPixels);
+        properties.setStreamingBandRows(8);
+        properties.setOffHeapMinPixels(offHeapMinPixels);
+        return new CompareService(properties);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels of streamed images over budget, stops before decoding the rest of the images")
+    public void countDiffPixels_streamedOverBudget_shouldStopBeforeDecodingRest() throws IOException {
+        //Arrange
+        compareService = createCompareService(1000, 0);
+        byte[] baselineData = createRandomPng(200, 200, 1);
+        byte[] comparisonData = createRandomPng(200, 200, 2);
+
+        //Cut the comparison file in half, so a full decode fails on its missing rows
+        byte[] truncatedData = Arrays.copyOf(comparisonData, comparisonData.length / 2);
+
+        //Act
+        long actualDiffPixels = compareService.countDiffPixels(baselineData, truncatedData, null, null, 10);
+
+        //Assert
+        assertTrue(actualDiffPixels > 10);
+        assertThrows(IOException.class, () -> compareService.countDiffPixels(baselineData, truncatedData, null, null, Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Count diff pixels of streamed images, returns the count of the full decode")
+    public void countDiffPixels_streamed_shouldMatchFullDecode() throws IOException {
+        //Arrange
+        compareService = createCompareService(1000, 0);
+        fullDecodeService = createCompareService(0, 0);
+        byte[] baselineData = createRandomPng(120, 90, 1);
+        byte[] comparisonData = createRandomPng(120, 90, 2);
+        List<IgnoreRegion> ignoreRegions = List.of(new IgnoreRegion(30, 20, 10, 15));
+
+        //Act
+        long actualDiffPixels = compareService.countDiffPixels(baselineData, comparisonData, ignoreRegions, null, Long.MAX_VALUE);
+        long expectedDiffPixels = fullDecodeService.countDiffPixels(baselineData, comparisonData, ignoreRegions, null, Long.MAX_VALUE);
+
+        //Assert
+        assertEquals(expectedDiffPixels, actualDiffPixels);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels of images held off-heap, returns the count of the full decode")
+    public void countDiffPixels_offHeap_shouldMatchFullDecode() throws IOException {
+        //Arrange
+        compareService = createCompareService(0, 1000);
+        fullDecodeService = createCompareService(0, 0);
+        byte[] baselineData = createRandomPng(120, 90, 1);
+        byte[] comparisonData = createRandomPng(120, 90, 2);
+
+        //Act
+        long actualDiffPixels = compareService.countDiffPixels(baselineData, comparisonData, null, null, Long.MAX_VALUE);
+        long expectedDiffPixels = fullDecodeService.countDiffPixels(baselineData, comparisonData, null, null, Long.MAX_VALUE);
+
+        //Assert
+        assertEquals(expectedDiffPixels, actualDiffPixels);
+    }
+
+    @Test
+    @DisplayName("Compare RGB PNGs held off-heap, returns the pixels, statistics, and regions of the full decode")
+    public void compare_offHeapRgbPng_shouldMatchFullDecode() throws IOException {
+        //Arrange
+        compareService = createCompareService(0, 1000);
+        fullDecodeService = createCompareService(0, 0);
+        byte[] baselineData = createRandomImage(120, 90, 1, BufferedImage.TYPE_3BYTE_BGR, "png");
+        byte[] comparisonData = createRandomImage(120, 90, 2, BufferedImage.TYPE_3BYTE_BGR, "png");
+        List<IgnoreRegion> ignoreRegions = List.of(new IgnoreRegion(30, 20, 10, 15));
+
+        //Act
+        CompareResult actualResult = compareService.compare(baselineData, comparisonData, ignoreRegions, null);
+        CompareResult expectedResult = fullDecodeService.compare(baselineData, comparisonData, ignoreRegions, null);
+
+        //Assert
+        assertArrayEquals(decodePixels(expectedResult.getDiffData()), decodePixels(actualResult.getDiffData()));
+        assertEquals(expectedResult.getStatistics().toHeaderValue(), actualResult.getStatistics().toHeaderValue());
+        assertEquals(expectedResult.getRegions().size(), actualResult.getRegions().size());
+    }
+
+    @Test
+    @DisplayName("Compare JPEGs held off-heap, returns the pixels and statistics of the full decode")
+    public void compare_offHeapJpeg_shouldMatchFullDecode() throws IOException {
+        //Arrange
+        compareService = createCompareService(0, 1000);
+        fullDecodeService = createCompareService(0, 0);
+        byte[] baselineData = createRandomImage(120, 90, 1, BufferedImage.TYPE_3BYTE_BGR, "jpg");
+        byte[] comparisonData = createRandomImage(120, 90, 2, BufferedImage.TYPE_3BYTE_BGR, "jpg");
+
+        //Act
+        CompareResult actualResult = compareService.compare(baselineData, comparisonData, null, null);
+        CompareResult expectedResult = fullDecodeService.compare(baselineData, comparisonData, null, null);
+
+        //Assert
+        assertArrayEquals(decodePixels(expectedResult.getDiffData()), decodePixels(actualResult.getDiffData()));
+        assertEquals(expectedResult.getStatistics().toHeaderValue(), actualResult.getStatistics().toHeaderValue());
+    }
+}
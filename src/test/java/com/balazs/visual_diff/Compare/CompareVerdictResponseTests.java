@@ -0,0 +1,70 @@
+package com.balazs.visual_diff.Compare;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CompareVerdictResponseTests {
+    @Test
+    @DisplayName("Default constructor, initializes empty object")
+    public void CompareVerdictResponse_default_shouldInitializeEmptyObject() {
+        //Act
+        CompareVerdictResponse actualResponse = new CompareVerdictResponse();
+
+        //Assert
+        assertNull(actualResponse.getBaselineFileName());
+        assertNull(actualResponse.getComparisonFileName());
+        assertEquals(0, actualResponse.getMaxDiffPixels());
+        assertEquals(0, actualResponse.getDiffPixels());
+        assertFalse(actualResponse.isWithinBudget());
+    }
+
+    @Test
+    @DisplayName("Parameterized constructor within budget, initializes object correctly")
+    public void CompareVerdictResponse_withinBudget_shouldInitializeObject() {
+        //Arrange
+        String expectedBaselineFileName = "baseline.png";
+        String expectedComparisonFileName = "comparison.png";
+
+        //Act
+        CompareVerdictResponse actualResponse = new CompareVerdictResponse(expectedBaselineFileName, expectedComparisonFileName, 10, 10);
+
+        //Assert
+        assertEquals(expectedBaselineFileName, actualResponse.getBaselineFileName());
+        assertEquals(expectedComparisonFileName, actualResponse.getComparisonFileName());
+        assertEquals(10, actualResponse.getMaxDiffPixels());
+        assertEquals(10, actualResponse.getDiffPixels());
+        assertTrue(actualResponse.isWithinBudget());
+    }
+
+    @Test
+    @DisplayName("Parameterized constructor over budget, is not within budget")
+    public void CompareVerdictResponse_overBudget_shouldNotBeWithinBudget() {
+        //Act
+        CompareVerdictResponse actualResponse = new CompareVerdictResponse("baseline.png", "comparison.png", 10, 11);
+
+        //Assert
+        assertFalse(actualResponse.isWithinBudget());
+    }
+
+    @Test
+    @DisplayName("Get and set diff pixels")
+    public void changeDiffPixels_withValue_changesDiffPixels() {
+        //Arrange
+        CompareVerdictResponse actualResponse = new CompareVerdictResponse();
+
+        //Act
+        actualResponse.setDiffPixels(42);
+        actualResponse.setMaxDiffPixels(50);
+        actualResponse.setWithinBudget(true);
+
+        //Assert
+        assertEquals(42, actualResponse.getDiffPixels());
+        assertEquals(50, actualResponse.getMaxDiffPixels());
+        assertTrue(actualResponse.isWithinBudget());
+    }
+}
@@ -0,0 +1,64 @@
+package com.balazs.visual_diff.Compare;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class IgnoreRegionTests {
+    @Test
+    @DisplayName("Parameterized constructor, initializes object correctly")
+    public void IgnoreRegion_parameters_shouldInitializeObject() {
+        //Act
+        IgnoreRegion actualRegion = new IgnoreRegion(10, 20, 300, 40);
+
+        //Assert
+        assertEquals(10, actualRegion.getX());
+        assertEquals(20, actualRegion.getY());
+        assertEquals(300, actualRegion.getWidth());
+        assertEquals(40, actualRegion.getHeight());
+    }
+
+    @Test
+    @DisplayName("Get and set x, y, width, and height")
+    public void changeRectangle_withValues_changesRectangle() {
+        //Arrange
+        IgnoreRegion actualRegion = new IgnoreRegion();
+
+        //Act
+        actualRegion.setX(1);
+        actualRegion.setY(2);
+        actualRegion.setWidth(3);
+        actualRegion.setHeight(4);
+
+        //Assert
+        assertEquals(1, actualRegion.getX());
+        assertEquals(2, actualRegion.getY());
+        assertEquals(3, actualRegion.getWidth());
+        assertEquals(4, actualRegion.getHeight());
+    }
+
+    @Test
+    @DisplayName("Value of geometry string, parses rectangle")
+    public void valueOf_geometry_shouldParseRectangle() {
+        //Act
+        IgnoreRegion actualRegion = IgnoreRegion.valueOf("300x40+10+20");
+
+        //Assert
+        assertEquals(10, actualRegion.getX());
+        assertEquals(20, actualRegion.getY());
+        assertEquals(300, actualRegion.getWidth());
+        assertEquals(40, actualRegion.getHeight());
+    }
+
+    @Test
+    @DisplayName("Value of invalid strings, throws IllegalArgumentException")
+    public void valueOf_invalidGeometry_shouldThrowIllegalArgumentException() {
+        //Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> IgnoreRegion.valueOf("10,20,300,40"));
+        assertThrows(IllegalArgumentException.class, () -> IgnoreRegion.valueOf("300x40+10"));
+        assertThrows(IllegalArgumentException.class, () -> IgnoreRegion.valueOf("0x40+10+20"));
+        assertThrows(IllegalArgumentException.class, () -> IgnoreRegion.valueOf("300x40+-10+20"));
+    }
+}
@@ -122,7 +122,7 @@ public class GlobalExceptionHandlerTests {
     public void handleInvalidTypeException_validInput_shouldReturn400BadRequest() {
         //Arrange
         HttpStatus expectedStatus = HttpStatus.BAD_REQUEST;
-        String expectedMessage = "Invalid 'type' value in body. Must be 'baseline' or 'comparison'."; //const from class
+        String expectedMessage = "Invalid 'type' value in body. Must be 'baseline', 'comparison' or 'mask'."; //const from class
 
         GlobalExceptionHandler globalExceptionHandler = new GlobalExceptionHandler();
         HttpServletRequest request = mock(HttpServletRequest.class);
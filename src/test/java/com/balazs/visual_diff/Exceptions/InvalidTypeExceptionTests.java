@@ -6,7 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 public class InvalidTypeExceptionTests {
-    private static final String DEFAULT_MESSAGE = "Invalid 'type' value in body. Must be 'baseline' or 'comparison'.";
+    private static final String DEFAULT_MESSAGE = "Invalid 'type' value in body. Must be 'baseline', 'comparison' or 'mask'.";
 
     @Test
     @DisplayName("Default constructor no param provided, sets default message")
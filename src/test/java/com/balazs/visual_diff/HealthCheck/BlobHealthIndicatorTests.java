@@ -5,6 +5,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.azure.storage.blob.models.BlobStorageException;
+import com.balazs.visual_diff.Blob.BlobPropertiesCache;
 import com.balazs.visual_diff.Blob.BlobService;
 
 @SpringBootTest
@@ -26,6 +28,11 @@ public class BlobHealthIndicatorTests {
     @MockitoBean
     private BlobService blobService;
 
+    @BeforeEach
+    public void setUp() {
+        when(blobService.getPropertiesCache()).thenReturn(new BlobPropertiesCache(5000, 10000));
+    }
+
     @Test
     @DisplayName("GET /actuator/health with successful connection to azure blob storage, returns 200 ok")
 	public void health_withConnectionSuccess_shouldReturn200Ok() throws Exception {
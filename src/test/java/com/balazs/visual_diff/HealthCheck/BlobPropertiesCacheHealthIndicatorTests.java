@@ -0,0 +1,44 @@
+package com.balazs.visual_diff.HealthCheck;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.balazs.visual_diff.Blob.BlobPropertiesCache;
+import com.balazs.visual_diff.Blob.BlobService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BlobPropertiesCacheHealthIndicatorTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BlobService blobService;
+
+    @Test
+    @DisplayName("GET /actuator/health, returns the blob properties cache as up with its hits and misses")
+	public void health_blobPropertiesCache_shouldReturnUpWithMetrics() throws Exception {
+        //Arrange
+        String expectedStatus = "UP";
+
+        when(blobService.getPropertiesCache()).thenReturn(new BlobPropertiesCache(5000, 10000));
+
+        //Act & Assert
+        mockMvc.perform(get("/actuator/health"))
+            .andExpect(jsonPath("$.components.blobPropertiesCache.status").value(expectedStatus))
+            .andExpect(jsonPath("$.components.blobPropertiesCache.details.hits").value(0))
+            .andExpect(jsonPath("$.components.blobPropertiesCache.details.misses").value(0))
+            .andExpect(jsonPath("$.components.blobPropertiesCache.details.revalidations").value(0))
+            .andExpect(jsonPath("$.components.blobPropertiesCache.details.maxEntries").value(10000));
+	}
+}
@@ -0,0 +1,47 @@
+package com.balazs.visual_diff.HealthCheck;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.balazs.visual_diff.Blob.BlobPropertiesCache;
+import com.balazs.visual_diff.Blob.BlobService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BufferPoolHealthIndicatorTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BlobService blobService;
+
+    @BeforeEach
+    public void setUp() {
+        when(blobService.getPropertiesCache()).thenReturn(new BlobPropertiesCache(5000, 10000));
+    }
+
+    @Test
+    @DisplayName("GET /actuator/health, returns the buffer pool as up with its hits and misses")
+	public void health_bufferPool_shouldReturnUpWithMetrics() throws Exception {
+        //Arrange
+        String expectedStatus = "UP";
+
+        //Act & Assert
+        mockMvc.perform(get("/actuator/health"))
+            .andExpect(jsonPath("$.components.bufferPool.status").value(expectedStatus))
+            .andExpect(jsonPath("$.components.bufferPool.details.hits").isNumber())
+            .andExpect(jsonPath("$.components.bufferPool.details.misses").isNumber())
+            .andExpect(jsonPath("$.components.bufferPool.details.maxRetainedBytes").value(268435456));
+	}
+}
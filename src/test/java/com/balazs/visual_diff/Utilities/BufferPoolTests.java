@@ -0,0 +1,139 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class BufferPoolTests {
+
+    @Test
+    @DisplayName("Lengths are rounded up to size classes of four steps per power of two")
+    public void capacityFor_lengths_shouldRoundUpToSizeClass() {
+        //Act & Assert
+        assertEquals(4096, BufferPool.capacityFor(1));
+        assertEquals(4096, BufferPool.capacityFor(4096));
+        assertEquals(5120, BufferPool.capacityFor(4097));
+        assertEquals(8192, BufferPool.capacityFor(8192));
+        assertEquals(10240, BufferPool.capacityFor(8193));
+        assertEquals(1 << 30, BufferPool.capacityFor(7 * (1 << 27) + 1));
+    }
+
+    @Test
+    @DisplayName("Borrow after releasing an array of the same size class, returns the released array as a hit")
+    public void borrow_afterRelease_shouldReturnReleasedArray() {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(1 << 20);
+        byte[] buffer = bufferPool.borrow(6000);
+
+        //Act
+        bufferPool.release(buffer);
+        byte[] borrowedBuffer = bufferPool.borrow(5500);
+
+        //Assert
+        assertSame(buffer, borrowedBuffer);
+        assertEquals(6144, borrowedBuffer.length);
+        assertEquals(1, bufferPool.getHits());
+        assertEquals(1, bufferPool.getMisses());
+        assertEquals(0, bufferPool.getRetainedBytes());
+    }
+
+    @Test
+    @DisplayName("Borrow of a different size class, allocates a new array as a miss")
+    public void borrow_differentSizeClass_shouldAllocateNewArray() {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(1 << 20);
+        byte[] buffer = bufferPool.borrow(6000);
+        bufferPool.release(buffer);
+
+        //Act
+        byte[] borrowedBuffer = bufferPool.borrow(9000);
+
+        //Assert
+        assertNotSame(buffer, borrowedBuffer);
+        assertEquals(0, bufferPool.getHits());
+        assertEquals(2, bufferPool.getMisses());
+        assertEquals(6144, bufferPool.getRetainedBytes());
+    }
+
+    @Test
+    @DisplayName("Release beyond maxRetainedBytes, discards the array")
+    public void release_poolFull_shouldDiscardArray() {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(10000);
+        byte[] first = bufferPool.borrow(8192);
+        byte[] second = bufferPool.borrow(8192);
+
+        //Act
+        bufferPool.release(first);
+        bufferPool.release(second);
+
+        //Assert
+        assertEquals(8192, bufferPool.getRetainedBytes());
+        assertEquals(1, bufferPool.getDiscards());
+    }
+
+    @Test
+    @DisplayName("Release of an array that is not a size class, ignores the array")
+    public void release_notSizeClass_shouldIgnoreArray() {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(1 << 20);
+
+        //Act
+        bufferPool.release(new byte[5000]);
+        bufferPool.release(null);
+
+        //Assert
+        assertEquals(0, bufferPool.getRetainedBytes());
+        assertEquals(0, bufferPool.getDiscards());
+    }
+
+    @Test
+    @DisplayName("Borrow with a maxRetainedBytes of 0, allocates arrays of the exact length and never keeps them")
+    public void borrow_poolDisabled_shouldAllocateExactLength() {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(0);
+
+        //Act
+        byte[] buffer = bufferPool.borrow(5000);
+        bufferPool.release(bufferPool.borrow(4096));
+
+        //Assert
+        assertEquals(5000, buffer.length);
+        assertEquals(0, bufferPool.getRetainedBytes());
+        assertEquals(2, bufferPool.getMisses());
+    }
+
+    @Test
+    @DisplayName("Borrow and release from many threads, never retains more than maxRetainedBytes")
+    public void release_manyThreads_shouldStayWithinMaxRetainedBytes() throws InterruptedException {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(5 * 8192);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //Act
+        for (int task = 0; task < 8; task++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    byte[] first = bufferPool.borrow(8192);
+                    byte[] second = bufferPool.borrow(8192);
+                    bufferPool.release(first);
+                    bufferPool.release(second);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        //Assert
+        assertEquals(16000, bufferPool.getHits() + bufferPool.getMisses());
+        assertTrue(bufferPool.getRetainedBytes() <= 5 * 8192);
+    }
+}
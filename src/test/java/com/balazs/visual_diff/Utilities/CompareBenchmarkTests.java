@@ -0,0 +1,99 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Benchmarks of the compare kernels and the raster normalizer. Excluded from the default test run, run with ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+public class CompareBenchmarkTests {
+
+    private final static int WIDTH = 1920;
+    private final static int HEIGHT = 1080;
+    private final static int WARMUP_ITERATIONS = 100;           //Enough calls for the JIT to compile every path of the kernels
+    private final static int ITERATIONS = 50;
+    private final static int TILE_SIZE = 64;
+
+    /**
+     * Creates a comparison image equal to the baseline except for a number of changed pixels.
+     *
+     * @param byte[] baselineRGBA byte[] array of the baseline image in RGBA format
+     * @param int changedPixels number of pixels changed at random positions
+     * @param Random random source of the changed positions
+     * @return byte[] comparison image in RGBA format
+     */
+    private byte[] createComparison(byte[] baselineRGBA, int changedPixels, Random random) {
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < changedPixels; i++) {
+            compareRGBA[random.nextInt(WIDTH * HEIGHT) * 4] ^= (byte) 0x7F;
+        }
+        return compareRGBA;
+    }
+
+    /**
+     * Runs a compare ITERATIONS times after WARMUP_ITERATIONS untimed runs, and prints the average time per compare.
+     *
+     * @param String name of the benchmark
+     * @param Runnable compare to be timed
+     */
+    private void time(String name, Runnable compare) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) { compare.run(); }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) { compare.run(); }
+        long averageNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("%-40s %8.2f ms%n", name, averageNanos / 1_000_000.0);
+    }
+
+    @Test
+    @DisplayName("Benchmark full compare against tile and mismatch compare on mostly identical images")
+    public void compareChangedPixels_mostlyIdenticalImages_benchmark() {
+        Random random = new Random(1);
+        byte[] baselineRGBA = new byte[WIDTH * HEIGHT * 4];
+        random.nextBytes(baselineRGBA);
+
+        for (int changedPixels : new int[] {0, 10, 1000}) {
+            byte[] compareRGBA = createComparison(baselineRGBA, changedPixels, random);
+            byte[] fullRGBA = new byte[WIDTH * HEIGHT * 4];
+            byte[] tileRGBA = new byte[WIDTH * HEIGHT * 4];
+            byte[] mismatchRGBA = new byte[WIDTH * HEIGHT * 4];
+
+            time("comparePixelRange, " + changedPixels + " changed", () -> CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, fullRGBA, 0, WIDTH * HEIGHT, false, new DiffStatistics(WIDTH, HEIGHT), null));
+            time("compareTiles, " + changedPixels + " changed", () -> CompareUtilities.compareTiles(baselineRGBA, compareRGBA, tileRGBA, WIDTH, 0, HEIGHT, TILE_SIZE, false, new DiffStatistics(WIDTH, HEIGHT), null));
+
+            time("compareMismatchedRange, " + changedPixels + " changed", () -> CompareUtilities.compareMismatchedRange(baselineRGBA, compareRGBA, mismatchRGBA, 0, WIDTH * HEIGHT, false, new DiffStatistics(WIDTH, HEIGHT), null));
+
+            assertArrayEquals(fullRGBA, tileRGBA);
+            assertArrayEquals(fullRGBA, mismatchRGBA);
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark raster normalizer against getRGB for common image types")
+    public void normalize_imageTypes_benchmark() {
+        Random random = new Random(1);
+        for (int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_INDEXED}) {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+            int[] row = new int[WIDTH];
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) { row[x] = random.nextInt(); }
+                image.setRGB(0, y, WIDTH, 1, row, 0, WIDTH);
+            }
+            byte[] getRGBData = new byte[WIDTH * HEIGHT * 4];
+
+            time("convertWithGetRGB, type " + type, () -> RasterNormalizer.convertWithGetRGB(image, getRGBData));
+            time("normalize, type " + type, () -> RasterNormalizer.normalize(image));
+
+            assertArrayEquals(getRGBData, ((DataBufferByte) RasterNormalizer.normalize(image).getRaster().getDataBuffer()).getData());
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.balazs.visual_diff.Utilities;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -319,6 +324,167 @@ public class CompareUtillitiesTests {
         assertEquals((byte) COLOUR_MAX_VALUE, outputRGBA[3]);
     }
 
+    @Test
+    @DisplayName("Draw pixel with separate RGB values, copies values to output array")
+    public void drawPixel_separateRGBValues_shouldCopyToOutputArray() {
+        //Arrange
+        byte[] outputRGBA = new byte[8];
+
+        //Act
+        CompareUtilities.drawPixel(outputRGBA, (byte) 255, (byte) 0, (byte) 120, 4);
+
+        //Assert
+        assertEquals(0, outputRGBA[3]);
+        assertEquals((byte) 255, outputRGBA[4]);
+        assertEquals((byte) 0, outputRGBA[5]);
+        assertEquals((byte) 120, outputRGBA[6]);
+        assertEquals((byte) COLOUR_MAX_VALUE, outputRGBA[7]);
+    }
+
+    @Test
+    @DisplayName("Scalar compare pixel range after warm up, allocates no memory")
+    public void scalarComparePixelRange_afterWarmUp_shouldNotAllocate() {
+        //Arrange
+        int numPixels = 256 * 256;
+        Random random = new Random(3);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        byte[] outputRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        //Warm up until the loop is compiled, the switch from the interpreter allocates once
+        for (int i = 0; i < 3; i++) {
+            CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, numPixels);
+        }
+
+        //Act
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, numPixels);
+        long allocatedAfter = threadMXBean.getCurrentThreadAllocatedBytes();
+
+        //Assert
+        assertEquals(0, allocatedAfter - allocatedBefore);
+    }
+
+    @Test
+    @DisplayName("Vector compare pixel range after warm up, allocates no memory")
+    public void vectorComparePixelRange_afterWarmUp_shouldNotAllocate() {
+        //Arrange
+        assumeTrue(CompareUtilities.isVectorKernelAvailable());
+        int numPixels = 256 * 256;
+        Random random = new Random(3);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        byte[] outputRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        //Warm up until C2 compiles the step methods, the interpreter and C1 box every vector
+        for (int i = 0; i < 1000; i++) {
+            CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, numPixels);
+            CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, numPixels, false);
+        }
+
+        //Act
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, numPixels);
+        CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, numPixels, false);
+        long allocatedAfter = threadMXBean.getCurrentThreadAllocatedBytes();
+
+        //Assert
+        assertEquals(0, allocatedAfter - allocatedBefore);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels with a large budget, matches the number of diff pixels drawn")
+    public void countDiffPixels_largeBudget_shouldMatchDrawnDiffPixels() {
+        //Arrange
+        int numPixels = 3001;
+        Random random = new Random(23);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        byte[] outputRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 0, numPixels);
+        long expectedDiffPixels = 0;
+        for (int i = 0; i < numPixels; i++) {
+            if (outputRGBA[i * 4] == (byte) 255 && outputRGBA[i * 4 + 1] == 0 && outputRGBA[i * 4 + 2] == 0) { expectedDiffPixels++; }
+        }
+
+        //Act
+        long actualDiffPixels = CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE, false);
+        long actualFixedPointDiffPixels = CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE, true);
+
+        //Assert
+        assertEquals(expectedDiffPixels, actualDiffPixels);
+        assertEquals(expectedDiffPixels, actualFixedPointDiffPixels);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels over budget, stops counting early")
+    public void countDiffPixels_overBudget_shouldStopEarly() {
+        //Arrange
+        int numPixels = 10000;
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        for (int i = 0; i < numPixels * 4; i += 4) {
+            compareRGBA[i] = (byte) 127;
+            compareRGBA[i + 1] = (byte) 127;
+            compareRGBA[i + 2] = (byte) 127;
+            baselineRGBA[i + 3] = (byte) 127;
+            compareRGBA[i + 3] = (byte) 127;
+        }
+
+        //Act
+        long actualDiffPixels = CompareUtilities.scalarCountDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, 10);
+
+        //Assert
+        assertEquals(11, actualDiffPixels);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels with identical images, returns zero")
+    public void countDiffPixels_identicalImages_shouldReturnZero() {
+        //Arrange
+        int numPixels = 1000;
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        new Random(29).nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+
+        //Act
+        long actualDiffPixels = CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, 0, false);
+
+        //Assert
+        assertEquals(0, actualDiffPixels);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels with ignored spans, matches the number of diff pixels drawn with the same spans")
+    public void countDiffPixels_ignoredSpans_shouldMatchDrawnDiffPixels() {
+        //Arrange
+        int numPixels = 3001;
+        Random random = new Random(31);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        int[] ignoredSpans = {0, 40, 500, 1700, 2990, 3001};
+        DiffStatistics statistics = new DiffStatistics(numPixels, 1);
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, new byte[numPixels * 4], 0, numPixels, false, statistics, ignoredSpans);
+
+        //Act
+        long actualDiffPixels = CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE, false, ignoredSpans);
+        long actualOverBudgetDiffPixels = CompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, 10, false, ignoredSpans);
+
+        //Assert
+        assertEquals(statistics.getDiffPixels(), actualDiffPixels);
+        assertTrue(actualOverBudgetDiffPixels > 10 && actualOverBudgetDiffPixels < actualDiffPixels);
+    }
+
     @Test
     @DisplayName("Draw gray pixel with max alpha pixel, adjusts for alpha")
     public void drawGrayPixel_withMaxAlphaPixel_shouldAdjustForAlpha() {
@@ -375,4 +541,184 @@ public class CompareUtillitiesTests {
         assertEquals(gray, outputRGBA[2]);
         assertEquals((byte) COLOUR_MAX_VALUE, outputRGBA[3]);
     }
+
+    @Test
+    @DisplayName("Compare pixel range with ignored spans, draws ignored pixels gray and compares the rest")
+    public void comparePixelRange_ignoredSpans_shouldDrawIgnoredPixelsGray() {
+        //Arrange
+        int numPixels = 100;
+        Random random = new Random(23);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        int[] ignoredSpans = {5, 12, 40, 80};
+        byte[] expectedRGBA = new byte[numPixels * 4];
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, numPixels);
+        CompareUtilities.drawGrayRange(baselineRGBA, expectedRGBA, 5, 12);
+        CompareUtilities.drawGrayRange(baselineRGBA, expectedRGBA, 40, 80);
+        byte[] actualRGBA = new byte[numPixels * 4];
+        DiffStatistics statistics = new DiffStatistics(10, 10);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, actualRGBA, 0, numPixels, false, statistics, ignoredSpans);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(47, statistics.getIgnoredPixels());
+    }
+
+    @Test
+    @DisplayName("Compare pixel range starting inside an ignored span, only skips the part of the span in the range")
+    public void comparePixelRange_startInsideIgnoredSpan_shouldSkipPartOfSpan() {
+        //Arrange
+        int numPixels = 100;
+        Random random = new Random(29);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        int[] ignoredSpans = {10, 30, 60, 90};
+        DiffStatistics statistics = new DiffStatistics(10, 5);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, new byte[numPixels * 4], 20, 70, false, statistics, ignoredSpans);
+
+        //Assert
+        assertEquals(20, statistics.getIgnoredPixels());
+        long comparedPixels = 0;
+        for (long bucket : statistics.getDeltaHistogram()) { comparedPixels += bucket; }
+        assertEquals(30, comparedPixels);
+    }
+
+    @Test
+    @DisplayName("Compare tiles with mostly identical images, matches comparing every pixel")
+    public void compareTiles_mostlyIdenticalImages_shouldMatchComparePixelRange() {
+        //Arrange
+        int width = 203;
+        int height = 157;
+        Random random = new Random(31);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < 40; i++) { compareRGBA[random.nextInt(compareRGBA.length)] ^= (byte) 0x7F; }
+        int[] ignoredSpans = {1000, 1500, 20000, 26000};
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, false, expectedStatistics, ignoredSpans);
+        CompareUtilities.compareTiles(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, 16, false, actualStatistics, ignoredSpans);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.toHeaderValue(), actualStatistics.toHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Compare tiles with identical images, draws every pixel gray with delta 0")
+    public void compareTiles_identicalImages_shouldDrawGrayWithDeltaZero() {
+        //Arrange
+        int width = 100;
+        int height = 70;
+        Random random = new Random(37);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics statistics = new DiffStatistics(width, height);
+        CompareUtilities.drawGrayRange(baselineRGBA, expectedRGBA, 0, width * height);
+
+        //Act
+        CompareUtilities.compareTiles(baselineRGBA, baselineRGBA.clone(), actualRGBA, width, 0, height, 64, false, statistics, null);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(0, statistics.getDiffPixels());
+        assertEquals(width * height, statistics.getDeltaHistogram()[0]);
+    }
+
+    @Test
+    @DisplayName("Compare mismatched range with mostly identical images, matches comparing every pixel")
+    public void compareMismatchedRange_mostlyIdenticalImages_shouldMatchComparePixelRange() {
+        //Arrange
+        int width = 211;
+        int height = 97;
+        Random random = new Random(41);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < 60; i++) { compareRGBA[random.nextInt(compareRGBA.length)] ^= (byte) 0x7F; }
+        int[] ignoredSpans = {500, 900, 7000, 12000};
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, false, expectedStatistics, ignoredSpans);
+        CompareUtilities.compareMismatchedRange(baselineRGBA, compareRGBA, actualRGBA, 0, width * height, false, actualStatistics, ignoredSpans);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.toHeaderValue(), actualStatistics.toHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Compare tiles with mismatch scan, matches comparing every pixel")
+    public void compareTiles_mismatchScan_shouldMatchComparePixelRange() {
+        //Arrange
+        int width = 150;
+        int height = 90;
+        Random random = new Random(43);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < 30; i++) { compareRGBA[random.nextInt(compareRGBA.length)] ^= (byte) 0x7F; }
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, true, expectedStatistics, null);
+        CompareUtilities.compareTiles(baselineRGBA, compareRGBA, actualRGBA, width, 0, height, 32, true, actualStatistics, null, true);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.toHeaderValue(), actualStatistics.toHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Compare candidate tiles from a conservative pyramid, matches the diff of comparing every pixel")
+    public void compareCandidateTiles_conservativePyramid_shouldMatchComparePixelRange() {
+        //Arrange
+        int width = 190;
+        int height = 77;
+        Random random = new Random(47);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        random.nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int i = 0; i < 40; i++) { compareRGBA[random.nextInt(compareRGBA.length)] ^= (byte) 0x7F; }
+        for (int i = 0; i < 400; i++) { compareRGBA[random.nextInt(compareRGBA.length)] += 3; }
+        byte[] expectedRGBA = new byte[width * height * 4];
+        byte[] actualRGBA = new byte[width * height * 4];
+        DiffStatistics expectedStatistics = new DiffStatistics(width, height);
+        DiffStatistics actualStatistics = new DiffStatistics(width, height);
+        boolean[] candidateTiles = PyramidCompareUtilities.findCandidateTiles(baselineRGBA, compareRGBA, width, height, 4, true);
+
+        //Act
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, width * height, false, expectedStatistics, null);
+        CompareUtilities.compareCandidateTiles(baselineRGBA, compareRGBA, actualRGBA, width, 5, 60, 16, candidateTiles, false, actualStatistics, null, false);
+        CompareUtilities.compareCandidateTiles(baselineRGBA, compareRGBA, actualRGBA, width, 0, 5, 16, candidateTiles, false, actualStatistics, null, false);
+        CompareUtilities.compareCandidateTiles(baselineRGBA, compareRGBA, actualRGBA, width, 60, height, 16, candidateTiles, false, actualStatistics, null, true);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedStatistics.getDiffPixels(), actualStatistics.getDiffPixels());
+        assertEquals(expectedStatistics.getMinX(), actualStatistics.getMinX());
+        assertEquals(expectedStatistics.getMaxY(), actualStatistics.getMaxY());
+    }
 }
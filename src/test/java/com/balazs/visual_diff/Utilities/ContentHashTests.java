@@ -0,0 +1,58 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ContentHashTests {
+
+    @Test
+    @DisplayName("Hash of bytes, returns the SHA-256 hex digest")
+    public void of_bytes_shouldReturnHexDigest() {
+        //Act
+        String actualHash = ContentHash.of(new byte[]{'a', 'b', 'c'});
+
+        //Assert
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", actualHash);
+    }
+
+    @Test
+    @DisplayName("Hash of equal byte arrays, returns the same hash")
+    public void of_equalBytes_shouldReturnSameHash() {
+        //Act & Assert
+        assertEquals(ContentHash.of(new byte[]{1, 2, 3}), ContentHash.of(new byte[]{1, 2, 3}));
+        assertNotEquals(ContentHash.of(new byte[]{1, 2, 3}), ContentHash.of(new byte[]{1, 2, 4}));
+    }
+
+    @Test
+    @DisplayName("Hash of a stream longer than the read buffer, returns the same hash as its bytes")
+    public void of_stream_shouldReturnSameHashAsBytes() throws IOException {
+        //Arrange
+        byte[] data = new byte[200_000];
+        new Random(3).nextBytes(data);
+
+        //Act
+        String actualHash = ContentHash.of(new ByteArrayInputStream(data));
+
+        //Assert
+        assertEquals(ContentHash.of(data), actualHash);
+    }
+
+    @Test
+    @DisplayName("Hash of values split differently, returns different hashes")
+    public void of_valuesSplitDifferently_shouldReturnDifferentHashes() {
+        //Act
+        String firstHash = ContentHash.of("ab", "c");
+        String secondHash = ContentHash.of("a", "bc");
+
+        //Assert
+        assertNotEquals(firstHash, secondHash);
+        assertEquals(firstHash, ContentHash.of("ab", "c"));
+    }
+}
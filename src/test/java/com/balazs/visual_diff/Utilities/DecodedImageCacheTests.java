@@ -0,0 +1,101 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DecodedImageCacheTests {
+
+    @Test
+    @DisplayName("Get with the ETag the image was cached with, returns the cached image as a hit")
+    public void get_sameETag_shouldReturnCachedImage() {
+        //Arrange
+        DecodedImageCache cache = new DecodedImageCache(1 << 20);
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR);
+        cache.put("baseline.png", "0x1", image);
+
+        //Act
+        BufferedImage cachedImage = cache.get("baseline.png", "0x1");
+
+        //Assert
+        assertSame(image, cachedImage);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(400, cache.getCachedBytes());
+    }
+
+    @Test
+    @DisplayName("Get with a different ETag, returns null as a miss and drops the stale image")
+    public void get_changedETag_shouldReturnNullAndRemoveEntry() {
+        //Arrange
+        DecodedImageCache cache = new DecodedImageCache(1 << 20);
+        cache.put("baseline.png", "0x1", new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR));
+
+        //Act
+        BufferedImage cachedImage = cache.get("baseline.png", "0x2");
+
+        //Assert
+        assertNull(cachedImage);
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getCachedBytes());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Put beyond the capacity, evicts the least recently used images first")
+    public void put_overCapacity_shouldEvictLeastRecentlyUsed() {
+        //Arrange
+        DecodedImageCache cache = new DecodedImageCache(1000);
+        cache.put("first.png", "0x1", new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR));
+        cache.put("second.png", "0x1", new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR));
+        cache.get("first.png", "0x1");
+
+        //Act
+        cache.put("third.png", "0x1", new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR));
+
+        //Assert
+        assertNull(cache.get("second.png", "0x1"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        assertEquals(800, cache.getCachedBytes());
+    }
+
+    @Test
+    @DisplayName("Put of an image larger than the capacity, is not cached")
+    public void put_imageLargerThanCapacity_shouldNotCache() {
+        //Arrange
+        DecodedImageCache cache = new DecodedImageCache(300);
+
+        //Act
+        cache.put("baseline.png", "0x1", new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR));
+
+        //Assert
+        assertNull(cache.get("baseline.png", "0x1"));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Put of a new version of a cached blob, replaces the old image without an eviction")
+    public void put_sameName_shouldReplaceImage() {
+        //Arrange
+        DecodedImageCache cache = new DecodedImageCache(1 << 20);
+        BufferedImage newImage = new BufferedImage(20, 10, BufferedImage.TYPE_4BYTE_ABGR);
+        cache.put("baseline.png", "0x1", new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR));
+
+        //Act
+        cache.put("baseline.png", "0x2", newImage);
+
+        //Assert
+        assertSame(newImage, cache.get("baseline.png", "0x2"));
+        assertEquals(1, cache.getSize());
+        assertEquals(800, cache.getCachedBytes());
+        assertEquals(0, cache.getEvictions());
+    }
+}
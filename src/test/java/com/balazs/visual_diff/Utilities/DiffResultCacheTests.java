@@ -0,0 +1,78 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DiffResultCacheTests {
+
+    @Test
+    @DisplayName("Get of a cached result, returns the result as a hit")
+    public void get_cachedResult_shouldReturnResult() {
+        //Arrange
+        DiffResultCache cache = new DiffResultCache(10);
+        DiffResult result = new DiffResult("diff_a.png", new DiffStatistics(2, 2), List.of());
+        cache.put("a", result);
+
+        //Act
+        DiffResult cachedResult = cache.get("a");
+
+        //Assert
+        assertSame(result, cachedResult);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Put beyond the maximum entries, evicts the least recently used result")
+    public void put_overMaxEntries_shouldEvictLeastRecentlyUsed() {
+        //Arrange
+        DiffResultCache cache = new DiffResultCache(2);
+        cache.put("a", new DiffResult("diff_a.png", new DiffStatistics(2, 2), List.of()));
+        cache.put("b", new DiffResult("diff_b.png", new DiffStatistics(2, 2), List.of()));
+        cache.get("a");
+
+        //Act
+        cache.put("c", new DiffResult("diff_c.png", new DiffStatistics(2, 2), List.of()));
+
+        //Assert
+        assertNull(cache.get("b"));
+        assertEquals("diff_a.png", cache.get("a").getFileName());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("Put with 0 maximum entries, caches nothing")
+    public void put_disabledCache_shouldNotCache() {
+        //Arrange
+        DiffResultCache cache = new DiffResultCache(0);
+
+        //Act
+        cache.put("a", new DiffResult("diff_a.png", new DiffStatistics(2, 2), List.of()));
+
+        //Assert
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    @DisplayName("Remove of a cached result, returns null afterwards")
+    public void remove_cachedResult_shouldRemoveResult() {
+        //Arrange
+        DiffResultCache cache = new DiffResultCache(10);
+        cache.put("a", new DiffResult("diff_a.png", new DiffStatistics(2, 2), List.of()));
+
+        //Act
+        cache.remove("a");
+
+        //Assert
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getMisses());
+    }
+}
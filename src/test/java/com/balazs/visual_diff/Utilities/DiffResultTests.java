@@ -0,0 +1,98 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DiffResultTests {
+
+    @Test
+    @DisplayName("From metadata written by toMetadata, restores the statistics and regions")
+    public void fromMetadata_toMetadata_shouldRestoreResult() {
+        //Arrange
+        DiffStatistics statistics = new DiffStatistics(10, 10);
+        statistics.addDelta(12, 500, true);
+        statistics.addDelta(13, 500, true);
+        DiffResult result = new DiffResult("diff_key.png", statistics, List.of(new DiffRegion(2, 1, 3, 1, 2), new DiffRegion(5, 5, 9, 7, 4)));
+
+        //Act
+        DiffResult restoredResult = DiffResult.fromMetadata("diff_key.png", "key", result.toMetadata("key"));
+
+        //Assert
+        assertNotNull(restoredResult);
+        assertEquals("diff_key.png", restoredResult.getFileName());
+        assertEquals(statistics.toHeaderValue(), restoredResult.getStatistics().toHeaderValue());
+        assertEquals(2, restoredResult.getRegions().size());
+        assertEquals(5, restoredResult.getRegions().get(1).getX());
+        assertEquals(5, restoredResult.getRegions().get(1).getWidth());
+        assertEquals(3, restoredResult.getRegions().get(1).getHeight());
+        assertEquals(4, restoredResult.getRegions().get(1).getPixelCount());
+    }
+
+    @Test
+    @DisplayName("From metadata without regions, restores an empty list of regions")
+    public void fromMetadata_noRegions_shouldRestoreEmptyRegions() {
+        //Arrange
+        DiffResult result = new DiffResult("diff_key.png", new DiffStatistics(2, 2), List.of());
+
+        //Act
+        DiffResult restoredResult = DiffResult.fromMetadata("diff_key.png", "key", result.toMetadata("key"));
+
+        //Assert
+        assertNotNull(restoredResult);
+        assertEquals(0, restoredResult.getRegions().size());
+    }
+
+    @Test
+    @DisplayName("From metadata saved under another result key, return is null")
+    public void fromMetadata_otherResultKey_shouldReturnNull() {
+        //Arrange
+        DiffResult result = new DiffResult("diff_key.png", new DiffStatistics(2, 2), List.of());
+
+        //Act
+        DiffResult restoredResult = DiffResult.fromMetadata("diff_key.png", "otherKey", result.toMetadata("key"));
+
+        //Assert
+        assertNull(restoredResult);
+    }
+
+    @Test
+    @DisplayName("From malformed or missing metadata, return is null")
+    public void fromMetadata_malformedMetadata_shouldReturnNull() {
+        //Arrange
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(DiffResult.METADATA_RESULT_KEY, "key");
+        metadata.put(DiffResult.METADATA_STATISTICS, "diffPixels=x");
+        metadata.put(DiffResult.METADATA_REGIONS, "");
+
+        //Act & Assert
+        assertNull(DiffResult.fromMetadata("diff_key.png", "key", metadata));
+        assertNull(DiffResult.fromMetadata("diff_key.png", "key", Map.of(DiffResult.METADATA_RESULT_KEY, "key")));
+        assertNull(DiffResult.fromMetadata("diff_key.png", "key", null));
+    }
+
+    @Test
+    @DisplayName("To metadata with too many regions for blob metadata, return is null")
+    public void toMetadata_tooManyRegions_shouldReturnNull() {
+        //Arrange
+        List<DiffRegion> regions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            regions.add(new DiffRegion(1000, 1000, 1999, 1999, 1000000));
+        }
+        DiffResult result = new DiffResult("diff_key.png", new DiffStatistics(2, 2), regions);
+
+        //Act
+        Map<String, String> metadata = result.toMetadata("key");
+
+        //Assert
+        assertNull(metadata);
+    }
+}
@@ -0,0 +1,199 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DiffStatisticsTests {
+
+    @Test
+    @DisplayName("Histogram bucket with powers of two, returns the bucket of the range")
+    public void histogramBucket_powersOfTwo_shouldReturnBucket() {
+        //Act & Assert
+        assertEquals(0, DiffStatistics.histogramBucket(0));
+        assertEquals(1, DiffStatistics.histogramBucket(1));
+        assertEquals(2, DiffStatistics.histogramBucket(2));
+        assertEquals(2, DiffStatistics.histogramBucket(3));
+        assertEquals(9, DiffStatistics.histogramBucket(352));
+        assertEquals(DiffStatistics.HISTOGRAM_BUCKETS - 1, DiffStatistics.histogramBucket(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Add delta with diff pixels, updates count, ratio, and bounding box")
+    public void addDelta_diffPixels_shouldUpdateCountRatioAndBoundingBox() {
+        //Arrange
+        DiffStatistics statistics = new DiffStatistics(10, 5);
+
+        //Act
+        statistics.addDelta(0, 0, false);
+        statistics.addDelta(12, 400, true);
+        statistics.addDelta(37, 1000, true);
+
+        //Assert
+        assertEquals(2, statistics.getDiffPixels());
+        assertEquals(50, statistics.getTotalPixels());
+        assertEquals(0.04, statistics.getDiffRatio(), 0.0000001);
+        assertEquals(2, statistics.getMinX());
+        assertEquals(1, statistics.getMinY());
+        assertEquals(7, statistics.getMaxX());
+        assertEquals(3, statistics.getMaxY());
+        assertEquals(1, statistics.getDeltaHistogram()[0]);
+        assertEquals(1, statistics.getDeltaHistogram()[9]);
+        assertEquals(1, statistics.getDeltaHistogram()[10]);
+    }
+
+    @Test
+    @DisplayName("No diff pixels, bounding box is -1")
+    public void getBoundingBox_noDiffPixels_shouldReturnMinusOne() {
+        //Arrange
+        DiffStatistics statistics = new DiffStatistics(10, 5);
+
+        //Act
+        statistics.addDelta(3, 10, false);
+
+        //Assert
+        assertEquals(0, statistics.getDiffPixels());
+        assertEquals(-1, statistics.getMinX());
+        assertEquals(-1, statistics.getMinY());
+        assertEquals(-1, statistics.getMaxX());
+        assertEquals(-1, statistics.getMaxY());
+        assertEquals("diffPixels=0; totalPixels=50; ignoredPixels=0; diffRatio=0.0; boundingBox=none; deltaHistogram=0,0,0,0,1,0,0,0,0,0,0,0,0,0,0,0,0", statistics.toHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Merge two bands, combines counts, bounding box, and histogram")
+    public void merge_twoBands_shouldCombineStatistics() {
+        //Arrange
+        DiffStatistics top = new DiffStatistics(10, 10);
+        DiffStatistics bottom = new DiffStatistics(10, 10);
+        top.addDeltas(10, new int[] {500, 0, 0}, 3);
+        bottom.addDeltas(85, new int[] {0, 0, 600}, 3);
+
+        //Act
+        top.merge(bottom);
+
+        //Assert
+        assertEquals(2, top.getDiffPixels());
+        assertEquals(0, top.getMinX());
+        assertEquals(1, top.getMinY());
+        assertEquals(7, top.getMaxX());
+        assertEquals(8, top.getMaxY());
+        assertArrayEquals(new long[] {4, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 0, 0, 0, 0, 0, 0}, top.getDeltaHistogram());
+    }
+
+    @Test
+    @DisplayName("Merge with row offset, moves the bounding box of the band down")
+    public void merge_rowOffset_shouldMoveBoundingBox() {
+        //Arrange
+        DiffStatistics image = new DiffStatistics(10, 10);
+        DiffStatistics band = new DiffStatistics(10, 2);
+        image.addDeltas(2, new int[] {500}, 1);
+        band.addDeltas(13, new int[] {600, 0}, 2);
+
+        //Act
+        image.merge(band, 6);
+
+        //Assert
+        assertEquals(2, image.getDiffPixels());
+        assertEquals(2, image.getMinX());
+        assertEquals(0, image.getMinY());
+        assertEquals(3, image.getMaxX());
+        assertEquals(7, image.getMaxY());
+    }
+
+    @Test
+    @DisplayName("Merge band without diff pixels with row offset, keeps the bounding box")
+    public void merge_rowOffsetNoDiffPixels_shouldKeepBoundingBox() {
+        //Arrange
+        DiffStatistics image = new DiffStatistics(10, 10);
+        DiffStatistics band = new DiffStatistics(10, 2);
+        image.addDeltas(2, new int[] {500}, 1);
+        band.addDeltas(0, new int[] {0, 0}, 2);
+
+        //Act
+        image.merge(band, 8);
+
+        //Assert
+        assertEquals(1, image.getDiffPixels());
+        assertEquals(0, image.getMaxY());
+        assertEquals(2, image.getMaxX());
+    }
+
+    @Test
+    @DisplayName("Add ignored pixels and merge, combines ignored pixels")
+    public void addIgnoredPixels_twoBands_shouldCombineIgnoredPixels() {
+        //Arrange
+        DiffStatistics top = new DiffStatistics(10, 10);
+        DiffStatistics bottom = new DiffStatistics(10, 10);
+        top.addIgnoredPixels(7);
+        bottom.addIgnoredPixels(5);
+
+        //Act
+        top.merge(bottom);
+
+        //Assert
+        assertEquals(12, top.getIgnoredPixels());
+        assertEquals(0, top.getDiffPixels());
+    }
+
+    @Test
+    @DisplayName("Add unchanged pixels, counts them as delta 0 without changing the diff pixels")
+    public void addUnchangedPixels_count_shouldAddToDeltaZero() {
+        //Arrange
+        DiffStatistics statistics = new DiffStatistics(10, 10);
+
+        //Act
+        statistics.addUnchangedPixels(64);
+        statistics.addUnchangedPixels(16);
+
+        //Assert
+        assertEquals(80, statistics.getDeltaHistogram()[0]);
+        assertEquals(0, statistics.getDiffPixels());
+    }
+
+    @Test
+    @DisplayName("From header value of formatted statistics, restores the same values")
+    public void fromHeaderValue_formattedStatistics_shouldRestoreValues() {
+        //Arrange
+        DiffStatistics statistics = new DiffStatistics(10, 10);
+        statistics.addDelta(12, 500, true);
+        statistics.addDelta(57, 800, true);
+        statistics.addDelta(3, 4, false);
+        statistics.addIgnoredPixels(6);
+
+        //Act
+        DiffStatistics restoredStatistics = DiffStatistics.fromHeaderValue(statistics.toHeaderValue());
+
+        //Assert
+        assertEquals(statistics.toHeaderValue(), restoredStatistics.toHeaderValue());
+        assertEquals(2, restoredStatistics.getMinX());
+        assertEquals(5, restoredStatistics.getMaxY());
+        assertArrayEquals(statistics.getDeltaHistogram(), restoredStatistics.getDeltaHistogram());
+    }
+
+    @Test
+    @DisplayName("From header value without differing pixels, restores an empty bounding box")
+    public void fromHeaderValue_noDiffPixels_shouldRestoreEmptyBoundingBox() {
+        //Arrange
+        DiffStatistics statistics = new DiffStatistics(4, 4);
+        statistics.addUnchangedPixels(16);
+
+        //Act
+        DiffStatistics restoredStatistics = DiffStatistics.fromHeaderValue(statistics.toHeaderValue());
+
+        //Assert
+        assertEquals(-1, restoredStatistics.getMinX());
+        assertEquals(-1, restoredStatistics.getMaxX());
+        assertEquals(16, restoredStatistics.getTotalPixels());
+    }
+
+    @Test
+    @DisplayName("From header value with a missing field, throws IllegalArgumentException")
+    public void fromHeaderValue_missingField_shouldThrowIllegalArgumentException() {
+        //Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> DiffStatistics.fromHeaderValue("diffPixels=1; totalPixels=4"));
+    }
+}
@@ -137,6 +137,16 @@ public class FileUtilitiesTests {
         assertTrue(actualFilelName.endsWith(FileUtilities.FORMAT_PNG));
     }
 
+    @Test
+    @DisplayName("Generate file name with an id, returns the same name for the same id")
+    public void generateFileName_withId_shouldReturnNameOfId() { 
+        //Act
+        String actualFilelName = FileUtilities.generateFileName(FileUtilities.FORMAT_PNG, ValidationUtilities.TYPE_DIFF, "abc123");
+
+        //Assert
+        assertEquals("diff_abc123.png", actualFilelName);
+    }
+
     @Test
     @DisplayName("Get type from file with 'baseline' provided, returns ValidationUtilities.TYPE_BASELINE")
     public void getTypeFromFileName_fileNameBaseline_shouldReturnTypeBaseline() {
@@ -163,6 +173,19 @@ public class FileUtilitiesTests {
         assertEquals(ValidationUtilities.TYPE_COMPARISON, actualType);
     }
 
+    @Test
+    @DisplayName("Get type from file with 'mask' provided, returns ValidationUtilities.TYPE_MASK")
+    public void getTypeFromFileName_fileNameMask_shouldReturnTypeMask() {
+        //Arrange
+        String fileName = "mask.png";
+
+        //Act
+        String actualType = FileUtilities.getTypeFromFileName(fileName);
+
+        //Assert
+        assertEquals(ValidationUtilities.TYPE_MASK, actualType);
+    }
+
     @Test
     @DisplayName("Get type from file with 'diff' provided, returns ValidationUtilities.TYPE_DIFF")
     public void getTypeFromFileName_fileNameDiff_shouldReturnTypeDiff() {
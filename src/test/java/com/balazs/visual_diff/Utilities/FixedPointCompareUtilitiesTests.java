@@ -0,0 +1,149 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FixedPointCompareUtilitiesTests {
+
+    @Test
+    @DisplayName("Is diff pixel with identical pixels, returns false")
+    public void isDiffPixel_identicalPixels_shouldReturnFalse() {
+        //Arrange
+        byte[] baselineRGBA = {(byte) 100, (byte) 150, (byte) 200, (byte) 255};
+        byte[] compareRGBA = {(byte) 100, (byte) 150, (byte) 200, (byte) 255};
+
+        //Act
+        boolean isDiffPixel = FixedPointCompareUtilities.isDiffPixel(baselineRGBA, compareRGBA, 0);
+
+        //Assert
+        assertFalse(isDiffPixel);
+    }
+
+    @Test
+    @DisplayName("Is diff pixel with very different pixels, returns true")
+    public void isDiffPixel_veryDifferentPixels_shouldReturnTrue() {
+        //Arrange
+        byte[] baselineRGBA = {(byte) 0, (byte) 0, (byte) 0, (byte) 127};
+        byte[] compareRGBA = {(byte) 127, (byte) 127, (byte) 127, (byte) 127};
+
+        //Act
+        boolean isDiffPixel = FixedPointCompareUtilities.isDiffPixel(baselineRGBA, compareRGBA, 0);
+
+        //Assert
+        assertTrue(isDiffPixel);
+    }
+
+    @Test
+    @DisplayName("Is diff pixel with random pixels, matches float kernel mask")
+    public void isDiffPixel_randomPixels_shouldMatchFloatKernelMask() {
+        //Arrange
+        int numPixels = 200000;
+        Random random = new Random(13);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+
+        //Nudge half of the channels close to the baseline so many deltas land around MAX_DELTA
+        for (int i = 0; i < numPixels * 4; i++) {
+            if (random.nextBoolean()) { compareRGBA[i] = (byte) (baselineRGBA[i] + random.nextInt(41) - 20); }
+        }
+
+        for (int i = 0; i < numPixels; i++) {
+            //Act
+            boolean expected = Math.abs(CompareUtilities.calculateDelta(baselineRGBA, compareRGBA, i * 4)) > CompareUtilities.MAX_DELTA;
+            boolean actual = FixedPointCompareUtilities.isDiffPixel(baselineRGBA, compareRGBA, i * 4);
+
+            //Assert
+            assertEquals(expected, actual, "Pixel " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Calculate delta with different pixels, matches float delta")
+    public void calculateDelta_differentPixels_shouldMatchFloatDelta() {
+        //Arrange
+        byte[] baselineRGBA = {(byte) 10, (byte) 60, (byte) 110, (byte) 100};
+        byte[] compareRGBA = {(byte) 40, (byte) 20, (byte) 90, (byte) 120};
+        float deltaA = CompareUtilities.calculateColourDelta(baselineRGBA[3], compareRGBA[3]);
+        float deltaR = CompareUtilities.applyTransparency(baselineRGBA[0], baselineRGBA[3], compareRGBA[0], compareRGBA[3], deltaA);
+        float deltaG = CompareUtilities.applyTransparency(baselineRGBA[1], baselineRGBA[3], compareRGBA[1], compareRGBA[3], deltaA);
+        float deltaB = CompareUtilities.applyTransparency(baselineRGBA[2], baselineRGBA[3], compareRGBA[2], compareRGBA[3], deltaA);
+        float expectedDelta = CompareUtilities.calculateCombinedDelta(CompareUtilities.calculateY(deltaR, deltaG, deltaB), CompareUtilities.calculateI(deltaR, deltaG, deltaB), CompareUtilities.calculateQ(deltaR, deltaG, deltaB));
+        double deltaScale = 255.0 * 255.0 * (1L << 30);
+
+        //Act
+        long actualDelta = FixedPointCompareUtilities.calculateDelta(baselineRGBA, compareRGBA, 0);
+
+        //Assert
+        assertEquals(expectedDelta, actualDelta / deltaScale, 0.05);
+    }
+
+    @Test
+    @DisplayName("Compare pixel range with random pixels, matches scalar kernel output")
+    public void comparePixelRange_randomPixels_shouldMatchScalarKernelOutput() {
+        //Arrange
+        int numPixels = 4099;
+        Random random = new Random(17);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        for (int i = 0; i < numPixels * 4; i++) {
+            if (random.nextBoolean()) { compareRGBA[i] = baselineRGBA[i]; }
+        }
+        byte[] expectedRGBA = new byte[numPixels * 4];
+        byte[] actualRGBA = new byte[numPixels * 4];
+
+        //Act
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, numPixels);
+        CompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, actualRGBA, 0, numPixels, true);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+    }
+
+    @Test
+    @DisplayName("Compare pixel range of off-heap segments, matches the output and count of the scalar kernel")
+    public void comparePixelRange_offHeapSegments_shouldMatchScalarKernel() {
+        //Arrange
+        int numPixels = 4099;
+        Random random = new Random(29);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        for (int i = 0; i < numPixels * 4; i++) {
+            if (random.nextBoolean()) { compareRGBA[i] = baselineRGBA[i]; }
+        }
+        byte[] expectedRGBA = new byte[numPixels * 4];
+        byte[] actualRGBA = new byte[numPixels * 4];
+        long expectedDiffPixels = CompareUtilities.scalarCountDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE);
+        long actualDiffPixels;
+
+        //Act
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment baselineSegment = arena.allocate(baselineRGBA.length, 1);
+            MemorySegment compareSegment = arena.allocate(compareRGBA.length, 1);
+            MemorySegment.copy(baselineRGBA, 0, baselineSegment, ValueLayout.JAVA_BYTE, 0, baselineRGBA.length);
+            MemorySegment.copy(compareRGBA, 0, compareSegment, ValueLayout.JAVA_BYTE, 0, compareRGBA.length);
+            CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, numPixels);
+            FixedPointCompareUtilities.comparePixelRange(baselineSegment, compareSegment, actualRGBA, 0, numPixels, null);
+            actualDiffPixels = FixedPointCompareUtilities.countDiffPixels(baselineSegment, compareSegment, 0, numPixels, Long.MAX_VALUE);
+        }
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedDiffPixels, actualDiffPixels);
+    }
+}
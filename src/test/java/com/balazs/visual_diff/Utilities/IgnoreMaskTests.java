@@ -0,0 +1,135 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class IgnoreMaskTests {
+
+    @Test
+    @DisplayName("Get spans with no ignored pixels, returns empty spans")
+    public void getSpans_noIgnoredPixels_shouldReturnEmptySpans() {
+        //Arrange
+        IgnoreMask ignoreMask = new IgnoreMask(10, 10);
+
+        //Act
+        int[] spans = ignoreMask.getSpans();
+
+        //Assert
+        assertEquals(0, spans.length);
+        assertEquals(0, ignoreMask.getIgnoredPixels());
+    }
+
+    @Test
+    @DisplayName("Add rectangle, returns one span per row")
+    public void addRectangle_rectangle_shouldReturnOneSpanPerRow() {
+        //Arrange
+        IgnoreMask ignoreMask = new IgnoreMask(10, 10);
+
+        //Act
+        ignoreMask.addRectangle(2, 3, 4, 2);
+
+        //Assert
+        assertArrayEquals(new int[] {32, 36, 42, 46}, ignoreMask.getSpans());
+        assertEquals(8, ignoreMask.getIgnoredPixels());
+    }
+
+    @Test
+    @DisplayName("Add full-width rectangle, returns a single span")
+    public void addRectangle_fullWidth_shouldReturnSingleSpan() {
+        //Arrange
+        IgnoreMask ignoreMask = new IgnoreMask(10, 10);
+
+        //Act
+        ignoreMask.addRectangle(0, 2, 10, 5);
+
+        //Assert
+        assertArrayEquals(new int[] {20, 70}, ignoreMask.getSpans());
+    }
+
+    @Test
+    @DisplayName("Add overlapping rectangles partly outside of the image, returns merged clipped spans")
+    public void addRectangle_overlappingOutsideImage_shouldReturnMergedClippedSpans() {
+        //Arrange
+        IgnoreMask ignoreMask = new IgnoreMask(10, 10);
+
+        //Act
+        ignoreMask.addRectangle(7, 8, 20, 20);
+        ignoreMask.addRectangle(5, 9, 3, 1);
+
+        //Assert
+        assertArrayEquals(new int[] {87, 90, 95, 100}, ignoreMask.getSpans());
+    }
+
+    @Test
+    @DisplayName("Add mask, ignores white pixels only")
+    public void addMask_blackAndWhitePixels_shouldIgnoreWhitePixels() {
+        //Arrange
+        IgnoreMask ignoreMask = new IgnoreMask(4, 2);
+        BufferedImage mask = new BufferedImage(4, 2, BufferedImage.TYPE_BYTE_BINARY);
+        mask.setRGB(1, 0, 0xFFFFFFFF);
+        mask.setRGB(2, 0, 0xFFFFFFFF);
+        mask.setRGB(3, 1, 0xFFFFFFFF);
+
+        //Act
+        ignoreMask.addMask(mask);
+
+        //Assert
+        assertArrayEquals(new int[] {1, 3, 7, 8}, ignoreMask.getSpans());
+    }
+
+    @Test
+    @DisplayName("Add mask with different dimensions, throws IllegalArgumentException")
+    public void addMask_differentDimensions_shouldThrowIllegalArgumentException() {
+        //Arrange
+        IgnoreMask ignoreMask = new IgnoreMask(4, 2);
+        BufferedImage mask = new BufferedImage(2, 4, BufferedImage.TYPE_BYTE_BINARY);
+
+        //Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ignoreMask.addMask(mask));
+    }
+
+    @Test
+    @DisplayName("First span ending after a pixel, returns the index of the first span that covers or follows it")
+    public void firstSpanEndingAfter_pixels_shouldReturnFirstSpan() {
+        //Arrange
+        int[] spans = {10, 20, 30, 40, 50, 60};
+
+        //Act & Assert
+        assertEquals(0, IgnoreMask.firstSpanEndingAfter(spans, 0));
+        assertEquals(0, IgnoreMask.firstSpanEndingAfter(spans, 19));
+        assertEquals(2, IgnoreMask.firstSpanEndingAfter(spans, 20));
+        assertEquals(4, IgnoreMask.firstSpanEndingAfter(spans, 45));
+        assertEquals(6, IgnoreMask.firstSpanEndingAfter(spans, 60));
+    }
+
+    @Test
+    @DisplayName("Band spans, returns the spans of the band clipped and moved to the start of the band")
+    public void bandSpans_spansAcrossBand_shouldReturnClippedSpans() {
+        //Arrange
+        int[] spans = {5, 25, 32, 36, 38, 45, 70, 80};
+
+        //Act
+        int[] bandSpans = IgnoreMask.bandSpans(spans, 20, 40);
+
+        //Assert
+        assertArrayEquals(new int[] {0, 5, 12, 16, 18, 20}, bandSpans);
+    }
+
+    @Test
+    @DisplayName("Band spans with no span in the band, returns null")
+    public void bandSpans_noSpanInBand_shouldReturnNull() {
+        //Arrange
+        int[] spans = {5, 20, 40, 45};
+
+        //Act & Assert
+        assertNull(IgnoreMask.bandSpans(spans, 20, 40));
+        assertNull(IgnoreMask.bandSpans(null, 20, 40));
+    }
+}
@@ -0,0 +1,88 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapRasterTests {
+
+    /**
+     * Creates the pixels of a width x height image where every byte holds its own index.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @return byte[] pixels of the image
+     */
+    private byte[] createPixels(int width, int height) {
+        byte[] pixels = new byte[width * height * 4];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte)i;
+        }
+        return pixels;
+    }
+
+    @Test
+    @DisplayName("Write rows of an allocated raster, returns the written rows in a slice")
+    public void rows_allocatedRaster_shouldReturnWrittenRows() throws IOException {
+        //Arrange
+        byte[] pixels = createPixels(5, 6);
+
+        //Act
+        try (Arena arena = Arena.ofConfined(); OffHeapRaster raster = OffHeapRaster.allocate(arena, 5, 6)) {
+            raster.writeRows(pixels, 0, 6);
+            MemorySegment band = raster.rows(3, 2);
+
+            //Assert
+            assertEquals(5, raster.getWidth());
+            assertEquals(6, raster.getHeight());
+            assertArrayEquals(Arrays.copyOfRange(pixels, 5 * 3 * 4, 5 * 5 * 4), band.toArray(ValueLayout.JAVA_BYTE));
+        }
+    }
+
+    @Test
+    @DisplayName("Write rows of a mapped raster, returns the written rows and deletes the file on close")
+    public void rows_mappedRaster_shouldReturnWrittenRowsAndDeleteFile() throws IOException {
+        //Arrange
+        Path directory = Files.createTempDirectory("off-heap-raster-tests");
+        byte[] pixels = createPixels(7, 3);
+        byte[] readPixels;
+
+        //Act
+        try (Arena arena = Arena.ofConfined(); OffHeapRaster raster = OffHeapRaster.map(arena, 7, 3, directory)) {
+            raster.writeRows(pixels, 0, 3);
+            readPixels = raster.rows(0, 3).toArray(ValueLayout.JAVA_BYTE);
+        }
+
+        //Assert
+        assertArrayEquals(pixels, readPixels);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    @DisplayName("Read rows of a raster after its arena is closed, throws IllegalStateException")
+    public void rows_closedArena_shouldThrowIllegalStateException() {
+        //Arrange
+        Arena arena = Arena.ofConfined();
+        OffHeapRaster raster = OffHeapRaster.allocate(arena, 2, 2);
+        MemorySegment band = raster.rows(0, 2);
+        arena.close();
+
+        //Act & Assert
+        assertThrows(IllegalStateException.class, () -> band.get(ValueLayout.JAVA_BYTE, 0));
+    }
+}
@@ -0,0 +1,239 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PngBandReaderTests {
+
+    /**
+     * Creates an image of width x height pixels with random pixels.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @param int type of the BufferedImage
+     * @return BufferedImage with random pixels
+     */
+    private BufferedImage createRandomImage(int width, int height, int type) {
+        Random random = new Random(3);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                //Mix smooth gradients with noise, so the ImageIO writer uses every filter type
+                int value = random.nextInt(4) == 0 ? random.nextInt() : (x * 3 + y * 5) * 0x010101 | (x + y) << 24;
+                image.setRGB(x, y, value);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Creates a gray + alpha image of width x height pixels with random samples.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @return BufferedImage with a gray ComponentColorModel with alpha
+     */
+    private BufferedImage createRandomGrayAlphaImage(int width, int height) {
+        Random random = new Random(5);
+        ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY), true, false, Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, random.nextInt(256));
+                raster.setSample(x, y, 1, random.nextInt(256));
+            }
+        }
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Encodes an image as a PNG file with ImageIO.
+     *
+     * @param BufferedImage image to be encoded
+     * @return byte[] contents of the PNG file
+     * @throws IOException
+     */
+    private byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Read rows in bands, returns the same raster as ImageIO")
+    public void readRows_bands_shouldReturnSameRasterAsImageIO() throws IOException {
+        //Arrange
+        BufferedImage image = createRandomImage(37, 29, BufferedImage.TYPE_4BYTE_ABGR);
+        byte[] expectedRaster = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        byte[] raster = new byte[expectedRaster.length];
+        byte[] band = new byte[37 * 8 * 4];
+
+        //Act
+        try (PngBandReader reader = new PngBandReader(encode(image))) {
+            for (int startRow = 0; startRow < 29; startRow += 8) {
+                int rows = Math.min(8, 29 - startRow);
+                reader.readRows(band, rows);
+                System.arraycopy(band, 0, raster, startRow * 37 * 4, rows * 37 * 4);
+            }
+        }
+
+        //Assert
+        assertArrayEquals(expectedRaster, raster);
+    }
+
+    @Test
+    @DisplayName("Read header of RGBA PNG, returns dimensions and supported")
+    public void constructor_rgbaPng_shouldBeSupported() throws IOException {
+        //Arrange
+        byte[] pngData = encode(new BufferedImage(12, 7, BufferedImage.TYPE_4BYTE_ABGR));
+
+        //Act
+        try (PngBandReader reader = new PngBandReader(pngData)) {
+            //Assert
+            assertTrue(reader.isSupported());
+            assertEquals(12, reader.getWidth());
+            assertEquals(7, reader.getHeight());
+        }
+    }
+
+    @Test
+    @DisplayName("Read header of RGB PNG or non-PNG data, returns not supported, and decodable only for the RGB PNG")
+    public void constructor_unsupportedData_shouldNotBeSupported() throws IOException {
+        //Arrange
+        byte[] rgbData = encode(new BufferedImage(12, 7, BufferedImage.TYPE_3BYTE_BGR));
+        byte[] textData = "not an image".getBytes();
+
+        //Act
+        try (PngBandReader rgbReader = new PngBandReader(rgbData); PngBandReader textReader = new PngBandReader(textData)) {
+            //Assert
+            assertFalse(rgbReader.isSupported());
+            assertTrue(rgbReader.isDecodable());
+            assertFalse(textReader.isSupported());
+            assertFalse(textReader.isDecodable());
+            assertThrows(IOException.class, () -> textReader.readRows(new byte[12 * 4], 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Read rows of gray, gray + alpha, and RGB PNGs, returns the raster RasterNormalizer converts the ImageIO decode into")
+    public void readRows_otherColourTypes_shouldReturnNormalizedImageIORaster() throws IOException {
+        //Arrange
+        List<BufferedImage> images = List.of(createRandomImage(23, 17, BufferedImage.TYPE_BYTE_GRAY), createRandomGrayAlphaImage(23, 17), createRandomImage(23, 17, BufferedImage.TYPE_3BYTE_BGR));
+
+        for (BufferedImage image : images) {
+            byte[] pngData = encode(image);
+            BufferedImage decodedImage = RasterNormalizer.normalize(ImageIO.read(new ByteArrayInputStream(pngData)));
+            byte[] expectedRaster = ((DataBufferByte) decodedImage.getRaster().getDataBuffer()).getData();
+            byte[] raster = new byte[expectedRaster.length];
+
+            //Act
+            try (PngBandReader reader = new PngBandReader(pngData)) {
+                reader.readRows(raster, 17);
+
+                //Assert
+                assertTrue(reader.isDecodable());
+                assertArrayEquals(expectedRaster, raster);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Read rows into a segment, returns the same raster as ImageIO")
+    public void readRows_segment_shouldReturnSameRasterAsImageIO() throws IOException {
+        //Arrange
+        BufferedImage image = createRandomImage(37, 29, BufferedImage.TYPE_4BYTE_ABGR);
+        byte[] expectedRaster = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+
+        //Act
+        try (Arena arena = Arena.ofConfined(); PngBandReader reader = new PngBandReader(encode(image))) {
+            MemorySegment raster = arena.allocate(expectedRaster.length, 1);
+            reader.readRows(raster.asSlice(0, 37 * 10 * 4), 10);
+            reader.readRows(raster.asSlice(37 * 10 * 4), 19);
+
+            //Assert
+            assertArrayEquals(expectedRaster, raster.toArray(ValueLayout.JAVA_BYTE));
+        }
+    }
+
+    @Test
+    @DisplayName("Read header of RGB PNG with a tRNS chunk, returns not decodable")
+    public void constructor_transparencyChunk_shouldNotBeDecodable() throws IOException {
+        //Arrange
+        byte[] rgbData = encode(new BufferedImage(12, 7, BufferedImage.TYPE_3BYTE_BGR));
+        byte[] chunk = {0, 0, 0, 6, 't', 'R', 'N', 'S', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+        //Insert the chunk right after the IHDR chunk, which ends 33 bytes into the file
+        byte[] transparentData = new byte[rgbData.length + chunk.length];
+        System.arraycopy(rgbData, 0, transparentData, 0, 33);
+        System.arraycopy(chunk, 0, transparentData, 33, chunk.length);
+        System.arraycopy(rgbData, 33, transparentData, 33 + chunk.length, rgbData.length - 33);
+
+        //Act
+        try (PngBandReader reader = new PngBandReader(transparentData)) {
+            //Assert
+            assertFalse(reader.isDecodable());
+        }
+    }
+
+    @Test
+    @DisplayName("Read more rows than the height, throws IOException")
+    public void readRows_pastLastRow_shouldThrowIOException() throws IOException {
+        //Arrange
+        byte[] pngData = encode(new BufferedImage(4, 3, BufferedImage.TYPE_4BYTE_ABGR));
+
+        //Act & Assert
+        try (PngBandReader reader = new PngBandReader(pngData)) {
+            reader.readRows(new byte[4 * 2 * 4], 2);
+            assertThrows(IOException.class, () -> reader.readRows(new byte[4 * 2 * 4], 2));
+        }
+    }
+
+    @Test
+    @DisplayName("Read rows of truncated image data, throws IOException")
+    public void readRows_truncatedData_shouldThrowIOException() throws IOException {
+        //Arrange
+        byte[] pngData = encode(createRandomImage(40, 40, BufferedImage.TYPE_4BYTE_ABGR));
+        byte[] truncatedData = Arrays.copyOf(pngData, pngData.length / 2);
+
+        //Act & Assert
+        try (PngBandReader reader = new PngBandReader(truncatedData)) {
+            assertThrows(IOException.class, () -> reader.readRows(new byte[40 * 40 * 4], 40));
+        }
+    }
+
+    @Test
+    @DisplayName("Paeth predictor, returns the neighbour closest to the estimate")
+    public void paethPredictor_neighbours_shouldReturnClosestNeighbour() {
+        //Act & Assert
+        assertEquals(10, PngBandReader.paethPredictor(10, 20, 20));
+        assertEquals(20, PngBandReader.paethPredictor(10, 20, 10));
+        assertEquals(15, PngBandReader.paethPredictor(10, 20, 15));
+        assertEquals(0, PngBandReader.paethPredictor(0, 0, 0));
+    }
+}
@@ -0,0 +1,89 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PngBandWriterTests {
+
+    @Test
+    @DisplayName("Write rows in bands, ImageIO reads back the same raster")
+    public void writeRows_bands_shouldBeReadableByImageIO() throws IOException {
+        //Arrange
+        int width = 33;
+        int height = 21;
+        byte[] raster = new byte[width * height * 4];
+        Random random = new Random(5);
+        for (int i = 0; i < raster.length; i++) {
+            raster[i] = (byte)(i % 7 == 0 ? random.nextInt() : i / 4);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Act
+        try (PngBandWriter writer = new PngBandWriter(output, width, height)) {
+            for (int startRow = 0; startRow < height; startRow += 5) {
+                int rows = Math.min(5, height - startRow);
+                byte[] band = new byte[rows * width * 4];
+                System.arraycopy(raster, startRow * width * 4, band, 0, band.length);
+                writer.writeRows(band, rows);
+            }
+            writer.finish();
+        }
+
+        //Assert
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(BufferedImage.TYPE_4BYTE_ABGR, image.getType());
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        assertArrayEquals(raster, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+    }
+
+    @Test
+    @DisplayName("Write rows of an image larger than a chunk, PngBandReader reads back the same raster")
+    public void writeRows_multipleChunks_shouldBeReadableByPngBandReader() throws IOException {
+        //Arrange
+        int width = 300;
+        int height = 200;
+        byte[] raster = new byte[width * height * 4];
+        new Random(9).nextBytes(raster);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] readRaster = new byte[raster.length];
+
+        //Act
+        try (PngBandWriter writer = new PngBandWriter(output, width, height)) {
+            writer.writeRows(raster, height);
+            writer.finish();
+        }
+        try (PngBandReader reader = new PngBandReader(output.toByteArray())) {
+            reader.readRows(readRaster, height);
+        }
+
+        //Assert
+        assertArrayEquals(raster, readRaster);
+    }
+
+    @Test
+    @DisplayName("Finish before every row is written, throws IOException")
+    public void finish_missingRows_shouldThrowIOException() throws IOException {
+        //Arrange
+        try (PngBandWriter writer = new PngBandWriter(new ByteArrayOutputStream(), 4, 3)) {
+            writer.writeRows(new byte[4 * 2 * 4], 2);
+
+            //Act & Assert
+            assertThrows(IOException.class, writer::finish);
+            assertThrows(IOException.class, () -> writer.writeRows(new byte[4 * 2 * 4], 2));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PooledOutputStreamTests {
+
+    @Test
+    @DisplayName("Write more bytes than the initial buffer holds, returns every written byte")
+    public void toByteArray_growingOutput_shouldReturnWrittenBytes() {
+        //Arrange
+        byte[] bytes = new byte[200000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)(i * 31);
+        }
+        BufferPool bufferPool = new BufferPool(1 << 24);
+
+        //Act
+        byte[] writtenBytes;
+        try (PooledOutputStream output = new PooledOutputStream(bufferPool)) {
+            output.write(bytes[0]);
+            output.write(bytes, 1, 99999);
+            output.write(bytes, 100000, 100000);
+            writtenBytes = output.toByteArray();
+        }
+
+        //Assert
+        assertArrayEquals(bytes, writtenBytes);
+    }
+
+    @Test
+    @DisplayName("Close after growing, returns the buffers to the pool for the next stream")
+    public void close_afterGrowing_shouldReleaseBuffers() {
+        //Arrange
+        BufferPool bufferPool = new BufferPool(1 << 24);
+        try (PooledOutputStream output = new PooledOutputStream(bufferPool)) {
+            output.write(new byte[100000], 0, 100000);
+        }
+
+        //Act
+        try (PooledOutputStream output = new PooledOutputStream(bufferPool)) {
+            output.write(new byte[100000], 0, 100000);
+            assertEquals(100000, output.size());
+        }
+
+        //Assert
+        assertEquals(2, bufferPool.getMisses());
+        assertEquals(2, bufferPool.getHits());
+        assertEquals(65536 + 131072, bufferPool.getRetainedBytes());
+    }
+}
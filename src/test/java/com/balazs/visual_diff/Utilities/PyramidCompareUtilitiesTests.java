@@ -0,0 +1,157 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PyramidCompareUtilitiesTests {
+
+    @Test
+    @DisplayName("Downsample with an odd width and height, averages each 2x2 block and repeats the edges")
+    public void downsample_oddSize_shouldAverageBlocks() {
+        //Arrange
+        byte[] rgba = new byte[3 * 3 * 4];
+        for (int pixel = 0; pixel < 9; pixel++) {
+            CompareUtilities.drawPixel(rgba, (byte)(pixel * 10), (byte)200, (byte)0, pixel * 4);
+        }
+
+        //Act
+        byte[] level = PyramidCompareUtilities.downsample(rgba, 3, 3);
+
+        //Assert
+        assertEquals(2 * 2 * 4, level.length);
+        assertEquals(20, Byte.toUnsignedInt(level[0]));
+        assertEquals(200, Byte.toUnsignedInt(level[1]));
+        assertEquals(0, level[2]);
+        assertEquals(255, Byte.toUnsignedInt(level[3]));
+        assertEquals(35, Byte.toUnsignedInt(level[4]));
+        assertEquals(65, Byte.toUnsignedInt(level[8]));
+        assertEquals(80, Byte.toUnsignedInt(level[12]));
+    }
+
+    @Test
+    @DisplayName("Max difference, returns the largest channel difference of each 2x2 block")
+    public void maxDifference_changedPixels_shouldReturnLargestDifferencePerBlock() {
+        //Arrange
+        byte[] baselineRGBA = new byte[4 * 2 * 4];
+        byte[] compareRGBA = baselineRGBA.clone();
+        compareRGBA[1] = 5;
+        compareRGBA[(1 * 4 + 0) * 4 + 2] = 9;
+        compareRGBA[(1 * 4 + 3) * 4 + 3] = (byte)200;
+
+        //Act
+        byte[] level = PyramidCompareUtilities.maxDifference(baselineRGBA, compareRGBA, 4, 2);
+
+        //Assert
+        assertArrayEquals(new byte[] {9, (byte)200}, level);
+    }
+
+    @Test
+    @DisplayName("Downsample max, keeps the largest value of each 2x2 block")
+    public void downsampleMax_values_shouldKeepLargestValue() {
+        //Arrange
+        byte[] level = {1, 7, 3, 2, (byte)250, 0};
+
+        //Act
+        byte[] next = PyramidCompareUtilities.downsampleMax(level, 3, 2);
+
+        //Assert
+        assertArrayEquals(new byte[] {(byte)250, 3}, next);
+    }
+
+    @Test
+    @DisplayName("Find candidate tiles conservatively with a single changed pixel, marks its tile only")
+    public void findCandidateTiles_conservativeSinglePixel_shouldMarkItsTile() {
+        //Arrange
+        int width = 70;
+        int height = 40;
+        byte[] baselineRGBA = new byte[width * height * 4];
+        new Random(3).nextBytes(baselineRGBA);
+        byte[] compareRGBA = baselineRGBA.clone();
+        compareRGBA[(35 * width + 66) * 4] ^= (byte)0x7F;
+
+        //Act
+        boolean[] candidateTiles = PyramidCompareUtilities.findCandidateTiles(baselineRGBA, compareRGBA, width, height, 4, true);
+
+        //Assert
+        assertEquals(5 * 3, candidateTiles.length);
+        for (int tile = 0; tile < candidateTiles.length; tile++) {
+            assertEquals(tile == 2 * 5 + 4, candidateTiles[tile]);
+        }
+    }
+
+    @Test
+    @DisplayName("Find candidate tiles conservatively with small differences, marks no tiles")
+    public void findCandidateTiles_conservativeSmallDifferences_shouldMarkNoTiles() {
+        //Arrange
+        int width = 64;
+        int height = 64;
+        Random random = new Random(5);
+        byte[] baselineRGBA = new byte[width * height * 4];
+        byte[] compareRGBA = new byte[width * height * 4];
+        for (int i = 0; i < baselineRGBA.length; i++) {
+            baselineRGBA[i] = (byte)(PyramidCompareUtilities.MAX_HIDDEN_DIFFERENCE + random.nextInt(80));
+            compareRGBA[i] = (byte)(baselineRGBA[i] + random.nextInt(2 * PyramidCompareUtilities.MAX_HIDDEN_DIFFERENCE + 1) - PyramidCompareUtilities.MAX_HIDDEN_DIFFERENCE);
+        }
+
+        //Act
+        boolean[] candidateTiles = PyramidCompareUtilities.findCandidateTiles(baselineRGBA, compareRGBA, width, height, 3, true);
+
+        //Assert
+        for (boolean candidateTile : candidateTiles) { assertFalse(candidateTile); }
+    }
+
+    @Test
+    @DisplayName("Find candidate tiles without conservative with a changed block, marks its tile")
+    public void findCandidateTiles_approximateChangedBlock_shouldMarkItsTile() {
+        //Arrange
+        int width = 32;
+        int height = 32;
+        byte[] baselineRGBA = new byte[width * height * 4];
+        for (int pixel = 0; pixel < width * height; pixel++) {
+            baselineRGBA[pixel * 4 + 3] = (byte)127;
+        }
+        byte[] compareRGBA = baselineRGBA.clone();
+        for (int y = 16; y < 24; y++) {
+            for (int x = 0; x < 8; x++) {
+                compareRGBA[(y * width + x) * 4] = (byte)100;
+                compareRGBA[(y * width + x) * 4 + 1] = (byte)100;
+            }
+        }
+
+        //Act
+        boolean[] candidateTiles = PyramidCompareUtilities.findCandidateTiles(baselineRGBA, compareRGBA, width, height, 4, false);
+
+        //Assert
+        assertArrayEquals(new boolean[] {false, false, true, false}, candidateTiles);
+    }
+
+    @Test
+    @DisplayName("Max hidden difference, no pixel pair within the difference has a delta over MAX_DELTA")
+    public void maxHiddenDifference_randomPixels_shouldNeverExceedMaxDelta() {
+        //Arrange
+        Random random = new Random(7);
+        byte[] baselineRGBA = new byte[4];
+        byte[] compareRGBA = new byte[4];
+        int maxDelta = 0;
+
+        //Act
+        for (int i = 0; i < 1_000_000; i++) {
+            for (int channel = 0; channel < 4; channel++) {
+                baselineRGBA[channel] = (byte)random.nextInt(256);
+                compareRGBA[channel] = (byte)(baselineRGBA[channel] + random.nextInt(2 * PyramidCompareUtilities.MAX_HIDDEN_DIFFERENCE + 1) - PyramidCompareUtilities.MAX_HIDDEN_DIFFERENCE);
+            }
+            if (Byte.toUnsignedInt(PyramidCompareUtilities.maxDifference(baselineRGBA, compareRGBA, 1, 1)[0]) > PyramidCompareUtilities.MAX_HIDDEN_DIFFERENCE) { continue; }
+            maxDelta = Math.max(maxDelta, Math.abs(CompareUtilities.calculateDelta(baselineRGBA, compareRGBA, 0)));
+        }
+
+        //Assert
+        assertTrue(maxDelta <= CompareUtilities.MAX_DELTA);
+    }
+}
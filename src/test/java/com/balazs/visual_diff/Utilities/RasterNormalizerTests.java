@@ -0,0 +1,202 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RasterNormalizerTests {
+
+    /**
+     * Fills an image with random pixels through setRGB.
+     *
+     * @param BufferedImage image to be filled
+     * @return BufferedImage the same image
+     */
+    private BufferedImage fillRandom(BufferedImage image) {
+        Random random = new Random(11);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Gets the raster data of a normalized image.
+     *
+     * @param BufferedImage image of TYPE_4BYTE_ABGR
+     * @return byte[] raster data of the image
+     */
+    private byte[] data(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Converts an image with getRGB, as the expected result of normalize.
+     *
+     * @param BufferedImage image to be converted
+     * @return byte[] pixels of the image in the layout of normalize
+     */
+    private byte[] convertWithGetRGB(BufferedImage image) {
+        byte[] abgr = new byte[image.getWidth() * image.getHeight() * 4];
+        RasterNormalizer.convertWithGetRGB(image, abgr);
+        return abgr;
+    }
+
+    @Test
+    @DisplayName("Normalize TYPE_4BYTE_ABGR image, returns the same image")
+    public void normalize_4ByteABGR_shouldReturnSameImage() {
+        //Arrange
+        BufferedImage image = new BufferedImage(5, 4, BufferedImage.TYPE_4BYTE_ABGR);
+
+        //Act
+        BufferedImage normalized = RasterNormalizer.normalize(image);
+
+        //Assert
+        assertSame(image, normalized);
+    }
+
+    @Test
+    @DisplayName("Normalize RGB, BGR, and indexed image types, returns the same pixels as getRGB")
+    public void normalize_colourTypes_shouldMatchGetRGB() {
+        for (int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_4BYTE_ABGR_PRE}) {
+            //Arrange
+            BufferedImage image = fillRandom(new BufferedImage(13, 7, type));
+
+            //Act
+            BufferedImage normalized = RasterNormalizer.normalize(image);
+
+            //Assert
+            assertEquals(BufferedImage.TYPE_4BYTE_ABGR, normalized.getType());
+            assertArrayEquals(convertWithGetRGB(image), data(normalized));
+        }
+    }
+
+    @Test
+    @DisplayName("Normalize sub-image, returns the pixels of the sub-image only")
+    public void normalize_subImage_shouldReturnSubImagePixels() {
+        //Arrange
+        BufferedImage image = fillRandom(new BufferedImage(10, 10, BufferedImage.TYPE_4BYTE_ABGR)).getSubimage(2, 3, 5, 4);
+
+        //Act
+        BufferedImage normalized = RasterNormalizer.normalize(image);
+
+        //Assert
+        assertArrayEquals(convertWithGetRGB(image), data(normalized));
+    }
+
+    @Test
+    @DisplayName("Normalize 8-bit and 16-bit gray images, copies the stored gray value into r, g, and b")
+    public void normalize_grayImages_shouldCopyStoredGrayValue() {
+        //Arrange
+        BufferedImage byteGray = new BufferedImage(2, 1, BufferedImage.TYPE_BYTE_GRAY);
+        byteGray.getRaster().setSample(0, 0, 0, 128);
+        byteGray.getRaster().setSample(1, 0, 0, 10);
+        BufferedImage ushortGray = new BufferedImage(1, 1, BufferedImage.TYPE_USHORT_GRAY);
+        ushortGray.getRaster().setSample(0, 0, 0, 0xABCD);
+
+        //Act
+        BufferedImage normalizedByteGray = RasterNormalizer.normalize(byteGray);
+        BufferedImage normalizedUShortGray = RasterNormalizer.normalize(ushortGray);
+
+        //Assert
+        assertArrayEquals(new byte[] {(byte)255, (byte)128, (byte)128, (byte)128, (byte)255, 10, 10, 10}, data(normalizedByteGray));
+        assertArrayEquals(new byte[] {(byte)255, (byte)0xAB, (byte)0xAB, (byte)0xAB}, data(normalizedUShortGray));
+    }
+
+    @Test
+    @DisplayName("Normalize 16-bit RGBA and 8-bit gray + alpha images, keeps the high byte of each sample")
+    public void normalize_componentImages_shouldKeepHighByte() {
+        //Arrange
+        ColorModel rgbaModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] {16, 16, 16, 16}, true, false, Transparency.TRANSLUCENT, DataBuffer.TYPE_USHORT);
+        WritableRaster rgbaRaster = rgbaModel.createCompatibleWritableRaster(1, 1);
+        rgbaRaster.setPixel(0, 0, new int[] {0x1234, 0x5678, 0x9ABC, 0xDEF0});
+        BufferedImage rgba = new BufferedImage(rgbaModel, rgbaRaster, false, null);
+
+        ColorModel grayAlphaModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY), true, false, Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+        WritableRaster grayAlphaRaster = grayAlphaModel.createCompatibleWritableRaster(1, 1);
+        grayAlphaRaster.setPixel(0, 0, new int[] {40, 200});
+        BufferedImage grayAlpha = new BufferedImage(grayAlphaModel, grayAlphaRaster, false, null);
+
+        //Act
+        BufferedImage normalizedRGBA = RasterNormalizer.normalize(rgba);
+        BufferedImage normalizedGrayAlpha = RasterNormalizer.normalize(grayAlpha);
+
+        //Assert
+        assertArrayEquals(new byte[] {(byte)0xDE, (byte)0x9A, (byte)0x56, (byte)0x12}, data(normalizedRGBA));
+        assertArrayEquals(new byte[] {(byte)200, 40, 40, 40}, data(normalizedGrayAlpha));
+    }
+
+    @Test
+    @DisplayName("Normalize indexed image with a short palette, returns the same pixels as getRGB")
+    public void normalize_shortPalette_shouldMatchGetRGB() {
+        //Arrange
+        byte[] reds = {0, (byte)255, 10};
+        byte[] greens = {0, 20, (byte)200};
+        byte[] blues = {0, 30, 100};
+        IndexColorModel colorModel = new IndexColorModel(2, 3, reds, greens, blues);
+        BufferedImage image = new BufferedImage(4, 1, BufferedImage.TYPE_BYTE_BINARY, colorModel);
+        for (int x = 0; x < 4; x++) {
+            image.getRaster().setSample(x, 0, 0, x);
+        }
+
+        //Act
+        BufferedImage normalized = RasterNormalizer.normalize(image);
+
+        //Assert
+        assertArrayEquals(convertWithGetRGB(image), data(normalized));
+    }
+
+    @Test
+    @DisplayName("Wrap byte[] array, returns a TYPE_4BYTE_ABGR image that writes through to the array")
+    public void wrap_byteArray_shouldWriteThroughToArray() {
+        //Arrange
+        byte[] abgr = new byte[3 * 2 * 4];
+
+        //Act
+        BufferedImage image = RasterNormalizer.wrap(abgr, 3, 2);
+        image.setRGB(1, 1, 0x80102030);
+
+        //Assert
+        assertEquals(BufferedImage.TYPE_4BYTE_ABGR, image.getType());
+        assertSame(image, RasterNormalizer.normalize(image));
+        assertArrayEquals(new byte[] {(byte)0x80, 0x30, 0x20, 0x10}, Arrays.copyOfRange(abgr, 16, 20));
+    }
+
+    @Test
+    @DisplayName("Normalize with a buffer pool, converts into a pooled array that is reused after release")
+    public void normalize_withBufferPool_shouldReusePooledArray() {
+        //Arrange
+        BufferedImage image = fillRandom(new BufferedImage(50, 30, BufferedImage.TYPE_3BYTE_BGR));
+        BufferPool bufferPool = new BufferPool(1 << 20);
+        byte[] expected = ((DataBufferByte) RasterNormalizer.normalize(image).getRaster().getDataBuffer()).getData();
+
+        //Act
+        BufferedImage first = RasterNormalizer.normalize(image, bufferPool);
+        byte[] firstABGR = ((DataBufferByte) first.getRaster().getDataBuffer()).getData();
+        RasterNormalizer.release(image, first, bufferPool);
+        BufferedImage second = RasterNormalizer.normalize(image, bufferPool);
+
+        //Assert
+        assertEquals(BufferedImage.TYPE_4BYTE_ABGR, second.getType());
+        assertSame(firstABGR, ((DataBufferByte) second.getRaster().getDataBuffer()).getData());
+        assertArrayEquals(expected, Arrays.copyOf(firstABGR, expected.length));
+        assertEquals(1, bufferPool.getHits());
+    }
+}
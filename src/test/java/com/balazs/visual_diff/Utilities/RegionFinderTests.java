@@ -0,0 +1,82 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RegionFinderTests {
+
+    /**
+     * Creates a gray output image of width x height pixels with DIFF_COLOUR at random pixels.
+     *
+     * @param int width of the output image
+     * @param int height of the output image
+     * @param int diffPixels number of pixels drawn DIFF_COLOUR
+     * @return byte[] output image in RGBA format
+     */
+    private byte[] createRandomOutput(int width, int height, int diffPixels) {
+        Random random = new Random(7);
+        byte[] outputRGBA = new byte[width * height * 4];
+        for (int i = 0; i < width * height; i++) {
+            CompareUtilities.drawPixel(outputRGBA, (byte)230, (byte)230, (byte)230, i * 4);
+        }
+        for (int i = 0; i < diffPixels; i++) {
+            CompareUtilities.drawPixel(outputRGBA, (byte)255, (byte)0, (byte)0, random.nextInt(width * height) * 4);
+        }
+        return outputRGBA;
+    }
+
+    @Test
+    @DisplayName("Add rows in bands, returns the same regions as find regions on the whole image")
+    public void addRows_bands_shouldReturnSameRegionsAsFindRegions() {
+        //Arrange
+        int width = 50;
+        int height = 45;
+        int bandRows = 7;
+        byte[] outputRGBA = createRandomOutput(width, height, 150);
+        RegionFinder regionFinder = new RegionFinder(width, 1);
+
+        //Act
+        for (int startRow = 0; startRow < height; startRow += bandRows) {
+            int rows = Math.min(bandRows, height - startRow);
+            regionFinder.addRows(Arrays.copyOfRange(outputRGBA, startRow * width * 4, (startRow + rows) * width * 4), rows);
+        }
+        List<DiffRegion> regions = regionFinder.getRegions(1000);
+
+        //Assert
+        List<DiffRegion> expectedRegions = RegionUtilities.findRegions(outputRGBA, width, height, 1, 1000);
+        assertEquals(expectedRegions.size(), regions.size());
+        for (int i = 0; i < regions.size(); i++) {
+            assertEquals(expectedRegions.get(i).getX(), regions.get(i).getX());
+            assertEquals(expectedRegions.get(i).getY(), regions.get(i).getY());
+            assertEquals(expectedRegions.get(i).getWidth(), regions.get(i).getWidth());
+            assertEquals(expectedRegions.get(i).getHeight(), regions.get(i).getHeight());
+            assertEquals(expectedRegions.get(i).getPixelCount(), regions.get(i).getPixelCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Skip rows, moves the regions of later rows down")
+    public void skipRows_emptyBand_shouldMoveLaterRegionsDown() {
+        //Arrange
+        byte[] bandRGBA = createRandomOutput(4, 1, 0);
+        CompareUtilities.drawPixel(bandRGBA, (byte)255, (byte)0, (byte)0, 4);
+        RegionFinder regionFinder = new RegionFinder(4, 0);
+
+        //Act
+        regionFinder.skipRows(1500);
+        regionFinder.addRows(bandRGBA, 1);
+        List<DiffRegion> regions = regionFinder.getRegions(10);
+
+        //Assert
+        assertEquals(1, regions.size());
+        assertEquals(1, regions.get(0).getX());
+        assertEquals(1500, regions.get(0).getY());
+        assertEquals(1, regions.get(0).getPixelCount());
+    }
+}
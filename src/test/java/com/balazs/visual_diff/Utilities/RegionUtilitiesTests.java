@@ -0,0 +1,175 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RegionUtilitiesTests {
+
+    /**
+     * Creates a gray output image of width x height pixels with DIFF_COLOUR at the given pixels.
+     *
+     * @param int width of the output image
+     * @param int height of the output image
+     * @param int[][] diffPixels {x, y} of each pixel drawn DIFF_COLOUR
+     * @return byte[] output image in RGBA format
+     */
+    private byte[] createOutput(int width, int height, int[][] diffPixels) {
+        byte[] outputRGBA = new byte[width * height * 4];
+        for (int i = 0; i < width * height; i++) {
+            CompareUtilities.drawPixel(outputRGBA, (byte)230, (byte)230, (byte)230, i * 4);
+        }
+        for (int[] pixel : diffPixels) {
+            CompareUtilities.drawPixel(outputRGBA, (byte)255, (byte)0, (byte)0, (pixel[1] * width + pixel[0]) * 4);
+        }
+        return outputRGBA;
+    }
+
+    @Test
+    @DisplayName("Is diff pixel with red and gray pixels, returns true for red only")
+    public void isDiffPixel_redAndGrayPixels_shouldReturnTrueForRedOnly() {
+        //Arrange
+        byte[] outputRGBA = {(byte)255, (byte)0, (byte)0, (byte)255, (byte)255, (byte)255, (byte)255, (byte)255};
+
+        //Act
+        boolean redPixel = RegionUtilities.isDiffPixel(outputRGBA, 0);
+        boolean grayPixel = RegionUtilities.isDiffPixel(outputRGBA, 4);
+
+        //Assert
+        assertTrue(redPixel);
+        assertFalse(grayPixel);
+    }
+
+    @Test
+    @DisplayName("Find regions with no diff pixels, returns no regions")
+    public void findRegions_noDiffPixels_shouldReturnNoRegions() {
+        //Arrange
+        byte[] outputRGBA = createOutput(8, 8, new int[][] {});
+
+        //Act
+        List<DiffRegion> regions = RegionUtilities.findRegions(outputRGBA, 8, 8, 0, 10);
+
+        //Assert
+        assertTrue(regions.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Find regions with two separate blocks, returns both regions largest first")
+    public void findRegions_twoBlocks_shouldReturnBothRegionsLargestFirst() {
+        //Arrange
+        byte[] outputRGBA = createOutput(10, 10, new int[][] {{1, 1}, {2, 1}, {6, 5}, {7, 5}, {6, 6}, {7, 6}, {7, 7}});
+
+        //Act
+        List<DiffRegion> regions = RegionUtilities.findRegions(outputRGBA, 10, 10, 0, 10);
+
+        //Assert
+        assertEquals(2, regions.size());
+        assertEquals(6, regions.get(0).getX());
+        assertEquals(5, regions.get(0).getY());
+        assertEquals(2, regions.get(0).getWidth());
+        assertEquals(3, regions.get(0).getHeight());
+        assertEquals(5, regions.get(0).getPixelCount());
+        assertEquals(1, regions.get(1).getX());
+        assertEquals(1, regions.get(1).getY());
+        assertEquals(2, regions.get(1).getWidth());
+        assertEquals(1, regions.get(1).getHeight());
+        assertEquals(2, regions.get(1).getPixelCount());
+    }
+
+    @Test
+    @DisplayName("Find regions with diagonal pixels, joins 8-connected pixels")
+    public void findRegions_diagonalPixels_shouldJoinEightConnectedPixels() {
+        //Arrange
+        byte[] outputRGBA = createOutput(6, 6, new int[][] {{0, 0}, {1, 1}, {2, 2}, {1, 3}, {0, 4}});
+
+        //Act
+        List<DiffRegion> regions = RegionUtilities.findRegions(outputRGBA, 6, 6, 0, 10);
+
+        //Assert
+        assertEquals(1, regions.size());
+        assertEquals(0, regions.get(0).getX());
+        assertEquals(0, regions.get(0).getY());
+        assertEquals(3, regions.get(0).getWidth());
+        assertEquals(5, regions.get(0).getHeight());
+        assertEquals(5, regions.get(0).getPixelCount());
+    }
+
+    @Test
+    @DisplayName("Find regions with a U shape, merges branches that meet in a later row")
+    public void findRegions_uShape_shouldMergeBranches() {
+        //Arrange
+        byte[] outputRGBA = createOutput(5, 4, new int[][] {{0, 0}, {4, 0}, {0, 1}, {4, 1}, {0, 2}, {4, 2}, {0, 3}, {1, 3}, {2, 3}, {3, 3}, {4, 3}});
+
+        //Act
+        List<DiffRegion> regions = RegionUtilities.findRegions(outputRGBA, 5, 4, 0, 10);
+
+        //Assert
+        assertEquals(1, regions.size());
+        assertEquals(5, regions.get(0).getWidth());
+        assertEquals(4, regions.get(0).getHeight());
+        assertEquals(11, regions.get(0).getPixelCount());
+    }
+
+    @Test
+    @DisplayName("Find regions with a dilation radius, joins nearby regions")
+    public void findRegions_dilationRadius_shouldJoinNearbyRegions() {
+        //Arrange
+        int[][] diffPixels = {{1, 1}, {4, 1}, {1, 4}, {9, 9}};
+        byte[] outputRGBA = createOutput(12, 12, diffPixels);
+
+        //Act
+        List<DiffRegion> undilatedRegions = RegionUtilities.findRegions(outputRGBA, 12, 12, 0, 10);
+        List<DiffRegion> dilatedRegions = RegionUtilities.findRegions(outputRGBA, 12, 12, 1, 10);
+
+        //Assert
+        assertEquals(4, undilatedRegions.size());
+        assertEquals(2, dilatedRegions.size());
+        assertEquals(1, dilatedRegions.get(0).getX());
+        assertEquals(1, dilatedRegions.get(0).getY());
+        assertEquals(4, dilatedRegions.get(0).getWidth());
+        assertEquals(4, dilatedRegions.get(0).getHeight());
+        assertEquals(3, dilatedRegions.get(0).getPixelCount());
+        assertEquals(1, dilatedRegions.get(1).getPixelCount());
+    }
+
+    @Test
+    @DisplayName("Find regions with more regions than max regions, returns the largest regions")
+    public void findRegions_moreThanMaxRegions_shouldReturnLargestRegions() {
+        //Arrange
+        byte[] outputRGBA = createOutput(12, 1, new int[][] {{0, 0}, {2, 0}, {3, 0}, {5, 0}, {6, 0}, {7, 0}, {9, 0}});
+
+        //Act
+        List<DiffRegion> regions = RegionUtilities.findRegions(outputRGBA, 12, 1, 0, 2);
+
+        //Assert
+        assertEquals(2, regions.size());
+        assertEquals(3, regions.get(0).getPixelCount());
+        assertEquals(2, regions.get(1).getPixelCount());
+    }
+
+    @Test
+    @DisplayName("Find regions with every pixel different, returns one region covering the image")
+    public void findRegions_everyPixelDifferent_shouldReturnOneRegion() {
+        //Arrange
+        int width = 300;
+        int height = 200;
+        byte[] outputRGBA = new byte[width * height * 4];
+        for (int i = 0; i < width * height; i++) {
+            CompareUtilities.drawPixel(outputRGBA, (byte)255, (byte)0, (byte)0, i * 4);
+        }
+
+        //Act
+        List<DiffRegion> regions = RegionUtilities.findRegions(outputRGBA, width, height, 0, 10);
+
+        //Assert
+        assertEquals(1, regions.size());
+        assertEquals(width, regions.get(0).getWidth());
+        assertEquals(height, regions.get(0).getHeight());
+        assertEquals(width * height, regions.get(0).getPixelCount());
+    }
+}
@@ -1,12 +1,18 @@
 package com.balazs.visual_diff.Utilities;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -32,6 +38,45 @@ public class ValidationUtilitiesTests {
         assertTrue(actualState);
     }
 
+    @Test
+    @DisplayName("Type 'diff' is provided for a listing, return is true")
+    public void isListTypeValid_typeDiff_shouldReturnTrue() {
+        //Arrange
+        String type = "diff";
+
+        //Act
+        boolean actualState = ValidationUtilities.isListTypeValid(type);
+
+        //Assert
+        assertTrue(actualState);
+    }
+
+    @Test
+    @DisplayName("Invalid type is provided for a listing, return is false")
+    public void isListTypeValid_invalidType_shouldReturnFalse() {
+        //Arrange
+        String type = "invalid";
+
+        //Act
+        boolean actualState = ValidationUtilities.isListTypeValid(type);
+
+        //Assert
+        assertFalse(actualState);
+    }
+
+    @Test
+    @DisplayName("Valid type 'mask' is provided, return is true")
+    public void isTypeValid_typeMask_shouldReturnTrue() {
+        //Arrange
+        String type = "mask";
+
+        //Act
+        boolean actualState = ValidationUtilities.isTypeValid(type);
+
+        //Assert
+        assertTrue(actualState);
+    }
+
     @Test
     @DisplayName("Valid type 'comparison' is provided, return is true")
     public void isTypeValid_typeComparison_shouldReturnTrue() {
@@ -241,7 +286,7 @@ public class ValidationUtilitiesTests {
     @DisplayName("Invalid file null is provided, return is false")
     public void isImageContentsValid_nullImage_shouldReturnFalse() throws IOException {
         //Act
-        boolean actualState = ValidationUtilities.isImageContentsValid(null);
+        boolean actualState = ValidationUtilities.isImageContentsValid((MultipartFile) null);
 
         //Assert
         assertFalse(actualState);
@@ -362,4 +407,157 @@ public class ValidationUtilitiesTests {
         //Assert
         assertFalse(actualState);
     }
+
+    @Test
+    @DisplayName("Valid png file is provided. Decoded once, returns the image with its format and dimensions")
+    public void readValidatedImage_validImage_shouldReturnDecodedImage() throws IOException {
+        //Arrange
+        MultipartFile file = mock(MultipartFile.class);
+        InputStream inputStream = mock(InputStream.class);
+        BufferedImage bufferedImage = new BufferedImage(30, 20, BufferedImage.TYPE_4BYTE_ABGR);
+
+        when(file.getInputStream()).thenReturn(inputStream);
+        when(file.getContentType()).thenReturn(MediaType.IMAGE_PNG_VALUE);
+
+        try (MockedStatic<ImageIO> imageIO = mockStatic(ImageIO.class)) {
+            imageIO.when(() -> ImageIO.read(inputStream)).thenReturn(bufferedImage);
+
+            //Act
+            ValidatedImage validatedImage = ValidationUtilities.readValidatedImage(file);
+
+            //Assert
+            assertSame(bufferedImage, validatedImage.getImage());
+            assertEquals(FileUtilities.FORMAT_PNG, validatedImage.getFormat());
+            assertEquals(30, validatedImage.getWidth());
+            assertEquals(20, validatedImage.getHeight());
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupt file is provided, return is null")
+    public void readValidatedImage_corruptImage_shouldReturnNull() throws IOException {
+        //Arrange
+        MultipartFile file = mock(MultipartFile.class);
+        InputStream inputStream = mock(InputStream.class);
+
+        when(file.getInputStream()).thenReturn(inputStream);
+
+        try (MockedStatic<ImageIO> imageIO = mockStatic(ImageIO.class)) {
+            imageIO.when(() -> ImageIO.read(inputStream)).thenReturn(null);
+
+            //Act
+            ValidatedImage validatedImage = ValidationUtilities.readValidatedImage(file);
+
+            //Assert
+            assertNull(validatedImage);
+        }
+    }
+
+    @Test
+    @DisplayName("Validated images with same dimensions are provided, return is true")
+    public void areImageDimensionsValid_sameValidatedDimensions_shouldReturnTrue() {
+        //Arrange
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(30, 20, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage comparisonImage = new ValidatedImage(new BufferedImage(30, 20, BufferedImage.TYPE_3BYTE_BGR), FileUtilities.FORMAT_JPEG);
+
+        //Act
+        boolean actualState = ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage);
+
+        //Assert
+        assertTrue(actualState);
+    }
+
+    @Test
+    @DisplayName("Validated images with different dimensions are provided, return is false")
+    public void areImageDimensionsValid_differentValidatedDimensions_shouldReturnFalse() {
+        //Arrange
+        ValidatedImage baselineImage = new ValidatedImage(new BufferedImage(30, 20, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+        ValidatedImage comparisonImage = new ValidatedImage(new BufferedImage(30, 21, BufferedImage.TYPE_4BYTE_ABGR), FileUtilities.FORMAT_PNG);
+
+        //Act
+        boolean actualState = ValidationUtilities.areImageDimensionsValid(baselineImage, comparisonImage);
+
+        //Assert
+        assertFalse(actualState);
+    }
+
+    @Test
+    @DisplayName("Valid PNG file is provided, returns its header")
+    public void readImageHeader_validPng_shouldReturnHeader() throws IOException {
+        //Arrange
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(encodeImage(new BufferedImage(12, 7, BufferedImage.TYPE_INT_ARGB), "png")));
+
+        //Act
+        ImageHeader actualHeader = ValidationUtilities.readImageHeader(file);
+
+        //Assert
+        assertNotNull(actualHeader);
+        assertEquals(FileUtilities.FORMAT_PNG, actualHeader.getFormat());
+        assertEquals(12, actualHeader.getWidth());
+        assertEquals(7, actualHeader.getHeight());
+        assertEquals(8, actualHeader.getBitDepth());
+    }
+
+    @Test
+    @DisplayName("Valid JPEG file is provided, returns its header")
+    public void readImageHeader_validJpeg_shouldReturnHeader() throws IOException {
+        //Arrange
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(encodeImage(new BufferedImage(9, 4, BufferedImage.TYPE_INT_RGB), "jpeg")));
+
+        //Act
+        ImageHeader actualHeader = ValidationUtilities.readImageHeader(file);
+
+        //Assert
+        assertNotNull(actualHeader);
+        assertEquals(FileUtilities.FORMAT_JPEG, actualHeader.getFormat());
+        assertEquals(9, actualHeader.getWidth());
+        assertEquals(4, actualHeader.getHeight());
+    }
+
+    @Test
+    @DisplayName("File without PNG or JPEG magic bytes is provided, return is null")
+    public void readImageHeader_unknownMagicBytes_shouldReturnNull() throws IOException {
+        //Arrange
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{(byte)255, (byte)0, (byte)0, (byte)255}));
+
+        //Act
+        ImageHeader actualHeader = ValidationUtilities.readImageHeader(file);
+
+        //Assert
+        assertNull(actualHeader);
+    }
+
+    @Test
+    @DisplayName("PNG file with a truncated header is provided, return is null")
+    public void readImageHeader_truncatedPng_shouldReturnNull() throws IOException {
+        //Arrange
+        byte[] png = encodeImage(new BufferedImage(12, 7, BufferedImage.TYPE_INT_ARGB), "png");
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(png, 0, 12));
+
+        //Act
+        ImageHeader actualHeader = ValidationUtilities.readImageHeader(file);
+
+        //Assert
+        assertNull(actualHeader);
+    }
+
+    @Test
+    @DisplayName("Invalid file null is provided, return is null")
+    public void readImageHeader_nullFile_shouldReturnNull() throws IOException {
+        //Act
+        ImageHeader actualHeader = ValidationUtilities.readImageHeader(null);
+
+        //Assert
+        assertNull(actualHeader);
+    }
+
+    private static byte[] encodeImage(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, outputStream);
+        return outputStream.toByteArray();
+    }
 }
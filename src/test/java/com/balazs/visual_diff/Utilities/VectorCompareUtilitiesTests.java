@@ -0,0 +1,157 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class VectorCompareUtilitiesTests {
+
+    @BeforeEach
+    public void requireVectorApi() {
+        //Tests are run with --add-modules jdk.incubator.vector from the surefire argLine
+        assumeTrue(CompareUtilities.isVectorKernelAvailable());
+    }
+
+    @Test
+    @DisplayName("Pixels per step, returns at least 4 pixels")
+    public void getPixelsPerStep_shouldReturnAtLeastFourPixels() {
+        //Act
+        int pixelsPerStep = VectorCompareUtilities.getPixelsPerStep();
+
+        //Assert
+        assertTrue(pixelsPerStep >= 4);
+    }
+
+    @Test
+    @DisplayName("Compare pixel range with random opaque pixels, matches scalar kernel")
+    public void comparePixelRange_randomOpaquePixels_shouldMatchScalarKernel() {
+        //Arrange
+        int numPixels = 1037;
+        Random random = new Random(7);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        for (int i = 3; i < numPixels * 4; i += 4) {
+            baselineRGBA[i] = (byte) 255;
+            compareRGBA[i] = (byte) 255;
+        }
+        byte[] expectedRGBA = new byte[numPixels * 4];
+        byte[] actualRGBA = new byte[numPixels * 4];
+
+        //Act
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, numPixels);
+        VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, actualRGBA, 0, numPixels);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+    }
+
+    @Test
+    @DisplayName("Compare pixel range with random transparent pixels, matches scalar kernel")
+    public void comparePixelRange_randomTransparentPixels_shouldMatchScalarKernel() {
+        //Arrange
+        int numPixels = 2053;
+        Random random = new Random(11);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+
+        //Make roughly half of the channels equal so both red and gray pixels are produced
+        for (int i = 0; i < numPixels * 4; i++) {
+            if (random.nextBoolean()) { compareRGBA[i] = baselineRGBA[i]; }
+        }
+        byte[] expectedRGBA = new byte[numPixels * 4];
+        byte[] actualRGBA = new byte[numPixels * 4];
+
+        //Act
+        CompareUtilities.scalarComparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, numPixels);
+        VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, actualRGBA, 0, numPixels);
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+    }
+
+    @Test
+    @DisplayName("Compare pixel range with an offset range, leaves pixels outside the range untouched")
+    public void comparePixelRange_offsetRange_shouldOnlyWriteRange() {
+        //Arrange
+        int numPixels = 100;
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        byte[] outputRGBA = new byte[numPixels * 4];
+
+        //Act
+        VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, outputRGBA, 3, 97);
+
+        //Assert
+        assertEquals(0, outputRGBA[2 * 4 + 3]);
+        assertEquals((byte) 255, outputRGBA[3 * 4 + 3]);
+        assertEquals((byte) 255, outputRGBA[96 * 4 + 3]);
+        assertEquals(0, outputRGBA[97 * 4 + 3]);
+    }
+
+    @Test
+    @DisplayName("Count diff pixels with random pixels, matches scalar count")
+    public void countDiffPixels_randomPixels_shouldMatchScalarCount() {
+        //Arrange
+        int numPixels = 2053;
+        Random random = new Random(19);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+
+        //Act
+        long expectedDiffPixels = CompareUtilities.scalarCountDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE);
+        long actualDiffPixels = VectorCompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE);
+
+        //Assert
+        assertEquals(expectedDiffPixels, actualDiffPixels);
+    }
+
+    @Test
+    @DisplayName("Compare pixel range of off-heap segments, matches the output and count of the byte[] kernel")
+    public void comparePixelRange_offHeapSegments_shouldMatchArrayKernel() {
+        //Arrange
+        int numPixels = 2053;
+        Random random = new Random(23);
+        byte[] baselineRGBA = new byte[numPixels * 4];
+        byte[] compareRGBA = new byte[numPixels * 4];
+        random.nextBytes(baselineRGBA);
+        random.nextBytes(compareRGBA);
+        for (int i = 0; i < numPixels * 4; i++) {
+            if (random.nextBoolean()) { compareRGBA[i] = baselineRGBA[i]; }
+        }
+        byte[] expectedRGBA = new byte[numPixels * 4];
+        byte[] actualRGBA = new byte[numPixels * 4];
+        long expectedDiffPixels = VectorCompareUtilities.countDiffPixels(baselineRGBA, compareRGBA, 0, numPixels, Long.MAX_VALUE);
+        long actualDiffPixels;
+
+        //Act
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment baselineSegment = arena.allocate(baselineRGBA.length, 1);
+            MemorySegment compareSegment = arena.allocate(compareRGBA.length, 1);
+            MemorySegment.copy(baselineRGBA, 0, baselineSegment, ValueLayout.JAVA_BYTE, 0, baselineRGBA.length);
+            MemorySegment.copy(compareRGBA, 0, compareSegment, ValueLayout.JAVA_BYTE, 0, compareRGBA.length);
+            VectorCompareUtilities.comparePixelRange(baselineRGBA, compareRGBA, expectedRGBA, 0, numPixels, null);
+            VectorCompareUtilities.comparePixelRange(baselineSegment, compareSegment, actualRGBA, 0, numPixels, null);
+            actualDiffPixels = VectorCompareUtilities.countDiffPixels(baselineSegment, compareSegment, 0, numPixels, Long.MAX_VALUE);
+        }
+
+        //Assert
+        assertArrayEquals(expectedRGBA, actualRGBA);
+        assertEquals(expectedDiffPixels, actualDiffPixels);
+    }
+}
@@ -0,0 +1,146 @@
+package com.balazs.visual_diff.Utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class WindowedImageInputStreamTests {
+
+    private final static int WINDOW_BYTES = 4096;
+
+    /**
+     * Encodes an image of width x height pixels with random pixels.
+     *
+     * @param int width of the image
+     * @param int height of the image
+     * @param int type of the BufferedImage
+     * @param String format either FORMAT_PNG or FORMAT_JPEG
+     * @return byte[] image file
+     * @throws IOException
+     */
+    private byte[] createRandomImageFile(int width, int height, int type, String format) throws IOException {
+        Random random = new Random(3);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, format, byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Decodes an image file from a WindowedImageInputStream like ImageIO.read.
+     *
+     * @param WindowedImageInputStream input of the image file
+     * @return BufferedImage of the image file
+     * @throws IOException
+     */
+    private BufferedImage readImage(WindowedImageInputStream input) throws IOException {
+        ImageReader reader = ImageIO.getImageReaders(input).next();
+        try {
+            reader.setInput(input, true, true);
+            return reader.read(0);
+        }
+        finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Gets every pixel of an image as ARGB values.
+     *
+     * @param BufferedImage image
+     * @return int[] pixels of the image
+     */
+    private int[] getPixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    @Test
+    @DisplayName("Decoding a PNG file, returns the same pixels as ImageIO.read while discarding the bytes behind the window")
+    public void read_png_shouldDecodeSamePixelsAndDiscardOldBytes() throws IOException {
+        //Arrange
+        byte[] imageData = createRandomImageFile(300, 200, BufferedImage.TYPE_INT_ARGB, FileUtilities.FORMAT_PNG);
+
+        //Act
+        try (WindowedImageInputStream input = WindowedImageInputStream.open(new ByteArrayInputStream(imageData), WINDOW_BYTES)) {
+            BufferedImage image = readImage(input);
+
+            //Assert
+            assertArrayEquals(getPixels(ImageIO.read(new ByteArrayInputStream(imageData))), getPixels(image));
+            assertTrue(input.getFlushedPosition() > imageData.length / 2);
+        }
+    }
+
+    @Test
+    @DisplayName("Decoding a JPEG file, returns the same pixels as ImageIO.read")
+    public void read_jpeg_shouldDecodeSamePixels() throws IOException {
+        //Arrange
+        byte[] imageData = createRandomImageFile(300, 200, BufferedImage.TYPE_3BYTE_BGR, FileUtilities.FORMAT_JPEG);
+
+        //Act
+        try (WindowedImageInputStream input = WindowedImageInputStream.open(new ByteArrayInputStream(imageData), WINDOW_BYTES)) {
+            BufferedImage image = readImage(input);
+
+            //Assert
+            assertArrayEquals(getPixels(ImageIO.read(new ByteArrayInputStream(imageData))), getPixels(image));
+            assertTrue(input.getFlushedPosition() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Decoding an indexed PNG file, whose chunks are all read before the image data, returns the same pixels as ImageIO.read")
+    public void read_indexedPng_shouldDecodeSamePixels() throws IOException {
+        //Arrange
+        byte[] imageData = createRandomImageFile(300, 200, BufferedImage.TYPE_BYTE_INDEXED, FileUtilities.FORMAT_PNG);
+
+        //Act
+        try (WindowedImageInputStream input = WindowedImageInputStream.open(new ByteArrayInputStream(imageData), WINDOW_BYTES)) {
+            BufferedImage image = readImage(input);
+
+            //Assert
+            assertArrayEquals(getPixels(ImageIO.read(new ByteArrayInputStream(imageData))), getPixels(image));
+        }
+    }
+
+    @Test
+    @DisplayName("Reset after reading past the window, returns to the marked position")
+    public void reset_pastWindow_shouldReturnToMarkedPosition() throws IOException {
+        //Arrange
+        byte[] data = new byte[WINDOW_BYTES * 4];
+        new Random(3).nextBytes(data);
+        byte[] firstBytes = new byte[16];
+        System.arraycopy(data, 0, firstBytes, 0, firstBytes.length);
+
+        try (WindowedImageInputStream input = WindowedImageInputStream.open(new ByteArrayInputStream(data), WINDOW_BYTES)) {
+            input.mark();
+            input.readFully(new byte[WINDOW_BYTES * 3]);
+            input.flushBefore(input.getStreamPosition());
+
+            //Act
+            input.reset();
+            byte[] readBytes = new byte[16];
+            input.readFully(readBytes);
+
+            //Assert
+            assertEquals(16, input.getStreamPosition());
+            assertArrayEquals(firstBytes, readBytes);
+        }
+    }
+}